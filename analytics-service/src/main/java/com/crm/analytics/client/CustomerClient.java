@@ -6,6 +6,8 @@ import java.util.Map;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import feign.Response;
+
 @FeignClient(name = "customer-service")
 public interface CustomerClient {
 
@@ -13,11 +15,37 @@ public interface CustomerClient {
     List<Map<String, Object>> getAllCustomers(
             @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
 
+    /** Same as getAllCustomers, left undecoded for {@link JsonRecordReader}. */
+    @GetMapping("/api/customers")
+    Response streamAllCustomers(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
     @GetMapping("/api/leads")
     List<Map<String, Object>> getAllLeads(
             @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
 
+    @GetMapping("/api/leads")
+    Response streamAllLeads(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
     @GetMapping("/api/activities")
     List<Map<String, Object>> getAllActivities(
             @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/activities")
+    Response streamAllActivities(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/activities/recent")
+    List<Map<String, Object>> getRecentActivities(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId,
+            @org.springframework.web.bind.annotation.RequestParam("limit") int limit);
+
+    @GetMapping("/api/customers/stats")
+    Map<String, Object> getCustomerStats(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/customers/stats/daily")
+    Map<String, Object> getDailyLeadStats(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
 }
@@ -0,0 +1,99 @@
+package com.crm.analytics.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.Response;
+
+/**
+ * Reads a JSON array response record by record with Jackson's token parser.
+ *
+ * Only the requested fields of each record are materialized, into a small map
+ * that is handed to the sink and then dropped, so memory stays flat however
+ * many rows the source service returns.
+ */
+@Component
+public class JsonRecordReader {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Counts the records of a JSON array body without decoding them.
+     */
+    public long count(Response response) {
+        return read(response, Collections.<String>emptySet(), 0, record -> {
+            // nothing to collect
+        });
+    }
+
+    /**
+     * Streams the records of a JSON array body into the sink and returns how many
+     * there were. The first fullRecords records are decoded completely (e.g. to
+     * show them as-is); the rest carry only the given fields. When fields is
+     * empty and fullRecords is 0 the sink is never called and the records are
+     * only counted.
+     */
+    public long read(Response response, Set<String> fields, int fullRecords, Consumer<Map<String, Object>> sink) {
+        try (Response closeable = response) {
+            if (closeable.status() < 200 || closeable.status() >= 300 || closeable.body() == null) {
+                throw new RuntimeException("Unexpected response status " + closeable.status());
+            }
+            try (InputStream body = closeable.body().asInputStream();
+                    JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new RuntimeException("Expected a JSON array");
+                }
+                long count = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (count < fullRecords) {
+                        sink.accept(objectMapper.readValue(parser, mapType()));
+                    } else if (fields.isEmpty()) {
+                        parser.skipChildren();
+                    } else {
+                        sink.accept(readFields(parser, fields));
+                    }
+                    count++;
+                }
+                return count;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read response: " + e.getMessage(), e);
+        }
+    }
+
+    private Map<String, Object> readFields(JsonParser parser, Set<String> fields) throws IOException {
+        Map<String, Object> record = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!fields.contains(name)) {
+                parser.skipChildren();
+            } else if (value == JsonToken.VALUE_STRING) {
+                record.put(name, parser.getText());
+            } else if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+                record.put(name, parser.getNumberValue());
+            } else if (value != JsonToken.VALUE_NULL) {
+                record.put(name, objectMapper.readValue(parser, Object.class));
+            }
+        }
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<Map<String, Object>> mapType() {
+        return (Class<Map<String, Object>>) (Class<?>) Map.class;
+    }
+}
@@ -0,0 +1,15 @@
+package com.crm.analytics.client;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import feign.Response;
+
+@FeignClient(name = "marketing-service")
+public interface MarketingClient {
+
+    /** GET /api/campaigns, left undecoded for {@link JsonRecordReader}. */
+    @GetMapping("/api/campaigns")
+    Response streamAllCampaigns(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+}
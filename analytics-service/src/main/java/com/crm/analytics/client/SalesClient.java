@@ -6,10 +6,25 @@ import java.util.Map;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import feign.Response;
+
 @FeignClient(name = "sales-service")
 public interface SalesClient {
 
     @GetMapping("/api/deals")
     List<Map<String, Object>> getAllDeals(
             @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    /** Same as getAllDeals, left undecoded for {@link JsonRecordReader}. */
+    @GetMapping("/api/deals")
+    Response streamAllDeals(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/deals/stats")
+    Map<String, Object> getDealStats(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/deals/stats/daily")
+    Map<String, Object> getDailyDealStats(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
 }
@@ -6,10 +6,21 @@ import java.util.Map;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import feign.Response;
+
 @FeignClient(name = "support-service")
 public interface SupportClient {
 
     @GetMapping("/api/tickets")
     List<Map<String, Object>> getAllTickets(
             @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    /** Same as getAllTickets, left undecoded for {@link JsonRecordReader}. */
+    @GetMapping("/api/tickets")
+    Response streamAllTickets(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
+
+    @GetMapping("/api/tickets/stats")
+    Map<String, Object> getTicketStats(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId);
 }
@@ -0,0 +1,57 @@
+package com.crm.analytics.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Thread pool used by the dashboard to fan out calls to the source services.
+ * Bounded on both threads and queue so a slow downstream service cannot pile up
+ * unlimited work in analytics-service.
+ */
+@Configuration
+public class DashboardConfig {
+
+    @Value("${app.dashboard.pool-size:16}")
+    private int poolSize;
+
+    @Value("${app.dashboard.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${app.dashboard.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService dashboardExecutor() {
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("dashboard-fetch-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Runs background refreshes of stale cached dashboards. Kept apart from
+     * dashboardExecutor because a refresh itself waits on fan-out calls there.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService dashboardRefreshExecutor() {
+        return new ThreadPoolExecutor(refreshThreads, refreshThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), namedThreads("dashboard-refresh-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.crm.analytics.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools of the in-memory fact store: a fork-join pool for parallel column
+ * scans and a small bounded pool for background partition reloads.
+ */
+@Configuration
+public class FactStoreConfig {
+
+    @Value("${app.olap.scan-parallelism:0}")
+    private int scanParallelism;
+
+    @Value("${app.olap.load-threads:2}")
+    private int loadThreads;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool factScanPool() {
+        int parallelism = scanParallelism > 0 ? scanParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService factLoadExecutor() {
+        return new ThreadPoolExecutor(loadThreads, loadThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100), DashboardConfig.namedThreads("fact-load-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
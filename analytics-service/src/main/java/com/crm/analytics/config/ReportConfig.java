@@ -0,0 +1,31 @@
+package com.crm.analytics.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Worker pool for report runs. Small and bounded: a full queue rejects new
+ * runs instead of letting heavy reports pile up in memory.
+ */
+@Configuration
+public class ReportConfig {
+
+    @Value("${app.reports.pool-size:2}")
+    private int poolSize;
+
+    @Value("${app.reports.queue-capacity:20}")
+    private int queueCapacity;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService reportExecutor() {
+        return new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), DashboardConfig.namedThreads("report-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,9 +16,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.crm.analytics.dto.CounterEvent;
+import com.crm.analytics.dto.FactQuery;
 import com.crm.analytics.entity.Report;
 import com.crm.analytics.repository.ReportRepository;
+import com.crm.analytics.service.DashboardCache;
+import com.crm.analytics.service.DashboardCounterService;
 import com.crm.analytics.service.DashboardService;
+import com.crm.analytics.service.FactStore;
+import com.crm.analytics.service.MetricRollupService;
+import com.crm.analytics.service.ReportEngine;
 
 @RestController
 @RequestMapping("/api/analytics")
@@ -30,6 +38,21 @@ public class AnalyticsController {
     @Autowired
     private ReportRepository reportRepository;
 
+    @Autowired
+    private DashboardCounterService counterService;
+
+    @Autowired
+    private MetricRollupService rollupService;
+
+    @Autowired
+    private DashboardCache dashboardCache;
+
+    @Autowired
+    private ReportEngine reportEngine;
+
+    @Autowired
+    private FactStore factStore;
+
     /**
      * GET /api/analytics/dashboard
      * Returns aggregated metrics from all services.
@@ -41,9 +64,118 @@ public class AnalyticsController {
     }
 
     /**
-     * GET /api/analytics/reports
-     * Returns all saved reports.
+     * POST /api/analytics/events
+     * Change events from customer, sales and support services that keep the
+     * materialized dashboard counters up to date.
+     */
+    @PostMapping("/events")
+    public ResponseEntity<Void> recordEvent(@RequestBody CounterEvent event) {
+        counterService.apply(event);
+        dashboardCache.invalidate(event.getCompanyId());
+        factStore.markDirty(event.getCompanyId(), event.getEntityType());
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * POST /api/analytics/events/batch
+     * Same as /events for a batch of events, in order; the services' publishers
+     * send their queued events this way.
+     */
+    @PostMapping("/events/batch")
+    public ResponseEntity<Void> recordEvents(@RequestBody List<CounterEvent> events) {
+        for (CounterEvent event : events) {
+            recordEvent(event);
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * POST /api/analytics/counters/rebuild
+     * Backfills the company's counters from the source services.
+     */
+    @PostMapping("/counters/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildCounters(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId) {
+        Map<String, Object> result = counterService.rebuild(companyId);
+        dashboardCache.invalidate(companyId);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /api/analytics/counters/verify
+     * Compares the company's counters with the source services.
      */
+    @GetMapping("/counters/verify")
+    public ResponseEntity<Map<String, Object>> verifyCounters(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId) {
+        return ResponseEntity.ok(counterService.verify(companyId));
+    }
+
+    /**
+     * GET /api/analytics/trends
+     * Closed-won revenue, closed-won deals and new leads per DAY or MONTH between
+     * from and to (yyyy-MM-dd or yyyy-MM, inclusive), read from the rollup table.
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<Map<String, Object>> getTrends(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId,
+            @org.springframework.web.bind.annotation.RequestParam("from") String from,
+            @org.springframework.web.bind.annotation.RequestParam("to") String to,
+            @org.springframework.web.bind.annotation.RequestParam(value = "granularity",
+                    defaultValue = "MONTH") String granularity,
+            @org.springframework.web.bind.annotation.RequestParam(value = "metric",
+                    required = false) List<String> metrics) {
+        return ResponseEntity.ok(rollupService.getSeries(companyId, metrics, MetricRollupService.parseBucket(from),
+                MetricRollupService.parseBucket(to), granularity));
+    }
+
+    /**
+     * POST /api/analytics/cache/invalidate
+     * Evicts the company's cached dashboard after a write in a source service.
+     */
+    @PostMapping("/cache/invalidate")
+    public ResponseEntity<Void> invalidateDashboard(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId) {
+        dashboardCache.invalidate(companyId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * GET /api/analytics/cache/stats
+     * Hit, miss and eviction counts of the dashboard cache.
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(dashboardCache.getStats());
+    }
+
+    /**
+     * POST /api/analytics/olap/query
+     * Ad-hoc filter / group-by / sum-count-avg over the in-memory deals or tickets facts.
+     */
+    @PostMapping("/olap/query")
+    public ResponseEntity<Map<String, Object>> queryFacts(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId,
+            @RequestBody FactQuery query) {
+        return ResponseEntity.ok(factStore.query(companyId, query));
+    }
+
+    /**
+     * POST /api/analytics/olap/refresh
+     * Reloads the company's facts of one table from the source service now.
+     */
+    @PostMapping("/olap/refresh")
+    public ResponseEntity<Map<String, Object>> refreshFacts(
+            @org.springframework.web.bind.annotation.RequestParam("companyId") String companyId,
+            @org.springframework.web.bind.annotation.RequestParam("table") String table) {
+        return ResponseEntity.ok(factStore.refresh(companyId, table));
+    }
+
+    @GetMapping("/olap/stats")
+    public ResponseEntity<Map<String, Object>> getFactStoreStats() {
+        return ResponseEntity.ok(factStore.getStats());
+    }
+
     /**
      * GET /api/analytics/reports
      * Returns all saved reports for the specific company.
@@ -61,13 +193,53 @@ public class AnalyticsController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * POST /api/analytics/reports
+     * SALES, LEADS, TICKETS and CAMPAIGNS reports are queued for execution and
+     * returned with status QUEUED (202); poll /reports/{id}/status. Other types
+     * are stored as posted.
+     */
     @PostMapping("/reports")
     public ResponseEntity<Report> createReport(@RequestBody Report report) {
+        if (reportEngine.supports(report.getType())) {
+            Report queued = reportEngine.submit(report);
+            HttpStatus status = ReportEngine.FAILED.equals(queued.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                    : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(status).body(queued);
+        }
         return ResponseEntity.status(HttpStatus.CREATED).body(reportRepository.save(report));
     }
 
+    /**
+     * POST /api/analytics/reports/{id}/run
+     * Queues a fresh run of an executable report.
+     */
+    @PostMapping("/reports/{id}/run")
+    public ResponseEntity<Report> rerunReport(@PathVariable Long id) {
+        Report queued = reportEngine.rerun(id);
+        HttpStatus status = ReportEngine.FAILED.equals(queued.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(queued);
+    }
+
+    @GetMapping("/reports/{id}/status")
+    public ResponseEntity<Map<String, Object>> getReportStatus(@PathVariable Long id) {
+        return ResponseEntity.ok(reportEngine.getStatus(id));
+    }
+
+    /**
+     * GET /api/analytics/reports/{id}/result
+     * The stored result of the last completed run; 404 until there is one.
+     */
+    @GetMapping(value = "/reports/{id}/result", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getReportResult(@PathVariable Long id) {
+        String result = reportEngine.getResult(id);
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+
     @DeleteMapping("/reports/{id}")
     public ResponseEntity<Void> deleteReport(@PathVariable Long id) {
+        reportEngine.deleteResult(id);
         reportRepository.deleteById(id);
         return ResponseEntity.noContent().build();
     }
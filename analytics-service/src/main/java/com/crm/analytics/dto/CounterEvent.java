@@ -0,0 +1,26 @@
+package com.crm.analytics.dto;
+
+import java.time.LocalDateTime;
+
+import lombok.Data;
+
+/**
+ * Change notification sent by customer, sales and support services after a
+ * write. "old" fields describe the entity before the change (absent on
+ * CREATED), "new" fields after it (absent on DELETED).
+ */
+@Data
+public class CounterEvent {
+
+    private String companyId;
+    private String entityType; // LEAD, CUSTOMER, ACTIVITY, DEAL, TICKET
+    private Long entityId;
+    private String eventType; // CREATED, UPDATED, DELETED
+
+    private String oldState; // Lead/ticket status or deal stage
+    private String newState;
+    private Double oldAmount; // Deal value
+    private Double newAmount;
+
+    private LocalDateTime createdAt; // Entity creation time, used for monthly buckets
+}
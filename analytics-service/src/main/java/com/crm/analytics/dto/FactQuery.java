@@ -0,0 +1,51 @@
+package com.crm.analytics.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Ad-hoc group-by over the in-memory fact store, e.g. deal value by
+ * assignedTo x stage x quarter:
+ * { "table": "deals", "groupBy": ["assignedTo", "stage", "quarter"], "metrics": ["count", "sum:value"] }
+ */
+@Data
+public class FactQuery {
+
+    private String table; // deals, tickets
+    private Map<String, List<String>> filters; // dimension -> accepted values
+    private String from; // yyyy-MM-dd, inclusive, on the fact's createdAt
+    private String to;
+    private List<String> groupBy; // dimensions and/or year, quarter, month
+    private List<String> metrics; // count, sum:<measure>, avg:<measure>
+    private Integer limit;
+
+    // Defensive copy getters/setters for collections
+    public Map<String, List<String>> getFilters() {
+        return filters == null ? null : Collections.unmodifiableMap(filters);
+    }
+
+    public void setFilters(Map<String, List<String>> filters) {
+        this.filters = filters == null ? null : new LinkedHashMap<>(filters);
+    }
+
+    public List<String> getGroupBy() {
+        return groupBy == null ? null : Collections.unmodifiableList(groupBy);
+    }
+
+    public void setGroupBy(List<String> groupBy) {
+        this.groupBy = groupBy == null ? null : new ArrayList<>(groupBy);
+    }
+
+    public List<String> getMetrics() {
+        return metrics == null ? null : Collections.unmodifiableList(metrics);
+    }
+
+    public void setMetrics(List<String> metrics) {
+        this.metrics = metrics == null ? null : new ArrayList<>(metrics);
+    }
+}
@@ -0,0 +1,55 @@
+package com.crm.analytics.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One pre-aggregated dashboard number for a company, e.g. totalDeals, or
+ * dealStage/PROPOSAL, or ticketStatus/OPEN. Maintained incrementally from
+ * events sent by the source services.
+ */
+@Entity
+@Table(name = "dashboard_counters", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_counter_key", columnNames = { "companyId", "metric", "dimension" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardCounter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String companyId;
+
+    @Column(nullable = false, length = 50)
+    private String metric;
+
+    @Column(nullable = false, length = 50)
+    private String dimension = ""; // Stage or status; empty for plain totals
+
+    private double amount;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
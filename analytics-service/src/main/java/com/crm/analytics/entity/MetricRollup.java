@@ -0,0 +1,60 @@
+package com.crm.analytics.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One time bucket of a trend metric for a company, e.g. closedWonRevenue for
+ * the day 2026-01-05 or for the month starting 2026-01-01. The unique key also
+ * serves range reads by (companyId, metric, granularity, bucket).
+ */
+@Entity
+@Table(name = "metric_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_rollup_bucket", columnNames = { "companyId", "metric", "granularity",
+                "bucket" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String companyId;
+
+    @Column(nullable = false, length = 50)
+    private String metric;
+
+    @Column(nullable = false, length = 10)
+    private String granularity; // DAY, MONTH
+
+    @Column(nullable = false)
+    private LocalDate bucket; // The day, or the first day of the month
+
+    private double amount;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
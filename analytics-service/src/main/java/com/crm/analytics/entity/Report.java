@@ -1,5 +1,6 @@
 package com.crm.analytics.entity;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import javax.persistence.Column;
@@ -37,6 +38,25 @@ public class Report {
     @Column(columnDefinition = "JSON")
     private String data; // JSON blob for report data
 
+    // Execution (SALES, LEADS, TICKETS, CAMPAIGNS); the computed result lives in report_results
+    @Column(length = 20)
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+
+    private LocalDate periodStart; // Optional createdAt filter, inclusive
+    private LocalDate periodEnd;
+
+    @Column(length = 500)
+    private String error;
+
+    private LocalDateTime submittedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @Column(length = 36)
+    private String owner; // instance running a QUEUED or RUNNING report
+
+    private LocalDateTime heartbeatAt; // refreshed by the owner while the run is QUEUED or RUNNING
+
     private Long createdBy;
 
     @Column(updatable = false)
@@ -0,0 +1,54 @@
+package com.crm.analytics.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Gzipped JSON result of a report run, one row per report. Kept out of the
+ * reports table so listing reports never loads result payloads.
+ */
+@Entity
+@Table(name = "report_results")
+@Data
+@NoArgsConstructor
+public class ReportResult {
+
+    @Id
+    private Long reportId;
+
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] content;
+
+    private long uncompressedSize;
+
+    private LocalDateTime createdAt;
+
+    public ReportResult(Long reportId, byte[] content, long uncompressedSize) {
+        this.reportId = reportId;
+        this.content = content != null ? content.clone() : null;
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    public byte[] getContent() {
+        return content != null ? content.clone() : null;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content != null ? content.clone() : null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,30 @@
+package com.crm.analytics.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.analytics.entity.DashboardCounter;
+
+@Repository
+public interface DashboardCounterRepository extends JpaRepository<DashboardCounter, Long> {
+
+    List<DashboardCounter> findByCompanyId(String companyId);
+
+    @Modifying
+    void deleteByCompanyId(String companyId);
+
+    /**
+     * Atomically adds delta to a counter, creating it when missing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO dashboard_counters (company_id, metric, dimension, amount, updated_at) "
+            + "VALUES (:companyId, :metric, :dimension, :delta, NOW()) "
+            + "ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount), updated_at = NOW()", nativeQuery = true)
+    void increment(@Param("companyId") String companyId, @Param("metric") String metric,
+            @Param("dimension") String dimension, @Param("delta") double delta);
+}
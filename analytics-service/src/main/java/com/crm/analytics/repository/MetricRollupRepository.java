@@ -0,0 +1,34 @@
+package com.crm.analytics.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.analytics.entity.MetricRollup;
+
+@Repository
+public interface MetricRollupRepository extends JpaRepository<MetricRollup, Long> {
+
+    List<MetricRollup> findByCompanyIdAndGranularityAndMetricInAndBucketBetweenOrderByBucketAsc(String companyId,
+            String granularity, Collection<String> metrics, LocalDate from, LocalDate to);
+
+    @Modifying
+    void deleteByCompanyId(String companyId);
+
+    /**
+     * Atomically adds delta to a bucket, creating it when missing.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO metric_rollups (company_id, metric, granularity, bucket, amount, updated_at) "
+            + "VALUES (:companyId, :metric, :granularity, :bucket, :delta, NOW()) "
+            + "ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount), updated_at = NOW()", nativeQuery = true)
+    void increment(@Param("companyId") String companyId, @Param("metric") String metric,
+            @Param("granularity") String granularity, @Param("bucket") LocalDate bucket,
+            @Param("delta") double delta);
+}
@@ -1,8 +1,14 @@
 package com.crm.analytics.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Repository;
 
 import com.crm.analytics.entity.Report;
@@ -15,4 +21,23 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     List<Report> findByCompanyId(String companyId);
 
     List<Report> findByCreatedBy(Long userId);
+
+    /**
+     * Marks the owner's runs in the given states as still alive.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.heartbeatAt = :now WHERE r.owner = :owner AND r.status IN :statuses")
+    int heartbeat(@Param("owner") String owner, @Param("statuses") Collection<String> statuses,
+            @Param("now") LocalDateTime now);
+
+    /**
+     * Fails the runs in the given states whose owner stopped sending heartbeats before cutoff.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.status = :failed, r.error = :error, r.completedAt = :now "
+            + "WHERE r.status IN :statuses AND (r.heartbeatAt IS NULL OR r.heartbeatAt < :cutoff)")
+    int failAbandoned(@Param("statuses") Collection<String> statuses, @Param("cutoff") LocalDateTime cutoff,
+            @Param("failed") String failed, @Param("error") String error, @Param("now") LocalDateTime now);
 }
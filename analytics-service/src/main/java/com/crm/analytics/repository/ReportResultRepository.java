@@ -0,0 +1,10 @@
+package com.crm.analytics.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.crm.analytics.entity.ReportResult;
+
+@Repository
+public interface ReportResultRepository extends JpaRepository<ReportResult, Long> {
+}
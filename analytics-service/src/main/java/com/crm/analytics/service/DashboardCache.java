@@ -0,0 +1,177 @@
+package com.crm.analytics.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory dashboard cache keyed by companyId.
+ *
+ * Entries younger than the TTL are served as-is. Within the following stale
+ * window the old entry is still served while one background refresh reloads
+ * it; older entries are reloaded on the request thread. The map is LRU-ordered
+ * and bounded, and writes in the source services evict the tenant's entry via
+ * {@link #invalidate(String)}.
+ */
+@Component
+public class DashboardCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardCache.class);
+
+    @Value("${app.dashboard.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.dashboard.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${app.dashboard.cache.ttl-ms:30000}")
+    private long ttlMs;
+
+    @Value("${app.dashboard.cache.stale-ms:120000}")
+    private long staleMs;
+
+    @Autowired
+    @Qualifier("dashboardRefreshExecutor")
+    private ExecutorService refreshExecutor;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /** Token of the latest load per company; a load only stores its result if still current. */
+    private final Map<String, Object> loadTokens = new ConcurrentHashMap<>();
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public Map<String, Object> get(String companyId, Function<String, Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.apply(companyId);
+        }
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(companyId);
+        }
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAt;
+            if (age < ttlMs) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (age < ttlMs + staleMs) {
+                staleHits.incrementAndGet();
+                refreshAsync(companyId, loader);
+                return entry.value;
+            }
+        }
+        misses.incrementAndGet();
+        return load(companyId, loader);
+    }
+
+    /**
+     * Drops the company's entry and discards any load that started before this call.
+     */
+    public void invalidate(String companyId) {
+        if (companyId == null) {
+            return;
+        }
+        loadTokens.remove(companyId);
+        synchronized (entries) {
+            if (entries.remove(companyId) != null) {
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("enabled", enabled);
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlMs", ttlMs);
+        stats.put("staleMs", staleMs);
+        stats.put("hits", hits.get());
+        stats.put("staleHits", staleHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        return stats;
+    }
+
+    private Map<String, Object> load(String companyId, Function<String, Map<String, Object>> loader) {
+        Object token = new Object();
+        loadTokens.put(companyId, token);
+        Map<String, Object> value = loader.apply(companyId);
+        // Degraded dashboards are served but not cached, so a recovered service shows up on the next request
+        if (!Boolean.TRUE.equals(value.get("degraded")) && loadTokens.remove(companyId, token)) {
+            synchronized (entries) {
+                entries.put(companyId, new Entry(value, System.currentTimeMillis()));
+            }
+        }
+        return value;
+    }
+
+    private void refreshAsync(String companyId, Function<String, Map<String, Object>> loader) {
+        if (!refreshing.add(companyId)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(companyId, loader);
+                } catch (Exception e) {
+                    refreshFailures.incrementAndGet();
+                    logger.warn("Dashboard refresh failed for company {}: {}", companyId, e.getMessage());
+                } finally {
+                    refreshing.remove(companyId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(companyId);
+            refreshFailures.incrementAndGet();
+            logger.warn("Dashboard refresh rejected for company {}", companyId);
+        }
+    }
+
+    private static final class Entry {
+        private final Map<String, Object> value;
+        private final long loadedAt;
+
+        private Entry(Map<String, Object> value, long loadedAt) {
+            this.value = Collections.unmodifiableMap(value);
+            this.loadedAt = loadedAt;
+        }
+    }
+}
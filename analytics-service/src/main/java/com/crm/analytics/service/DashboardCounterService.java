@@ -0,0 +1,340 @@
+package com.crm.analytics.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.analytics.client.CustomerClient;
+import com.crm.analytics.client.SalesClient;
+import com.crm.analytics.client.SupportClient;
+import com.crm.analytics.dto.CounterEvent;
+import com.crm.analytics.entity.DashboardCounter;
+import com.crm.analytics.entity.MetricRollup;
+import com.crm.analytics.repository.DashboardCounterRepository;
+
+/**
+ * Maintains per-company dashboard counters in analytics_db.
+ *
+ * Counters move by deltas derived from change events. Because events are
+ * best-effort, {@link #verify(String)} compares them against the source
+ * services and {@link #rebuild(String)} replaces them with a fresh snapshot.
+ *
+ * A rebuild fetches the snapshot without holding the company's lock, so
+ * events keep applying while the source services answer. Each applied event
+ * bumps the company's sequence; the lock is taken only to swap the snapshot
+ * in, and only if the sequence has not moved since the fetch started. An
+ * event that raced the fetch may or may not be in the snapshot, so the fetch
+ * is repeated up to rebuild-attempts times; if events keep arriving the last
+ * snapshot is swapped in anyway and the result reports how many raced it.
+ * Events applied by other instances are not fenced, so a rebuild is
+ * best-effort; verify shows any drift left.
+ */
+@Service
+public class DashboardCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardCounterService.class);
+
+    public static final String TOTAL_CUSTOMERS = "totalCustomers";
+    public static final String TOTAL_LEADS = "totalLeads";
+    public static final String TOTAL_ACTIVITIES = "totalActivities";
+    public static final String TOTAL_DEALS = "totalDeals";
+    public static final String TOTAL_TICKETS = "totalTickets";
+    public static final String OPEN_TICKETS = "openTickets";
+    public static final String CLOSED_WON_DEALS = "closedWonDeals";
+    public static final String CLOSED_WON_REVENUE = "closedWonRevenue";
+    public static final String DEAL_STAGE = "dealStage";
+    public static final String LEAD_STATUS = "leadStatus";
+    public static final String TICKET_STATUS = "ticketStatus";
+
+    private static final String NO_DIMENSION = "";
+    private static final double TOLERANCE = 0.005;
+
+    @Value("${app.dashboard.counters.rebuild-attempts:3}")
+    private int rebuildAttempts;
+
+    @Autowired
+    private DashboardCounterRepository counterRepository;
+
+    @Autowired
+    private MetricRollupService rollupService;
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    @Autowired
+    private SupportClient supportClient;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, Fence> fences = new ConcurrentHashMap<>();
+
+    /** Per-company lock, and the number of events applied under it. */
+    private static final class Fence {
+        private long applied;
+    }
+
+    /**
+     * Applies one change event. An update is treated as removing the old
+     * version of the entity and adding the new one, so unchanged metrics net out.
+     */
+    public void apply(CounterEvent event) {
+        if (event.getCompanyId() == null || event.getEntityType() == null || event.getEventType() == null) {
+            throw new RuntimeException("companyId, entityType and eventType are required");
+        }
+        Fence fence = fence(event.getCompanyId());
+        synchronized (fence) {
+            transactionTemplate.execute(status -> {
+                applyDeltas(event);
+                return null;
+            });
+            fence.applied++;
+        }
+    }
+
+    private void applyDeltas(CounterEvent event) {
+        Map<String, Double> deltas = new HashMap<>();
+        String eventType = event.getEventType().toUpperCase();
+        if (!"CREATED".equals(eventType)) {
+            contribute(deltas, event, event.getOldState(), event.getOldAmount(), -1);
+        }
+        if (!"DELETED".equals(eventType)) {
+            contribute(deltas, event, event.getNewState(), event.getNewAmount(), 1);
+        }
+        for (Map.Entry<String, Double> delta : deltas.entrySet()) {
+            if (Math.abs(delta.getValue()) > 0) {
+                String[] key = splitKey(delta.getKey());
+                counterRepository.increment(event.getCompanyId(), key[0], key[1], delta.getValue());
+            }
+        }
+        rollupService.apply(event);
+    }
+
+    public Map<String, Double> getCounters(String companyId) {
+        Map<String, Double> counters = new HashMap<>();
+        for (DashboardCounter counter : counterRepository.findByCompanyId(companyId)) {
+            counters.put(key(counter.getMetric(), counter.getDimension()), counter.getAmount());
+        }
+        return counters;
+    }
+
+    /**
+     * Replaces the company's counters and trend rollups with values computed by
+     * the source services.
+     */
+    public Map<String, Object> rebuild(String companyId) {
+        Fence fence = fence(companyId);
+        int attempts = Math.max(1, rebuildAttempts);
+        for (int attempt = 1; ; attempt++) {
+            long before;
+            synchronized (fence) {
+                before = fence.applied;
+            }
+            // Remote calls outside the lock; only the swap holds it
+            Map<String, Double> fresh = loadFromSource(companyId);
+            Collection<MetricRollup> buckets = rollupService.loadFromSource(companyId);
+            synchronized (fence) {
+                long raced = fence.applied - before;
+                if (raced == 0 || attempt >= attempts) {
+                    if (raced > 0) {
+                        logger.warn("{} events for company {} raced the counter rebuild; verify may show drift",
+                                raced, companyId);
+                    }
+                    Map<String, Object> result = transactionTemplate.execute(
+                            status -> replace(companyId, fresh, buckets));
+                    if (result == null) {
+                        throw new RuntimeException("Counter rebuild for company " + companyId + " returned nothing");
+                    }
+                    result.put("eventsDuringFetch", raced);
+                    return result;
+                }
+            }
+            logger.debug("Events arrived during counter rebuild {} for company {}, fetching again",
+                    attempt, companyId);
+        }
+    }
+
+    private Map<String, Object> replace(String companyId, Map<String, Double> fresh,
+            Collection<MetricRollup> buckets) {
+        counterRepository.deleteByCompanyId(companyId);
+        counterRepository.flush();
+
+        List<DashboardCounter> rows = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : fresh.entrySet()) {
+            String[] key = splitKey(entry.getKey());
+            DashboardCounter counter = new DashboardCounter();
+            counter.setCompanyId(companyId);
+            counter.setMetric(key[0]);
+            counter.setDimension(key[1]);
+            counter.setAmount(entry.getValue());
+            rows.add(counter);
+        }
+        counterRepository.saveAll(rows);
+        logger.info("Rebuilt {} dashboard counters for company {}", rows.size(), companyId);
+        int trendBuckets = rollupService.replace(companyId, buckets);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("counters", rows.size());
+        result.put("trendBuckets", trendBuckets);
+        result.put("rebuiltAt", LocalDateTime.now().toString());
+        return result;
+    }
+
+    /**
+     * Compares the stored counters against the source services without changing them.
+     */
+    public Map<String, Object> verify(String companyId) {
+        Map<String, Double> stored = getCounters(companyId);
+        Map<String, Double> fresh = loadFromSource(companyId);
+
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        TreeSet<String> keys = new TreeSet<>(stored.keySet());
+        keys.addAll(fresh.keySet());
+        for (String key : keys) {
+            double materialized = stored.getOrDefault(key, 0.0);
+            double source = fresh.getOrDefault(key, 0.0);
+            if (Math.abs(materialized - source) > TOLERANCE) {
+                String[] parts = splitKey(key);
+                Map<String, Object> mismatch = new HashMap<>();
+                mismatch.put("metric", parts[0]);
+                mismatch.put("dimension", parts[1]);
+                mismatch.put("materialized", materialized);
+                mismatch.put("source", source);
+                mismatches.add(mismatch);
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("consistent", mismatches.isEmpty());
+        result.put("mismatches", mismatches);
+        result.put("checkedAt", LocalDateTime.now().toString());
+        return result;
+    }
+
+    // ========== Helpers ==========
+
+    private void contribute(Map<String, Double> deltas, CounterEvent event, String state, Double amount, int sign) {
+        double value = amount != null ? amount : 0.0;
+        switch (event.getEntityType().toUpperCase()) {
+            case "CUSTOMER":
+                add(deltas, TOTAL_CUSTOMERS, NO_DIMENSION, sign);
+                break;
+            case "ACTIVITY":
+                add(deltas, TOTAL_ACTIVITIES, NO_DIMENSION, sign);
+                break;
+            case "LEAD":
+                add(deltas, TOTAL_LEADS, NO_DIMENSION, sign);
+                if (state != null) {
+                    add(deltas, LEAD_STATUS, state, sign);
+                }
+                break;
+            case "DEAL":
+                add(deltas, TOTAL_DEALS, NO_DIMENSION, sign);
+                add(deltas, DEAL_STAGE, state != null ? state : "UNKNOWN", sign);
+                if ("CLOSED_WON".equals(state)) {
+                    add(deltas, CLOSED_WON_DEALS, NO_DIMENSION, sign);
+                    add(deltas, CLOSED_WON_REVENUE, NO_DIMENSION, sign * value);
+                }
+                break;
+            case "TICKET":
+                add(deltas, TOTAL_TICKETS, NO_DIMENSION, sign);
+                if (state != null) {
+                    add(deltas, TICKET_STATUS, state, sign);
+                }
+                if ("OPEN".equals(state)) {
+                    add(deltas, OPEN_TICKETS, NO_DIMENSION, sign);
+                }
+                break;
+            default:
+                throw new RuntimeException("Unsupported entity type: " + event.getEntityType());
+        }
+    }
+
+    /**
+     * Computes the full counter set from the services' /stats endpoints.
+     */
+    private Map<String, Double> loadFromSource(String companyId) {
+        Map<String, Object> customerStats;
+        Map<String, Object> dealStats;
+        Map<String, Object> ticketStats;
+        try {
+            customerStats = customerClient.getCustomerStats(companyId);
+            dealStats = salesClient.getDealStats(companyId);
+            ticketStats = supportClient.getTicketStats(companyId);
+        } catch (Exception e) {
+            throw new RuntimeException("Source services unavailable: " + e.getMessage());
+        }
+
+        Map<String, Double> counters = new HashMap<>();
+        add(counters, TOTAL_CUSTOMERS, NO_DIMENSION, asDouble(customerStats.get(TOTAL_CUSTOMERS)));
+        add(counters, TOTAL_LEADS, NO_DIMENSION, asDouble(customerStats.get(TOTAL_LEADS)));
+        add(counters, TOTAL_ACTIVITIES, NO_DIMENSION, asDouble(customerStats.get(TOTAL_ACTIVITIES)));
+        for (Map<String, Object> bucket : asList(customerStats.get("leadsByStatus"))) {
+            add(counters, LEAD_STATUS, String.valueOf(bucket.get("status")), asDouble(bucket.get("count")));
+        }
+
+        add(counters, TOTAL_DEALS, NO_DIMENSION, asDouble(dealStats.get(TOTAL_DEALS)));
+        for (Map<String, Object> bucket : asList(dealStats.get("byStage"))) {
+            String stage = String.valueOf(bucket.get("stage"));
+            add(counters, DEAL_STAGE, stage, asDouble(bucket.get("count")));
+            if ("CLOSED_WON".equals(stage)) {
+                add(counters, CLOSED_WON_DEALS, NO_DIMENSION, asDouble(bucket.get("count")));
+                add(counters, CLOSED_WON_REVENUE, NO_DIMENSION, asDouble(bucket.get("value")));
+            }
+        }
+
+        add(counters, TOTAL_TICKETS, NO_DIMENSION, asDouble(ticketStats.get(TOTAL_TICKETS)));
+        for (Map<String, Object> bucket : asList(ticketStats.get("byStatus"))) {
+            String status = String.valueOf(bucket.get("status"));
+            add(counters, TICKET_STATUS, status, asDouble(bucket.get("count")));
+            if ("OPEN".equals(status)) {
+                add(counters, OPEN_TICKETS, NO_DIMENSION, asDouble(bucket.get("count")));
+            }
+        }
+        return counters;
+    }
+
+    private void add(Map<String, Double> counters, String metric, String dimension, double delta) {
+        counters.merge(key(metric, dimension), delta, Double::sum);
+    }
+
+    public static String key(String metric, String dimension) {
+        return metric + "|" + (dimension != null ? dimension : NO_DIMENSION);
+    }
+
+    private static String[] splitKey(String key) {
+        int separator = key.indexOf('|');
+        return new String[] { key.substring(0, separator), key.substring(separator + 1) };
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> asList(Object value) {
+        return value instanceof List ? (List<Map<String, Object>>) value : Collections.emptyList();
+    }
+
+    private Fence fence(String companyId) {
+        return fences.computeIfAbsent(companyId, id -> new Fence());
+    }
+}
@@ -1,13 +1,31 @@
 package com.crm.analytics.service;
 
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.crm.analytics.client.CustomerClient;
+import com.crm.analytics.client.JsonRecordReader;
 import com.crm.analytics.client.SalesClient;
 import com.crm.analytics.client.SupportClient;
 
@@ -17,6 +35,23 @@ import com.crm.analytics.client.SupportClient;
 @Service
 public class DashboardService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    private static final String CUSTOMERS = "customers";
+    private static final String LEADS = "leads";
+    private static final String DEALS = "deals";
+    private static final String TICKETS = "tickets";
+    private static final String ACTIVITIES = "activities";
+
+    private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct",
+            "Nov", "Dec" };
+
+    private static final Set<String> NO_FIELDS = Collections.emptySet();
+    private static final Set<String> CREATED_AT = Collections.singleton("createdAt");
+    private static final Set<String> STATUS = Collections.singleton("status");
+    private static final Set<String> DEAL_FIELDS = Collections
+            .unmodifiableSet(new HashSet<>(Arrays.asList("stage", "value", "createdAt")));
+
     @Autowired
     private CustomerClient customerClient;
 
@@ -26,185 +61,480 @@ public class DashboardService {
     @Autowired
     private SupportClient supportClient;
 
+    @Autowired
+    private DashboardCounterService counterService;
+
+    @Autowired
+    private MetricRollupService rollupService;
+
+    @Autowired
+    private DashboardCache dashboardCache;
+
+    @Autowired
+    private JsonRecordReader recordReader;
+
+    @Autowired
+    @Qualifier("dashboardExecutor")
+    private ExecutorService dashboardExecutor;
+
+    @Value("${app.dashboard.parallel:true}")
+    private boolean parallel;
+
+    @Value("${app.dashboard.call-timeout-ms:2000}")
+    private long callTimeoutMs;
+
+    @Value("${app.dashboard.deadline-ms:3000}")
+    private long deadlineMs;
+
+    /**
+     * "aggregate" asks each service for database-side counts; "list" downloads the
+     * full entity lists and counts them here (for services without /stats yet);
+     * "materialized" reads the event-maintained counters in analytics_db.
+     */
+    @Value("${app.dashboard.source:aggregate}")
+    private String source;
+
+    /**
+     * In "list" mode, read the entity lists with {@link JsonRecordReader} instead
+     * of decoding them into a List of Maps first.
+     */
+    @Value("${app.dashboard.streaming:true}")
+    private boolean streaming;
+
     /**
      * Returns a combined dashboard with counts and breakdowns from all services.
+     * Sections whose source service failed or missed the deadline are reported as
+     * DEGRADED in "sections" and contribute empty data instead of failing the page.
+     * Served through {@link DashboardCache}.
      */
     public Map<String, Object> getDashboard(String companyId) {
+        return dashboardCache.get(companyId, this::loadDashboard);
+    }
+
+    private Map<String, Object> loadDashboard(String companyId) {
+        if ("list".equalsIgnoreCase(source)) {
+            return streaming ? getDashboardFromListStreams(companyId) : getDashboardFromLists(companyId);
+        }
+        if ("materialized".equalsIgnoreCase(source)) {
+            return getDashboardFromCounters(companyId);
+        }
+        return getDashboardFromAggregates(companyId);
+    }
+
+    // ========== Materialized counters ==========
+
+    private Map<String, Object> getDashboardFromCounters(String companyId) {
+        Map<String, Callable<List<Map<String, Object>>>> sources = new LinkedHashMap<>();
+        sources.put(ACTIVITIES, () -> customerClient.getRecentActivities(companyId, 5));
+        Map<String, List<Map<String, Object>>> fetched = fetch(sources);
+
+        Map<String, Double> counters = counterService.getCounters(companyId);
         Map<String, Object> dashboard = new HashMap<>();
+        putSectionStatus(dashboard, sources.keySet(), fetched.keySet());
 
-        // 1. Fetch Data
-        List<Map<String, Object>> customers = null;
-        try {
-            customers = customerClient.getAllCustomers(companyId);
-            dashboard.put("totalCustomers", customers.size());
-        } catch (Exception e) {
-            dashboard.put("totalCustomers", 0);
-        }
-
-        List<Map<String, Object>> leads = null;
-        try {
-            leads = customerClient.getAllLeads(companyId);
-            dashboard.put("totalLeads", leads != null ? leads.size() : 0);
-        } catch (Exception e) {
-            dashboard.put("totalLeads", 0);
-        }
-
-        List<Map<String, Object>> deals = null;
-        try {
-            deals = salesClient.getAllDeals(companyId);
-            dashboard.put("totalDeals", deals != null ? deals.size() : 0);
-        } catch (Exception e) {
-            dashboard.put("totalDeals", 0);
-        }
-
-        List<Map<String, Object>> tickets = null;
-        try {
-            tickets = supportClient.getAllTickets(companyId);
-            dashboard.put("totalTickets", tickets != null ? tickets.size() : 0);
-
-            long openTickets = tickets != null ? tickets.stream()
-                    .filter(t -> "OPEN".equals(t.get("status")))
-                    .count() : 0;
-            dashboard.put("openTickets", openTickets);
-        } catch (Exception e) {
-            dashboard.put("openTickets", 0);
-        }
-
-        List<Map<String, Object>> activities = null;
-        try {
-            activities = customerClient.getAllActivities(companyId);
-            dashboard.put("totalActivities", activities != null ? activities.size() : 0);
-
-            // Get recent 5 activities
-            if (activities != null) {
-                List<Map<String, Object>> recentActivities = activities.stream()
-                        .limit(5)
-                        .collect(java.util.stream.Collectors.toList());
-                dashboard.put("recentActivities", recentActivities);
-            } else {
-                dashboard.put("recentActivities", java.util.Collections.emptyList());
+        dashboard.put("totalCustomers", counter(counters, DashboardCounterService.TOTAL_CUSTOMERS));
+        dashboard.put("totalLeads", counter(counters, DashboardCounterService.TOTAL_LEADS));
+        dashboard.put("totalActivities", counter(counters, DashboardCounterService.TOTAL_ACTIVITIES));
+        dashboard.put("totalDeals", counter(counters, DashboardCounterService.TOTAL_DEALS));
+        dashboard.put("totalTickets", counter(counters, DashboardCounterService.TOTAL_TICKETS));
+        dashboard.put("openTickets", counter(counters, DashboardCounterService.OPEN_TICKETS));
+        dashboard.put("closedWonDeals", counter(counters, DashboardCounterService.CLOSED_WON_DEALS));
+        dashboard.put("totalRevenue", counters.getOrDefault(
+                DashboardCounterService.key(DashboardCounterService.CLOSED_WON_REVENUE, ""), 0.0));
+        dashboard.put("recentActivities", fetched.getOrDefault(ACTIVITIES, Collections.emptyList()));
+
+        List<Map<String, Object>> pieData = new java.util.ArrayList<>();
+        for (Map.Entry<String, Double> entry : counters.entrySet()) {
+            String[] key = entry.getKey().split("\\|", 2);
+            if (DashboardCounterService.DEAL_STAGE.equals(key[0]) && entry.getValue() > 0) {
+                Map<String, Object> item = new HashMap<>();
+                item.put("name", key[1]);
+                item.put("value", Math.round(entry.getValue()));
+                pieData.add(item);
             }
-        } catch (Exception e) {
-            dashboard.put("totalActivities", 0);
-            dashboard.put("recentActivities", java.util.Collections.emptyList());
         }
+        dashboard.put("dealDistribution", pieData);
 
-        // 2. Calculate Key Metrics
-        Map<String, Double> monthlySales = new HashMap<>();
+        // Trend from the monthly rollups of the trailing twelve months only
+        int firstPeriod = trendStart();
+        LocalDate from = LocalDate.of(firstPeriod / 12, firstPeriod % 12 + 1, 1);
+        LocalDate to = from.plusMonths(11);
+        double[] monthlySales = new double[12];
+        long[] monthlyLeads = new long[12];
+        for (Map.Entry<LocalDate, Double> bucket : rollupService
+                .getMonthly(companyId, MetricRollupService.CLOSED_WON_REVENUE, from, to).entrySet()) {
+            addToPeriod(monthlySales, firstPeriod, period(bucket.getKey()), bucket.getValue());
+        }
+        for (Map.Entry<LocalDate, Double> bucket : rollupService
+                .getMonthly(companyId, MetricRollupService.LEADS_CREATED, from, to).entrySet()) {
+            addToPeriod(monthlyLeads, firstPeriod, period(bucket.getKey()), Math.round(bucket.getValue()));
+        }
+        dashboard.put("salesTrend", buildTrend(firstPeriod, monthlySales, monthlyLeads));
+        return dashboard;
+    }
 
-        if (deals != null) {
-            double totalRevenue = deals.stream()
-                    .filter(d -> "CLOSED_WON".equals(d.get("stage")))
-                    .mapToDouble(d -> {
-                        Object val = d.get("value");
-                        if (val instanceof Number) {
-                            return ((Number) val).doubleValue();
-                        }
-                        return 0.0;
-                    })
-                    .sum();
-            dashboard.put("totalRevenue", totalRevenue);
-
-            long closedWon = deals.stream()
-                    .filter(d -> "CLOSED_WON".equals(d.get("stage")))
-                    .count();
-            dashboard.put("closedWonDeals", closedWon);
-
-            // 3. Deal Distribution (Pie Chart)
-            Map<String, Long> dealDistribution = deals.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(
-                            d -> (String) d.getOrDefault("stage", "UNKNOWN"),
-                            java.util.stream.Collectors.counting()));
-
-            // Format for frontend Recharts: { name: 'Stage', value: 10 }
-            List<Map<String, Object>> pieData = dealDistribution.entrySet().stream()
-                    .map(entry -> {
-                        Map<String, Object> item = new HashMap<>();
-                        item.put("name", entry.getKey());
-                        item.put("value", entry.getValue());
-                        return item;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            dashboard.put("dealDistribution", pieData);
-
-            // Collect Sales Data
-            for (Map<String, Object> deal : deals) {
-                if ("CLOSED_WON".equals(deal.get("stage"))) {
-                    java.time.LocalDateTime date = parseDate(deal.get("createdAt"));
-                    if (date != null) {
-                        String month = date.getMonth().getDisplayName(java.time.format.TextStyle.SHORT,
-                                java.util.Locale.ENGLISH);
-
-                        double val = 0.0;
-                        Object v = deal.get("value");
-                        if (v instanceof Number) {
-                            val = ((Number) v).doubleValue();
-                        }
-
-                        monthlySales.merge(month, val, Double::sum);
-                    }
+    // ========== Aggregate endpoints ==========
+
+    private Map<String, Object> getDashboardFromAggregates(String companyId) {
+        Map<String, Callable<Map<String, Object>>> sources = new LinkedHashMap<>();
+        sources.put(CUSTOMERS, () -> customerClient.getCustomerStats(companyId));
+        sources.put(DEALS, () -> salesClient.getDealStats(companyId));
+        sources.put(TICKETS, () -> supportClient.getTicketStats(companyId));
+        Map<String, Map<String, Object>> fetched = fetch(sources);
+
+        Map<String, Object> dashboard = new HashMap<>();
+        putSectionStatus(dashboard, sources.keySet(), fetched.keySet());
+
+        Map<String, Object> customerStats = fetched.getOrDefault(CUSTOMERS, Collections.emptyMap());
+        dashboard.put("totalCustomers", asLong(customerStats.get("totalCustomers")));
+        dashboard.put("totalLeads", asLong(customerStats.get("totalLeads")));
+        dashboard.put("totalActivities", asLong(customerStats.get("totalActivities")));
+        dashboard.put("recentActivities", asList(customerStats.get("recentActivities")));
+
+        int firstPeriod = trendStart();
+        long[] monthlyLeads = new long[12];
+        for (Map<String, Object> bucket : asList(customerStats.get("leadsByMonth"))) {
+            addToPeriod(monthlyLeads, firstPeriod, period(bucket), asLong(bucket.get("count")));
+        }
+
+        double[] monthlySales = new double[12];
+        Map<String, Object> dealStats = fetched.get(DEALS);
+        if (dealStats != null) {
+            DealMetrics metrics = new DealMetrics(firstPeriod);
+            for (Map<String, Object> bucket : asList(dealStats.get("byStage"))) {
+                metrics.addBucket((String) bucket.get("stage"), asLong(bucket.get("count")),
+                        asDouble(bucket.get("value")));
+            }
+            for (Map<String, Object> bucket : asList(dealStats.get("byMonth"))) {
+                if ("CLOSED_WON".equals(bucket.get("stage"))) {
+                    metrics.addClosedWonRevenue(period(bucket), asDouble(bucket.get("value")));
                 }
             }
+            putDealMetrics(dashboard, metrics);
+            dashboard.put("totalDeals", asLong(dealStats.get("totalDeals")));
+            monthlySales = metrics.getClosedWonByMonth();
         } else {
-            dashboard.put("dealDistribution", java.util.Collections.emptyList());
+            dashboard.put("totalDeals", 0L);
+            dashboard.put("dealDistribution", Collections.emptyList());
         }
 
-        // LEADS Trend Data Collection (Outside deals check)
-        Map<String, Long> monthlyLeads = new HashMap<>();
-        if (leads != null) {
-            for (Map<String, Object> lead : leads) {
-                java.time.LocalDateTime date = parseDate(lead.get("createdAt"));
-                if (date != null) {
-                    String month = date.getMonth().getDisplayName(java.time.format.TextStyle.SHORT,
-                            java.util.Locale.ENGLISH);
+        Map<String, Object> ticketStats = fetched.getOrDefault(TICKETS, Collections.emptyMap());
+        long openTickets = 0;
+        for (Map<String, Object> bucket : asList(ticketStats.get("byStatus"))) {
+            if ("OPEN".equals(bucket.get("status"))) {
+                openTickets += asLong(bucket.get("count"));
+            }
+        }
+        dashboard.put("totalTickets", asLong(ticketStats.get("totalTickets")));
+        dashboard.put("openTickets", openTickets);
+
+        dashboard.put("salesTrend", buildTrend(firstPeriod, monthlySales, monthlyLeads));
+        return dashboard;
+    }
 
-                    monthlyLeads.merge(month, 1L, Long::sum);
+    // ========== Full entity lists, streamed ==========
+
+    /**
+     * Same figures as {@link #getDashboardFromLists(String)}, but each list is
+     * folded into counters while it is being read, so only a handful of fields
+     * of one record are held at a time.
+     */
+    private Map<String, Object> getDashboardFromListStreams(String companyId) {
+        int firstPeriod = trendStart();
+        Map<String, Callable<Object>> sources = new LinkedHashMap<>();
+        sources.put(CUSTOMERS, () -> {
+            ListTally tally = new ListTally();
+            tally.count = recordReader.count(customerClient.streamAllCustomers(companyId));
+            return tally;
+        });
+        sources.put(LEADS, () -> {
+            ListTally tally = new ListTally();
+            tally.count = recordReader.read(customerClient.streamAllLeads(companyId), CREATED_AT, 0,
+                    lead -> addToPeriod(tally.byMonth, firstPeriod, DealMetrics.periodOf(lead.get("createdAt")),
+                            1L));
+            return tally;
+        });
+        sources.put(DEALS, () -> {
+            DealMetrics metrics = new DealMetrics(firstPeriod);
+            recordReader.read(salesClient.streamAllDeals(companyId), DEAL_FIELDS, 0, metrics::addDeal);
+            return metrics;
+        });
+        sources.put(TICKETS, () -> {
+            ListTally tally = new ListTally();
+            tally.count = recordReader.read(supportClient.streamAllTickets(companyId), STATUS, 0, ticket -> {
+                if ("OPEN".equals(ticket.get("status"))) {
+                    tally.matching++;
                 }
+            });
+            return tally;
+        });
+        sources.put(ACTIVITIES, () -> {
+            ListTally tally = new ListTally();
+            tally.count = recordReader.read(customerClient.streamAllActivities(companyId), NO_FIELDS, 5,
+                    tally.head::add);
+            return tally;
+        });
+        Map<String, Object> fetched = fetch(sources);
+
+        Map<String, Object> dashboard = new HashMap<>();
+        putSectionStatus(dashboard, sources.keySet(), fetched.keySet());
+
+        ListTally customers = (ListTally) fetched.getOrDefault(CUSTOMERS, ListTally.EMPTY);
+        ListTally leads = (ListTally) fetched.getOrDefault(LEADS, ListTally.EMPTY);
+        ListTally tickets = (ListTally) fetched.getOrDefault(TICKETS, ListTally.EMPTY);
+        ListTally activities = (ListTally) fetched.getOrDefault(ACTIVITIES, ListTally.EMPTY);
+        dashboard.put("totalCustomers", customers.count);
+        dashboard.put("totalLeads", leads.count);
+        dashboard.put("totalTickets", tickets.count);
+        dashboard.put("openTickets", tickets.matching);
+        dashboard.put("totalActivities", activities.count);
+        dashboard.put("recentActivities", activities.head);
+
+        double[] monthlySales = new double[12];
+        DealMetrics deals = (DealMetrics) fetched.get(DEALS);
+        if (deals != null) {
+            putDealMetrics(dashboard, deals);
+            monthlySales = deals.getClosedWonByMonth();
+        } else {
+            dashboard.put("totalDeals", 0L);
+            dashboard.put("dealDistribution", Collections.emptyList());
+        }
+
+        dashboard.put("salesTrend", buildTrend(firstPeriod, monthlySales, leads.byMonth));
+        return dashboard;
+    }
+
+    /**
+     * Running totals for one streamed list.
+     */
+    private static final class ListTally {
+        private static final ListTally EMPTY = new ListTally();
+
+        private long count;
+        private long matching;
+        private final long[] byMonth = new long[12];
+        private final List<Map<String, Object>> head = new java.util.ArrayList<>();
+    }
+
+    // ========== Full entity lists ==========
+
+    private Map<String, Object> getDashboardFromLists(String companyId) {
+        Map<String, Object> dashboard = new HashMap<>();
+
+        // 1. Fetch Data
+        Map<String, Callable<List<Map<String, Object>>>> sources = new LinkedHashMap<>();
+        sources.put(CUSTOMERS, () -> customerClient.getAllCustomers(companyId));
+        sources.put(LEADS, () -> customerClient.getAllLeads(companyId));
+        sources.put(DEALS, () -> salesClient.getAllDeals(companyId));
+        sources.put(TICKETS, () -> supportClient.getAllTickets(companyId));
+        sources.put(ACTIVITIES, () -> customerClient.getAllActivities(companyId));
+        Map<String, List<Map<String, Object>>> fetched = fetch(sources);
+        putSectionStatus(dashboard, sources.keySet(), fetched.keySet());
+
+        List<Map<String, Object>> customers = fetched.get(CUSTOMERS);
+        dashboard.put("totalCustomers", customers != null ? customers.size() : 0);
+
+        List<Map<String, Object>> leads = fetched.get(LEADS);
+        dashboard.put("totalLeads", leads != null ? leads.size() : 0);
+
+        List<Map<String, Object>> deals = fetched.get(DEALS);
+        dashboard.put("totalDeals", deals != null ? deals.size() : 0);
+
+        List<Map<String, Object>> tickets = fetched.get(TICKETS);
+        dashboard.put("totalTickets", tickets != null ? tickets.size() : 0);
+        long openTickets = tickets != null ? tickets.stream()
+                .filter(t -> "OPEN".equals(t.get("status")))
+                .count() : 0;
+        dashboard.put("openTickets", openTickets);
+
+        List<Map<String, Object>> activities = fetched.get(ACTIVITIES);
+        dashboard.put("totalActivities", activities != null ? activities.size() : 0);
+
+        // Get recent 5 activities
+        if (activities != null) {
+            List<Map<String, Object>> recentActivities = activities.stream()
+                    .limit(5)
+                    .collect(java.util.stream.Collectors.toList());
+            dashboard.put("recentActivities", recentActivities);
+        } else {
+            dashboard.put("recentActivities", Collections.emptyList());
+        }
+
+        // 2. Deal metrics: revenue, closed-won count, distribution and monthly sales in one pass
+        int firstPeriod = trendStart();
+        double[] monthlySales = new double[12];
+        if (deals != null) {
+            DealMetrics metrics = DealMetrics.fromDeals(deals, firstPeriod);
+            putDealMetrics(dashboard, metrics);
+            monthlySales = metrics.getClosedWonByMonth();
+        } else {
+            dashboard.put("dealDistribution", Collections.emptyList());
+        }
+
+        // 3. Leads per month
+        long[] monthlyLeads = new long[12];
+        if (leads != null) {
+            for (Map<String, Object> lead : leads) {
+                addToPeriod(monthlyLeads, firstPeriod, DealMetrics.periodOf(lead.get("createdAt")), 1L);
             }
         }
 
-        // GENERATE TREND DATA (Always runs)
-        // Combine into list: [{ name: 'Jan', sales: 100, leads: 5 }, ...]
-        // Fixed list of months to ensure order
-        String[] months = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+        dashboard.put("salesTrend", buildTrend(firstPeriod, monthlySales, monthlyLeads));
+        return dashboard;
+    }
 
-        List<Map<String, Object>> trendData = new java.util.ArrayList<>();
+    // ========== Helpers ==========
 
-        for (String month : months) {
-            // ALWAYS add the month, even if data is 0, so the graph axis renders correctly
+    /**
+     * Combine into list: [{ name: 'Jan', period: '2026-01', sales: 100, leads: 5 }, ...]
+     * covering the twelve months from firstPeriod up to the current month. Every
+     * month is always present, even with 0, so the graph axis renders correctly;
+     * names are unique within the window so the same month of different years never merges.
+     */
+    private List<Map<String, Object>> buildTrend(int firstPeriod, double[] monthlySales, long[] monthlyLeads) {
+        List<Map<String, Object>> trendData = new java.util.ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int period = firstPeriod + i;
             Map<String, Object> point = new HashMap<>();
-            point.put("name", month);
-            point.put("sales", monthlySales.getOrDefault(month, 0.0));
-            point.put("leads", monthlyLeads.getOrDefault(month, 0L));
+            point.put("name", MONTHS[period % 12]);
+            point.put("period", String.format("%04d-%02d", period / 12, period % 12 + 1));
+            point.put("sales", monthlySales[i]);
+            point.put("leads", monthlyLeads[i]);
             trendData.add(point);
         }
-        dashboard.put("salesTrend", trendData);
+        return trendData;
+    }
 
-        return dashboard;
+    /**
+     * Period (months since year 0) of the first month in the trailing twelve-month trend window.
+     */
+    private int trendStart() {
+        return period(LocalDate.now()) - 11;
+    }
+
+    private static int period(LocalDate date) {
+        return DealMetrics.period(date.getYear(), date.getMonthValue());
+    }
+
+    private int period(Map<String, Object> bucket) {
+        return DealMetrics.period((int) asLong(bucket.get("year")), (int) asLong(bucket.get("month")));
     }
 
-    private java.time.LocalDateTime parseDate(Object dateObj) {
-        if (dateObj == null) {
-            return null;
-        }
-        try {
-            if (dateObj instanceof String) {
-                return java.time.LocalDateTime.parse((String) dateObj);
-            } else if (dateObj instanceof java.util.List) {
-                java.util.List<?> list = (java.util.List<?>) dateObj;
-                if (list.size() >= 3) {
-                    int year = ((Number) list.get(0)).intValue();
-                    int month = ((Number) list.get(1)).intValue();
-                    int day = ((Number) list.get(2)).intValue();
-                    int hour = list.size() > 3 ? ((Number) list.get(3)).intValue() : 0;
-                    int minute = list.size() > 4 ? ((Number) list.get(4)).intValue() : 0;
-                    int second = list.size() > 5 ? ((Number) list.get(5)).intValue() : 0;
-                    return java.time.LocalDateTime.of(year, month, day, hour, minute, second);
+    private void putDealMetrics(Map<String, Object> dashboard, DealMetrics metrics) {
+        dashboard.put("totalDeals", metrics.getTotalDeals());
+        dashboard.put("totalRevenue", metrics.getClosedWonRevenue());
+        dashboard.put("closedWonDeals", metrics.getClosedWonDeals());
+        dashboard.put("dealDistribution", metrics.getDistribution());
+    }
+
+    private static void addToPeriod(double[] months, int firstPeriod, int period, double value) {
+        int slot = period - firstPeriod;
+        if (period >= 0 && slot >= 0 && slot < months.length) {
+            months[slot] += value;
+        }
+    }
+
+    private static void addToPeriod(long[] months, int firstPeriod, int period, long value) {
+        int slot = period - firstPeriod;
+        if (period >= 0 && slot >= 0 && slot < months.length) {
+            months[slot] += value;
+        }
+    }
+
+    private void putSectionStatus(Map<String, Object> dashboard, java.util.Set<String> requested,
+            java.util.Set<String> fetched) {
+        Map<String, String> sectionStatus = new LinkedHashMap<>();
+        for (String section : requested) {
+            sectionStatus.put(section, fetched.contains(section) ? "OK" : "DEGRADED");
+        }
+        dashboard.put("sections", sectionStatus);
+        dashboard.put("degraded", sectionStatus.containsValue("DEGRADED"));
+    }
+
+    private <T> Map<String, T> fetch(Map<String, Callable<T>> sources) {
+        return parallel ? fetchParallel(sources) : fetchSequential(sources);
+    }
+
+    /**
+     * Calls each source one after another. Total latency is the sum of all calls.
+     */
+    private <T> Map<String, T> fetchSequential(Map<String, Callable<T>> sources) {
+        Map<String, T> results = new HashMap<>();
+        for (Map.Entry<String, Callable<T>> source : sources.entrySet()) {
+            try {
+                T result = source.getValue().call();
+                if (result != null) {
+                    results.put(source.getKey(), result);
                 }
+            } catch (Exception e) {
+                logger.warn("Dashboard section {} unavailable: {}", source.getKey(), e.getMessage());
             }
-        } catch (Exception e) {
-            // Ignore parsing errors
         }
-        return null;
+        return results;
+    }
+
+    /**
+     * Calls all sources concurrently on the bounded dashboard pool. Each call gets
+     * at most call-timeout-ms and the whole fan-out at most deadline-ms, so latency
+     * is bounded by the slowest call rather than the sum. Calls that fail, are
+     * rejected by a full pool or run out of time are left out of the result.
+     */
+    private <T> Map<String, T> fetchParallel(Map<String, Callable<T>> sources) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        long callDeadline = start + TimeUnit.MILLISECONDS.toNanos(callTimeoutMs);
+
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, Callable<T>> source : sources.entrySet()) {
+            try {
+                futures.put(source.getKey(), dashboardExecutor.submit(source.getValue()));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Dashboard section {} rejected: fetch pool is saturated", source.getKey());
+            }
+        }
+
+        Map<String, T> results = new HashMap<>();
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            Future<T> future = entry.getValue();
+            long remaining = Math.min(deadline, callDeadline) - System.nanoTime();
+            try {
+                T result = future.get(Math.max(remaining, 0L), TimeUnit.NANOSECONDS);
+                if (result != null) {
+                    results.put(entry.getKey(), result);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                logger.warn("Dashboard section {} timed out", entry.getKey());
+            } catch (InterruptedException e) {
+                // Give up on every section still outstanding and return what has arrived
+                Thread.currentThread().interrupt();
+                for (Future<T> pending : futures.values()) {
+                    pending.cancel(true);
+                }
+                logger.warn("Dashboard fetch interrupted, returning {} of {} sections", results.size(),
+                        sources.size());
+                break;
+            } catch (ExecutionException e) {
+                logger.warn("Dashboard section {} unavailable: {}", entry.getKey(), e.getCause().getMessage());
+            }
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> asList(Object value) {
+        return value instanceof List ? (List<Map<String, Object>>) value : Collections.emptyList();
+    }
+
+    private long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+
+    private double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private long counter(Map<String, Double> counters, String metric) {
+        return Math.round(counters.getOrDefault(DashboardCounterService.key(metric, ""), 0.0));
     }
 }
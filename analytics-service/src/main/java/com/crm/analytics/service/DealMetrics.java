@@ -0,0 +1,200 @@
+package com.crm.analytics.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass accumulator for the dashboard's deal figures.
+ *
+ * Counts and values per stage live in primitive arrays indexed like sales-service's
+ * Deal.DealStage, closed-won revenue in a 12-slot array for the trailing twelve
+ * months starting at firstPeriod (see {@link #periodOf(Object)}). Stages this
+ * service does not know yet are still counted, in a small side map, so the pie
+ * chart never silently drops a slice.
+ */
+final class DealMetrics {
+
+    static final String[] STAGES = { "NEW", "QUALIFIED", "PROPOSAL", "NEGOTIATION", "CLOSED_WON", "CLOSED_LOST" };
+
+    private static final int CLOSED_WON = 4;
+
+    private final long[] stageCounts = new long[STAGES.length];
+    private final double[] stageValues = new double[STAGES.length];
+    private final double[] closedWonByMonth = new double[12];
+    private final int firstPeriod;
+    private Map<String, Long> otherStages;
+    private long totalDeals;
+
+    DealMetrics(int firstPeriod) {
+        this.firstPeriod = firstPeriod;
+    }
+
+    /**
+     * Walks a deal list as returned by GET /api/deals once.
+     */
+    static DealMetrics fromDeals(List<Map<String, Object>> deals, int firstPeriod) {
+        DealMetrics metrics = new DealMetrics(firstPeriod);
+        for (Map<String, Object> deal : deals) {
+            metrics.addDeal(deal);
+        }
+        return metrics;
+    }
+
+    /**
+     * Adds one deal; only its stage, value and createdAt are read.
+     */
+    void addDeal(Map<String, Object> deal) {
+        Object value = deal.get("value");
+        Object rawStage = deal.get("stage");
+        String stage = rawStage instanceof String ? (String) rawStage : null;
+        int stageIndex = stageIndex(stage);
+        int period = stageIndex == CLOSED_WON ? periodOf(deal.get("createdAt")) : -1;
+        add(stageIndex, stage, 1, value instanceof Number ? ((Number) value).doubleValue() : 0.0, period);
+    }
+
+    /**
+     * Adds a pre-aggregated stage bucket, e.g. one byStage row of /api/deals/stats.
+     */
+    void addBucket(String stage, long count, double value) {
+        add(stageIndex(stage), stage, count, value, -1);
+    }
+
+    /**
+     * Adds closed-won revenue for a period without touching the stage counts,
+     * for sources that report stage totals and monthly revenue separately.
+     * Periods outside the trailing twelve months are ignored.
+     */
+    void addClosedWonRevenue(int period, double value) {
+        int slot = period - firstPeriod;
+        if (period >= 0 && slot >= 0 && slot < closedWonByMonth.length) {
+            closedWonByMonth[slot] += value;
+        }
+    }
+
+    private void add(int stageIndex, String stage, long count, double value, int period) {
+        totalDeals += count;
+        if (stageIndex < 0) {
+            if (otherStages == null) {
+                otherStages = new LinkedHashMap<>();
+            }
+            otherStages.merge(stage != null ? stage : "UNKNOWN", count, Long::sum);
+            return;
+        }
+        stageCounts[stageIndex] += count;
+        stageValues[stageIndex] += value;
+        if (stageIndex == CLOSED_WON) {
+            addClosedWonRevenue(period, value);
+        }
+    }
+
+    long getTotalDeals() {
+        return totalDeals;
+    }
+
+    long getClosedWonDeals() {
+        return stageCounts[CLOSED_WON];
+    }
+
+    double getClosedWonRevenue() {
+        return stageValues[CLOSED_WON];
+    }
+
+    /**
+     * Closed-won revenue per month, firstPeriod at index 0.
+     */
+    double[] getClosedWonByMonth() {
+        return closedWonByMonth.clone();
+    }
+
+    /**
+     * Pie chart data in Recharts shape: [{ name: 'STAGE', value: count }], stages without deals left out.
+     */
+    List<Map<String, Object>> getDistribution() {
+        List<Map<String, Object>> pieData = new ArrayList<>();
+        for (int i = 0; i < STAGES.length; i++) {
+            if (stageCounts[i] > 0) {
+                pieData.add(slice(STAGES[i], stageCounts[i]));
+            }
+        }
+        if (otherStages != null) {
+            for (Map.Entry<String, Long> entry : otherStages.entrySet()) {
+                pieData.add(slice(entry.getKey(), entry.getValue()));
+            }
+        }
+        return pieData;
+    }
+
+    private static Map<String, Object> slice(String name, long count) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("name", name);
+        item.put("value", count);
+        return item;
+    }
+
+    static int stageIndex(String stage) {
+        if (stage == null) {
+            return -1;
+        }
+        switch (stage) {
+            case "NEW":
+                return 0;
+            case "QUALIFIED":
+                return 1;
+            case "PROPOSAL":
+                return 2;
+            case "NEGOTIATION":
+                return 3;
+            case "CLOSED_WON":
+                return 4;
+            case "CLOSED_LOST":
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Months since year 0 (year * 12 + month - 1) of a serialized LocalDateTime,
+     * either an ISO string ("2024-03-05T10:15:30") or Jackson's array form
+     * ([2024, 3, 5, 10, 15, 30]). Returns -1 when the value is missing or not
+     * recognised. Reads the digits directly instead of parsing the whole timestamp.
+     */
+    static int periodOf(Object createdAt) {
+        if (createdAt instanceof String) {
+            String text = (String) createdAt;
+            if (text.length() >= 16 && text.charAt(4) == '-' && text.charAt(7) == '-' && text.charAt(10) == 'T') {
+                int year = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = text.charAt(i) - '0';
+                    if (digit < 0 || digit > 9) {
+                        return -1;
+                    }
+                    year = year * 10 + digit;
+                }
+                int tens = text.charAt(5) - '0';
+                int ones = text.charAt(6) - '0';
+                if (tens >= 0 && tens <= 1 && ones >= 0 && ones <= 9) {
+                    return period(year, tens * 10 + ones);
+                }
+            }
+            return -1;
+        }
+        if (createdAt instanceof List) {
+            List<?> parts = (List<?>) createdAt;
+            if (parts.size() >= 3 && parts.get(0) instanceof Number && parts.get(1) instanceof Number) {
+                return period(((Number) parts.get(0)).intValue(), ((Number) parts.get(1)).intValue());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Months since year 0 for a year and a 1-12 month, or -1 when the month is out of range.
+     */
+    static int period(int year, int month) {
+        return month >= 1 && month <= 12 && year >= 0 ? year * 12 + month - 1 : -1;
+    }
+}
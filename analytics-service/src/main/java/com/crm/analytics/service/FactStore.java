@@ -0,0 +1,404 @@
+package com.crm.analytics.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.crm.analytics.client.JsonRecordReader;
+import com.crm.analytics.client.SalesClient;
+import com.crm.analytics.client.SupportClient;
+import com.crm.analytics.dto.FactQuery;
+
+/**
+ * In-memory columnar fact store for ad-hoc group-bys (deal value by assignee x
+ * stage x quarter, tickets by priority x category, ...).
+ *
+ * Facts live in one {@link FactTable} per tenant and table, loaded on first
+ * use by streaming the source service's entity list. A partition is reloaded
+ * in the background when it is older than max-age, or sooner once a change
+ * event for that tenant marked it dirty; queries keep reading the previous
+ * snapshot meanwhile. Partitions nobody queried for idle-ms are dropped.
+ */
+@Service
+public class FactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FactStore.class);
+
+    public static final String DEALS = "deals";
+    public static final String TICKETS = "tickets";
+
+    private static final String COUNT = "count";
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private static final Map<String, TableSpec> TABLES;
+
+    static {
+        Map<String, TableSpec> tables = new HashMap<>();
+        tables.put(DEALS, new TableSpec("DEAL",
+                new String[] { "stage", "assignedTo", "priority", "type", "leadSource", "pipelineName" },
+                new String[] { "value", "probability" }, new int[] { 100, 1 }));
+        tables.put(TICKETS, new TableSpec("TICKET",
+                new String[] { "status", "priority", "category", "assignedTo" },
+                new String[] { "resolutionTime" }, new int[] { 1 }));
+        TABLES = Collections.unmodifiableMap(tables);
+    }
+
+    @Value("${app.olap.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.olap.max-age-ms:300000}")
+    private long maxAgeMs;
+
+    @Value("${app.olap.min-refresh-ms:5000}")
+    private long minRefreshMs;
+
+    @Value("${app.olap.idle-ms:1800000}")
+    private long idleMs;
+
+    @Value("${app.olap.max-rows:20000000}")
+    private int maxRows;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    @Autowired
+    private SupportClient supportClient;
+
+    @Autowired
+    private JsonRecordReader recordReader;
+
+    @Autowired
+    @Qualifier("factScanPool")
+    private ForkJoinPool scanPool;
+
+    @Autowired
+    @Qualifier("factLoadExecutor")
+    private ExecutorService loadExecutor;
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Runs a group-by and returns one row per group, largest count first.
+     */
+    public Map<String, Object> query(String companyId, FactQuery query) {
+        if (!enabled) {
+            throw new RuntimeException("Fact store is disabled");
+        }
+        TableSpec spec = spec(query.getTable());
+        List<Metric> metrics = parseMetrics(spec, query.getMetrics());
+        Integer fromDay = query.getFrom() != null ? (int) parseDay(query.getFrom()) : null;
+        Integer toDay = query.getTo() != null ? (int) parseDay(query.getTo()) : null;
+        List<String> groupBy = query.getGroupBy() != null ? query.getGroupBy() : Collections.<String>emptyList();
+
+        Partition partition = partition(companyId, query.getTable(), spec);
+        FactTable table = partition.table;
+        long started = System.nanoTime();
+        FactTable.Result result = table.aggregate(scanPool, query.getFilters(), fromDay, toDay, groupBy);
+        long tookMicros = (System.nanoTime() - started) / 1000;
+
+        List<FactTable.Group> groups = new ArrayList<>(result.groups);
+        groups.sort(Comparator.comparingLong(FactTable.Group::count).reversed());
+        int limit = query.getLimit() != null && query.getLimit() > 0 ? query.getLimit() : DEFAULT_LIMIT;
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (FactTable.Group group : groups.subList(0, Math.min(limit, groups.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int g = 0; g < groupBy.size(); g++) {
+                row.put(groupBy.get(g), group.labels[g]);
+            }
+            for (Metric metric : metrics) {
+                row.put(metric.name, metric.value(group, spec));
+            }
+            rows.add(row);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("companyId", companyId);
+        response.put("table", query.getTable());
+        response.put("rows", rows);
+        response.put("groups", groups.size());
+        response.put("truncated", groups.size() > limit);
+        response.put("scannedFacts", table.size());
+        response.put("matchedFacts", result.matched);
+        response.put("scanMicros", tookMicros);
+        response.put("loadedAt", partition.loadedAt);
+        return response;
+    }
+
+    /**
+     * Marks the tenant's partition for the entity type as out of date; the
+     * next query after min-refresh-ms triggers a background reload.
+     */
+    public void markDirty(String companyId, String entityType) {
+        if (companyId == null || entityType == null) {
+            return;
+        }
+        for (Map.Entry<String, TableSpec> entry : TABLES.entrySet()) {
+            if (entry.getValue().entityType.equalsIgnoreCase(entityType)) {
+                Partition partition = partitions.get(key(companyId, entry.getKey()));
+                if (partition != null) {
+                    partition.dirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the tenant's partition synchronously.
+     */
+    public Map<String, Object> refresh(String companyId, String table) {
+        TableSpec spec = spec(table);
+        Partition partition = partitions.computeIfAbsent(key(companyId, table), k -> new Partition());
+        partition.lastQueriedAt = System.currentTimeMillis();
+        synchronized (partition) {
+            load(partition, companyId, table, spec);
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("table", table);
+        result.put("facts", partition.table.size());
+        result.put("loadedAt", partition.loadedAt);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> loaded = new ArrayList<>();
+        long bytes = 0;
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            FactTable table = entry.getValue().table;
+            if (table == null) {
+                continue;
+            }
+            Map<String, Object> item = new HashMap<>();
+            item.put("partition", entry.getKey());
+            item.put("facts", table.size());
+            item.put("columnBytes", table.columnBytes());
+            item.put("loadedAt", entry.getValue().loadedAt);
+            item.put("dirty", entry.getValue().dirty);
+            loaded.add(item);
+            bytes += table.columnBytes();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("partitions", loaded);
+        stats.put("columnBytes", bytes);
+        stats.put("scanParallelism", scanPool.getParallelism());
+        return stats;
+    }
+
+    /**
+     * Drops partitions that have not been queried for idle-ms.
+     */
+    @Scheduled(fixedDelayString = "${app.olap.sweep-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        partitions.entrySet().removeIf(entry -> {
+            boolean idle = entry.getValue().lastQueriedAt < cutoff && !entry.getValue().loading.get();
+            if (idle) {
+                logger.debug("Evicting idle fact partition {}", entry.getKey());
+            }
+            return idle;
+        });
+    }
+
+    // ========== Loading ==========
+
+    private Partition partition(String companyId, String table, TableSpec spec) {
+        Partition partition = partitions.computeIfAbsent(key(companyId, table), k -> new Partition());
+        partition.lastQueriedAt = System.currentTimeMillis();
+        if (partition.table == null) {
+            synchronized (partition) {
+                if (partition.table == null) {
+                    load(partition, companyId, table, spec);
+                }
+            }
+            return partition;
+        }
+        long age = System.currentTimeMillis() - partition.loadedAt;
+        if ((age > maxAgeMs || partition.dirty && age > minRefreshMs) && partition.loading.compareAndSet(false, true)) {
+            try {
+                loadExecutor.execute(() -> {
+                    try {
+                        synchronized (partition) {
+                            load(partition, companyId, table, spec);
+                        }
+                    } catch (Exception e) {
+                        logger.warn("Reloading fact partition {}/{} failed: {}", companyId, table, e.getMessage());
+                    } finally {
+                        partition.loading.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                partition.loading.set(false);
+                logger.warn("Reload of fact partition {}/{} rejected", companyId, table);
+            }
+        }
+        return partition;
+    }
+
+    private void load(Partition partition, String companyId, String table, TableSpec spec) {
+        // Cleared before reading so events arriving during the load mark the new snapshot dirty again
+        partition.dirty = false;
+        long started = System.currentTimeMillis();
+        FactTable.Builder builder = new FactTable.Builder(spec.dims, spec.measures);
+        String[] dims = new String[spec.dims.length];
+        long[] values = new long[spec.measures.length];
+        try {
+            recordReader.read(DEALS.equals(table) ? salesClient.streamAllDeals(companyId)
+                    : supportClient.streamAllTickets(companyId), spec.fields, 0, record -> {
+                        if (builder.size() >= maxRows) {
+                            throw new RuntimeException("More than " + maxRows + " facts in " + table);
+                        }
+                        for (int d = 0; d < dims.length; d++) {
+                            Object value = record.get(spec.dims[d]);
+                            dims[d] = value != null ? value.toString() : null;
+                        }
+                        for (int m = 0; m < values.length; m++) {
+                            Object value = record.get(spec.measures[m]);
+                            values[m] = value instanceof Number
+                                    ? Math.round(((Number) value).doubleValue() * spec.scales[m])
+                                    : 0;
+                        }
+                        builder.add(dims, values, epochDay(record.get("createdAt")));
+                    });
+        } catch (RuntimeException e) {
+            partition.dirty = true;
+            throw new RuntimeException("Loading " + table + " failed: " + e.getMessage());
+        }
+        partition.table = builder.build();
+        partition.loadedAt = System.currentTimeMillis();
+        logger.info("Loaded {} {} facts for company {} in {} ms", builder.size(), table, companyId,
+                partition.loadedAt - started);
+    }
+
+    // ========== Helpers ==========
+
+    private static TableSpec spec(String table) {
+        TableSpec spec = table != null ? TABLES.get(table) : null;
+        if (spec == null) {
+            throw new RuntimeException("Unknown table: " + table + ", expected one of " + TABLES.keySet());
+        }
+        return spec;
+    }
+
+    private static List<Metric> parseMetrics(TableSpec spec, List<String> requested) {
+        List<Metric> metrics = new ArrayList<>();
+        for (String name : requested == null || requested.isEmpty() ? Collections.singletonList(COUNT)
+                : requested) {
+            if (COUNT.equals(name)) {
+                metrics.add(new Metric(name, null, -1));
+                continue;
+            }
+            String[] parts = name.split(":", 2);
+            int measure = parts.length == 2 ? Arrays.asList(spec.measures).indexOf(parts[1]) : -1;
+            if (measure < 0 || !("sum".equals(parts[0]) || "avg".equals(parts[0]))) {
+                throw new RuntimeException("Unknown metric: " + name + ", expected count, sum:<measure> or "
+                        + "avg:<measure> with measure one of " + Arrays.toString(spec.measures));
+            }
+            metrics.add(new Metric(name, parts[0], measure));
+        }
+        return metrics;
+    }
+
+    private static long parseDay(String value) {
+        try {
+            return LocalDate.parse(value).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid date: " + value);
+        }
+    }
+
+    /**
+     * Epoch day of a serialized LocalDateTime, ISO string or Jackson array form.
+     */
+    static int epochDay(Object createdAt) {
+        try {
+            if (createdAt instanceof String && ((String) createdAt).length() >= 10) {
+                return (int) LocalDate.parse(((String) createdAt).substring(0, 10)).toEpochDay();
+            }
+            if (createdAt instanceof List) {
+                List<?> parts = (List<?>) createdAt;
+                if (parts.size() >= 3) {
+                    return (int) LocalDate.of(((Number) parts.get(0)).intValue(), ((Number) parts.get(1)).intValue(),
+                            ((Number) parts.get(2)).intValue()).toEpochDay();
+                }
+            }
+        } catch (RuntimeException e) {
+            // unparseable dates are treated as missing
+        }
+        return FactTable.NO_DAY;
+    }
+
+    private static String key(String companyId, String table) {
+        return companyId + "/" + table;
+    }
+
+    private static final class TableSpec {
+        private final String entityType;
+        private final String[] dims;
+        private final String[] measures;
+        private final int[] scales; // stored as round(value * scale)
+        private final Set<String> fields;
+
+        private TableSpec(String entityType, String[] dims, String[] measures, int[] scales) {
+            this.entityType = entityType;
+            this.dims = dims;
+            this.measures = measures;
+            this.scales = scales;
+            Set<String> all = new HashSet<>(Arrays.asList(dims));
+            all.addAll(Arrays.asList(measures));
+            all.add("createdAt");
+            this.fields = Collections.unmodifiableSet(all);
+        }
+    }
+
+    private static final class Metric {
+        private final String name;
+        private final String function;
+        private final int measure;
+
+        private Metric(String name, String function, int measure) {
+            this.name = name;
+            this.function = function;
+            this.measure = measure;
+        }
+
+        private Object value(FactTable.Group group, TableSpec spec) {
+            if (measure < 0) {
+                return group.count();
+            }
+            double sum = (double) group.sum(measure) / spec.scales[measure];
+            return "avg".equals(function) ? sum / group.count() : sum;
+        }
+    }
+
+    private static final class Partition {
+        private volatile FactTable table;
+        private volatile long loadedAt;
+        private volatile long lastQueriedAt;
+        private volatile boolean dirty;
+        private final AtomicBoolean loading = new AtomicBoolean();
+    }
+}
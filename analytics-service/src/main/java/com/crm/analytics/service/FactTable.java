@@ -0,0 +1,452 @@
+package com.crm.analytics.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable column store of one tenant's facts of one kind (deals, tickets).
+ *
+ * String dimensions are dictionary-encoded into int code columns, measures
+ * are long columns and the fact date is kept both as an epoch day (for range
+ * filters) and as a month period (year * 12 + month - 1, for time group-bys).
+ * Group-bys scan row ranges in parallel on a fork-join pool; each leaf folds
+ * its rows into a dense array when the group space is small, a hash map
+ * otherwise, and the partial results are merged on the way up.
+ */
+final class FactTable {
+
+    static final String UNKNOWN = "UNKNOWN";
+    static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final String YEAR = "year";
+    private static final String QUARTER = "quarter";
+    private static final String MONTH = "month";
+
+    private static final int LEAF_ROWS = 1 << 16;
+    private static final int DENSE_GROUPS = 4096;
+    private static final long MAX_GROUPS = 1L << 40;
+
+    private final String[] dimNames;
+    private final String[] measureNames;
+    private final String[][] dictionaries;
+    private final int[][] codes;
+    private final long[][] measures;
+    private final int[] days;
+    private final int[] periods;
+    private final int size;
+    private final int minPeriod;
+    private final int maxPeriod;
+    private final Map<Integer, int[]> timeCodes = new HashMap<>(); // step -> code column, built on first use
+
+    private FactTable(Builder builder) {
+        this.size = builder.size;
+        this.dimNames = builder.dimNames.clone();
+        this.measureNames = builder.measureNames.clone();
+        this.dictionaries = new String[dimNames.length][];
+        this.codes = new int[dimNames.length][];
+        for (int d = 0; d < dimNames.length; d++) {
+            dictionaries[d] = builder.dictionaries.get(d).toArray(new String[0]);
+            codes[d] = Arrays.copyOf(builder.codes[d], size);
+        }
+        this.measures = new long[measureNames.length][];
+        for (int m = 0; m < measureNames.length; m++) {
+            measures[m] = Arrays.copyOf(builder.measures[m], size);
+        }
+        this.days = Arrays.copyOf(builder.days, size);
+        this.periods = new int[size];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            periods[i] = days[i] == NO_DAY ? -1 : toPeriod(days[i]);
+            if (periods[i] >= 0) {
+                min = Math.min(min, periods[i]);
+                max = Math.max(max, periods[i]);
+            }
+        }
+        this.minPeriod = min == Integer.MAX_VALUE ? 0 : min;
+        this.maxPeriod = max == Integer.MIN_VALUE ? 0 : max;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap footprint of the columns in bytes.
+     */
+    long columnBytes() {
+        return (long) size * (4L * dimNames.length + 8L * measureNames.length + 8L);
+    }
+
+    /**
+     * Filters rows and folds them into groups.
+     *
+     * @param filters  dimension name to accepted values; values not in the dictionary match nothing
+     * @param fromDay  inclusive epoch day, or null
+     * @param toDay    inclusive epoch day, or null
+     * @param groupBy  dimension names and/or year, quarter, month
+     */
+    Result aggregate(ForkJoinPool pool, Map<String, ? extends Collection<String>> filters, Integer fromDay,
+            Integer toDay, List<String> groupBy) {
+        boolean[][] accepted = new boolean[dimNames.length][];
+        if (filters != null) {
+            for (Map.Entry<String, ? extends Collection<String>> filter : filters.entrySet()) {
+                int d = dimIndex(filter.getKey());
+                accepted[d] = new boolean[dictionaries[d].length];
+                List<String> dictionary = Arrays.asList(dictionaries[d]);
+                for (String value : filter.getValue()) {
+                    int code = dictionary.indexOf(value);
+                    if (code >= 0) {
+                        accepted[d][code] = true;
+                    }
+                }
+            }
+        }
+
+        List<String> groups = groupBy != null ? groupBy : new ArrayList<>();
+        GroupColumn[] columns = new GroupColumn[groups.size()];
+        long groupSpace = 1;
+        for (int g = 0; g < columns.length; g++) {
+            columns[g] = groupColumn(groups.get(g));
+            groupSpace *= columns[g].radix;
+            if (groupSpace > MAX_GROUPS) {
+                throw new RuntimeException("Too many group-by combinations");
+            }
+        }
+
+        Scan scan = new Scan(this, new Plan(accepted, fromDay != null ? fromDay : NO_DAY,
+                toDay != null ? toDay : Integer.MAX_VALUE, fromDay != null || toDay != null, columns, groupSpace),
+                0, size);
+        Partial total = size > 0 ? pool.invoke(scan) : new Partial(scan.plan);
+
+        Result result = new Result(measureNames.clone());
+        result.matched = total.matched;
+        total.forEach((key, sums) -> result.groups.add(new Group(labels(columns, key), sums)));
+        return result;
+    }
+
+    private int dimIndex(String name) {
+        for (int d = 0; d < dimNames.length; d++) {
+            if (dimNames[d].equals(name)) {
+                return d;
+            }
+        }
+        throw new RuntimeException("Unknown dimension: " + name + ", expected one of " + Arrays.toString(dimNames)
+                + " or year, quarter, month");
+    }
+
+    private GroupColumn groupColumn(String name) {
+        switch (name) {
+            case YEAR:
+                return new GroupColumn(-1, 12, minPeriod / 12, maxPeriod / 12 - minPeriod / 12 + 2);
+            case QUARTER:
+                return new GroupColumn(-1, 3, minPeriod / 3, maxPeriod / 3 - minPeriod / 3 + 2);
+            case MONTH:
+                return new GroupColumn(-1, 1, minPeriod, maxPeriod - minPeriod + 2);
+            default:
+                int d = dimIndex(name);
+                return new GroupColumn(d, 0, 0, Math.max(1, dictionaries[d].length));
+        }
+    }
+
+    /**
+     * Code column of the month period divided by step (0 = unknown date), so
+     * time group-bys read a plain int column like dimensions do.
+     */
+    private synchronized int[] timeCodes(int step, int offset) {
+        return timeCodes.computeIfAbsent(step, s -> {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = periods[i] < 0 ? 0 : periods[i] / s - offset + 1;
+            }
+            return values;
+        });
+    }
+
+    private String[] labels(GroupColumn[] columns, long key) {
+        String[] labels = new String[columns.length];
+        long rest = key;
+        for (int g = columns.length - 1; g >= 0; g--) {
+            int value = (int) (rest % columns[g].radix);
+            rest /= columns[g].radix;
+            labels[g] = columns[g].label(value);
+        }
+        return labels;
+    }
+
+    private static int toPeriod(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    /** A group-by column: a dimension (dim >= 0) or the fact month divided by step; time code 0 is unknown. */
+    private final class GroupColumn {
+        private final int dim;
+        private final int step;
+        private final int offset;
+        private final int radix;
+
+        private final int[] values;
+
+        private GroupColumn(int dim, int step, int offset, int radix) {
+            this.dim = dim;
+            this.step = step;
+            this.offset = offset;
+            this.radix = radix;
+            this.values = dim >= 0 ? codes[dim] : timeCodes(step, offset);
+        }
+
+        private String label(int code) {
+            if (dim >= 0) {
+                return dictionaries[dim][code];
+            }
+            if (code == 0) {
+                return UNKNOWN;
+            }
+            int unit = code - 1 + offset;
+            if (step == 12) {
+                return String.valueOf(unit);
+            }
+            if (step == 3) {
+                return unit / 4 + "-Q" + (unit % 4 + 1);
+            }
+            return String.format("%04d-%02d", unit / 12, unit % 12 + 1);
+        }
+    }
+
+    private static final class Plan {
+        private final boolean[][] accepted;
+        private final int fromDay;
+        private final int toDay;
+        private final boolean dateFilter;
+        private final GroupColumn[] columns;
+        private final long groupSpace;
+
+        private Plan(boolean[][] accepted, int fromDay, int toDay, boolean dateFilter, GroupColumn[] columns,
+                long groupSpace) {
+            this.accepted = accepted;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.dateFilter = dateFilter;
+            this.columns = columns;
+            this.groupSpace = groupSpace;
+        }
+    }
+
+    private static final class Scan extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FactTable table;
+        private final transient Plan plan;
+        private final int from;
+        private final int to;
+
+        private Scan(FactTable table, Plan plan, int from, int to) {
+            this.table = table;
+            this.plan = plan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                Scan left = new Scan(table, plan, from, mid);
+                left.fork();
+                Partial right = new Scan(table, plan, mid, to).compute();
+                return left.join().merge(right);
+            }
+            int[] days = table.days;
+            int[][] codes = table.codes;
+            long[][] measures = table.measures;
+            int groupCount = plan.columns.length;
+            int[][] groupValues = new int[groupCount][];
+            long[] radixes = new long[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                groupValues[g] = plan.columns[g].values;
+                radixes[g] = plan.columns[g].radix;
+            }
+            int width = measures.length + 1;
+            Partial partial = table.new Partial(plan);
+            rows: for (int row = from; row < to; row++) {
+                if (plan.dateFilter && (days[row] == NO_DAY || days[row] < plan.fromDay || days[row] > plan.toDay)) {
+                    continue;
+                }
+                for (int d = 0; d < plan.accepted.length; d++) {
+                    if (plan.accepted[d] != null && !plan.accepted[d][codes[d][row]]) {
+                        continue rows;
+                    }
+                }
+                long key = 0;
+                for (int g = 0; g < groupCount; g++) {
+                    key = key * radixes[g] + groupValues[g][row];
+                }
+                long[] slot;
+                int base;
+                if (partial.dense != null) {
+                    slot = partial.dense;
+                    base = (int) key * width;
+                } else {
+                    slot = partial.sparse.computeIfAbsent(key, k -> new long[width]);
+                    base = 0;
+                }
+                slot[base]++;
+                for (int m = 0; m < measures.length; m++) {
+                    slot[base + 1 + m] += measures[m][row];
+                }
+                partial.matched++;
+            }
+            return partial;
+        }
+    }
+
+    /** Per-leaf accumulator: [count, sum of each measure] per group, dense or hashed. */
+    private final class Partial {
+        private final int width = measures.length + 1;
+        private final long[] dense;
+        private final Map<Long, long[]> sparse;
+        private long matched;
+
+        private Partial(Plan plan) {
+            if (plan.groupSpace <= DENSE_GROUPS) {
+                dense = new long[(int) plan.groupSpace * width];
+                sparse = null;
+            } else {
+                dense = null;
+                sparse = new HashMap<>();
+            }
+        }
+
+        private Partial merge(Partial other) {
+            matched += other.matched;
+            if (dense != null) {
+                for (int i = 0; i < dense.length; i++) {
+                    dense[i] += other.dense[i];
+                }
+            } else {
+                for (Map.Entry<Long, long[]> entry : other.sparse.entrySet()) {
+                    long[] into = sparse.get(entry.getKey());
+                    if (into == null) {
+                        sparse.put(entry.getKey(), entry.getValue());
+                    } else {
+                        for (int i = 0; i < width; i++) {
+                            into[i] += entry.getValue()[i];
+                        }
+                    }
+                }
+            }
+            return this;
+        }
+
+        private void forEach(BiConsumer<Long, long[]> consumer) {
+            if (dense != null) {
+                for (int key = 0; key * width < dense.length; key++) {
+                    if (dense[key * width] > 0) {
+                        consumer.accept((long) key, Arrays.copyOfRange(dense, key * width, (key + 1) * width));
+                    }
+                }
+            } else {
+                sparse.forEach(consumer);
+            }
+        }
+    }
+
+    static final class Result {
+        final String[] measureNames;
+        final List<Group> groups = new ArrayList<>();
+        long matched;
+
+        private Result(String[] measureNames) {
+            this.measureNames = measureNames;
+        }
+    }
+
+    /** One output group: its labels in group-by order, then count and per-measure sums. */
+    static final class Group {
+        final String[] labels;
+        final long[] values;
+
+        private Group(String[] labels, long[] values) {
+            this.labels = labels;
+            this.values = values;
+        }
+
+        long count() {
+            return values[0];
+        }
+
+        long sum(int measure) {
+            return values[measure + 1];
+        }
+    }
+
+    /**
+     * Appends rows; not thread-safe. Nulls become {@link #UNKNOWN}.
+     */
+    static final class Builder {
+        private final String[] dimNames;
+        private final String[] measureNames;
+        private final List<List<String>> dictionaries = new ArrayList<>();
+        private final List<Map<String, Integer>> lookups = new ArrayList<>();
+        private int[][] codes;
+        private long[][] measures;
+        private int[] days;
+        private int size;
+
+        Builder(String[] dimNames, String[] measureNames) {
+            this.dimNames = dimNames.clone();
+            this.measureNames = measureNames.clone();
+            int capacity = 1024;
+            codes = new int[dimNames.length][capacity];
+            measures = new long[measureNames.length][capacity];
+            days = new int[capacity];
+            for (int d = 0; d < dimNames.length; d++) {
+                dictionaries.add(new ArrayList<>());
+                lookups.add(new HashMap<>());
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(String[] dims, long[] values, int epochDay) {
+            if (size == days.length) {
+                int capacity = days.length * 2;
+                for (int d = 0; d < codes.length; d++) {
+                    codes[d] = Arrays.copyOf(codes[d], capacity);
+                }
+                for (int m = 0; m < measures.length; m++) {
+                    measures[m] = Arrays.copyOf(measures[m], capacity);
+                }
+                days = Arrays.copyOf(days, capacity);
+            }
+            for (int d = 0; d < codes.length; d++) {
+                String value = dims[d] != null ? dims[d] : UNKNOWN;
+                List<String> dictionary = dictionaries.get(d);
+                codes[d][size] = lookups.get(d).computeIfAbsent(value, v -> {
+                    dictionary.add(v);
+                    return dictionary.size() - 1;
+                });
+            }
+            for (int m = 0; m < measures.length; m++) {
+                measures[m][size] = values[m];
+            }
+            days[size] = epochDay;
+            size++;
+        }
+
+        FactTable build() {
+            return new FactTable(this);
+        }
+    }
+}
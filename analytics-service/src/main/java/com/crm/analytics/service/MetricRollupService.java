@@ -0,0 +1,253 @@
+package com.crm.analytics.service;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.crm.analytics.client.CustomerClient;
+import com.crm.analytics.client.SalesClient;
+import com.crm.analytics.dto.CounterEvent;
+import com.crm.analytics.entity.MetricRollup;
+import com.crm.analytics.repository.MetricRollupRepository;
+
+/**
+ * Maintains per-company trend rollups (daily and monthly buckets) in analytics_db.
+ *
+ * Buckets move by deltas from the same change events as the dashboard
+ * counters, keyed by the entity's creation date, and can be rebuilt from the
+ * source services' daily stats. Range reads touch only the requested buckets.
+ */
+@Service
+public class MetricRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricRollupService.class);
+
+    public static final String CLOSED_WON_REVENUE = "closedWonRevenue";
+    public static final String CLOSED_WON_DEALS = "closedWonDeals";
+    public static final String LEADS_CREATED = "leadsCreated";
+
+    public static final String DAY = "DAY";
+    public static final String MONTH = "MONTH";
+
+    private static final List<String> METRICS = Collections
+            .unmodifiableList(Arrays.asList(CLOSED_WON_REVENUE, CLOSED_WON_DEALS, LEADS_CREATED));
+
+    private static final int MAX_BUCKETS = 1000;
+
+    @Autowired
+    private MetricRollupRepository rollupRepository;
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    /**
+     * Applies one change event to the day and month buckets of its creation
+     * date. Runs inside the caller's transaction.
+     */
+    @Transactional
+    public void apply(CounterEvent event) {
+        if (event.getCreatedAt() == null) {
+            return;
+        }
+        Map<String, Double> deltas = new HashMap<>();
+        String eventType = event.getEventType().toUpperCase();
+        if (!"CREATED".equals(eventType)) {
+            contribute(deltas, event.getEntityType(), event.getOldState(), event.getOldAmount(), -1);
+        }
+        if (!"DELETED".equals(eventType)) {
+            contribute(deltas, event.getEntityType(), event.getNewState(), event.getNewAmount(), 1);
+        }
+        LocalDate day = event.getCreatedAt().toLocalDate();
+        for (Map.Entry<String, Double> delta : deltas.entrySet()) {
+            if (Math.abs(delta.getValue()) > 0) {
+                rollupRepository.increment(event.getCompanyId(), delta.getKey(), DAY, day, delta.getValue());
+                rollupRepository.increment(event.getCompanyId(), delta.getKey(), MONTH, day.withDayOfMonth(1),
+                        delta.getValue());
+            }
+        }
+    }
+
+    /**
+     * The company's buckets as computed from the source services' daily stats;
+     * see {@link #replace}.
+     */
+    public Collection<MetricRollup> loadFromSource(String companyId) {
+        Map<String, Object> dealStats;
+        Map<String, Object> leadStats;
+        try {
+            dealStats = salesClient.getDailyDealStats(companyId);
+            leadStats = customerClient.getDailyLeadStats(companyId);
+        } catch (Exception e) {
+            throw new RuntimeException("Source services unavailable: " + e.getMessage());
+        }
+
+        Map<String, MetricRollup> rows = new LinkedHashMap<>();
+        for (Map<String, Object> bucket : asList(dealStats.get("closedWonByDay"))) {
+            LocalDate day = day(bucket);
+            addBoth(rows, companyId, CLOSED_WON_REVENUE, day, asDouble(bucket.get("value")));
+            addBoth(rows, companyId, CLOSED_WON_DEALS, day, asDouble(bucket.get("count")));
+        }
+        for (Map<String, Object> bucket : asList(leadStats.get("leadsByDay"))) {
+            addBoth(rows, companyId, LEADS_CREATED, day(bucket), asDouble(bucket.get("count")));
+        }
+        return rows.values();
+    }
+
+    /**
+     * Replaces the company's rollups with the given buckets. Runs inside the caller's transaction.
+     */
+    @Transactional
+    public int replace(String companyId, Collection<MetricRollup> rows) {
+        rollupRepository.deleteByCompanyId(companyId);
+        rollupRepository.flush();
+        rollupRepository.saveAll(rows);
+        logger.info("Rebuilt {} trend buckets for company {}", rows.size(), companyId);
+        return rows.size();
+    }
+
+    /**
+     * Zero-filled series per metric between from and to (inclusive) at the given
+     * granularity. For MONTH, from and to may be any day of their month.
+     */
+    public Map<String, Object> getSeries(String companyId, Collection<String> metrics, LocalDate from, LocalDate to,
+            String granularity) {
+        String unit = granularity != null ? granularity.toUpperCase() : MONTH;
+        if (!DAY.equals(unit) && !MONTH.equals(unit)) {
+            throw new RuntimeException("Unsupported granularity: " + granularity);
+        }
+        Collection<String> requested = metrics == null || metrics.isEmpty() ? METRICS : metrics;
+        for (String metric : requested) {
+            if (!METRICS.contains(metric)) {
+                throw new RuntimeException("Unknown metric: " + metric);
+            }
+        }
+        LocalDate start = MONTH.equals(unit) ? from.withDayOfMonth(1) : from;
+        LocalDate end = MONTH.equals(unit) ? to.withDayOfMonth(1) : to;
+        if (end.isBefore(start)) {
+            throw new RuntimeException("'to' must not be before 'from'");
+        }
+        long buckets = (MONTH.equals(unit) ? ChronoUnit.MONTHS : ChronoUnit.DAYS).between(start, end) + 1;
+        if (buckets > MAX_BUCKETS) {
+            throw new RuntimeException("Range too large: " + buckets + " buckets, max " + MAX_BUCKETS);
+        }
+
+        Map<String, Map<LocalDate, Double>> stored = load(companyId, requested, unit, start, end);
+        Map<String, Object> series = new LinkedHashMap<>();
+        for (String metric : requested) {
+            Map<LocalDate, Double> values = stored.getOrDefault(metric, Collections.emptyMap());
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (LocalDate bucket = start; !bucket.isAfter(end); bucket = next(bucket, unit)) {
+                Map<String, Object> point = new HashMap<>();
+                point.put("bucket", MONTH.equals(unit) ? bucket.toString().substring(0, 7) : bucket.toString());
+                point.put("value", values.getOrDefault(bucket, 0.0));
+                points.add(point);
+            }
+            series.put(metric, points);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("granularity", unit);
+        result.put("from", start.toString());
+        result.put("to", end.toString());
+        result.put("series", series);
+        return result;
+    }
+
+    /**
+     * Monthly values of one metric keyed by the first day of each month, for months between from and to.
+     */
+    public Map<LocalDate, Double> getMonthly(String companyId, String metric, LocalDate from, LocalDate to) {
+        return load(companyId, Collections.singletonList(metric), MONTH, from.withDayOfMonth(1),
+                to.withDayOfMonth(1)).getOrDefault(metric, Collections.emptyMap());
+    }
+
+    /**
+     * Parses "yyyy-MM-dd" or "yyyy-MM" (first day of the month).
+     */
+    public static LocalDate parseBucket(String value) {
+        try {
+            return value.length() == 7 ? LocalDate.parse(value + "-01") : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid date: " + value);
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private Map<String, Map<LocalDate, Double>> load(String companyId, Collection<String> metrics, String unit,
+            LocalDate start, LocalDate end) {
+        Map<String, Map<LocalDate, Double>> stored = new HashMap<>();
+        for (MetricRollup rollup : rollupRepository
+                .findByCompanyIdAndGranularityAndMetricInAndBucketBetweenOrderByBucketAsc(companyId, unit, metrics,
+                        start, end)) {
+            stored.computeIfAbsent(rollup.getMetric(), m -> new HashMap<>()).put(rollup.getBucket(),
+                    rollup.getAmount());
+        }
+        return stored;
+    }
+
+    private void contribute(Map<String, Double> deltas, String entityType, String state, Double amount, int sign) {
+        String type = entityType.toUpperCase();
+        if ("LEAD".equals(type)) {
+            deltas.merge(LEADS_CREATED, (double) sign, Double::sum);
+        } else if ("DEAL".equals(type) && "CLOSED_WON".equals(state)) {
+            deltas.merge(CLOSED_WON_DEALS, (double) sign, Double::sum);
+            deltas.merge(CLOSED_WON_REVENUE, sign * (amount != null ? amount : 0.0), Double::sum);
+        }
+    }
+
+    private void addBoth(Map<String, MetricRollup> rows, String companyId, String metric, LocalDate day,
+            double amount) {
+        add(rows, companyId, metric, DAY, day, amount);
+        add(rows, companyId, metric, MONTH, day.withDayOfMonth(1), amount);
+    }
+
+    private void add(Map<String, MetricRollup> rows, String companyId, String metric, String unit, LocalDate bucket,
+            double amount) {
+        MetricRollup row = rows.computeIfAbsent(metric + "|" + unit + "|" + bucket, key -> {
+            MetricRollup rollup = new MetricRollup();
+            rollup.setCompanyId(companyId);
+            rollup.setMetric(metric);
+            rollup.setGranularity(unit);
+            rollup.setBucket(bucket);
+            return rollup;
+        });
+        row.setAmount(row.getAmount() + amount);
+    }
+
+    private static LocalDate next(LocalDate bucket, String unit) {
+        return MONTH.equals(unit) ? bucket.plusMonths(1) : bucket.plusDays(1);
+    }
+
+    private static LocalDate day(Map<String, Object> bucket) {
+        return LocalDate.of((int) asDouble(bucket.get("year")), (int) asDouble(bucket.get("month")),
+                (int) asDouble(bucket.get("day")));
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> asList(Object value) {
+        return value instanceof List ? (List<Map<String, Object>>) value : Collections.emptyList();
+    }
+}
@@ -0,0 +1,549 @@
+package com.crm.analytics.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import com.crm.analytics.client.CustomerClient;
+import com.crm.analytics.client.JsonRecordReader;
+import com.crm.analytics.client.MarketingClient;
+import com.crm.analytics.client.SalesClient;
+import com.crm.analytics.client.SupportClient;
+import com.crm.analytics.entity.Report;
+import com.crm.analytics.entity.ReportResult;
+import com.crm.analytics.repository.ReportRepository;
+import com.crm.analytics.repository.ReportResultRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import feign.Response;
+
+/**
+ * Runs SALES, LEADS, TICKETS and CAMPAIGNS reports on the bounded report pool.
+ *
+ * A run streams the source list with {@link JsonRecordReader}, folds it into
+ * small aggregates and stores the result as gzipped JSON in report_results.
+ * Viewing a finished report is then a single row read.
+ *
+ * The run queue lives in memory, so each QUEUED or RUNNING report records
+ * the instance that owns it, and the owner refreshes heartbeatAt every
+ * app.reports.heartbeat-ms. A report whose heartbeat is older than
+ * app.reports.heartbeat-timeout-ms was left behind by a restarted or crashed
+ * instance: it is marked FAILED, at startup and periodically after, and can
+ * be rerun. Runs of other live instances are left alone.
+ */
+@Service
+public class ReportEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportEngine.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final Set<String> TYPES = new HashSet<>(Arrays.asList("SALES", "LEADS", "TICKETS", "CAMPAIGNS"));
+
+    private static final Set<String> DEAL_FIELDS = fields("stage", "value", "assignedTo", "createdAt");
+    private static final Set<String> LEAD_FIELDS = fields("status", "source", "createdAt");
+    private static final Set<String> TICKET_FIELDS = fields("status", "priority", "category", "createdAt",
+            "resolvedAt");
+    private static final Set<String> CAMPAIGN_FIELDS = fields("id", "name", "type", "status", "budget", "sentCount",
+            "openCount", "clickCount", "conversionCount", "createdAt");
+
+    private static final List<String> ACTIVE = Arrays.asList(QUEUED, RUNNING);
+
+    @Value("${app.reports.heartbeat-timeout-ms:120000}")
+    private long heartbeatTimeoutMs;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportResultRepository resultRepository;
+
+    @Autowired
+    private JsonRecordReader recordReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    @Autowired
+    private SupportClient supportClient;
+
+    @Autowired
+    private MarketingClient marketingClient;
+
+    @Autowired
+    @Qualifier("reportExecutor")
+    private ExecutorService reportExecutor;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public boolean supports(String type) {
+        return type != null && TYPES.contains(type.toUpperCase());
+    }
+
+    /**
+     * Saves a report definition and queues its first run. The returned report is
+     * QUEUED, or FAILED when the worker queue is full.
+     */
+    public Report submit(Report definition) {
+        definition.setId(null);
+        definition.setType(definition.getType().toUpperCase());
+        definition.setData(null);
+        return queue(definition);
+    }
+
+    /**
+     * Queues a new run of an existing report, replacing its previous result when it completes.
+     */
+    public Report rerun(Long id) {
+        Report report = getReport(id);
+        if (!supports(report.getType())) {
+            throw new RuntimeException("Report type cannot be executed: " + report.getType());
+        }
+        if ((QUEUED.equals(report.getStatus()) || RUNNING.equals(report.getStatus())) && !stale(report)) {
+            return report;
+        }
+        return queue(report);
+    }
+
+    /**
+     * Keeps this instance's queued and running reports from looking abandoned.
+     */
+    @Scheduled(fixedDelayString = "${app.reports.heartbeat-ms:30000}")
+    public void heartbeat() {
+        reportRepository.heartbeat(instanceId, ACTIVE, LocalDateTime.now());
+    }
+
+    /**
+     * Fails the reports whose owning instance stopped sending heartbeats.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${app.reports.heartbeat-timeout-ms:120000}",
+            initialDelayString = "${app.reports.heartbeat-timeout-ms:120000}")
+    public void failInterrupted() {
+        LocalDateTime now = LocalDateTime.now();
+        int failed = reportRepository.failAbandoned(ACTIVE, now.minus(heartbeatTimeoutMs, ChronoUnit.MILLIS),
+                FAILED, "Interrupted by a restart, rerun the report", now);
+        if (failed > 0) {
+            logger.info("Marked {} interrupted reports as failed", failed);
+        }
+    }
+
+    public Map<String, Object> getStatus(Long id) {
+        Report report = getReport(id);
+        Map<String, Object> status = new HashMap<>();
+        status.put("id", report.getId());
+        status.put("type", report.getType());
+        status.put("status", report.getStatus());
+        status.put("error", report.getError());
+        status.put("submittedAt", report.getSubmittedAt());
+        status.put("startedAt", report.getStartedAt());
+        status.put("completedAt", report.getCompletedAt());
+        return status;
+    }
+
+    /**
+     * The stored result as a JSON string, or null while the report has no completed run.
+     */
+    public String getResult(Long id) {
+        return resultRepository.findById(id)
+                .map(result -> new String(gunzip(result.getContent()), StandardCharsets.UTF_8))
+                .orElse(null);
+    }
+
+    public void deleteResult(Long id) {
+        if (resultRepository.existsById(id)) {
+            resultRepository.deleteById(id);
+        }
+    }
+
+    // ========== Execution ==========
+
+    private boolean stale(Report report) {
+        LocalDateTime seen = report.getHeartbeatAt();
+        return seen == null || seen.isBefore(LocalDateTime.now().minus(heartbeatTimeoutMs, ChronoUnit.MILLIS));
+    }
+
+    private Report queue(Report report) {
+        report.setStatus(QUEUED);
+        report.setError(null);
+        report.setSubmittedAt(LocalDateTime.now());
+        report.setStartedAt(null);
+        report.setCompletedAt(null);
+        report.setOwner(instanceId);
+        report.setHeartbeatAt(LocalDateTime.now());
+        Report saved = reportRepository.save(report);
+        try {
+            reportExecutor.execute(() -> run(saved.getId()));
+        } catch (RejectedExecutionException e) {
+            saved.setStatus(FAILED);
+            saved.setError("Report queue is full, try again later");
+            return reportRepository.save(saved);
+        }
+        return saved;
+    }
+
+    private void run(Long id) {
+        Report report = reportRepository.findById(id).orElse(null);
+        if (report == null) {
+            return;
+        }
+        report.setStatus(RUNNING);
+        report.setStartedAt(LocalDateTime.now());
+        report.setOwner(instanceId);
+        report.setHeartbeatAt(report.getStartedAt());
+        report = reportRepository.save(report);
+        try {
+            Map<String, Object> result = compute(report);
+            result.put("reportId", report.getId());
+            result.put("type", report.getType());
+            result.put("periodStart", report.getPeriodStart());
+            result.put("periodEnd", report.getPeriodEnd());
+            result.put("generatedAt", LocalDateTime.now().toString());
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            CountingOutputStream counting;
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                counting = new CountingOutputStream(gzip);
+                objectMapper.writeValue(counting, result);
+            }
+            resultRepository.save(new ReportResult(report.getId(), buffer.toByteArray(), counting.count));
+
+            report.setStatus(COMPLETED);
+            report.setCompletedAt(LocalDateTime.now());
+            reportRepository.save(report);
+            logger.info("Report {} ({}) completed: {} bytes, {} gzipped", report.getId(), report.getType(),
+                    counting.count, buffer.size());
+        } catch (Exception e) {
+            logger.warn("Report {} ({}) failed: {}", report.getId(), report.getType(), e.getMessage());
+            report.setStatus(FAILED);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            report.setError(message.length() > 500 ? message.substring(0, 500) : message);
+            report.setCompletedAt(LocalDateTime.now());
+            reportRepository.save(report);
+        }
+    }
+
+    private Map<String, Object> compute(Report report) {
+        String companyId = report.getCompanyId();
+        switch (report.getType()) {
+            case "SALES":
+                return salesReport(report, companyId);
+            case "LEADS":
+                return leadsReport(report, companyId);
+            case "TICKETS":
+                return ticketsReport(report, companyId);
+            case "CAMPAIGNS":
+                return campaignsReport(report, companyId);
+            default:
+                throw new RuntimeException("Unsupported report type: " + report.getType());
+        }
+    }
+
+    // ========== Report types ==========
+
+    private Map<String, Object> salesReport(Report report, String companyId) {
+        Tally byStage = new Tally();
+        Tally byMonth = new Tally();
+        Tally byAssignee = new Tally();
+        double[] totals = new double[4]; // count, value, closed-won count, closed-won value
+        long[] lost = new long[1];
+        stream(salesClient.streamAllDeals(companyId), DEAL_FIELDS, report, deal -> {
+            String stage = text(deal.get("stage"), "UNKNOWN");
+            double value = number(deal.get("value"));
+            totals[0]++;
+            totals[1] += value;
+            byStage.add(stage, value);
+            byMonth.add(month(deal.get("createdAt")), value);
+            if ("CLOSED_WON".equals(stage)) {
+                totals[2]++;
+                totals[3] += value;
+                byAssignee.add(text(deal.get("assignedTo"), "UNASSIGNED"), value);
+            } else if ("CLOSED_LOST".equals(stage)) {
+                lost[0]++;
+            }
+        });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalDeals", (long) totals[0]);
+        result.put("totalValue", totals[1]);
+        result.put("closedWonDeals", (long) totals[2]);
+        result.put("closedWonValue", totals[3]);
+        result.put("winRate", ratio((long) totals[2], (long) totals[2] + lost[0]));
+        result.put("byStage", byStage.rows("stage"));
+        result.put("byMonth", byMonth.rows("period"));
+        result.put("closedWonByAssignee", byAssignee.rows("assignedTo"));
+        return result;
+    }
+
+    private Map<String, Object> leadsReport(Report report, String companyId) {
+        Tally byStatus = new Tally();
+        Tally bySource = new Tally();
+        Tally byMonth = new Tally();
+        long total = stream(customerClient.streamAllLeads(companyId), LEAD_FIELDS, report, lead -> {
+            byStatus.add(text(lead.get("status"), "UNKNOWN"), 0);
+            bySource.add(text(lead.get("source"), "UNKNOWN"), 0);
+            byMonth.add(month(lead.get("createdAt")), 0);
+        });
+
+        long converted = byStatus.count("CONVERTED");
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalLeads", total);
+        result.put("convertedLeads", converted);
+        result.put("conversionRate", ratio(converted, total));
+        result.put("byStatus", byStatus.rows("status"));
+        result.put("bySource", bySource.rows("source"));
+        result.put("byMonth", byMonth.rows("period"));
+        return result;
+    }
+
+    private Map<String, Object> ticketsReport(Report report, String companyId) {
+        Tally byStatus = new Tally();
+        Tally byPriority = new Tally();
+        Tally byCategory = new Tally();
+        Tally byMonth = new Tally();
+        double[] resolution = new double[2]; // resolved count, total hours
+        long total = stream(supportClient.streamAllTickets(companyId), TICKET_FIELDS, report, ticket -> {
+            byStatus.add(text(ticket.get("status"), "UNKNOWN"), 0);
+            byPriority.add(text(ticket.get("priority"), "UNKNOWN"), 0);
+            byCategory.add(text(ticket.get("category"), "UNCATEGORIZED"), 0);
+            byMonth.add(month(ticket.get("createdAt")), 0);
+            LocalDateTime created = dateTime(ticket.get("createdAt"));
+            LocalDateTime resolved = dateTime(ticket.get("resolvedAt"));
+            if (created != null && resolved != null) {
+                resolution[0]++;
+                resolution[1] += ChronoUnit.MINUTES.between(created, resolved) / 60.0;
+            }
+        });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalTickets", total);
+        result.put("openTickets", byStatus.count("OPEN"));
+        result.put("resolvedTickets", byStatus.count("RESOLVED") + byStatus.count("CLOSED"));
+        result.put("avgResolutionHours", resolution[0] > 0 ? resolution[1] / resolution[0] : 0.0);
+        result.put("byStatus", byStatus.rows("status"));
+        result.put("byPriority", byPriority.rows("priority"));
+        result.put("byCategory", byCategory.rows("category"));
+        result.put("byMonth", byMonth.rows("period"));
+        return result;
+    }
+
+    private Map<String, Object> campaignsReport(Report report, String companyId) {
+        Tally byType = new Tally();
+        Tally byStatus = new Tally();
+        long[] funnel = new long[4]; // sent, opened, clicked, converted
+        double[] budget = new double[1];
+        List<Map<String, Object>> campaigns = new ArrayList<>();
+        long total = stream(marketingClient.streamAllCampaigns(companyId), CAMPAIGN_FIELDS, report, campaign -> {
+            long sent = (long) number(campaign.get("sentCount"));
+            long opened = (long) number(campaign.get("openCount"));
+            long clicked = (long) number(campaign.get("clickCount"));
+            long converted = (long) number(campaign.get("conversionCount"));
+            funnel[0] += sent;
+            funnel[1] += opened;
+            funnel[2] += clicked;
+            funnel[3] += converted;
+            budget[0] += number(campaign.get("budget"));
+            byType.add(text(campaign.get("type"), "UNKNOWN"), 0);
+            byStatus.add(text(campaign.get("status"), "UNKNOWN"), 0);
+
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", campaign.get("id"));
+            row.put("name", campaign.get("name"));
+            row.put("status", campaign.get("status"));
+            row.put("sent", sent);
+            row.put("openRate", ratio(opened, sent));
+            row.put("clickRate", ratio(clicked, sent));
+            row.put("conversionRate", ratio(converted, sent));
+            campaigns.add(row);
+        });
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("totalCampaigns", total);
+        result.put("totalBudget", budget[0]);
+        result.put("sent", funnel[0]);
+        result.put("opened", funnel[1]);
+        result.put("clicked", funnel[2]);
+        result.put("converted", funnel[3]);
+        result.put("openRate", ratio(funnel[1], funnel[0]));
+        result.put("clickRate", ratio(funnel[2], funnel[0]));
+        result.put("conversionRate", ratio(funnel[3], funnel[0]));
+        result.put("byType", byType.rows("type"));
+        result.put("byStatus", byStatus.rows("status"));
+        result.put("campaigns", campaigns);
+        return result;
+    }
+
+    // ========== Helpers ==========
+
+    /**
+     * Streams a source list into the sink, skipping records created outside the
+     * report's period. Returns the number of records that were passed on.
+     */
+    private long stream(Response response, Set<String> fields, Report report,
+            Consumer<Map<String, Object>> sink) {
+        LocalDate start = report.getPeriodStart();
+        LocalDate end = report.getPeriodEnd();
+        long[] accepted = new long[1];
+        recordReader.read(response, fields, 0, record -> {
+            if (start != null || end != null) {
+                LocalDateTime created = dateTime(record.get("createdAt"));
+                LocalDate day = created != null ? created.toLocalDate() : null;
+                if (day == null || (start != null && day.isBefore(start)) || (end != null && day.isAfter(end))) {
+                    return;
+                }
+            }
+            accepted[0]++;
+            sink.accept(record);
+        });
+        return accepted[0];
+    }
+
+    private Report getReport(Long id) {
+        return reportRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Report not found with id: " + id));
+    }
+
+    private static Set<String> fields(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static String text(Object value, String fallback) {
+        return value != null ? value.toString() : fallback;
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static double ratio(long part, long whole) {
+        return whole > 0 ? (double) part / whole : 0.0;
+    }
+
+    private static String month(Object createdAt) {
+        LocalDateTime date = dateTime(createdAt);
+        return date != null ? String.format("%04d-%02d", date.getYear(), date.getMonthValue()) : "UNKNOWN";
+    }
+
+    private static LocalDateTime dateTime(Object value) {
+        try {
+            if (value instanceof String) {
+                return LocalDateTime.parse((String) value);
+            }
+            if (value instanceof List) {
+                List<?> parts = (List<?>) value;
+                if (parts.size() >= 3) {
+                    int[] fields = new int[6];
+                    for (int i = 0; i < Math.min(parts.size(), 6); i++) {
+                        fields[i] = ((Number) parts.get(i)).intValue();
+                    }
+                    return LocalDateTime.of(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Unparseable timestamps count as missing
+        }
+        return null;
+    }
+
+    private static byte[] gunzip(byte[] content) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return StreamUtils.copyToByteArray(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Stored report result is corrupt: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Count and value per key, sorted by key.
+     */
+    private static final class Tally {
+        private final Map<String, double[]> buckets = new TreeMap<>();
+
+        void add(String key, double value) {
+            double[] bucket = buckets.computeIfAbsent(key, k -> new double[2]);
+            bucket[0]++;
+            bucket[1] += value;
+        }
+
+        long count(String key) {
+            double[] bucket = buckets.get(key);
+            return bucket != null ? (long) bucket[0] : 0L;
+        }
+
+        List<Map<String, Object>> rows(String keyName) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<String, double[]> entry : buckets.entrySet()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put(keyName, entry.getKey());
+                row.put("count", (long) entry.getValue()[0]);
+                row.put("value", entry.getValue()[1]);
+                rows.add(row);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Counts bytes written through it, i.e. the uncompressed result size.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.crm.customer.client;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Map;
+
+/**
+ * Counter rebuilds fetch from every source service, so they get their own
+ * client and a longer read timeout than {@link AnalyticsClient}.
+ */
+@FeignClient(name = "analytics-service", contextId = "analytics-counters")
+public interface AnalyticsCounterClient {
+
+    @PostMapping("/api/analytics/counters/rebuild")
+    Map<String, Object> rebuildCounters(@RequestParam("companyId") String companyId);
+}
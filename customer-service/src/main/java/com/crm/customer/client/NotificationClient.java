@@ -4,6 +4,7 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
 import java.util.Map;
 
 @FeignClient(name = "notification-service")
@@ -11,4 +12,7 @@ public interface NotificationClient {
 
     @PostMapping("/api/notifications/send")
     Map<String, Object> sendNotification(@RequestBody Map<String, Object> notification);
+
+    @PostMapping("/api/notifications/send-batch")
+    Map<String, Object> sendBatch(@RequestBody List<Map<String, Object>> notifications);
 }
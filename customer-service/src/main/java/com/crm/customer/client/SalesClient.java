@@ -0,0 +1,22 @@
+package com.crm.customer.client;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient(name = "sales-service")
+public interface SalesClient {
+
+    @GetMapping("/api/deals/customer/{customerId}/summary")
+    Map<String, Object> getCustomerDealSummary(@PathVariable("customerId") Long customerId,
+            @RequestParam("companyId") String companyId, @RequestParam("limit") int limit);
+
+    @PostMapping("/api/deals/customer-events")
+    void customerEvents(@RequestBody List<Map<String, Object>> events);
+}
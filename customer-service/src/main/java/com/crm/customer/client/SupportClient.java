@@ -0,0 +1,16 @@
+package com.crm.customer.client;
+
+import java.util.Map;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+@FeignClient(name = "support-service")
+public interface SupportClient {
+
+    @GetMapping("/api/tickets/customer/{customerId}/summary")
+    Map<String, Object> getCustomerTicketSummary(@PathVariable("customerId") Long customerId,
+            @RequestParam("companyId") String companyId, @RequestParam("limit") int limit);
+}
@@ -0,0 +1,32 @@
+package com.crm.customer.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pool that fetches the sections of a customer 360 view in parallel. A full
+ * queue rejects, which the view reports as a missing section rather than
+ * piling up requests behind a slow downstream service.
+ */
+@Configuration
+public class Customer360Config {
+
+    @Value("${app.customer360.threads:16}")
+    private int threads;
+
+    @Value("${app.customer360.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService customer360Executor() {
+        return new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ImportConfig.namedThreads("customer360-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
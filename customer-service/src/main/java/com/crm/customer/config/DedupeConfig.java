@@ -0,0 +1,39 @@
+package com.crm.customer.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools of the duplicate detector: a small bounded pool that loads tenant
+ * indexes and runs clustering jobs, and a fork-join pool that compares
+ * blocks in parallel during a job.
+ */
+@Configuration
+public class DedupeConfig {
+
+    @Value("${app.dedupe.job-threads:1}")
+    private int jobThreads;
+
+    @Value("${app.dedupe.compare-parallelism:0}")
+    private int compareParallelism;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService dedupeExecutor() {
+        return new ThreadPoolExecutor(jobThreads, jobThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(20), ImportConfig.namedThreads("dedupe-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ForkJoinPool dedupeComparePool() {
+        int parallelism = compareParallelism > 0 ? compareParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+}
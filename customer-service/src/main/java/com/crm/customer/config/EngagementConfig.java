@@ -0,0 +1,36 @@
+package com.crm.customer.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools of the engagement summary repair: one worker that runs repair jobs,
+ * and a chunk pool that recomputes id ranges of a job in parallel, handing
+ * overflow back to the job thread like the scoring chunk pool.
+ */
+@Configuration
+public class EngagementConfig {
+
+    @Value("${app.engagement.parallelism:4}")
+    private int parallelism;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService engagementExecutor() {
+        return new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(20), ImportConfig.namedThreads("engagement-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService engagementChunkExecutor() {
+        return new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), ImportConfig.namedThreads("engagement-chunk-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,47 @@
+package com.crm.customer.config;
+
+import javax.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the leads and customers rows of id_generators past the ids already in
+ * those tables. Both entities used to take AUTO_INCREMENT ids; without this the
+ * pooled table generator would start again at 1. Runs before the web server
+ * starts, after the schema update has created id_generators, and only ever
+ * raises next_val, so it is safe on every instance.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdGeneratorSeeder {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdGeneratorSeeder.class);
+
+    // Must match allocationSize on the entities' @TableGenerator
+    private static final int ALLOCATION_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seed() {
+        seed("leads");
+        seed("customers");
+    }
+
+    private void seed(String table) {
+        // Leaves a full block of headroom whichever way the optimizer reads next_val
+        jdbcTemplate.update("INSERT INTO id_generators (sequence_name, next_val) "
+                + "SELECT ?, COALESCE(MAX(id), 0) + ? FROM " + table + " "
+                + "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))",
+                table, ALLOCATION_SIZE + 1);
+        Long next = jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE sequence_name = ?",
+                Long.class, table);
+        logger.info("Id generator for {} starts at {}", table, next);
+    }
+}
@@ -0,0 +1,37 @@
+package com.crm.customer.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools of the lead scoring engine: one worker that runs full recompute jobs,
+ * and a chunk pool that rescores id ranges of a job in parallel. The chunk
+ * pool hands overflow back to the job thread, which slows the scan that
+ * cuts the chunks instead of queueing the whole tenant in memory.
+ */
+@Configuration
+public class ScoringConfig {
+
+    @Value("${app.scoring.parallelism:4}")
+    private int parallelism;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService scoringExecutor() {
+        return new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(20), ImportConfig.namedThreads("scoring-worker-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService scoringChunkExecutor() {
+        return new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), ImportConfig.namedThreads("scoring-chunk-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
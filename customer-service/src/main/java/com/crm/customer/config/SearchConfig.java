@@ -0,0 +1,24 @@
+package com.crm.customer.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One worker that opens and rebuilds tenants' search indexes off the request
+ * threads; a tenant whose load is rejected is retried on its next search.
+ */
+@Configuration
+public class SearchConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService searchExecutor() {
+        return new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(100), ImportConfig.namedThreads("search-loader-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,9 +1,16 @@
 package com.crm.customer.controller;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,11 +22,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.crm.customer.dto.CursorPage;
 import com.crm.customer.entity.Activity;
 import com.crm.customer.entity.Note;
 import com.crm.customer.repository.ActivityRepository;
 import com.crm.customer.repository.NoteRepository;
+import com.crm.customer.service.ActivityService;
+import com.crm.customer.service.CallIngestService;
+import com.crm.customer.service.ExportService;
+import com.crm.customer.service.KeysetPager;
+import com.crm.customer.service.PhoneIndexService;
 
 @RestController
 @RequestMapping("/api")
@@ -32,6 +46,21 @@ public class ActivityController {
     @Autowired
     private NoteRepository noteRepository;
 
+    @Autowired
+    private ActivityService activityService;
+
+    @Autowired
+    private CallIngestService callIngestService;
+
+    @Autowired
+    private PhoneIndexService phoneIndexService;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private ExportService exportService;
+
     // ============ Activities ============
 
     @GetMapping("/activities/customer/{customerId}")
@@ -46,14 +75,80 @@ public class ActivityController {
         return ResponseEntity.ok(activityRepository.findByCompanyIdOrderByCreatedAtDesc(companyId));
     }
 
+    /**
+     * GET /api/activities/export
+     * Every activity of the company as CSV (default) or NDJSON, streamed
+     * from a database cursor.
+     */
+    @GetMapping("/activities/export")
+    public ResponseEntity<StreamingResponseBody> exportActivities(@RequestParam String companyId,
+            @RequestParam(required = false) String format) {
+        String resolved = exportService.format(format);
+        StreamingResponseBody body = out -> exportService.export(ExportService.ACTIVITIES, companyId, resolved, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"activities." + resolved + "\"")
+                .contentType(MediaType.parseMediaType(exportService.contentType(resolved)))
+                .body(body);
+    }
+
+    /**
+     * GET /api/activities/page
+     * Keyset-paginated activities, newest first; pass nextCursor back as cursor.
+     */
+    @GetMapping("/activities/page")
+    public ResponseEntity<CursorPage<Activity>> getActivitiesPage(@RequestParam String companyId,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(keysetPager.page(cursor, size,
+                pageable -> activityRepository.findPageByCompanyId(companyId, pageable),
+                (createdAt, id, pageable) -> activityRepository.findPageByCompanyIdAfter(companyId, createdAt, id,
+                        pageable),
+                Activity::getCreatedAt, Activity::getId));
+    }
+
+    @GetMapping("/activities/recent")
+    public ResponseEntity<List<Activity>> getRecentActivities(@RequestParam String companyId,
+            @RequestParam(defaultValue = "5") int limit) {
+        int size = Math.max(1, Math.min(limit, 50));
+        return ResponseEntity
+                .ok(activityRepository.findByCompanyIdOrderByCreatedAtDesc(companyId, PageRequest.of(0, size)));
+    }
+
     @PostMapping("/activities")
     public ResponseEntity<Activity> createActivity(@RequestBody Activity activity) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(activityRepository.save(activity));
+        return ResponseEntity.status(HttpStatus.CREATED).body(activityService.createActivity(activity));
+    }
+
+    /**
+     * POST /api/activities/calls
+     * Call-detail records from a dialer, streamed as NDJSON (application/x-ndjson),
+     * a JSON array (application/json) or CSV (text/csv). Each record becomes a
+     * CALL activity matched to a lead and customer by phone number. Returns
+     * the counts, rejected records and committedThroughRow; 400 when the body
+     * breaks off, 503 when a batch could not be written.
+     */
+    @PostMapping("/activities/calls")
+    public ResponseEntity<Map<String, Object>> ingestCalls(@RequestParam String companyId,
+            @RequestParam(required = false) String format, HttpServletRequest request) throws IOException {
+        Map<String, Object> result = callIngestService.ingest(companyId, format, request.getContentType(),
+                request.getInputStream());
+        Object status = result.get("status");
+        HttpStatus httpStatus = CallIngestService.COMPLETED.equals(status) ? HttpStatus.OK
+                : CallIngestService.INVALID.equals(status) ? HttpStatus.BAD_REQUEST : HttpStatus.SERVICE_UNAVAILABLE;
+        return ResponseEntity.status(httpStatus).body(result);
+    }
+
+    /**
+     * POST /api/activities/calls/phone-index/rebuild
+     * Reloads the company's phone numbers used to match calls.
+     */
+    @PostMapping("/activities/calls/phone-index/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildPhoneIndex(@RequestParam String companyId) {
+        return ResponseEntity.ok(phoneIndexService.rebuild(companyId));
     }
 
     @DeleteMapping("/activities/{id}")
     public ResponseEntity<Void> deleteActivity(@PathVariable Long id) {
-        activityRepository.deleteById(id);
+        activityService.deleteActivity(id);
         return ResponseEntity.noContent().build();
     }
 
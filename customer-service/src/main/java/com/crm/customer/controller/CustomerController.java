@@ -1,11 +1,16 @@
 package com.crm.customer.controller;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,22 +22,51 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.crm.customer.dto.CursorPage;
 import com.crm.customer.dto.CustomerDTO;
+import com.crm.customer.dto.CustomerSummary;
 import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.ImportJob;
+import com.crm.customer.service.Customer360Service;
 import com.crm.customer.service.CustomerService;
+import com.crm.customer.service.EngagementSummaryService;
+import com.crm.customer.service.ExportService;
+import com.crm.customer.service.ImportService;
+import com.crm.customer.service.SearchIndexService;
+import com.crm.customer.service.StatsService;
 
 @RestController
 @RequestMapping("/api/customers")
 @CrossOrigin(origins = "*")
 public class CustomerController {
 
+    @Autowired
+    private Customer360Service customer360Service;
+
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EngagementSummaryService engagementSummaryService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImportService importService;
+
     @PostMapping
-    public ResponseEntity<Customer> createCustomer(@Valid @RequestBody CustomerDTO dto) {
-        Customer created = customerService.createCustomer(dto);
+    public ResponseEntity<Customer> createCustomer(@Valid @RequestBody CustomerDTO dto,
+            @RequestParam(defaultValue = "false") boolean force) {
+        Customer created = customerService.createCustomer(dto, force);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
@@ -41,15 +75,130 @@ public class CustomerController {
         return ResponseEntity.ok(customerService.getAllCustomers(companyId));
     }
 
+    /**
+     * GET /api/customers/export
+     * Every customer of the company as CSV (default) or NDJSON, streamed
+     * from a database cursor.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(@RequestParam String companyId,
+            @RequestParam(required = false) String format) {
+        String resolved = exportService.format(format);
+        StreamingResponseBody body = out -> exportService.export(ExportService.CUSTOMERS, companyId, resolved, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"customers." + resolved + "\"")
+                .contentType(MediaType.parseMediaType(exportService.contentType(resolved)))
+                .body(body);
+    }
+
+    /**
+     * GET /api/customers/page
+     * Keyset-paginated customers, newest first; pass nextCursor back as cursor.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Customer>> getCustomersPage(@RequestParam String companyId,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(customerService.getCustomersPage(companyId, cursor, size));
+    }
+
+    /**
+     * GET /api/customers/stats
+     * Customer, lead and activity counts plus leads per month, computed in the database.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats(@RequestParam String companyId) {
+        return ResponseEntity.ok(statsService.getStats(companyId));
+    }
+
+    /**
+     * GET /api/customers/stats/daily
+     * Leads created per day, used by analytics-service to backfill its trend rollups.
+     */
+    @GetMapping("/stats/daily")
+    public ResponseEntity<Map<String, Object>> getDailyStats(@RequestParam String companyId) {
+        return ResponseEntity.ok(statsService.getDailyLeadStats(companyId));
+    }
+
+    /**
+     * GET /api/customers/engagement
+     * Customers by their engagement summary: most recently active first, or
+     * with inactiveDays those without activity for that long, longest silent first.
+     */
+    @GetMapping("/engagement")
+    public ResponseEntity<List<Customer>> getCustomersByEngagement(@RequestParam String companyId,
+            @RequestParam(required = false) Integer inactiveDays, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(engagementSummaryService.getCustomers(companyId, inactiveDays, limit));
+    }
+
+    /**
+     * POST /api/customers/batch
+     * Summaries of the customers whose ids are in the body (a JSON array of up
+     * to app.customers.batch-max-ids), for other services that show customer
+     * names next to their own records; unknown ids are left out.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<CustomerSummary>> getCustomersByIds(@RequestBody List<Long> ids,
+            @RequestParam(required = false) String companyId) {
+        return ResponseEntity.ok(customerService.getCustomerSummaries(ids, companyId));
+    }
+
+    /**
+     * GET /api/customers/ids
+     * A page of the company's customer ids above after, in id order; sales-service
+     * pages through these to load its customer-existence cache.
+     */
+    @GetMapping("/ids")
+    public ResponseEntity<List<Long>> getCustomerIds(@RequestParam String companyId,
+            @RequestParam(defaultValue = "0") long after, @RequestParam(defaultValue = "10000") int limit) {
+        return ResponseEntity.ok(customerService.getCustomerIds(companyId, after, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Customer> getCustomerById(@PathVariable Long id) {
         return ResponseEntity.ok(customerService.getCustomerById(id));
     }
 
+    /**
+     * GET /api/customers/{id}/360
+     * The customer with its newest activities, notes, deals and tickets (up to
+     * limit each) and summary counts, fetched in parallel; sections that time
+     * out come back empty with an error and partial=true.
+     */
+    @GetMapping("/{id}/360")
+    public ResponseEntity<Map<String, Object>> getCustomer360(@PathVariable Long id, @RequestParam String companyId,
+            @RequestParam(required = false) Integer limit, @RequestParam(defaultValue = "false") boolean fresh) {
+        return ResponseEntity.ok(customer360Service.getCustomer360(id, companyId, limit, fresh));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<Customer>> searchCustomers(@RequestParam String keyword,
-            @RequestParam String companyId) {
-        return ResponseEntity.ok(customerService.searchCustomers(companyId, keyword));
+            @RequestParam String companyId, @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(customerService.searchCustomers(companyId, keyword, limit));
+    }
+
+    /**
+     * POST /api/customers/search/rebuild
+     * Rebuilds the company's customer search index from the database.
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex(@RequestParam String companyId) {
+        return ResponseEntity.ok(searchIndexService.rebuild(SearchIndexService.CUSTOMERS, companyId));
+    }
+
+    /**
+     * POST /api/customers/import
+     * Bulk import from a CSV (text/csv) or NDJSON (application/x-ndjson) request
+     * body. Returns the QUEUED job (202); poll /api/imports/{id} for progress.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportJob> importCustomers(@RequestParam String companyId,
+            @RequestParam(required = false) String format, @RequestParam(required = false) Long createdBy,
+            HttpServletRequest request) throws IOException {
+        ImportJob job = importService.submit(ImportService.CUSTOMERS, companyId, format, request.getContentType(),
+                createdBy, request.getInputStream());
+        HttpStatus status = ImportService.FAILED.equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
     }
 
     @GetMapping("/status/{status}")
@@ -0,0 +1,87 @@
+package com.crm.customer.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.dto.CustomerDTO;
+import com.crm.customer.dto.LeadDTO;
+import com.crm.customer.entity.DedupeJob;
+import com.crm.customer.service.DedupeService;
+
+@RestController
+@RequestMapping("/api/dedupe")
+@CrossOrigin(origins = "*")
+public class DedupeController {
+
+    @Autowired
+    private DedupeService dedupeService;
+
+    /**
+     * POST /api/dedupe/leads/check
+     * Existing leads that look like the posted one, best match first.
+     */
+    @PostMapping("/leads/check")
+    public ResponseEntity<List<Map<String, Object>>> checkLead(@RequestBody LeadDTO dto,
+            @RequestParam String companyId, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(dedupeService.findLeadDuplicates(dto, companyId, limit));
+    }
+
+    /**
+     * POST /api/dedupe/customers/check
+     * Existing customers that look like the posted one, best match first.
+     */
+    @PostMapping("/customers/check")
+    public ResponseEntity<List<Map<String, Object>>> checkCustomer(@RequestBody CustomerDTO dto,
+            @RequestParam String companyId, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(dedupeService.findCustomerDuplicates(dto, companyId, limit));
+    }
+
+    /**
+     * POST /api/dedupe/jobs
+     * Queues a clustering run over all of the company's leads or customers (type).
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<DedupeJob> submitJob(@RequestParam String type, @RequestParam String companyId) {
+        DedupeJob job = dedupeService.submit(type, companyId);
+        HttpStatus status = DedupeService.FAILED.equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<DedupeJob>> getJobs(@RequestParam String type, @RequestParam String companyId) {
+        return ResponseEntity.ok(dedupeService.getJobs(type, companyId));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<DedupeJob> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(dedupeService.getJob(id));
+    }
+
+    /**
+     * GET /api/dedupe/jobs/{id}/clusters
+     * Duplicate clusters, largest first; pass the last cluster number as after for the next page.
+     */
+    @GetMapping("/jobs/{id}/clusters")
+    public ResponseEntity<List<Map<String, Object>>> getClusters(@PathVariable Long id,
+            @RequestParam(defaultValue = "0") int after, @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(dedupeService.getClusters(id, after, size));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(dedupeService.getStats());
+    }
+}
@@ -0,0 +1,50 @@
+package com.crm.customer.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.entity.EngagementJob;
+import com.crm.customer.service.EngagementSummaryService;
+
+@RestController
+@RequestMapping("/api/engagement")
+@CrossOrigin(origins = "*")
+public class EngagementController {
+
+    @Autowired
+    private EngagementSummaryService engagementSummaryService;
+
+    /**
+     * POST /api/engagement/jobs
+     * Queues a recompute of the engagement summary of every customer and lead
+     * of the company from its activities.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<EngagementJob> submitJob(@RequestParam String companyId) {
+        EngagementJob job = engagementSummaryService.submit(companyId);
+        HttpStatus status = EngagementSummaryService.FAILED.equals(job.getStatus())
+                ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<EngagementJob>> getJobs(@RequestParam String companyId) {
+        return ResponseEntity.ok(engagementSummaryService.getJobs(companyId));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<EngagementJob> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(engagementSummaryService.getJob(id));
+    }
+}
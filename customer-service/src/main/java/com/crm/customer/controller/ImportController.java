@@ -0,0 +1,53 @@
+package com.crm.customer.controller;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.entity.ImportJob;
+import com.crm.customer.entity.ImportJobError;
+import com.crm.customer.service.ImportService;
+
+/**
+ * Progress and row errors of bulk imports started through
+ * POST /api/leads/import and POST /api/customers/import.
+ */
+@RestController
+@RequestMapping("/api/imports")
+@CrossOrigin(origins = "*")
+public class ImportController {
+
+    @Autowired
+    private ImportService importService;
+
+    @GetMapping
+    public ResponseEntity<List<ImportJob>> getJobs(@RequestParam String companyId) {
+        return ResponseEntity.ok(importService.getJobs(companyId));
+    }
+
+    /**
+     * GET /api/imports/{id}
+     * Status and counters; bytesRead / totalBytes gives the progress of a RUNNING job.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJob> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(importService.getJob(id));
+    }
+
+    /**
+     * GET /api/imports/{id}/errors
+     * Rejected rows in row order; pass the last rowNumber as after for the next page.
+     */
+    @GetMapping("/{id}/errors")
+    public ResponseEntity<List<ImportJobError>> getErrors(@PathVariable Long id,
+            @RequestParam(defaultValue = "0") long after, @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(importService.getErrors(id, after, size));
+    }
+}
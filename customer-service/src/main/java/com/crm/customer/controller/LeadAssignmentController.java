@@ -0,0 +1,54 @@
+package com.crm.customer.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.dto.AssignmentRuleDTO;
+import com.crm.customer.service.LeadAssignmentService;
+
+@RestController
+@RequestMapping("/api/assignment")
+@CrossOrigin(origins = "*")
+public class LeadAssignmentController {
+
+    @Autowired
+    private LeadAssignmentService leadAssignmentService;
+
+    /**
+     * GET /api/assignment/rule
+     * The company's strategy and members with their current open-lead counts.
+     */
+    @GetMapping("/rule")
+    public ResponseEntity<Map<String, Object>> getRule(@RequestParam String companyId) {
+        return ResponseEntity.ok(leadAssignmentService.getRule(companyId));
+    }
+
+    /**
+     * PUT /api/assignment/rule
+     * Replaces the strategy (ROUND_ROBIN, LEAST_OPEN, WEIGHTED_CAPACITY) and members.
+     */
+    @PutMapping("/rule")
+    public ResponseEntity<Map<String, Object>> updateRule(@RequestParam String companyId,
+            @RequestBody AssignmentRuleDTO rule) {
+        return ResponseEntity.ok(leadAssignmentService.updateRule(companyId, rule));
+    }
+
+    /**
+     * POST /api/assignment/recount
+     * Recounts open leads per user from the database.
+     */
+    @PostMapping("/recount")
+    public ResponseEntity<Map<String, Object>> recount(@RequestParam String companyId) {
+        return ResponseEntity.ok(leadAssignmentService.recount(companyId));
+    }
+}
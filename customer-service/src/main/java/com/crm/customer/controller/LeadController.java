@@ -1,11 +1,17 @@
 package com.crm.customer.controller;
 
+import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -17,11 +23,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.crm.customer.dto.CursorPage;
 import com.crm.customer.dto.LeadDTO;
+import com.crm.customer.entity.ImportJob;
 import com.crm.customer.entity.Lead;
 import com.crm.customer.entity.LeadHistory;
+import com.crm.customer.service.EngagementSummaryService;
+import com.crm.customer.service.ExportService;
+import com.crm.customer.service.ImportService;
+import com.crm.customer.service.LeadFunnelService;
 import com.crm.customer.service.LeadService;
+import com.crm.customer.service.SearchIndexService;
 
 @RestController
 @RequestMapping("/api/leads")
@@ -31,9 +45,25 @@ public class LeadController {
     @Autowired
     private LeadService leadService;
 
+    @Autowired
+    private LeadFunnelService leadFunnelService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private EngagementSummaryService engagementSummaryService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ImportService importService;
+
     @PostMapping
-    public ResponseEntity<Lead> createLead(@Valid @RequestBody LeadDTO dto) {
-        Lead created = leadService.createLead(dto);
+    public ResponseEntity<Lead> createLead(@Valid @RequestBody LeadDTO dto,
+            @RequestParam(defaultValue = "false") boolean force) {
+        Lead created = leadService.createLead(dto, force);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
@@ -42,6 +72,32 @@ public class LeadController {
         return ResponseEntity.ok(leadService.getAllLeads(companyId));
     }
 
+    /**
+     * GET /api/leads/export
+     * Every lead of the company as CSV (default) or NDJSON, streamed
+     * from a database cursor.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportLeads(@RequestParam String companyId,
+            @RequestParam(required = false) String format) {
+        String resolved = exportService.format(format);
+        StreamingResponseBody body = out -> exportService.export(ExportService.LEADS, companyId, resolved, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"leads." + resolved + "\"")
+                .contentType(MediaType.parseMediaType(exportService.contentType(resolved)))
+                .body(body);
+    }
+
+    /**
+     * GET /api/leads/page
+     * Keyset-paginated leads, newest first; pass nextCursor back as cursor.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CursorPage<Lead>> getLeadsPage(@RequestParam String companyId,
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(leadService.getLeadsPage(companyId, cursor, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Lead> getLeadById(@PathVariable Long id) {
         return ResponseEntity.ok(leadService.getLeadById(id));
@@ -58,8 +114,34 @@ public class LeadController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Lead>> searchLeads(@RequestParam String keyword, @RequestParam String companyId) {
-        return ResponseEntity.ok(leadService.searchLeads(companyId, keyword));
+    public ResponseEntity<List<Lead>> searchLeads(@RequestParam String keyword, @RequestParam String companyId,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(leadService.searchLeads(companyId, keyword, limit));
+    }
+
+    /**
+     * POST /api/leads/search/rebuild
+     * Rebuilds the company's lead search index from the database.
+     */
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSearchIndex(@RequestParam String companyId) {
+        return ResponseEntity.ok(searchIndexService.rebuild(SearchIndexService.LEADS, companyId));
+    }
+
+    /**
+     * POST /api/leads/import
+     * Bulk import from a CSV (text/csv) or NDJSON (application/x-ndjson) request
+     * body. Returns the QUEUED job (202); poll /api/imports/{id} for progress.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportJob> importLeads(@RequestParam String companyId,
+            @RequestParam(required = false) String format, @RequestParam(required = false) Long createdBy,
+            HttpServletRequest request) throws IOException {
+        ImportJob job = importService.submit(ImportService.LEADS, companyId, format, request.getContentType(),
+                createdBy, request.getInputStream());
+        HttpStatus status = ImportService.FAILED.equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
     }
 
     @GetMapping("/high-score")
@@ -68,6 +150,17 @@ public class LeadController {
         return ResponseEntity.ok(leadService.getHighScoreLeads(companyId, minScore));
     }
 
+    /**
+     * GET /api/leads/engagement
+     * Leads by their engagement summary: most recently active first, or with
+     * inactiveDays those without activity for that long, longest silent first.
+     */
+    @GetMapping("/engagement")
+    public ResponseEntity<List<Lead>> getLeadsByEngagement(@RequestParam String companyId,
+            @RequestParam(required = false) Integer inactiveDays, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(engagementSummaryService.getLeads(companyId, inactiveDays, limit));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<Lead> updateLead(@PathVariable Long id, @Valid @RequestBody LeadDTO dto) {
         return ResponseEntity.ok(leadService.updateLead(id, dto));
@@ -83,6 +176,20 @@ public class LeadController {
         return ResponseEntity.ok(leadService.getLeadHistory(id));
     }
 
+    @GetMapping("/funnel")
+    public ResponseEntity<Map<String, Object>> getFunnel(@RequestParam String companyId,
+            @RequestParam(required = false) String from, @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(leadFunnelService.getFunnel(companyId, from, to));
+    }
+
+    @PostMapping("/funnel/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildFunnel(@RequestParam String companyId) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("historyRows", leadFunnelService.rebuild(companyId));
+        return ResponseEntity.ok(result);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteLead(@PathVariable Long id) {
         leadService.deleteLead(id);
@@ -0,0 +1,72 @@
+package com.crm.customer.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.entity.LeadScoringWeights;
+import com.crm.customer.entity.ScoringJob;
+import com.crm.customer.service.LeadScoringService;
+
+@RestController
+@RequestMapping("/api/lead-scoring")
+@CrossOrigin(origins = "*")
+public class LeadScoringController {
+
+    @Autowired
+    private LeadScoringService leadScoringService;
+
+    @GetMapping("/weights")
+    public ResponseEntity<LeadScoringWeights> getWeights(@RequestParam String companyId) {
+        return ResponseEntity.ok(leadScoringService.getWeights(companyId));
+    }
+
+    /**
+     * PUT /api/lead-scoring/weights
+     * Replaces the company's weights and queues a recompute of every lead;
+     * returns the saved weights and the job.
+     */
+    @PutMapping("/weights")
+    public ResponseEntity<Map<String, Object>> updateWeights(@RequestParam String companyId,
+            @RequestBody LeadScoringWeights weights) {
+        Map<String, Object> result = leadScoringService.updateWeights(companyId, weights);
+        ScoringJob job = (ScoringJob) result.get("job");
+        HttpStatus status = LeadScoringService.FAILED.equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    /**
+     * POST /api/lead-scoring/jobs
+     * Queues a recompute of every lead of the company under its current weights.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ScoringJob> submitJob(@RequestParam String companyId) {
+        ScoringJob job = leadScoringService.submit(companyId);
+        HttpStatus status = LeadScoringService.FAILED.equals(job.getStatus()) ? HttpStatus.SERVICE_UNAVAILABLE
+                : HttpStatus.ACCEPTED;
+        return ResponseEntity.status(status).body(job);
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<ScoringJob>> getJobs(@RequestParam String companyId) {
+        return ResponseEntity.ok(leadScoringService.getJobs(companyId));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ScoringJob> getJob(@PathVariable Long id) {
+        return ResponseEntity.ok(leadScoringService.getJob(id));
+    }
+}
@@ -0,0 +1,30 @@
+package com.crm.customer.controller;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.crm.customer.service.NotificationDispatcher;
+
+@RestController
+@RequestMapping("/api/notification-queue")
+@CrossOrigin(origins = "*")
+public class NotificationQueueController {
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    /**
+     * GET /api/notification-queue/stats
+     * Queue depth and sent / dropped / failed counters of the background notification sender.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(notificationDispatcher.getStats());
+    }
+}
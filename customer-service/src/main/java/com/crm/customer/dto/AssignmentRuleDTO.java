@@ -0,0 +1,31 @@
+package com.crm.customer.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class AssignmentRuleDTO {
+
+    private String strategy; // ROUND_ROBIN, LEAST_OPEN, WEIGHTED_CAPACITY
+    private Boolean enabled;
+    private List<Member> members;
+
+    // Defensive copy getters/setters for Lists
+    public List<Member> getMembers() {
+        return members == null ? null : Collections.unmodifiableList(members);
+    }
+
+    public void setMembers(List<Member> members) {
+        this.members = members == null ? null : new ArrayList<>(members);
+    }
+
+    @Data
+    public static class Member {
+        private Long userId;
+        private Integer capacity; // relative share under WEIGHTED_CAPACITY, default 1
+        private Boolean active;
+    }
+}
@@ -0,0 +1,38 @@
+package com.crm.customer.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a keyset-paginated list, newest first. Pass nextCursor back as
+ * cursor to get the following page; it is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private int size;
+    private boolean hasMore;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        setItems(items);
+        this.nextCursor = nextCursor;
+        this.size = this.items.size();
+        this.hasMore = nextCursor != null;
+    }
+
+    // Defensive copy getters/setters for Lists
+    public List<T> getItems() {
+        return items == null ? Collections.emptyList() : Collections.unmodifiableList(items);
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items == null ? new ArrayList<>() : new ArrayList<>(items);
+    }
+}
@@ -0,0 +1,27 @@
+package com.crm.customer.dto;
+
+import com.crm.customer.entity.Customer;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The columns other services show for a customer, returned by the batch
+ * lookup without loading whole rows.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerSummary {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String company;
+    private Customer.CustomerStatus status;
+    private Long assignedTo;
+    private String companyId;
+}
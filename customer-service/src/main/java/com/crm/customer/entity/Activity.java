@@ -22,8 +22,9 @@ import lombok.NoArgsConstructor;
 @Table(name = "activities", indexes = {
         @Index(name = "idx_activity_company_id", columnList = "companyId"),
         @Index(name = "idx_activity_type", columnList = "type"),
-        @Index(name = "idx_activity_customer_id", columnList = "customerId"),
-        @Index(name = "idx_activity_lead_id", columnList = "leadId")
+        @Index(name = "idx_activity_customer_created", columnList = "customerId, createdAt"),
+        @Index(name = "idx_activity_lead_created", columnList = "leadId, createdAt"),
+        @Index(name = "idx_activity_company_created", columnList = "companyId, createdAt, id")
 })
 @Data
 @NoArgsConstructor
@@ -0,0 +1,37 @@
+package com.crm.customer.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "assignment_members", indexes = {
+        @Index(name = "idx_assignment_member_company", columnList = "companyId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssignmentMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36, nullable = false)
+    private String companyId;
+
+    @Column(nullable = false)
+    private Long userId; // User ID from auth-service
+
+    private int capacity = 1; // relative share under WEIGHTED_CAPACITY
+
+    private boolean active = true;
+}
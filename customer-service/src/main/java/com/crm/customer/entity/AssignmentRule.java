@@ -0,0 +1,51 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How a tenant's new leads without an assignee are distributed among its
+ * {@link AssignmentMember}s.
+ */
+@Entity
+@Table(name = "assignment_rules", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_assignment_rule_company", columnNames = "companyId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssignmentRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36, nullable = false)
+    private String companyId;
+
+    @Column(length = 30, nullable = false)
+    private String strategy = "ROUND_ROBIN"; // ROUND_ROBIN, LEAST_OPEN, WEIGHTED_CAPACITY
+
+    private boolean enabled = true;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
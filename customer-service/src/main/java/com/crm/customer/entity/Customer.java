@@ -13,6 +13,7 @@ import javax.persistence.Id;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.Index;
 
 import lombok.AllArgsConstructor;
@@ -24,15 +25,21 @@ import lombok.NoArgsConstructor;
         @Index(name = "idx_customer_email", columnList = "email"),
         @Index(name = "idx_customer_company_id", columnList = "companyId"),
         @Index(name = "idx_customer_status", columnList = "status"),
-        @Index(name = "idx_customer_assigned_to", columnList = "assignedTo")
+        @Index(name = "idx_customer_assigned_to", columnList = "assignedTo"),
+        @Index(name = "idx_customer_company_created", columnList = "companyId, createdAt, id"),
+        @Index(name = "idx_customer_company_last_activity", columnList = "companyId, lastActivityAt"),
+        @Index(name = "idx_customer_company_updated", columnList = "companyId, updatedAt, id")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Customer {
 
+    // Pooled table ids so bulk imports can batch inserts; seeded past existing rows by IdGeneratorSeeder
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "customer_ids")
+    @TableGenerator(name = "customer_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "customers", allocationSize = 500)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -104,6 +111,24 @@ public class Customer {
 
     private Long assignedTo; // User ID
 
+    // Engagement summary kept by EngagementSummaryService, which updates it in SQL
+    @Column(updatable = false)
+    private LocalDateTime lastActivityAt;
+    @Column(updatable = false)
+    private Integer activityCount = 0;
+    @Column(updatable = false)
+    private Integer callCount = 0;
+    @Column(updatable = false)
+    private Integer emailCount = 0;
+    @Column(updatable = false)
+    private Integer meetingCount = 0;
+    @Column(updatable = false)
+    private Integer noteCount = 0;
+    @Column(updatable = false)
+    private Integer taskCount = 0;
+    @Column(updatable = false)
+    private Long totalCallDuration = 0L; // in seconds
+
     @Column(updatable = false)
     private LocalDateTime createdAt;
 
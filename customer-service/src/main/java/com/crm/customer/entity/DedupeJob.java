@@ -0,0 +1,63 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "dedupe_jobs", indexes = {
+        @Index(name = "idx_dedupe_job_company", columnList = "companyId, type, createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupeJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36)
+    private String companyId;
+
+    @Column(length = 20)
+    private String type; // leads, customers
+
+    @Column(length = 20)
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+
+    private double threshold;
+
+    // Outcome
+    private long records;
+    private long blocks;
+    private long oversizedBlocks; // skipped, larger than app.dedupe.max-block
+    private long comparisons;
+    private long clusters;
+    private long duplicates; // records that belong to a cluster
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
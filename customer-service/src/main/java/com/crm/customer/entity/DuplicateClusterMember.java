@@ -0,0 +1,40 @@
+package com.crm.customer.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One lead or customer in a duplicate cluster found by a {@link DedupeJob}.
+ * Clusters are numbered from 1, largest first.
+ */
+@Entity
+@Table(name = "duplicate_cluster_members", indexes = {
+        @Index(name = "idx_duplicate_member_job_cluster", columnList = "jobId, clusterNo")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateClusterMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long jobId;
+
+    private int clusterNo;
+
+    private Long entityId;
+
+    private double score; // best match with another member
+}
@@ -0,0 +1,58 @@
+package com.crm.customer.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Funnel figures for one company, month and status transition.
+ *
+ * fromStatus "*" rows count leads reaching toStatus for the first time. Other
+ * rows count fromStatus -> toStatus transitions; for those whose start time is
+ * known, total minutes and a log2 histogram of the durations (bucket i holds
+ * durations of [2^i, 2^(i+1)) minutes, comma separated) give the mean and an
+ * approximate median without keeping individual rows.
+ */
+@Entity
+@Table(name = "funnel_aggregates", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_funnel_bucket", columnNames = { "companyId", "period", "fromStatus",
+                "toStatus" })
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FunnelAggregate {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 36)
+    private String companyId;
+
+    @Column(nullable = false, length = 7)
+    private String period; // yyyy-MM
+
+    @Column(nullable = false, length = 20)
+    private String fromStatus;
+
+    @Column(nullable = false, length = 20)
+    private String toStatus;
+
+    private long transitions;
+
+    private long timedTransitions;
+
+    private long totalMinutes;
+
+    @Column(length = 400)
+    private String histogram;
+}
@@ -0,0 +1,39 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Highest lead_history id already folded into the funnel aggregates.
+ */
+@Entity
+@Table(name = "funnel_watermarks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FunnelWatermark {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    private long lastHistoryId;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
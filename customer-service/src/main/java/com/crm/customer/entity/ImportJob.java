@@ -0,0 +1,66 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "import_jobs", indexes = {
+        @Index(name = "idx_import_job_company", columnList = "companyId, createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36)
+    private String companyId;
+
+    @Column(length = 20)
+    private String type; // LEADS, CUSTOMERS
+
+    @Column(length = 10)
+    private String format; // CSV, NDJSON
+
+    @Column(length = 20)
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+
+    // Progress
+    private long totalBytes;
+    private long bytesRead;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsDuplicate; // email already in the file or in the tenant
+    private long rowsFailed; // parse or validation errors
+
+    @Column(length = 500)
+    private String error;
+
+    private Long createdBy;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
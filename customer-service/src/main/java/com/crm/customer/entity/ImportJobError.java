@@ -0,0 +1,45 @@
+package com.crm.customer.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One rejected row of an import. Only the first app.import.max-errors rows of
+ * a job are kept; ImportJob counts all of them.
+ */
+@Entity
+@Table(name = "import_job_errors", indexes = {
+        @Index(name = "idx_import_error_job_row", columnList = "jobId, rowNumber")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobError {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long jobId;
+
+    private long rowNumber; // 1-based data row, header excluded
+
+    @Column(length = 20)
+    private String reason; // INVALID, DUPLICATE
+
+    @Column(length = 500)
+    private String message;
+
+    @Column(length = 500)
+    private String rawValue; // the offending line, truncated
+}
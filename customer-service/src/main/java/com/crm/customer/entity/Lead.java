@@ -13,6 +13,7 @@ import javax.persistence.Id;
 import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
 import javax.persistence.Index;
 
 import lombok.AllArgsConstructor;
@@ -24,15 +25,22 @@ import lombok.NoArgsConstructor;
         @Index(name = "idx_lead_email", columnList = "email"),
         @Index(name = "idx_lead_company_id", columnList = "companyId"),
         @Index(name = "idx_lead_status", columnList = "status"),
-        @Index(name = "idx_lead_assigned_to", columnList = "assignedTo")
+        @Index(name = "idx_lead_assigned_to", columnList = "assignedTo"),
+        @Index(name = "idx_lead_company_created", columnList = "companyId, createdAt, id"),
+        @Index(name = "idx_lead_company_score", columnList = "companyId, score"),
+        @Index(name = "idx_lead_company_last_activity", columnList = "companyId, lastActivityAt"),
+        @Index(name = "idx_lead_company_updated", columnList = "companyId, updatedAt, id")
 })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Lead {
 
+    // Pooled table ids so bulk imports can batch inserts; seeded past existing rows by IdGeneratorSeeder
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lead_ids")
+    @TableGenerator(name = "lead_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "leads", allocationSize = 500)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -62,6 +70,30 @@ public class Lead {
 
     private Integer score = 0; // Lead score (0-100)
 
+    // Parts of the score kept by LeadScoringService, which updates them in SQL
+    @Column(updatable = false)
+    private Integer fitPoints = 0;
+    @Column(updatable = false)
+    private Integer engagementPoints = 0;
+
+    // Engagement summary kept by EngagementSummaryService, which updates it in SQL
+    @Column(updatable = false)
+    private LocalDateTime lastActivityAt;
+    @Column(updatable = false)
+    private Integer activityCount = 0;
+    @Column(updatable = false)
+    private Integer callCount = 0;
+    @Column(updatable = false)
+    private Integer emailCount = 0;
+    @Column(updatable = false)
+    private Integer meetingCount = 0;
+    @Column(updatable = false)
+    private Integer noteCount = 0;
+    @Column(updatable = false)
+    private Integer taskCount = 0;
+    @Column(updatable = false)
+    private Long totalCallDuration = 0L; // in seconds
+
     private boolean isConverted = false;
     private Long convertedCustomerId;
 
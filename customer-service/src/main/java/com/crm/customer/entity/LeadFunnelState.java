@@ -0,0 +1,37 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Where a lead currently is in the funnel, as seen by the funnel engine, and
+ * which statuses it has ever reached (bit per LeadStatus ordinal).
+ */
+@Entity
+@Table(name = "lead_funnel_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeadFunnelState {
+
+    @Id
+    private Long leadId;
+
+    @Column(length = 36)
+    private String companyId;
+
+    @Column(length = 20)
+    private String status;
+
+    private LocalDateTime enteredAt; // When the lead entered status; null if unknown
+
+    private int reachedMask;
+}
@@ -7,6 +7,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
 
@@ -15,7 +16,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "lead_history")
+@Table(name = "lead_history", indexes = {
+        @Index(name = "idx_lead_history_company_id", columnList = "companyId, id"),
+        @Index(name = "idx_lead_history_lead_changed", columnList = "leadId, changedAt")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
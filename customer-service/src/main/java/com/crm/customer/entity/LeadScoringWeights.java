@@ -0,0 +1,67 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A tenant's lead scoring weights. Tenants without a row score with the
+ * defaults below. A lead's score is its fit points plus its engagement
+ * points, clamped to 0-100.
+ */
+@Entity
+@Table(name = "lead_scoring_weights", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_lead_scoring_company", columnNames = "companyId")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeadScoringWeights {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36, nullable = false)
+    private String companyId;
+
+    // Engagement, per activity
+    private int callPoints = 5;
+    private int callMinutePoints = 1;
+    private int maxCallMinutes = 30; // minutes beyond this earn nothing
+    private int answeredCallPoints = 5; // Answered, Connected, Completed
+    private int missedCallPoints = -2; // Missed, No Answer, Voicemail, Busy
+    private int meetingPoints = 15;
+    private int emailPoints = 3;
+
+    // Fit, from the lead's own fields
+    private int emailFitPoints = 5;
+    private int phoneFitPoints = 5;
+    private int titleFitPoints = 5;
+    private int companyFitPoints = 5;
+    private int hotRatingPoints = 20;
+    private int warmRatingPoints = 10;
+    private int contactedPoints = 5;
+    private int qualifiedPoints = 20;
+    private int unqualifiedPoints = -50;
+
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,56 @@
+package com.crm.customer.entity;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(name = "scoring_jobs", indexes = {
+        @Index(name = "idx_scoring_job_company", columnList = "companyId, createdAt")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScoringJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(length = 36)
+    private String companyId;
+
+    @Column(length = 20)
+    private String status; // QUEUED, RUNNING, COMPLETED, FAILED
+
+    // Outcome
+    private long leads;
+    private long activities;
+    private int chunks;
+    private long changed; // leads whose score moved
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
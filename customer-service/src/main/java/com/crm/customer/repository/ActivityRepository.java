@@ -1,8 +1,19 @@
 package com.crm.customer.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.crm.customer.entity.Activity;
@@ -14,9 +25,44 @@ public interface ActivityRepository extends JpaRepository<Activity, Long> {
 
     List<Activity> findByCustomerIdAndCompanyIdOrderByCreatedAtDesc(Long customerId, String companyId);
 
+    List<Activity> findByCustomerIdAndCompanyIdOrderByCreatedAtDesc(Long customerId, String companyId,
+            Pageable pageable);
+
+    long countByCustomerIdAndCompanyId(Long customerId, String companyId);
+
     List<Activity> findByCompanyIdOrderByCreatedAtDesc(String companyId);
 
+    List<Activity> findByCompanyIdOrderByCreatedAtDesc(String companyId, Pageable pageable);
+
     List<Activity> findAllByOrderByCreatedAtDesc();
 
     List<Activity> findByPerformedBy(Long userId);
+
+    List<Activity> findTop5ByCompanyIdOrderByCreatedAtDesc(String companyId);
+
+    long countByCompanyId(String companyId);
+
+    /**
+     * All of the company's activities in id order as a forward-only MySQL cursor; see ExportService.
+     */
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT a FROM Activity a WHERE a.companyId = :companyId ORDER BY a.id")
+    Stream<Activity> streamByCompanyId(@Param("companyId") String companyId);
+
+    /**
+     * First keyset page, newest first.
+     */
+    @Query("SELECT a FROM Activity a WHERE a.companyId = :companyId "
+            + "ORDER BY a.createdAt DESC, a.id DESC")
+    List<Activity> findPageByCompanyId(@Param("companyId") String companyId, Pageable pageable);
+
+    /**
+     * Keyset page of rows strictly older than (createdAt, id).
+     */
+    @Query("SELECT a FROM Activity a WHERE a.companyId = :companyId "
+            + "AND (a.createdAt < :createdAt OR (a.createdAt = :createdAt AND a.id < :id)) "
+            + "ORDER BY a.createdAt DESC, a.id DESC")
+    List<Activity> findPageByCompanyIdAfter(@Param("companyId") String companyId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.AssignmentMember;
+
+@Repository
+public interface AssignmentMemberRepository extends JpaRepository<AssignmentMember, Long> {
+
+    List<AssignmentMember> findByCompanyIdOrderByUserIdAsc(String companyId);
+
+    @Modifying
+    void deleteByCompanyId(String companyId);
+}
@@ -0,0 +1,20 @@
+package com.crm.customer.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.AssignmentRule;
+
+@Repository
+public interface AssignmentRuleRepository extends JpaRepository<AssignmentRule, Long> {
+
+    Optional<AssignmentRule> findByCompanyId(String companyId);
+
+    @Query("SELECT r.updatedAt FROM AssignmentRule r WHERE r.companyId = :companyId")
+    LocalDateTime findUpdatedAtByCompanyId(@Param("companyId") String companyId);
+}
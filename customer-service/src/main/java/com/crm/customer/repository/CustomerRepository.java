@@ -1,11 +1,24 @@
 package com.crm.customer.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.crm.customer.dto.CustomerSummary;
 import com.crm.customer.entity.Customer;
 
 @Repository
@@ -21,4 +34,85 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
 
     List<Customer> findByCompanyIdAndFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(String companyId,
             String firstName, String lastName);
+
+    long countByCompanyId(String companyId);
+
+    List<Customer> findByCompanyIdAndEmail(String companyId, String email);
+
+    /**
+     * All of the company's customers in id order as a forward-only MySQL cursor; see ExportService.
+     */
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId ORDER BY c.id")
+    Stream<Customer> streamByCompanyId(@Param("companyId") String companyId);
+
+    /**
+     * Which of the given emails the company already has; used by bulk import to skip duplicates.
+     */
+    @Query("SELECT c.email FROM Customer c WHERE c.companyId = :companyId AND c.email IN :emails")
+    List<String> findExistingEmails(@Param("companyId") String companyId, @Param("emails") Collection<String> emails);
+
+    /**
+     * Summaries of the customers with the given ids; see CustomerService#getCustomerSummaries.
+     */
+    @Query("SELECT new com.crm.customer.dto.CustomerSummary(c.id, c.firstName, c.lastName, c.email, c.phone, "
+            + "c.company, c.status, c.assignedTo, c.companyId) FROM Customer c WHERE c.id IN :ids")
+    List<CustomerSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.crm.customer.dto.CustomerSummary(c.id, c.firstName, c.lastName, c.email, c.phone, "
+            + "c.company, c.status, c.assignedTo, c.companyId) FROM Customer c "
+            + "WHERE c.companyId = :companyId AND c.id IN :ids")
+    List<CustomerSummary> findSummariesByCompanyIdAndIdIn(@Param("companyId") String companyId,
+            @Param("ids") Collection<Long> ids);
+
+    /**
+     * The company's customer ids above afterId in id order; see CustomerService#getCustomerIds.
+     */
+    @Query("SELECT c.id FROM Customer c WHERE c.companyId = :companyId AND c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsByCompanyIdAfter(@Param("companyId") String companyId, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    @Query("SELECT MAX(c.updatedAt) FROM Customer c WHERE c.companyId = :companyId")
+    LocalDateTime findLastUpdatedAt(@Param("companyId") String companyId);
+
+    /**
+     * Keyset page of rows updated after (updatedAt, id), oldest change first.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId "
+            + "AND (c.updatedAt > :updatedAt OR (c.updatedAt = :updatedAt AND c.id > :id)) "
+            + "ORDER BY c.updatedAt, c.id")
+    List<Customer> findPageUpdatedAfter(@Param("companyId") String companyId,
+            @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * First keyset page, newest first.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Customer> findPageByCompanyId(@Param("companyId") String companyId, Pageable pageable);
+
+    /**
+     * Keyset page of rows strictly older than (createdAt, id).
+     */
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId "
+            + "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<Customer> findPageByCompanyIdAfter(@Param("companyId") String companyId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * The company's customers with activities, most recently active first.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId AND c.lastActivityAt IS NOT NULL "
+            + "ORDER BY c.lastActivityAt DESC")
+    List<Customer> findRecentlyEngaged(@Param("companyId") String companyId, Pageable pageable);
+
+    /**
+     * The company's customers without activity since the given time, never contacted and longest silent first.
+     */
+    @Query("SELECT c FROM Customer c WHERE c.companyId = :companyId "
+            + "AND (c.lastActivityAt IS NULL OR c.lastActivityAt < :since) ORDER BY c.lastActivityAt ASC")
+    List<Customer> findNotEngagedSince(@Param("companyId") String companyId, @Param("since") LocalDateTime since,
+            Pageable pageable);
 }
@@ -0,0 +1,14 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.DedupeJob;
+
+@Repository
+public interface DedupeJobRepository extends JpaRepository<DedupeJob, Long> {
+
+    List<DedupeJob> findTop20ByCompanyIdAndTypeOrderByCreatedAtDesc(String companyId, String type);
+}
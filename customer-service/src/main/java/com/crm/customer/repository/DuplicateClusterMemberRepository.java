@@ -0,0 +1,27 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.DuplicateClusterMember;
+
+@Repository
+public interface DuplicateClusterMemberRepository extends JpaRepository<DuplicateClusterMember, Long> {
+
+    List<DuplicateClusterMember> findByJobIdAndClusterNoBetweenOrderByClusterNoAscScoreDesc(Long jobId, int from,
+            int to);
+
+    /**
+     * Drops the clusters of the tenant's earlier jobs of the same type once a newer job has completed.
+     */
+    @Modifying
+    @Query("DELETE FROM DuplicateClusterMember m WHERE m.jobId IN (SELECT j.id FROM DedupeJob j "
+            + "WHERE j.companyId = :companyId AND j.type = :type AND j.id < :jobId)")
+    int deleteEarlierClusters(@Param("companyId") String companyId, @Param("type") String type,
+            @Param("jobId") Long jobId);
+}
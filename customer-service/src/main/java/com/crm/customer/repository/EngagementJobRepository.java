@@ -0,0 +1,14 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.EngagementJob;
+
+@Repository
+public interface EngagementJobRepository extends JpaRepository<EngagementJob, Long> {
+
+    List<EngagementJob> findTop20ByCompanyIdOrderByCreatedAtDesc(String companyId);
+}
@@ -0,0 +1,25 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.FunnelAggregate;
+
+@Repository
+public interface FunnelAggregateRepository extends JpaRepository<FunnelAggregate, Long> {
+
+    Optional<FunnelAggregate> findByCompanyIdAndPeriodAndFromStatusAndToStatus(String companyId, String period,
+            String fromStatus, String toStatus);
+
+    List<FunnelAggregate> findByCompanyIdAndPeriodBetween(String companyId, String fromPeriod, String toPeriod);
+
+    @Modifying
+    @Query("DELETE FROM FunnelAggregate a WHERE a.companyId = :companyId")
+    int deleteByCompanyId(@Param("companyId") String companyId);
+}
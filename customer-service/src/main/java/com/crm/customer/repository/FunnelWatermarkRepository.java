@@ -0,0 +1,24 @@
+package com.crm.customer.repository;
+
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.FunnelWatermark;
+
+@Repository
+public interface FunnelWatermarkRepository extends JpaRepository<FunnelWatermark, String> {
+
+    /**
+     * Reads the watermark with a row lock so only one instance advances it at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM FunnelWatermark w WHERE w.name = :name")
+    Optional<FunnelWatermark> findForUpdate(@Param("name") String name);
+}
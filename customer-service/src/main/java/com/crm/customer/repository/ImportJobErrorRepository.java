@@ -0,0 +1,16 @@
+package com.crm.customer.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.ImportJobError;
+
+@Repository
+public interface ImportJobErrorRepository extends JpaRepository<ImportJobError, Long> {
+
+    List<ImportJobError> findByJobIdAndRowNumberGreaterThanOrderByRowNumberAsc(Long jobId, long rowNumber,
+            Pageable pageable);
+}
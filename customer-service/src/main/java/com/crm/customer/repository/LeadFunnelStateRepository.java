@@ -0,0 +1,17 @@
+package com.crm.customer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.LeadFunnelState;
+
+@Repository
+public interface LeadFunnelStateRepository extends JpaRepository<LeadFunnelState, Long> {
+
+    @Modifying
+    @Query("DELETE FROM LeadFunnelState s WHERE s.companyId = :companyId")
+    int deleteByCompanyId(@Param("companyId") String companyId);
+}
@@ -2,6 +2,7 @@ package com.crm.customer.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -10,4 +11,15 @@ import com.crm.customer.entity.LeadHistory;
 @Repository
 public interface LeadHistoryRepository extends JpaRepository<LeadHistory, Long> {
     List<LeadHistory> findByLeadIdOrderByChangedAtDesc(Long leadId);
+
+    /**
+     * Next batch of history rows after the funnel watermark, a primary key range read.
+     */
+    List<LeadHistory> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * A company's history rows in (afterId, throughId], for replaying its funnel.
+     */
+    List<LeadHistory> findByCompanyIdAndIdGreaterThanAndIdLessThanEqualOrderByIdAsc(String companyId, Long afterId,
+            Long throughId, Pageable pageable);
 }
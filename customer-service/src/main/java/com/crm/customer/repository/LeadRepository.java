@@ -1,8 +1,20 @@
 package com.crm.customer.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.crm.customer.entity.Lead;
@@ -24,5 +36,99 @@ public interface LeadRepository extends JpaRepository<Lead, Long> {
 
     List<Lead> findByCompanyIdAndSource(String companyId, String source);
 
-    List<Lead> findByCompanyIdAndScoreGreaterThanEqual(String companyId, Integer score);
+    /**
+     * Highest scores first, read in order off idx_lead_company_score.
+     */
+    List<Lead> findByCompanyIdAndScoreGreaterThanEqualOrderByScoreDescIdDesc(String companyId, Integer score);
+
+    long countByCompanyId(String companyId);
+
+    List<Lead> findByCompanyIdAndEmail(String companyId, String email);
+
+    /**
+     * All of the company's leads in id order as a forward-only MySQL cursor; see ExportService.
+     */
+    @QueryHints({ @QueryHint(name = HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HINT_READONLY, value = "true") })
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId ORDER BY l.id")
+    Stream<Lead> streamByCompanyId(@Param("companyId") String companyId);
+
+    /**
+     * Which of the given emails the company already has; used by bulk import to skip duplicates.
+     */
+    @Query("SELECT l.email FROM Lead l WHERE l.companyId = :companyId AND l.email IN :emails")
+    List<String> findExistingEmails(@Param("companyId") String companyId, @Param("emails") Collection<String> emails);
+
+    @Query("SELECT MAX(l.updatedAt) FROM Lead l WHERE l.companyId = :companyId")
+    LocalDateTime findLastUpdatedAt(@Param("companyId") String companyId);
+
+    /**
+     * Keyset page of rows updated after (updatedAt, id), oldest change first.
+     */
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId "
+            + "AND (l.updatedAt > :updatedAt OR (l.updatedAt = :updatedAt AND l.id > :id)) "
+            + "ORDER BY l.updatedAt, l.id")
+    List<Lead> findPageUpdatedAfter(@Param("companyId") String companyId,
+            @Param("updatedAt") LocalDateTime updatedAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * First keyset page, newest first.
+     */
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId "
+            + "ORDER BY l.createdAt DESC, l.id DESC")
+    List<Lead> findPageByCompanyId(@Param("companyId") String companyId, Pageable pageable);
+
+    /**
+     * Keyset page of rows strictly older than (createdAt, id).
+     */
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId "
+            + "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND l.id < :id)) "
+            + "ORDER BY l.createdAt DESC, l.id DESC")
+    List<Lead> findPageByCompanyIdAfter(@Param("companyId") String companyId,
+            @Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Open leads per assignee as rows of [assignedTo, count]; seeds the assignment counters.
+     */
+    @Query("SELECT l.assignedTo, COUNT(l) FROM Lead l WHERE l.companyId = :companyId "
+            + "AND l.assignedTo IS NOT NULL AND l.status IN :statuses GROUP BY l.assignedTo")
+    List<Object[]> countOpenByAssignee(@Param("companyId") String companyId,
+            @Param("statuses") Collection<Lead.LeadStatus> statuses);
+
+    /**
+     * Lead counts per status as rows of [status, count].
+     */
+    @Query("SELECT l.status, COUNT(l) FROM Lead l WHERE l.companyId = :companyId GROUP BY l.status")
+    List<Object[]> countByStatus(@Param("companyId") String companyId);
+
+    /**
+     * Lead counts per calendar month as rows of [year, month, count].
+     */
+    @Query("SELECT year(l.createdAt), month(l.createdAt), COUNT(l) FROM Lead l "
+            + "WHERE l.companyId = :companyId AND l.createdAt IS NOT NULL "
+            + "GROUP BY year(l.createdAt), month(l.createdAt)")
+    List<Object[]> countByMonth(@Param("companyId") String companyId);
+
+    /**
+     * Lead counts per calendar day as rows of [year, month, day, count].
+     */
+    @Query("SELECT year(l.createdAt), month(l.createdAt), day(l.createdAt), COUNT(l) FROM Lead l "
+            + "WHERE l.companyId = :companyId AND l.createdAt IS NOT NULL "
+            + "GROUP BY year(l.createdAt), month(l.createdAt), day(l.createdAt)")
+    List<Object[]> countByDay(@Param("companyId") String companyId);
+
+    /**
+     * The company's leads with activities, most recently active first.
+     */
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId AND l.lastActivityAt IS NOT NULL "
+            + "ORDER BY l.lastActivityAt DESC")
+    List<Lead> findRecentlyEngaged(@Param("companyId") String companyId, Pageable pageable);
+
+    /**
+     * The company's leads without activity since the given time, never contacted and longest silent first.
+     */
+    @Query("SELECT l FROM Lead l WHERE l.companyId = :companyId "
+            + "AND (l.lastActivityAt IS NULL OR l.lastActivityAt < :since) ORDER BY l.lastActivityAt ASC")
+    List<Lead> findNotEngagedSince(@Param("companyId") String companyId, @Param("since") LocalDateTime since,
+            Pageable pageable);
 }
@@ -0,0 +1,14 @@
+package com.crm.customer.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.crm.customer.entity.LeadScoringWeights;
+
+@Repository
+public interface LeadScoringWeightsRepository extends JpaRepository<LeadScoringWeights, Long> {
+
+    Optional<LeadScoringWeights> findByCompanyId(String companyId);
+}
@@ -2,6 +2,7 @@ package com.crm.customer.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -11,4 +12,8 @@ import com.crm.customer.entity.Note;
 public interface NoteRepository extends JpaRepository<Note, Long> {
 
     List<Note> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
+
+    List<Note> findByCustomerIdAndCompanyIdOrderByCreatedAtDesc(Long customerId, String companyId, Pageable pageable);
+
+    long countByCustomerIdAndCompanyId(Long customerId, String companyId);
 }
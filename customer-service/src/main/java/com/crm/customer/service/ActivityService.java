@@ -0,0 +1,59 @@
+package com.crm.customer.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.entity.Activity;
+import com.crm.customer.repository.ActivityRepository;
+
+@Service
+public class ActivityService {
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private LeadScoringService leadScoringService;
+
+    @Autowired
+    private EngagementSummaryService engagementSummaryService;
+
+    @Autowired
+    private AnalyticsEventPublisher analyticsEventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Saves the activity and adds it to the lead's score and to the engagement
+     * summaries of its lead and customer in the same transaction.
+     */
+    public Activity createActivity(Activity activity) {
+        Activity saved = transactionTemplate.execute(status -> {
+            leadScoringService.applyActivity(activity, 1);
+            Activity inserted = activityRepository.save(activity);
+            engagementSummaryService.applyActivity(inserted, 1);
+            return inserted;
+        });
+        if (saved == null) {
+            throw new IllegalStateException("Activity was not saved");
+        }
+        analyticsEventPublisher.created("ACTIVITY", saved.getId(), saved.getCompanyId(), null, saved.getCreatedAt());
+        return saved;
+    }
+
+    public void deleteActivity(Long id) {
+        activityRepository.findById(id).ifPresent(activity -> {
+            transactionTemplate.execute(status -> {
+                leadScoringService.applyActivity(activity, -1);
+                activityRepository.delete(activity);
+                activityRepository.flush();
+                engagementSummaryService.applyActivity(activity, -1);
+                return null;
+            });
+            analyticsEventPublisher.deleted("ACTIVITY", activity.getId(), activity.getCompanyId(), null,
+                    activity.getCreatedAt());
+        });
+    }
+}
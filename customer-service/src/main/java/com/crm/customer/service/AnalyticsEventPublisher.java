@@ -0,0 +1,150 @@
+package com.crm.customer.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.client.AnalyticsClient;
+
+/**
+ * Sends CREATED / UPDATED / DELETED events to analytics-service so it can keep
+ * its materialized dashboard counters current.
+ *
+ * Events go on a bounded queue and one sender thread posts them in batches
+ * to /api/analytics/events/batch, in the order they were published, so a
+ * write never waits for analytics-service. Delivery is best-effort: a full
+ * queue drops the event and a failed batch is logged and dropped; analytics
+ * can rebuild its counters from this service's /stats endpoint.
+ */
+@Service
+public class AnalyticsEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsEventPublisher.class);
+
+    @Value("${app.analytics-events.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${app.analytics-events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.analytics-events.linger-ms:200}")
+    private long lingerMs;
+
+    @Autowired
+    private AnalyticsClient analyticsClient;
+
+    private BlockingQueue<Map<String, Object>> queue;
+    private Thread sender;
+    private volatile boolean running;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        sender = new Thread(this::run, "analytics-event-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void created(String entityType, Long entityId, String companyId, String state,
+            LocalDateTime createdAt) {
+        Map<String, Object> event = event("CREATED", entityType, entityId, companyId, createdAt);
+        event.put("newState", state);
+        publish(event);
+    }
+
+    public void updated(String entityType, Long entityId, String companyId, String oldState, String newState,
+            LocalDateTime createdAt) {
+        Map<String, Object> event = event("UPDATED", entityType, entityId, companyId, createdAt);
+        event.put("oldState", oldState);
+        event.put("newState", newState);
+        publish(event);
+    }
+
+    public void deleted(String entityType, Long entityId, String companyId, String state,
+            LocalDateTime createdAt) {
+        Map<String, Object> event = event("DELETED", entityType, entityId, companyId, createdAt);
+        event.put("oldState", state);
+        publish(event);
+    }
+
+    private Map<String, Object> event(String eventType, String entityType, Long entityId, String companyId,
+            LocalDateTime createdAt) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", eventType);
+        event.put("entityType", entityType);
+        event.put("entityId", entityId);
+        event.put("companyId", companyId);
+        event.put("createdAt", createdAt);
+        return event;
+    }
+
+    private void publish(Map<String, Object> event) {
+        if (event.get("companyId") == null) {
+            return;
+        }
+        if (!queue.offer(event)) {
+            long drops = dropped.incrementAndGet();
+            if (drops == 1 || drops % 1000 == 0) {
+                logger.warn("Analytics event queue full, {} events dropped so far", drops);
+            }
+        }
+    }
+
+    private void run() {
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Map<String, Object> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                Thread.sleep(lingerMs);
+                queue.drainTo(batch, batchSize - batch.size());
+                deliver(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                if (running) {
+                    logger.warn("Analytics event sender interrupted, still running");
+                }
+            }
+        }
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            deliver(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+        }
+    }
+
+    private void deliver(List<Map<String, Object>> batch) {
+        try {
+            analyticsClient.publishEvents(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Dropping {} analytics events: {}", batch.size(), e.getMessage());
+        }
+    }
+}
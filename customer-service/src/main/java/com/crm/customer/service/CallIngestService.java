@@ -0,0 +1,391 @@
+package com.crm.customer.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.client.AnalyticsCounterClient;
+import com.crm.customer.entity.Activity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Turns call-detail records from dialers into CALL activities.
+ *
+ * The request body (NDJSON, a JSON array or CSV) is read as it arrives, one
+ * record at a time, so a stream of any length needs one request. Records are
+ * matched to a lead and a customer by phone number through
+ * {@link PhoneIndexService} and written batch-size at a time: one transaction
+ * per batch, one batched INSERT, and the score and engagement updates of the
+ * batch grouped per lead and customer. A record that cannot be read is
+ * reported and skipped. When the body breaks off or a batch fails, the
+ * batches before it stay written and the result says through which record,
+ * so the sender can resume from there. Analytics counters of tenants that
+ * received calls are rebuilt every analytics-rebuild-ms instead of once per
+ * call.
+ */
+@Service
+public class CallIngestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CallIngestService.class);
+
+    public static final String COMPLETED = "COMPLETED";
+    public static final String INVALID = "INVALID"; // the body could not be read to the end
+    public static final String FAILED = "FAILED"; // a batch could not be written
+
+    private static final String INSERT_CALL = "INSERT INTO activities (type, description, customer_id, "
+            + "performed_by, phone_number, lead_id, company_id, is_deleted, created_at, updated_at, start_time, "
+            + "duration, outcome, direction, recording_url) "
+            + "VALUES ('CALL', ?, ?, ?, ?, ?, ?, false, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${app.telephony.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.telephony.max-errors:100}")
+    private int maxErrors;
+
+    @Autowired
+    private PhoneIndexService phoneIndexService;
+
+    @Autowired
+    private LeadScoringService leadScoringService;
+
+    @Autowired
+    private EngagementSummaryService engagementSummaryService;
+
+    @Autowired
+    private AnalyticsCounterClient analyticsCounterClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Set<String> ingestedCompanies = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ingests every record of the body for the company. The format (NDJSON,
+     * JSON or CSV) falls back to the content type when not given.
+     */
+    public Map<String, Object> ingest(String companyId, String format, String contentType, InputStream body) {
+        if (companyId == null || companyId.trim().isEmpty()) {
+            throw new RuntimeException("companyId is required");
+        }
+        String resolvedFormat = format(format, contentType);
+        long started = System.nanoTime();
+        Run run = new Run(companyId);
+        try (ImportRowReader reader = ImportRowReader.open(resolvedFormat,
+                new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16), objectMapper)) {
+            ImportRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                run.accept(row);
+                if (run.batch.size() >= batchSize) {
+                    run.flush();
+                }
+            }
+            run.flush();
+            run.status = COMPLETED;
+        } catch (IOException e) {
+            // Records read since the last batch are not written; the sender resends from committedThroughRow
+            run.fail(INVALID, "Could not read the body: " + e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Call ingestion failed for company {}", companyId, e);
+            run.fail(FAILED, e.getMessage());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", run.status);
+        result.put("received", run.read);
+        result.put("inserted", run.inserted);
+        result.put("matchedLeads", run.leads);
+        result.put("matchedCustomers", run.customers);
+        result.put("unmatched", run.unmatched);
+        result.put("rejected", run.rejected);
+        result.put("committedThroughRow", run.committedThrough);
+        result.put("errors", run.errors);
+        if (run.error != null) {
+            result.put("error", run.error);
+        }
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        result.put("tookMs", tookMs);
+        logger.info("Ingested {} of {} calls for company {} ({} rejected, {} unmatched) in {} ms: {}", run.inserted,
+                run.read, companyId, run.rejected, run.unmatched, tookMs, run.status);
+        return result;
+    }
+
+    /**
+     * Rebuilds the analytics counters of tenants that received calls since the last run.
+     */
+    @Scheduled(fixedDelayString = "${app.telephony.analytics-rebuild-ms:60000}")
+    public void rebuildAnalytics() {
+        for (String companyId : ingestedCompanies) {
+            ingestedCompanies.remove(companyId);
+            try {
+                analyticsCounterClient.rebuildCounters(companyId);
+            } catch (Exception e) {
+                logger.warn("Failed to rebuild analytics counters after call ingestion for company {}: {}",
+                        companyId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * State of one ingestion request.
+     */
+    private final class Run {
+
+        private final String companyId;
+        private final List<Activity> batch = new ArrayList<>(batchSize);
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        private long lastRow;
+
+        private String status;
+        private String error;
+        private long read;
+        private long inserted;
+        private long leads;
+        private long customers;
+        private long unmatched;
+        private long rejected;
+        private long committedThrough;
+
+        Run(String companyId) {
+            this.companyId = companyId;
+        }
+
+        void accept(ImportRowReader.Row row) {
+            read++;
+            lastRow = row.number;
+            if (row.error != null) {
+                reject(row.number, row.error);
+                return;
+            }
+            try {
+                batch.add(call(companyId, row.values));
+            } catch (RuntimeException e) {
+                reject(row.number, e.getMessage());
+            }
+        }
+
+        void flush() {
+            if (!batch.isEmpty()) {
+                write(companyId, batch);
+                for (Activity call : batch) {
+                    if (call.getLeadId() != null) {
+                        leads++;
+                    }
+                    if (call.getCustomerId() != null) {
+                        customers++;
+                    }
+                    if (call.getLeadId() == null && call.getCustomerId() == null) {
+                        unmatched++;
+                    }
+                }
+                inserted += batch.size();
+                batch.clear();
+            }
+            committedThrough = lastRow;
+        }
+
+        void fail(String status, String message) {
+            this.status = status;
+            this.error = ImportRowReader.truncate(String.valueOf(message));
+        }
+
+        private void reject(long rowNumber, String message) {
+            rejected++;
+            if (errors.size() < maxErrors) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("row", rowNumber);
+                entry.put("error", message);
+                errors.add(entry);
+            }
+        }
+    }
+
+    private void write(String companyId, List<Activity> calls) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp created = Timestamp.valueOf(now);
+        List<Object[]> rows = new ArrayList<>(calls.size());
+        for (Activity call : calls) {
+            call.setCreatedAt(now);
+            call.setUpdatedAt(now);
+            if (call.getStartTime() == null) {
+                call.setStartTime(now);
+            }
+            rows.add(new Object[] { call.getDescription(), call.getCustomerId(), call.getPerformedBy(),
+                    call.getPhoneNumber(), call.getLeadId(), companyId, created, created,
+                    Timestamp.valueOf(call.getStartTime()), call.getDuration(), call.getOutcome(),
+                    call.getDirection(), call.getRecordingUrl() });
+        }
+        transactionTemplate.execute(status -> {
+            // Lead scores first, like ActivityService, so a running rescore chunk and this batch serialise
+            leadScoringService.applyActivities(calls);
+            jdbcTemplate.batchUpdate(INSERT_CALL, rows);
+            engagementSummaryService.applyActivities(calls);
+            return null;
+        });
+        ingestedCompanies.add(companyId);
+    }
+
+    // ========== Records ==========
+
+    /**
+     * The CALL activity of one record, matched by phone number unless it names its lead or customer.
+     */
+    private Activity call(String companyId, Map<String, Object> record) {
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<String, Object> entry : record.entrySet()) {
+            values.put(ImportService.normalize(entry.getKey()), entry.getValue());
+        }
+        Activity call = new Activity();
+        call.setType(Activity.ActivityType.CALL);
+        call.setCompanyId(companyId);
+
+        String direction = text(values, 20, "direction");
+        direction = direction == null ? null : direction.toUpperCase(Locale.ROOT);
+        call.setDirection(direction);
+        String phone = text(values, 20, "phonenumber", "phone");
+        if (phone == null) {
+            // The other party: the caller of an inbound call, the callee of an outbound one
+            phone = "INBOUND".equals(direction) ? text(values, 20, "from", "caller")
+                    : text(values, 20, "to", "callee");
+        }
+        call.setPhoneNumber(phone);
+
+        Long duration = number(values, "duration", "durationseconds");
+        if (duration != null && (duration < 0 || duration > Integer.MAX_VALUE)) {
+            throw new RuntimeException("Invalid duration: " + duration);
+        }
+        call.setDuration(duration == null ? null : duration.intValue());
+        call.setStartTime(time(values, "starttime", "startedat", "start"));
+        call.setOutcome(text(values, 255, "outcome", "disposition"));
+        call.setRecordingUrl(text(values, 255, "recordingurl", "recording"));
+        call.setPerformedBy(number(values, "performedby", "agentid", "userid"));
+
+        call.setLeadId(number(values, "leadid"));
+        call.setCustomerId(number(values, "customerid"));
+        if (phone != null) {
+            if (call.getLeadId() == null) {
+                call.setLeadId(phoneIndexService.findLead(companyId, phone));
+            }
+            if (call.getCustomerId() == null) {
+                call.setCustomerId(phoneIndexService.findCustomer(companyId, phone));
+            }
+        }
+
+        String description = text(values, 300, "description", "notes");
+        if (description == null) {
+            String party = phone == null ? "" : ("INBOUND".equals(direction) ? " from " : " to ") + phone;
+            description = ("INBOUND".equals(direction) ? "Inbound call" : "Outbound call") + party
+                    + (call.getOutcome() == null ? "" : " (" + call.getOutcome() + ")");
+        }
+        call.setDescription(description.length() > 300 ? description.substring(0, 300) : description);
+        return call;
+    }
+
+    private static Object value(Map<String, Object> values, String... names) {
+        for (String name : names) {
+            Object value = values.get(name);
+            if (value != null && !(value instanceof String && ((String) value).trim().isEmpty())) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static String text(Map<String, Object> values, int maxLength, String... names) {
+        Object value = value(values, names);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+
+    private static Long number(Map<String, Object> values, String... names) {
+        Object value = value(values, names);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Invalid " + names[0] + ": " + value);
+        }
+    }
+
+    /**
+     * An ISO date-time with or without offset, or epoch seconds or milliseconds, in server time.
+     */
+    private static LocalDateTime time(Map<String, Object> values, String... names) {
+        Object value = value(values, names);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number) {
+            long epoch = ((Number) value).longValue();
+            Instant instant = epoch > 100_000_000_000L ? Instant.ofEpochMilli(epoch) : Instant.ofEpochSecond(epoch);
+            return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        }
+        String text = value.toString().trim();
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException local) {
+            try {
+                return OffsetDateTime.parse(text).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            } catch (DateTimeParseException offset) {
+                throw new RuntimeException("Invalid " + names[0] + ": " + text);
+            }
+        }
+    }
+
+    private static String format(String format, String contentType) {
+        String value = format != null ? format : contentType;
+        if (value != null) {
+            value = value.toUpperCase(Locale.ROOT);
+            if (value.contains("NDJSON")) {
+                return ImportRowReader.NDJSON;
+            }
+            if (value.contains("JSON")) {
+                return ImportRowReader.JSON;
+            }
+            if (value.contains("CSV")) {
+                return ImportRowReader.CSV;
+            }
+        }
+        throw new RuntimeException("Unknown call format, pass format=ndjson, json or csv");
+    }
+}
@@ -0,0 +1,225 @@
+package com.crm.customer.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.client.SalesClient;
+import com.crm.customer.client.SupportClient;
+import com.crm.customer.entity.Customer;
+import com.crm.customer.repository.ActivityRepository;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.NoteRepository;
+
+/**
+ * One customer with its recent activities, notes, deals (sales-service) and
+ * tickets (support-service), fetched in parallel.
+ *
+ * Every section has its own timeout, counted from the start of the call; a
+ * section that times out or fails comes back empty with an error and the
+ * view is marked partial instead of failing as a whole. Lists hold the
+ * newest entries only, next to summary counts over all of them; sales and
+ * support apply the limit and count on their side. When the customer itself
+ * is missing or late, the other sections are cancelled. Complete views are
+ * cached for app.customer360.cache-ttl-ms.
+ */
+@Service
+public class Customer360Service {
+
+    private static final Logger logger = LoggerFactory.getLogger(Customer360Service.class);
+
+    private static final int MAX_LIMIT = 100;
+
+    @Value("${app.customer360.default-limit:10}")
+    private int defaultLimit;
+
+    @Value("${app.customer360.local-timeout-ms:1000}")
+    private long localTimeoutMs;
+
+    @Value("${app.customer360.sales-timeout-ms:1500}")
+    private long salesTimeoutMs;
+
+    @Value("${app.customer360.support-timeout-ms:1500}")
+    private long supportTimeoutMs;
+
+    @Value("${app.customer360.cache-ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    @Value("${app.customer360.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private NoteRepository noteRepository;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    @Autowired
+    private SupportClient supportClient;
+
+    @Autowired
+    @Qualifier("customer360Executor")
+    private ExecutorService executor;
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The 360 view of a customer of the company with up to limit entries per
+     * list; fresh skips the cache.
+     */
+    public Map<String, Object> getCustomer360(Long id, String companyId, Integer limit, boolean fresh) {
+        int size = limit == null ? defaultLimit : Math.max(1, Math.min(limit, MAX_LIMIT));
+        String key = companyId + ":" + id + ":" + size;
+        long now = System.currentTimeMillis();
+        if (!fresh && cacheTtlMs > 0) {
+            Cached cached = cache.get(key);
+            if (cached != null && cached.expiresAt > now) {
+                return cached.view;
+            }
+        }
+
+        long started = System.nanoTime();
+        CompletableFuture<Customer> customer = async(() -> customerRepository.findById(id).orElse(null));
+        CompletableFuture<Map<String, Object>> activities = async(() -> section(
+                activityRepository.findByCustomerIdAndCompanyIdOrderByCreatedAtDesc(id, companyId,
+                        PageRequest.of(0, size)),
+                activityRepository.countByCustomerIdAndCompanyId(id, companyId)));
+        CompletableFuture<Map<String, Object>> notes = async(() -> section(
+                noteRepository.findByCustomerIdAndCompanyIdOrderByCreatedAtDesc(id, companyId,
+                        PageRequest.of(0, size)),
+                noteRepository.countByCustomerIdAndCompanyId(id, companyId)));
+        CompletableFuture<Map<String, Object>> deals = async(
+                () -> salesClient.getCustomerDealSummary(id, companyId, size));
+        CompletableFuture<Map<String, Object>> tickets = async(
+                () -> supportClient.getCustomerTicketSummary(id, companyId, size));
+        List<CompletableFuture<?>> sections = Arrays.asList(activities, notes, deals, tickets);
+
+        Customer found;
+        try {
+            found = customer.get(remaining(started, localTimeoutMs), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(sections);
+            throw new RuntimeException("Interrupted while loading customer " + id);
+        } catch (ExecutionException | TimeoutException e) {
+            customer.cancel(true);
+            cancel(sections);
+            throw new RuntimeException("Customer " + id + " could not be loaded in time");
+        }
+        if (found == null || !companyId.equals(found.getCompanyId())) {
+            cancel(sections);
+            throw new RuntimeException("Customer not found with id: " + id);
+        }
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("customer", found);
+        boolean partial = false;
+        partial |= put(view, "activities", activities, started, localTimeoutMs);
+        partial |= put(view, "notes", notes, started, localTimeoutMs);
+        partial |= put(view, "deals", deals, started, salesTimeoutMs);
+        partial |= put(view, "tickets", tickets, started, supportTimeoutMs);
+        view.put("partial", partial);
+        view.put("tookMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        if (!partial && cacheTtlMs > 0) {
+            if (cache.size() >= cacheMaxEntries) {
+                cache.values().removeIf(entry -> entry.expiresAt <= now);
+                if (cache.size() >= cacheMaxEntries) {
+                    cache.clear();
+                }
+            }
+            cache.put(key, new Cached(now + cacheTtlMs, view));
+        }
+        return view;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> source) {
+        try {
+            return CompletableFuture.supplyAsync(source, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * Puts the section, or an empty one with the reason it is missing; true when it is missing.
+     */
+    private boolean put(Map<String, Object> view, String name, CompletableFuture<Map<String, Object>> future,
+            long started, long timeoutMs) {
+        String error;
+        try {
+            view.put(name, future.get(remaining(started, timeoutMs), TimeUnit.MILLISECONDS));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "interrupted";
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            error = "timeout";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            error = cause instanceof RejectedExecutionException ? "busy" : "unavailable";
+            logger.warn("Customer 360 section {} failed: {}", name, cause.getMessage());
+        }
+        Map<String, Object> missing = section(Collections.emptyList(), null);
+        missing.put("error", error);
+        view.put(name, missing);
+        return true;
+    }
+
+    /**
+     * Drops sections nobody will read; ones still queued on the pool skip their call when they come up.
+     */
+    private static void cancel(List<CompletableFuture<?>> sections) {
+        for (CompletableFuture<?> section : sections) {
+            section.cancel(true);
+        }
+    }
+
+    private static long remaining(long started, long timeoutMs) {
+        return Math.max(0, timeoutMs - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static Map<String, Object> section(List<?> items, Long total) {
+        Map<String, Object> section = new LinkedHashMap<>();
+        section.put("items", items);
+        section.put("total", total);
+        return section;
+    }
+
+    private static final class Cached {
+        final long expiresAt;
+        final Map<String, Object> view;
+
+        Cached(long expiresAt, Map<String, Object> view) {
+            this.expiresAt = expiresAt;
+            this.view = view;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.crm.customer.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.client.SalesClient;
+import com.crm.customer.entity.Customer;
+
+/**
+ * Tells sales-service which customers were created and deleted so its
+ * customer-existence cache stays current.
+ *
+ * Events go on a bounded queue and one sender thread posts them in batches
+ * of up to batch-size to /api/deals/customer-events, like
+ * {@link NotificationDispatcher} but without retries: an event that is
+ * dropped or fails only costs sales-service a remote lookup until its next
+ * cache reload, so a write never waits for sales-service.
+ */
+@Service
+public class CustomerEventPublisher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerEventPublisher.class);
+
+    @Value("${app.customer-events.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${app.customer-events.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.customer-events.linger-ms:200}")
+    private long lingerMs;
+
+    @Autowired
+    private SalesClient salesClient;
+
+    private BlockingQueue<Map<String, Object>> queue;
+    private Thread sender;
+    private volatile boolean running;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        sender = new Thread(this::run, "customer-event-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public void created(Customer customer) {
+        enqueue("CREATED", customer);
+    }
+
+    public void deleted(Customer customer) {
+        enqueue("DELETED", customer);
+    }
+
+    private void enqueue(String eventType, Customer customer) {
+        if (customer.getId() == null || customer.getCompanyId() == null) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventType", eventType);
+        event.put("customerId", customer.getId());
+        event.put("companyId", customer.getCompanyId());
+        if (!queue.offer(event)) {
+            long drops = dropped.incrementAndGet();
+            if (drops == 1 || drops % 1000 == 0) {
+                logger.warn("Customer event queue full, {} events dropped so far", drops);
+            }
+        }
+    }
+
+    private void run() {
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Map<String, Object> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                Thread.sleep(lingerMs);
+                queue.drainTo(batch, batchSize - batch.size());
+                deliver(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                if (running) {
+                    logger.warn("Customer event sender interrupted, still running");
+                }
+            }
+        }
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            deliver(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+        }
+    }
+
+    private void deliver(List<Map<String, Object>> batch) {
+        try {
+            salesClient.customerEvents(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Dropping {} customer events for sales-service: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -1,34 +1,75 @@
 package com.crm.customer.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.crm.customer.dto.CursorPage;
 import com.crm.customer.dto.CustomerDTO;
+import com.crm.customer.dto.CustomerSummary;
 import com.crm.customer.entity.Customer;
 import com.crm.customer.repository.CustomerRepository;
 
 @Service
 public class CustomerService {
 
+    private static final int IN_CHUNK = 1000;
+    private static final int MAX_ID_PAGE = 10000;
+
+    @Value("${app.customers.batch-max-ids:5000}")
+    private int batchMaxIds;
+
     @Autowired
     private CustomerRepository customerRepository;
 
     @Autowired
-    private com.crm.customer.client.NotificationClient notificationClient;
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private AnalyticsEventPublisher analyticsEventPublisher;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private DedupeService dedupeService;
+
+    @Autowired
+    private PhoneIndexService phoneIndexService;
+
+    @Autowired
+    private CustomerEventPublisher customerEventPublisher;
 
     // ========== CREATE ==========
 
-    public Customer createCustomer(CustomerDTO dto) {
+    /**
+     * Creates a customer. An exact email match always fails; unless force is
+     * set, so does a near-certain fuzzy duplicate.
+     */
+    public Customer createCustomer(CustomerDTO dto, boolean force) {
         if (dto.getEmail() != null
                 && customerRepository.findByEmailAndCompanyId(dto.getEmail(), dto.getCompanyId()).isPresent()) {
             throw new RuntimeException("Customer with this email already exists!");
         }
+        if (!force) {
+            dedupeService.checkCustomer(dto);
+        }
 
         Customer customer = new Customer();
         mapDtoToEntity(dto, customer);
         Customer savedCustomer = customerRepository.save(customer);
+        searchIndexService.indexCustomer(savedCustomer);
+        dedupeService.indexCustomer(savedCustomer);
+        phoneIndexService.indexCustomer(savedCustomer);
+        customerEventPublisher.created(savedCustomer);
 
         // Notify if assigned
         if (savedCustomer.getAssignedTo() != null) {
@@ -36,6 +77,8 @@ public class CustomerService {
                     savedCustomer.getFirstName() + " " + savedCustomer.getLastName());
         }
 
+        analyticsEventPublisher.created("CUSTOMER", savedCustomer.getId(), savedCustomer.getCompanyId(), null,
+                savedCustomer.getCreatedAt());
         return savedCustomer;
     }
 
@@ -45,11 +88,69 @@ public class CustomerService {
         return customerRepository.findByCompanyId(companyId);
     }
 
+    /**
+     * One page of the company's customers, newest first; see {@link KeysetPager}.
+     */
+    public CursorPage<Customer> getCustomersPage(String companyId, String cursor, Integer size) {
+        return keysetPager.page(cursor, size, pageable -> customerRepository.findPageByCompanyId(companyId, pageable),
+                (createdAt, id, pageable) -> customerRepository.findPageByCompanyIdAfter(companyId, createdAt, id,
+                        pageable),
+                Customer::getCreatedAt, Customer::getId);
+    }
+
     public Customer getCustomerById(Long id) {
         return customerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Customer not found with id: " + id));
     }
 
+    /**
+     * Summaries of the customers with the given ids, at most
+     * app.customers.batch-max-ids of them, read with one IN query per
+     * thousand ids; ids that do not exist (or belong to another company when
+     * one is given) are left out.
+     */
+    public List<CustomerSummary> getCustomerSummaries(List<Long> ids, String companyId) {
+        LinkedHashSet<Long> unique = new LinkedHashSet<>();
+        if (ids != null) {
+            for (Long id : ids) {
+                if (id != null) {
+                    unique.add(id);
+                }
+            }
+        }
+        if (unique.size() > batchMaxIds) {
+            throw new RuntimeException("At most " + batchMaxIds + " customer ids per lookup, got " + unique.size());
+        }
+        List<Long> all = new ArrayList<>(unique);
+        List<CustomerSummary> summaries = new ArrayList<>(all.size());
+        for (int from = 0; from < all.size(); from += IN_CHUNK) {
+            List<Long> chunk = all.subList(from, Math.min(all.size(), from + IN_CHUNK));
+            summaries.addAll(companyId == null ? customerRepository.findSummariesByIdIn(chunk)
+                    : customerRepository.findSummariesByCompanyIdAndIdIn(companyId, chunk));
+        }
+        return summaries;
+    }
+
+    /**
+     * Up to limit (at most ten thousand) of the company's customer ids above
+     * after, in id order, for services that keep their own copy of which
+     * customers exist.
+     */
+    public List<Long> getCustomerIds(String companyId, long after, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_ID_PAGE));
+        return customerRepository.findIdsByCompanyIdAfter(companyId, after, PageRequest.of(0, size));
+    }
+
+    /**
+     * Ranked matches from the full-text index; falls back to the LIKE query while the index is disabled or loading.
+     */
+    public List<Customer> searchCustomers(String companyId, String keyword, int limit) {
+        if (searchIndexService.isReady(SearchIndexService.CUSTOMERS, companyId)) {
+            return searchIndexService.searchCustomers(companyId, keyword, limit);
+        }
+        return searchCustomers(companyId, keyword);
+    }
+
     public List<Customer> searchCustomers(String companyId, String keyword) {
         return customerRepository
                 .findByCompanyIdAndFirstNameContainingIgnoreCaseOrLastNameContainingIgnoreCase(companyId, keyword,
@@ -69,6 +170,9 @@ public class CustomerService {
 
         mapDtoToEntity(dto, customer);
         Customer savedCustomer = customerRepository.save(customer);
+        searchIndexService.indexCustomer(savedCustomer);
+        dedupeService.indexCustomer(savedCustomer);
+        phoneIndexService.indexCustomer(savedCustomer);
 
         // Notify if assignment changed
         if (dto.getAssignedTo() != null && !dto.getAssignedTo().equals(oldAssignee)) {
@@ -89,11 +193,17 @@ public class CustomerService {
     public void deleteCustomer(Long id) {
         Customer customer = getCustomerById(id);
         customerRepository.delete(customer);
+        searchIndexService.removeCustomer(customer);
+        phoneIndexService.removeCustomer(customer);
+        dedupeService.removeCustomer(customer);
+        customerEventPublisher.deleted(customer);
+        analyticsEventPublisher.deleted("CUSTOMER", customer.getId(), customer.getCompanyId(), null,
+                customer.getCreatedAt());
     }
 
     // ========== Helper ==========
 
-    private void mapDtoToEntity(CustomerDTO dto, Customer customer) {
+    void mapDtoToEntity(CustomerDTO dto, Customer customer) {
         customer.setFirstName(dto.getFirstName());
         customer.setLastName(dto.getLastName());
         customer.setEmail(dto.getEmail());
@@ -142,20 +252,7 @@ public class CustomerService {
     }
 
     private void sendAssignmentNotification(Long recipientId, String type, Long referenceId, String name) {
-        try {
-            java.util.Map<String, Object> notification = new java.util.HashMap<>();
-            notification.put("recipientUserId", recipientId);
-            notification.put("type", "IN_APP");
-            notification.put("title", "New " + type + " Assigned");
-            notification.put("message", "You have been assigned a new " + type + ": " + name);
-            notification.put("source", "CUSTOMER_SERVICE");
-            notification.put("referenceType", type.toUpperCase()); // LEAD or CUSTOMER
-            notification.put("referenceId", referenceId);
-            notification.put("status", "PENDING");
-
-            notificationClient.sendNotification(notification);
-        } catch (Exception e) {
-            System.err.println("Failed to send notification: " + e.getMessage());
-        }
+        // Queued for the background sender; never blocks the write on notification-service
+        notificationDispatcher.assigned(recipientId, type, referenceId, name);
     }
 }
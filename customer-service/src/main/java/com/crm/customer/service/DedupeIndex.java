@@ -0,0 +1,690 @@
+package com.crm.customer.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory duplicate index for one tenant's leads or customers.
+ *
+ * Records are never compared pairwise across the tenant. Each record gets a
+ * few blocking keys (normalized email, normalized phone, email domain plus
+ * last-name soundex, company plus last-name soundex, or name soundexes when
+ * there is neither) and only records sharing a key are compared. Keys are
+ * stored as one sorted long[] of (40-bit key hash, 24-bit ordinal) so a
+ * million records cost a few tens of MB, and a lookup is a binary search.
+ *
+ * Comparison uses a 6-long signature per record: 128-bit bigram sets of the
+ * name and of the company (Jaccard similarity is popcount(a &amp; b) /
+ * popcount(a | b)), plus hashes of the normalized email and phone.
+ *
+ * Ordinals are append-only. Re-adding or removing an id marks its old
+ * ordinal removed so lookups and clustering skip it; the slots are only
+ * reclaimed by building a new index, see {@link #removed()}.
+ */
+final class DedupeIndex {
+
+    static final int MAX_RECORDS = 1 << 24;
+
+    private static final int SIG = 6;
+    private static final int NAME = 0;
+    private static final int COMPANY = 2;
+    private static final int EMAIL = 4;
+    private static final int PHONE = 5;
+
+    private static final int ORDINAL_BITS = 24;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+    private static final int PENDING_LIMIT = 8192;
+    private static final int BLOCKS_PER_TASK = 1024;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final List<String> COMPANY_SUFFIXES = Arrays.asList("inc", "llc", "ltd", "limited", "corp",
+            "corporation", "co", "company", "gmbh", "plc", "sa", "ag", "the");
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[1024];
+    private long[] signatures = new long[1024 * SIG];
+    private int size;
+
+    // Current ordinal of each id, and ordinals superseded by a later add or a remove
+    private final Ordinals ordinals = new Ordinals();
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    // Sorted (key << 24 | ordinal) entries, plus recent additions not merged in yet
+    private long[] entries = new long[0];
+    private long[] pending = new long[256];
+    private int pendingSize;
+
+    /**
+     * Keys and signature of one record.
+     */
+    static final class Record {
+        final long[] keys;
+        final long[] signature;
+
+        private Record(long[] keys, long[] signature) {
+            this.keys = keys;
+            this.signature = signature;
+        }
+    }
+
+    static Record record(String firstName, String lastName, String email, String phone, String company) {
+        String first = text(firstName);
+        String last = text(lastName);
+        String normalizedEmail = email(email);
+        String normalizedPhone = phone(phone);
+        String normalizedCompany = company(company);
+
+        long[] signature = new long[SIG];
+        bigrams((first + " " + last).trim(), signature, NAME);
+        bigrams(normalizedCompany, signature, COMPANY);
+        signature[EMAIL] = normalizedEmail.isEmpty() ? 0 : hash(normalizedEmail);
+        signature[PHONE] = normalizedPhone.isEmpty() ? 0 : hash(normalizedPhone);
+
+        String lastSoundex = soundex(last);
+        List<String> keys = new ArrayList<>(4);
+        if (!normalizedEmail.isEmpty()) {
+            keys.add("e:" + normalizedEmail);
+            keys.add("d:" + normalizedEmail.substring(normalizedEmail.indexOf('@') + 1) + ":" + lastSoundex);
+        }
+        if (!normalizedPhone.isEmpty()) {
+            keys.add("p:" + normalizedPhone);
+        }
+        if (!normalizedCompany.isEmpty()) {
+            int space = normalizedCompany.indexOf(' ');
+            keys.add("c:" + (space < 0 ? normalizedCompany : normalizedCompany.substring(0, space)) + ":"
+                    + lastSoundex);
+        }
+        if (normalizedEmail.isEmpty() && normalizedCompany.isEmpty() && !last.isEmpty()) {
+            keys.add("n:" + soundex(first) + ":" + lastSoundex);
+        }
+        long[] hashes = new long[keys.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(keys.get(i)) >>> ORDINAL_BITS;
+        }
+        return new Record(hashes, signature);
+    }
+
+    /**
+     * Live records, not counting removed ones.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size - removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ordinals taken by records that were since re-added or removed.
+     */
+    int removed() {
+        lock.readLock().lock();
+        try {
+            return removedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a record, replacing any earlier version of the same id.
+     *
+     * @return false when the index is full and has to be rebuilt
+     */
+    boolean add(long id, Record record) {
+        lock.writeLock().lock();
+        try {
+            if (size >= MAX_RECORDS) {
+                return false;
+            }
+            int previous = ordinals.put(id, size);
+            if (previous >= 0) {
+                markRemoved(previous);
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+                signatures = Arrays.copyOf(signatures, signatures.length * 2);
+            }
+            int ordinal = size++;
+            ids[ordinal] = id;
+            System.arraycopy(record.signature, 0, signatures, ordinal * SIG, SIG);
+            if (pendingSize + record.keys.length > pending.length) {
+                pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingSize + record.keys.length));
+            }
+            for (long key : record.keys) {
+                pending[pendingSize++] = key << ORDINAL_BITS | ordinal;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the record with this id, if any.
+     */
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinals.remove(id);
+            if (ordinal >= 0) {
+                markRemoved(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markRemoved(int ordinal) {
+        removed.set(ordinal);
+        removedCount++;
+    }
+
+    /**
+     * Sorts recent additions into the key array. Called once after a bulk
+     * build, and by lookups once enough additions have piled up.
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            if (pendingSize == 0) {
+                return;
+            }
+            long[] added = Arrays.copyOf(pending, pendingSize);
+            Arrays.parallelSort(added);
+            long[] merged = new long[entries.length + added.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < entries.length && j < added.length) {
+                merged[k++] = entries[i] <= added[j] ? entries[i++] : added[j++];
+            }
+            System.arraycopy(entries, i, merged, k, entries.length - i);
+            System.arraycopy(added, j, merged, k + entries.length - i, added.length - j);
+            entries = merged;
+            pending = new long[256];
+            pendingSize = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of records sharing a key with the given one and scoring at least
+     * threshold, with their best score, at most maxPerKey records per key.
+     */
+    Map<Long, Double> candidates(Record record, double threshold, int maxPerKey) {
+        if (pendingSize > PENDING_LIMIT) {
+            compact();
+        }
+        Map<Long, Double> matches = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (long key : record.keys) {
+                long low = key << ORDINAL_BITS;
+                int seen = 0;
+                for (int i = lowerBound(entries, low); i < entries.length && seen < maxPerKey
+                        && (entries[i] & ~ORDINAL_MASK) == low; i++) {
+                    if (match((int) (entries[i] & ORDINAL_MASK), record.signature, threshold, matches)) {
+                        seen++;
+                    }
+                }
+                for (int i = 0; i < pendingSize && seen < maxPerKey; i++) {
+                    if ((pending[i] & ~ORDINAL_MASK) == low
+                            && match((int) (pending[i] & ORDINAL_MASK), record.signature, threshold, matches)) {
+                        seen++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return matches;
+    }
+
+    /**
+     * Scores one live record; false for a removed ordinal, which does not use up a maxPerKey slot.
+     */
+    private boolean match(int ordinal, long[] signature, double threshold, Map<Long, Double> matches) {
+        if (removed.get(ordinal)) {
+            return false;
+        }
+        double score = score(signatures, ordinal * SIG, signature, 0);
+        if (score >= threshold) {
+            matches.merge(ids[ordinal], score, Math::max);
+        }
+        return true;
+    }
+
+    // ========== Clustering ==========
+
+    /**
+     * Outcome of {@link #clusters}.
+     */
+    static final class Clusters {
+        final List<long[]> members = new ArrayList<>(); // entity ids, one array per cluster
+        final List<double[]> scores = new ArrayList<>(); // best score of each member within its cluster
+        long blocks;
+        long oversizedBlocks;
+        long comparisons;
+    }
+
+    /**
+     * Groups records into clusters of likely duplicates: records are linked
+     * when they share a block and score at least threshold, and clusters are
+     * the connected components. Blocks larger than maxBlock (e.g. a shared
+     * switchboard phone number) are skipped. Blocks are compared in parallel.
+     */
+    Clusters clusters(double threshold, int maxBlock, ForkJoinPool pool) {
+        compact();
+        lock.readLock().lock();
+        try {
+            Clusters result = new Clusters();
+            List<int[]> blocks = new ArrayList<>();
+            int start = 0;
+            for (int i = 1; i <= entries.length; i++) {
+                if (i == entries.length || (entries[i] & ~ORDINAL_MASK) != (entries[start] & ~ORDINAL_MASK)) {
+                    int length = i - start;
+                    if (length > maxBlock) {
+                        result.oversizedBlocks++;
+                    } else if (length > 1) {
+                        blocks.add(new int[] { start, i });
+                    }
+                    start = i;
+                }
+            }
+            result.blocks = blocks.size();
+
+            int chunks = (blocks.size() + BLOCKS_PER_TASK - 1) / BLOCKS_PER_TASK;
+            List<Links> links;
+            try {
+                links = pool.submit(() -> IntStream.range(0, chunks).parallel()
+                        .mapToObj(chunk -> compare(blocks, chunk * BLOCKS_PER_TASK,
+                                Math.min(blocks.size(), (chunk + 1) * BLOCKS_PER_TASK), threshold))
+                        .collect(Collectors.toList())).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Duplicate clustering interrupted");
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Duplicate clustering failed: " + e.getCause().getMessage(), e);
+            }
+
+            int[] parent = new int[size];
+            for (int i = 0; i < size; i++) {
+                parent[i] = i;
+            }
+            float[] best = new float[size];
+            for (Links block : links) {
+                result.comparisons += block.comparisons;
+                for (int i = 0; i < block.size; i++) {
+                    int a = block.a[i];
+                    int b = block.b[i];
+                    best[a] = Math.max(best[a], block.score[i]);
+                    best[b] = Math.max(best[b], block.score[i]);
+                    int rootA = find(parent, a);
+                    int rootB = find(parent, b);
+                    if (rootA != rootB) {
+                        parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+                    }
+                }
+            }
+
+            Map<Integer, List<Integer>> groups = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (best[i] > 0) {
+                    groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).add(i);
+                }
+            }
+            for (List<Integer> group : groups.values()) {
+                long[] members = new long[group.size()];
+                double[] scores = new double[group.size()];
+                for (int i = 0; i < members.length; i++) {
+                    members[i] = ids[group.get(i)];
+                    scores[i] = Math.round(best[group.get(i)] * 1000) / 1000.0;
+                }
+                result.members.add(members);
+                result.scores.add(scores);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Links {
+        int[] a = new int[16];
+        int[] b = new int[16];
+        float[] score = new float[16];
+        int size;
+        long comparisons;
+
+        void add(int first, int second, double value) {
+            if (size == a.length) {
+                a = Arrays.copyOf(a, size * 2);
+                b = Arrays.copyOf(b, size * 2);
+                score = Arrays.copyOf(score, size * 2);
+            }
+            a[size] = first;
+            b[size] = second;
+            score[size++] = (float) value;
+        }
+    }
+
+    private Links compare(List<int[]> blocks, int from, int to, double threshold) {
+        Links links = new Links();
+        for (int index = from; index < to; index++) {
+            int[] block = blocks.get(index);
+            for (int i = block[0]; i < block[1]; i++) {
+                int first = (int) (entries[i] & ORDINAL_MASK);
+                if (removed.get(first)) {
+                    continue;
+                }
+                for (int j = i + 1; j < block[1]; j++) {
+                    int second = (int) (entries[j] & ORDINAL_MASK);
+                    if (removed.get(second)) {
+                        continue;
+                    }
+                    links.comparisons++;
+                    double value = score(signatures, first * SIG, signatures, second * SIG);
+                    if (value >= threshold) {
+                        links.add(first, second, value);
+                    }
+                }
+            }
+        }
+        return links;
+    }
+
+    private static int find(int[] parent, int node) {
+        int root = node;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[node] != root) {
+            int next = parent[node];
+            parent[node] = root;
+            node = next;
+        }
+        return root;
+    }
+
+    /**
+     * Open-addressing map from id to ordinal, so replacing by id costs 12
+     * bytes per record instead of a boxed HashMap entry.
+     */
+    private static final class Ordinals {
+        private static final long FREE = Long.MIN_VALUE;
+        private static final int GONE = -1;
+
+        private long[] keys = newKeys(1024);
+        private int[] values = new int[1024];
+        private int used;
+
+        /** Maps id to ordinal and returns the previous live ordinal, or -1. */
+        int put(long id, int ordinal) {
+            if ((used + 1) * 2 > keys.length) {
+                resize();
+            }
+            int slot = slot(keys, id);
+            int previous = keys[slot] == id ? values[slot] : GONE;
+            if (keys[slot] == FREE) {
+                keys[slot] = id;
+                used++;
+            }
+            values[slot] = ordinal;
+            return previous;
+        }
+
+        /** Forgets the id and returns its live ordinal, or -1. */
+        int remove(long id) {
+            int slot = slot(keys, id);
+            if (keys[slot] != id) {
+                return GONE;
+            }
+            int previous = values[slot];
+            values[slot] = GONE;
+            return previous;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldKeys.length * 2];
+            used = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != FREE && oldValues[i] != GONE) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                    used++;
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long id) {
+            int mask = keys.length - 1;
+            int slot = (int) (id * 0x9E3779B97F4A7C15L >>> 32) & mask;
+            while (keys[slot] != FREE && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long[] newKeys(int length) {
+            long[] keys = new long[length];
+            Arrays.fill(keys, FREE);
+            return keys;
+        }
+    }
+
+    // ========== Scoring ==========
+
+    /**
+     * 1.0 for the same normalized email; otherwise name similarity, blended
+     * 70/30 with company similarity when both have a company, and lifted
+     * halfway to 1.0 by a matching phone number.
+     */
+    static double score(long[] a, int aOffset, long[] b, int bOffset) {
+        if (a[aOffset + EMAIL] != 0 && a[aOffset + EMAIL] == b[bOffset + EMAIL]) {
+            return 1.0;
+        }
+        double score = jaccard(a, aOffset + NAME, b, bOffset + NAME);
+        boolean companies = (a[aOffset + COMPANY] | a[aOffset + COMPANY + 1]) != 0
+                && (b[bOffset + COMPANY] | b[bOffset + COMPANY + 1]) != 0;
+        if (companies) {
+            score = 0.7 * score + 0.3 * jaccard(a, aOffset + COMPANY, b, bOffset + COMPANY);
+        }
+        if (a[aOffset + PHONE] != 0 && a[aOffset + PHONE] == b[bOffset + PHONE]) {
+            score = 0.5 + 0.5 * score;
+        }
+        return score;
+    }
+
+    static double score(Record a, Record b) {
+        return score(a.signature, 0, b.signature, 0);
+    }
+
+    private static double jaccard(long[] a, int aOffset, long[] b, int bOffset) {
+        int union = Long.bitCount(a[aOffset] | b[bOffset]) + Long.bitCount(a[aOffset + 1] | b[bOffset + 1]);
+        if (union == 0) {
+            return 0;
+        }
+        int common = Long.bitCount(a[aOffset] & b[bOffset]) + Long.bitCount(a[aOffset + 1] & b[bOffset + 1]);
+        return (double) common / union;
+    }
+
+    private static void bigrams(String value, long[] signature, int offset) {
+        if (value.isEmpty()) {
+            return;
+        }
+        String padded = " " + value + " ";
+        for (int i = 0; i + 1 < padded.length(); i++) {
+            int h = (padded.charAt(i) * 31 + padded.charAt(i + 1)) * 0x9E3779B1;
+            int bit = h >>> 25; // 0..127
+            signature[offset + (bit >> 6)] |= 1L << (bit & 63);
+        }
+    }
+
+    // ========== Normalization ==========
+
+    static String email(String email) {
+        if (email == null) {
+            return "";
+        }
+        String value = email.trim().toLowerCase(Locale.ROOT);
+        int at = value.lastIndexOf('@');
+        if (at <= 0 || at == value.length() - 1) {
+            return "";
+        }
+        String local = value.substring(0, at);
+        String domain = value.substring(at + 1);
+        int plus = local.indexOf('+');
+        if (plus > 0) {
+            local = local.substring(0, plus);
+        }
+        if ("gmail.com".equals(domain) || "googlemail.com".equals(domain)) {
+            local = local.replace(".", "");
+            domain = "gmail.com";
+        }
+        return local + "@" + domain;
+    }
+
+    /**
+     * Digits only, last ten kept so country prefixes do not matter; empty when too short to mean anything.
+     */
+    static String phone(String phone) {
+        if (phone == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() < 7) {
+            return "";
+        }
+        return digits.length() > 10 ? digits.substring(digits.length() - 10) : digits.toString();
+    }
+
+    static String text(String value) {
+        if (value == null) {
+            return "";
+        }
+        String plain = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        StringBuilder text = new StringBuilder(plain.length());
+        boolean space = true;
+        for (int i = 0; i < plain.length(); i++) {
+            char c = Character.toLowerCase(plain.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                text.append(c);
+                space = false;
+            } else if (!space) {
+                text.append(' ');
+                space = true;
+            }
+        }
+        return text.toString().trim();
+    }
+
+    static String company(String company) {
+        String text = text(company);
+        if (text.isEmpty()) {
+            return text;
+        }
+        List<String> words = new ArrayList<>(Arrays.asList(text.split(" ")));
+        words.removeIf(COMPANY_SUFFIXES::contains);
+        return String.join(" ", words);
+    }
+
+    /**
+     * American Soundex of the first word, e.g. Robert and Rupert are both R163.
+     */
+    static String soundex(String text) {
+        int end = text.indexOf(' ');
+        String word = end < 0 ? text : text.substring(0, end);
+        if (word.isEmpty() || !Character.isLetter(word.charAt(0))) {
+            return word;
+        }
+        StringBuilder code = new StringBuilder(4).append(Character.toUpperCase(word.charAt(0)));
+        char previous = soundexDigit(word.charAt(0));
+        for (int i = 1; i < word.length() && code.length() < 4; i++) {
+            char c = word.charAt(i);
+            char digit = soundexDigit(c);
+            if (digit != '0' && digit != previous) {
+                code.append(digit);
+            }
+            if (c != 'h' && c != 'w') {
+                previous = digit;
+            }
+        }
+        while (code.length() < 4) {
+            code.append('0');
+        }
+        return code.toString();
+    }
+
+    private static char soundexDigit(char c) {
+        switch (c) {
+            case 'b': case 'f': case 'p': case 'v':
+                return '1';
+            case 'c': case 'g': case 'j': case 'k': case 'q': case 's': case 'x': case 'z':
+                return '2';
+            case 'd': case 't':
+                return '3';
+            case 'l':
+                return '4';
+            case 'm': case 'n':
+                return '5';
+            case 'r':
+                return '6';
+            default:
+                return '0';
+        }
+    }
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,544 @@
+package com.crm.customer.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.dto.CustomerDTO;
+import com.crm.customer.dto.LeadDTO;
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.DedupeJob;
+import com.crm.customer.entity.DuplicateClusterMember;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.DedupeJobRepository;
+import com.crm.customer.repository.DuplicateClusterMemberRepository;
+import com.crm.customer.repository.LeadRepository;
+
+/**
+ * Duplicate detection for leads and customers; see {@link DedupeIndex}.
+ *
+ * Online: each tenant gets an in-memory index on first use, loaded in the
+ * background from a database cursor and kept current by LeadService and
+ * CustomerService; an update replaces the record's entry and a delete drops
+ * it. Creating a record that scores at least reject-threshold against an
+ * existing one fails unless the caller passes force=true. Until the tenant's
+ * index is loaded only exact email matches are caught, from MySQL. Once
+ * replaced entries outnumber live ones, or the index fills up, it is rebuilt
+ * in the background while writes go to both the old and the new index.
+ *
+ * Batch: a job streams the whole tenant into its own index, compares within
+ * blocks on the compare pool and stores the resulting clusters. The job's
+ * index is discarded afterwards; the online index is left as it is.
+ */
+@Service
+public class DedupeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DedupeService.class);
+
+    public static final String LEADS = "leads";
+    public static final String CUSTOMERS = "customers";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final String INSERT_MEMBER = "INSERT INTO duplicate_cluster_members "
+            + "(job_id, cluster_no, entity_id, score) VALUES (?, ?, ?, ?)";
+    private static final int INSERT_BATCH = 1000;
+
+    @Value("${app.dedupe.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.dedupe.threshold:0.85}")
+    private double threshold;
+
+    @Value("${app.dedupe.reject-threshold:0.95}")
+    private double rejectThreshold;
+
+    @Value("${app.dedupe.max-per-key:500}")
+    private int maxPerKey;
+
+    @Value("${app.dedupe.max-block:1000}")
+    private int maxBlock;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DedupeJobRepository jobRepository;
+
+    @Autowired
+    private DuplicateClusterMemberRepository memberRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("dedupeExecutor")
+    private ExecutorService dedupeExecutor;
+
+    @Autowired
+    @Qualifier("dedupeComparePool")
+    private ForkJoinPool comparePool;
+
+    private TransactionTemplate readOnly;
+
+    private final Map<String, Holder> indexes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    // ========== Online ==========
+
+    /**
+     * Existing leads likely to be the same person as dto, best match first.
+     * Each entry has id, score and lead.
+     */
+    public List<Map<String, Object>> findLeadDuplicates(LeadDTO dto, String companyId, int limit) {
+        DedupeIndex.Record record = DedupeIndex.record(dto.getFirstName(), dto.getLastName(), dto.getEmail(),
+                dto.getPhone(), dto.getCompany());
+        return duplicates(LEADS, companyId, record, dto.getEmail(), limit);
+    }
+
+    /**
+     * Existing customers likely to be the same person as dto, best match first.
+     * Each entry has id, score and customer.
+     */
+    public List<Map<String, Object>> findCustomerDuplicates(CustomerDTO dto, String companyId, int limit) {
+        DedupeIndex.Record record = DedupeIndex.record(dto.getFirstName(), dto.getLastName(), dto.getEmail(),
+                dto.getPhone(), dto.getCompany());
+        return duplicates(CUSTOMERS, companyId, record, dto.getEmail(), limit);
+    }
+
+    /**
+     * Fails when the new lead almost certainly duplicates an existing one.
+     */
+    public void checkLead(LeadDTO dto) {
+        if (enabled && dto.getCompanyId() != null) {
+            reject("lead", findLeadDuplicates(dto, dto.getCompanyId(), 1));
+        }
+    }
+
+    /**
+     * Fails when the new customer almost certainly duplicates an existing one.
+     */
+    public void checkCustomer(CustomerDTO dto) {
+        if (enabled && dto.getCompanyId() != null) {
+            reject("customer", findCustomerDuplicates(dto, dto.getCompanyId(), 1));
+        }
+    }
+
+    public void indexLead(Lead lead) {
+        if (lead.getId() != null) {
+            write(LEADS, lead.getCompanyId(), lead.getId(), record(lead));
+        }
+    }
+
+    public void indexCustomer(Customer customer) {
+        if (customer.getId() != null) {
+            write(CUSTOMERS, customer.getCompanyId(), customer.getId(), record(customer));
+        }
+    }
+
+    public void removeLead(Lead lead) {
+        if (lead.getId() != null) {
+            write(LEADS, lead.getCompanyId(), lead.getId(), null);
+        }
+    }
+
+    public void removeCustomer(Customer customer) {
+        if (customer.getId() != null) {
+            write(CUSTOMERS, customer.getCompanyId(), customer.getId(), null);
+        }
+    }
+
+    private void reject(String noun, List<Map<String, Object>> matches) {
+        if (!matches.isEmpty() && (Double) matches.get(0).get("score") >= rejectThreshold) {
+            throw new RuntimeException("Possible duplicate of " + noun + " " + matches.get(0).get("id")
+                    + " (score " + matches.get(0).get("score") + "); pass force=true to create it anyway");
+        }
+    }
+
+    private List<Map<String, Object>> duplicates(String type, String companyId, DedupeIndex.Record record,
+            String email, int limit) {
+        if (!enabled || companyId == null) {
+            return new ArrayList<>();
+        }
+        DedupeIndex index = index(type, companyId);
+        List<Long> ids = new ArrayList<>();
+        if (index != null) {
+            Map<Long, Double> matches = index.candidates(record, threshold, maxPerKey);
+            ids.addAll(matches.keySet());
+            ids.sort(Comparator.comparing(matches::get, Comparator.reverseOrder()));
+            // Re-scored below against current rows; allow for stale or deleted entries
+            if (ids.size() > limit * 2 + 10) {
+                ids = new ArrayList<>(ids.subList(0, limit * 2 + 10));
+            }
+        } else if (email != null && !email.trim().isEmpty()) {
+            // Index still loading: exact email matches only
+            List<Object> rows = new ArrayList<>(LEADS.equals(type)
+                    ? leadRepository.findByCompanyIdAndEmail(companyId, email.trim())
+                    : customerRepository.findByCompanyIdAndEmail(companyId, email.trim()));
+            return rescore(rows, record, limit);
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> rows = new ArrayList<>();
+        if (LEADS.equals(type)) {
+            for (Lead lead : leadRepository.findAllById(ids)) {
+                if (companyId.equals(lead.getCompanyId())) {
+                    rows.add(lead);
+                }
+            }
+        } else {
+            for (Customer customer : customerRepository.findAllById(ids)) {
+                if (companyId.equals(customer.getCompanyId())) {
+                    rows.add(customer);
+                }
+            }
+        }
+        return rescore(rows, record, limit);
+    }
+
+    private List<Map<String, Object>> rescore(List<Object> rows, DedupeIndex.Record record, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object row : rows) {
+            double score = DedupeIndex.score(record,
+                    row instanceof Lead ? record((Lead) row) : record((Customer) row));
+            if (score >= threshold) {
+                Map<String, Object> match = new LinkedHashMap<>();
+                match.put("id", row instanceof Lead ? ((Lead) row).getId() : ((Customer) row).getId());
+                match.put("score", Math.round(score * 1000) / 1000.0);
+                match.put(row instanceof Lead ? "lead" : "customer", row);
+                result.add(match);
+            }
+        }
+        result.sort(Comparator.comparing(match -> (Double) match.get("score"), Comparator.reverseOrder()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // ========== Index lifecycle ==========
+
+    /**
+     * The tenant's index once loaded; starts loading it in the background on first use.
+     */
+    private DedupeIndex index(String type, String companyId) {
+        Holder holder = indexes.computeIfAbsent(key(type, companyId), k -> new Holder());
+        DedupeIndex current = holder.current;
+        if (current == null) {
+            reload(type, companyId, holder);
+        }
+        return current;
+    }
+
+    /**
+     * Adds, replaces or (with a null record) removes an id in the indexes
+     * that exist: the loaded one and any being built. Writes to tenants nobody
+     * checked yet are picked up on load.
+     */
+    private void write(String type, String companyId, Long id, DedupeIndex.Record record) {
+        Holder holder = enabled && companyId != null ? indexes.get(key(type, companyId)) : null;
+        if (holder == null) {
+            return;
+        }
+        // next before current: a load sets current before clearing next, so neither write is missed
+        DedupeIndex next = holder.next;
+        DedupeIndex current = holder.current;
+        if (next != null) {
+            update(next, id, record);
+        }
+        if (current != null && current != next && !update(current, id, record)) {
+            if (current.removed() == 0) {
+                logger.warn("Duplicate index for {} of company {} is full ({} records); {} {} not indexed", type,
+                        companyId, DedupeIndex.MAX_RECORDS, type, id);
+                return;
+            }
+            logger.warn("Duplicate index for {} of company {} is full, rebuilding it", type, companyId);
+            reload(type, companyId, holder);
+        } else if (current != null && current.removed() > current.size()) {
+            reload(type, companyId, holder);
+        }
+    }
+
+    private static boolean update(DedupeIndex index, Long id, DedupeIndex.Record record) {
+        if (record == null) {
+            index.remove(id);
+            return true;
+        }
+        return index.add(id, record);
+    }
+
+    /**
+     * Builds a new index for the tenant in the background unless one is already being built.
+     */
+    private void reload(String type, String companyId, Holder holder) {
+        if (holder.loading) {
+            return;
+        }
+        synchronized (holder) {
+            if (holder.loading) {
+                return;
+            }
+            holder.loading = true;
+            try {
+                dedupeExecutor.execute(() -> load(type, companyId, holder));
+            } catch (RejectedExecutionException e) {
+                holder.loading = false;
+            }
+        }
+    }
+
+    private void load(String type, String companyId, Holder holder) {
+        try {
+            DedupeIndex index = new DedupeIndex();
+            // Writes reach the index being built too, so none made during the load is missed
+            holder.next = index;
+            build(type, companyId, index);
+            holder.current = index;
+        } catch (RuntimeException e) {
+            logger.warn("Loading {} duplicate index for company {} failed: {}", type, companyId, e.getMessage());
+        } finally {
+            holder.next = null;
+            holder.loading = false;
+        }
+    }
+
+    private void build(String type, String companyId, DedupeIndex index) {
+        long started = System.currentTimeMillis();
+        readOnly.execute(status -> {
+            if (LEADS.equals(type)) {
+                try (Stream<Lead> rows = leadRepository.streamByCompanyId(companyId)) {
+                    rows.forEach(lead -> {
+                        add(type, companyId, index, lead.getId(), record(lead));
+                        entityManager.detach(lead);
+                    });
+                }
+            } else {
+                try (Stream<Customer> rows = customerRepository.streamByCompanyId(companyId)) {
+                    rows.forEach(customer -> {
+                        add(type, companyId, index, customer.getId(), record(customer));
+                        entityManager.detach(customer);
+                    });
+                }
+            }
+            return null;
+        });
+        index.compact();
+        logger.info("Loaded {} duplicate index for company {}: {} records in {} ms", type, companyId, index.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    private void add(String type, String companyId, DedupeIndex index, Long id, DedupeIndex.Record record) {
+        if (!index.add(id, record)) {
+            throw new RuntimeException("Duplicate index for " + type + " of company " + companyId + " is full ("
+                    + DedupeIndex.MAX_RECORDS + " records)");
+        }
+    }
+
+    private static DedupeIndex.Record record(Lead lead) {
+        return DedupeIndex.record(lead.getFirstName(), lead.getLastName(), lead.getEmail(), lead.getPhone(),
+                lead.getCompany());
+    }
+
+    private static DedupeIndex.Record record(Customer customer) {
+        return DedupeIndex.record(customer.getFirstName(), customer.getLastName(), customer.getEmail(),
+                customer.getPhone(), customer.getCompany());
+    }
+
+    private static String key(String type, String companyId) {
+        return type + "/" + companyId;
+    }
+
+    private static final class Holder {
+        private volatile DedupeIndex current;
+        private volatile DedupeIndex next; // being built
+        private volatile boolean loading;
+    }
+
+    // ========== Batch ==========
+
+    /**
+     * Queues a clustering job over the whole tenant. The returned job is
+     * QUEUED, or FAILED when the job queue is full.
+     */
+    public DedupeJob submit(String type, String companyId) {
+        if (!LEADS.equals(type) && !CUSTOMERS.equals(type)) {
+            throw new RuntimeException("Unknown dedupe type: " + type);
+        }
+        DedupeJob job = new DedupeJob();
+        job.setCompanyId(companyId);
+        job.setType(type);
+        job.setStatus(QUEUED);
+        job.setThreshold(threshold);
+        DedupeJob saved = jobRepository.save(job);
+        try {
+            dedupeExecutor.execute(() -> run(saved.getId()));
+        } catch (RejectedExecutionException e) {
+            saved.setStatus(FAILED);
+            saved.setError("Dedupe queue is full, try again later");
+            return jobRepository.save(saved);
+        }
+        return saved;
+    }
+
+    public DedupeJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Dedupe job not found with id: " + id));
+    }
+
+    public List<DedupeJob> getJobs(String type, String companyId) {
+        return jobRepository.findTop20ByCompanyIdAndTypeOrderByCreatedAtDesc(companyId, type);
+    }
+
+    /**
+     * Clusters after the given cluster number, largest first; each has cluster, size and members (id, score).
+     */
+    public List<Map<String, Object>> getClusters(Long id, int after, int size) {
+        getJob(id);
+        int limit = size < 1 ? 1 : Math.min(size, 500);
+        List<Map<String, Object>> clusters = new ArrayList<>();
+        Map<Integer, List<Map<String, Object>>> byCluster = new LinkedHashMap<>();
+        for (DuplicateClusterMember member : memberRepository
+                .findByJobIdAndClusterNoBetweenOrderByClusterNoAscScoreDesc(id, after + 1, after + limit)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", member.getEntityId());
+            entry.put("score", member.getScore());
+            byCluster.computeIfAbsent(member.getClusterNo(), k -> new ArrayList<>()).add(entry);
+        }
+        for (Map.Entry<Integer, List<Map<String, Object>>> cluster : byCluster.entrySet()) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("cluster", cluster.getKey());
+            result.put("size", cluster.getValue().size());
+            result.put("members", cluster.getValue());
+            clusters.add(result);
+        }
+        return clusters;
+    }
+
+    private void run(Long jobId) {
+        DedupeJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setStatus(RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        long started = System.currentTimeMillis();
+        try {
+            DedupeIndex index = new DedupeIndex();
+            build(job.getType(), job.getCompanyId(), index);
+            DedupeIndex.Clusters clusters = index.clusters(job.getThreshold(), maxBlock, comparePool);
+            long members = store(job.getId(), clusters);
+
+            job.setRecords(index.size());
+            job.setBlocks(clusters.blocks);
+            job.setOversizedBlocks(clusters.oversizedBlocks);
+            job.setComparisons(clusters.comparisons);
+            job.setClusters(clusters.members.size());
+            job.setDuplicates(members);
+            job.setStatus(COMPLETED);
+
+            String type = job.getType();
+            String companyId = job.getCompanyId();
+            Long id = job.getId();
+            transactionTemplate.execute(status -> memberRepository.deleteEarlierClusters(companyId, type, id));
+            // The job's index missed the writes made while it ran, so the online index is left as it is
+        } catch (RuntimeException e) {
+            logger.error("Dedupe job {} failed", jobId, e);
+            job.setStatus(FAILED);
+            job.setError(ImportRowReader.truncate(String.valueOf(e.getMessage())));
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        logger.info("Dedupe job {} {}: {} records, {} blocks ({} oversized), {} comparisons, {} clusters in {} ms",
+                jobId, job.getStatus(), job.getRecords(), job.getBlocks(), job.getOversizedBlocks(),
+                job.getComparisons(), job.getClusters(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Writes the clusters, largest first, and returns the number of members written.
+     */
+    private long store(Long jobId, DedupeIndex.Clusters clusters) {
+        List<Integer> order = new ArrayList<>(clusters.members.size());
+        for (int i = 0; i < clusters.members.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingInt((Integer i) -> clusters.members.get(i).length).reversed());
+
+        long written = 0;
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH);
+        int clusterNo = 0;
+        for (int i : order) {
+            clusterNo++;
+            long[] ids = clusters.members.get(i);
+            double[] scores = clusters.scores.get(i);
+            for (int m = 0; m < ids.length; m++) {
+                batch.add(new Object[] { jobId, clusterNo, ids[m], scores[m] });
+                if (batch.size() == INSERT_BATCH) {
+                    jdbcTemplate.batchUpdate(INSERT_MEMBER, batch);
+                    written += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_MEMBER, batch);
+            written += batch.size();
+        }
+        return written;
+    }
+
+    /**
+     * Index sizes per tenant and type, for monitoring.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        for (Map.Entry<String, Holder> entry : indexes.entrySet()) {
+            Holder holder = entry.getValue();
+            DedupeIndex index = holder.current;
+            stats.put(entry.getKey(), index != null ? index.size() : holder.loading ? "loading" : "not loaded");
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,477 @@
+package com.crm.customer.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.entity.Activity;
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.EngagementJob;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.EngagementJobRepository;
+import com.crm.customer.repository.LeadRepository;
+
+/**
+ * Keeps the engagement summary of customers and leads: when their last
+ * activity was, how many activities they have in total and per type, and
+ * the total duration of their calls.
+ *
+ * Creating or deleting an activity adjusts the summary of its customer and
+ * lead with one UPDATE each in the same transaction, so lists can sort and
+ * filter by engagement through (company_id, last_activity_at) instead of
+ * aggregating activities. Only deleting the latest activity looks at the
+ * others again, for the new latest one through the (owner, created_at)
+ * index. Summaries that predate the columns stay NULL until a repair job
+ * fills them in; a repair recomputes a tenant in id-range chunks on several
+ * threads.
+ */
+@Service
+public class EngagementSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EngagementSummaryService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_LIMIT = 500;
+
+    // Slots of a summary: activity count, count per type, total call seconds
+    private static final int TOTAL = 0;
+    private static final int DURATION = 6;
+    private static final int SLOTS = 7;
+
+    private static final String COUNTS = "activity_count = activity_count + ?, call_count = call_count + ?, "
+            + "email_count = email_count + ?, meeting_count = meeting_count + ?, note_count = note_count + ?, "
+            + "task_count = task_count + ?, total_call_duration = total_call_duration + ?";
+
+    private static final Target CUSTOMERS = new Target("customers", "customer_id");
+    private static final Target LEADS = new Target("leads", "lead_id");
+
+    @Value("${app.engagement.chunk-size:1000}")
+    private int chunkSize;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private EngagementJobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("engagementExecutor")
+    private ExecutorService engagementExecutor;
+
+    @Autowired
+    @Qualifier("engagementChunkExecutor")
+    private ExecutorService chunkExecutor;
+
+    // ========== Online ==========
+
+    /**
+     * Adds (sign 1) or removes (sign -1) an activity on the summaries of its
+     * lead and customer. Call inside the transaction that inserts or deletes
+     * the activity, after the insert or delete.
+     */
+    public void applyActivity(Activity activity, int sign) {
+        if (activity.getCompanyId() == null || (activity.getLeadId() == null && activity.getCustomerId() == null)) {
+            return;
+        }
+        long[] summary = new long[SLOTS];
+        add(summary, activity.getType() == null ? null : activity.getType().name(),
+                1, activity.getDuration() == null ? 0 : activity.getDuration());
+        List<Object> counts = new ArrayList<>(SLOTS + 4);
+        for (long value : summary) {
+            counts.add(sign * value);
+        }
+        Timestamp createdAt = activity.getCreatedAt() == null ? null : Timestamp.valueOf(activity.getCreatedAt());
+        // Leads before customers, the order every activity write locks them in
+        if (activity.getLeadId() != null) {
+            update(LEADS, sign, counts, createdAt, activity.getLeadId(), activity.getCompanyId());
+        }
+        if (activity.getCustomerId() != null) {
+            update(CUSTOMERS, sign, counts, createdAt, activity.getCustomerId(), activity.getCompanyId());
+        }
+    }
+
+    private void update(Target target, int sign, List<Object> counts, Timestamp createdAt, Long id,
+            String companyId) {
+        List<Object> args = new ArrayList<>(counts);
+        if (sign > 0) {
+            args.add(createdAt);
+            args.add(createdAt);
+            args.add(id);
+            args.add(companyId);
+            jdbcTemplate.update(target.add, args.toArray());
+        } else {
+            args.add(createdAt);
+            args.add(id);
+            args.add(id);
+            args.add(companyId);
+            jdbcTemplate.update(target.remove, args.toArray());
+        }
+    }
+
+    /**
+     * Adds newly inserted activities to the summaries with one batched UPDATE
+     * per lead and per customer, each in id order so concurrent batches lock
+     * rows in the same order. Call inside the transaction that inserts them.
+     */
+    public void applyActivities(List<Activity> activities) {
+        Map<Long, Summary> leads = new TreeMap<>();
+        Map<Long, Summary> customers = new TreeMap<>();
+        Map<Long, String> leadCompanies = new HashMap<>();
+        Map<Long, String> customerCompanies = new HashMap<>();
+        for (Activity activity : activities) {
+            if (activity.getCompanyId() == null) {
+                continue;
+            }
+            if (activity.getLeadId() != null) {
+                summarize(leads.computeIfAbsent(activity.getLeadId(), id -> new Summary()), activity);
+                leadCompanies.put(activity.getLeadId(), activity.getCompanyId());
+            }
+            if (activity.getCustomerId() != null) {
+                summarize(customers.computeIfAbsent(activity.getCustomerId(), id -> new Summary()), activity);
+                customerCompanies.put(activity.getCustomerId(), activity.getCompanyId());
+            }
+        }
+        update(LEADS, leads, leadCompanies);
+        update(CUSTOMERS, customers, customerCompanies);
+    }
+
+    private static void summarize(Summary summary, Activity activity) {
+        add(summary.values, activity.getType() == null ? null : activity.getType().name(), 1,
+                activity.getDuration() == null ? 0 : activity.getDuration());
+        if (activity.getCreatedAt() != null) {
+            Timestamp createdAt = Timestamp.valueOf(activity.getCreatedAt());
+            if (summary.last == null || createdAt.after(summary.last)) {
+                summary.last = createdAt;
+            }
+        }
+    }
+
+    private void update(Target target, Map<Long, Summary> summaries, Map<Long, String> companies) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        List<Object[]> updates = new ArrayList<>(summaries.size());
+        for (Map.Entry<Long, Summary> entry : summaries.entrySet()) {
+            long[] v = entry.getValue().values;
+            Timestamp last = entry.getValue().last;
+            updates.add(new Object[] { v[0], v[1], v[2], v[3], v[4], v[5], v[6], last, last, entry.getKey(),
+                    companies.get(entry.getKey()) });
+        }
+        jdbcTemplate.batchUpdate(target.add, updates);
+    }
+
+    // ========== Lists ==========
+
+    /**
+     * The company's customers by engagement: most recently active first, or
+     * with inactiveDays those without any activity for that many days, never
+     * contacted and longest silent first.
+     */
+    public List<Customer> getCustomers(String companyId, Integer inactiveDays, Integer limit) {
+        PageRequest page = PageRequest.of(0, size(limit));
+        return inactiveDays == null ? customerRepository.findRecentlyEngaged(companyId, page)
+                : customerRepository.findNotEngagedSince(companyId, since(inactiveDays), page);
+    }
+
+    /**
+     * The company's leads by engagement, like {@link #getCustomers}.
+     */
+    public List<Lead> getLeads(String companyId, Integer inactiveDays, Integer limit) {
+        PageRequest page = PageRequest.of(0, size(limit));
+        return inactiveDays == null ? leadRepository.findRecentlyEngaged(companyId, page)
+                : leadRepository.findNotEngagedSince(companyId, since(inactiveDays), page);
+    }
+
+    private static int size(Integer limit) {
+        return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    private static LocalDateTime since(int inactiveDays) {
+        if (inactiveDays < 0) {
+            throw new RuntimeException("inactiveDays must not be negative");
+        }
+        return LocalDateTime.now().minusDays(inactiveDays);
+    }
+
+    // ========== Repair ==========
+
+    /**
+     * Queues a recompute of every customer and lead summary of the tenant.
+     * The returned job is QUEUED, or FAILED when the job queue is full.
+     */
+    public EngagementJob submit(String companyId) {
+        EngagementJob job = new EngagementJob();
+        job.setCompanyId(companyId);
+        job.setStatus(QUEUED);
+        EngagementJob saved = jobRepository.save(job);
+        try {
+            engagementExecutor.execute(() -> run(saved.getId()));
+        } catch (RejectedExecutionException e) {
+            saved.setStatus(FAILED);
+            saved.setError("Engagement repair queue is full, try again later");
+            return jobRepository.save(saved);
+        }
+        return saved;
+    }
+
+    public EngagementJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Engagement job not found with id: " + id));
+    }
+
+    public List<EngagementJob> getJobs(String companyId) {
+        return jobRepository.findTop20ByCompanyIdOrderByCreatedAtDesc(companyId);
+    }
+
+    /**
+     * Queues a repair for every tenant with customers or leads that predate
+     * the summary columns (activity_count still NULL).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        try {
+            for (String companyId : jdbcTemplate.queryForList(
+                    "SELECT company_id FROM customers WHERE activity_count IS NULL AND company_id IS NOT NULL "
+                            + "UNION SELECT company_id FROM leads WHERE activity_count IS NULL "
+                            + "AND company_id IS NOT NULL",
+                    String.class)) {
+                logger.info("Queueing engagement summary backfill for company {}", companyId);
+                submit(companyId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Engagement summary backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    private void run(Long jobId) {
+        EngagementJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setStatus(RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        long started = System.currentTimeMillis();
+        String companyId = job.getCompanyId();
+        try {
+            List<Future<long[]>> customers = chunks(CUSTOMERS, companyId);
+            List<Future<long[]>> leads = chunks(LEADS, companyId);
+            long[] customerTotals = totals(customers);
+            long[] leadTotals = totals(leads);
+            job.setCustomers(customerTotals[0]);
+            job.setLeads(leadTotals[0]);
+            job.setActivities(customerTotals[1] + leadTotals[1]);
+            job.setChanged(customerTotals[2] + leadTotals[2]);
+            job.setChunks(customers.size() + leads.size());
+            job.setStatus(COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.setStatus(FAILED);
+            job.setError("Interrupted");
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            logger.error("Engagement job {} failed", jobId, cause);
+            job.setStatus(FAILED);
+            job.setError(ImportRowReader.truncate(String.valueOf(cause.getMessage())));
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        logger.info("Engagement job {} {} for company {}: {} customers, {} leads, {} changed, {} chunks in {} ms",
+                jobId, job.getStatus(), companyId, job.getCustomers(), job.getLeads(), job.getChanged(),
+                job.getChunks(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Cuts the tenant's rows of the target into id ranges of chunkSize, each
+     * recomputed in its own transaction on the chunk pool.
+     */
+    private List<Future<long[]>> chunks(Target target, String companyId) {
+        List<Future<long[]>> chunks = new ArrayList<>();
+        long from = 0;
+        while (true) {
+            List<Long> bound = jdbcTemplate.queryForList(target.bound, Long.class, companyId, from, chunkSize - 1);
+            long to = bound.isEmpty() ? Long.MAX_VALUE : bound.get(0);
+            long lower = from;
+            chunks.add(chunkExecutor.submit(() -> transactionTemplate
+                    .execute(status -> recompute(target, companyId, lower, to))));
+            if (bound.isEmpty()) {
+                return chunks;
+            }
+            from = to;
+        }
+    }
+
+    private static long[] totals(List<Future<long[]>> chunks) throws InterruptedException, ExecutionException {
+        long[] totals = new long[3];
+        for (Future<long[]> chunk : chunks) {
+            long[] counts = chunk.get();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += counts[i];
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Recomputes the summaries of the rows with ids in (from, to] and returns
+     * [rows, activities, changed]. The rows are locked first, so activity
+     * writes to them wait and then apply on top of the recomputed summary.
+     */
+    private long[] recompute(Target target, String companyId, long from, long to) {
+        Map<Long, Summary[]> rows = new HashMap<>();
+        jdbcTemplate.query(target.lock, rs -> {
+            Summary old = new Summary();
+            Object[] columns = { rs.getObject("activity_count"), rs.getObject("call_count"),
+                    rs.getObject("email_count"), rs.getObject("meeting_count"), rs.getObject("note_count"),
+                    rs.getObject("task_count"), rs.getObject("total_call_duration") };
+            for (int i = 0; i < SLOTS; i++) {
+                if (columns[i] == null) {
+                    old.known = false;
+                } else {
+                    old.values[i] = ((Number) columns[i]).longValue();
+                }
+            }
+            old.last = rs.getTimestamp("last_activity_at");
+            // recomputed, stored
+            rows.put(rs.getLong("id"), new Summary[] { new Summary(), old });
+        }, companyId, from, to);
+        if (rows.isEmpty()) {
+            return new long[3];
+        }
+
+        long[] activities = new long[1];
+        jdbcTemplate.query(target.aggregate, rs -> {
+            Summary[] row = rows.get(rs.getLong("owner_id"));
+            if (row != null) {
+                long count = rs.getLong("activities");
+                add(row[0].values, rs.getString("type"), count, rs.getLong("duration"));
+                Timestamp last = rs.getTimestamp("last_at");
+                if (row[0].last == null || (last != null && last.after(row[0].last))) {
+                    row[0].last = last;
+                }
+                activities[0] += count;
+            }
+        }, companyId, from, to);
+
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, Summary[]> entry : rows.entrySet()) {
+            Summary summary = entry.getValue()[0];
+            if (!summary.equals(entry.getValue()[1])) {
+                long[] v = summary.values;
+                updates.add(new Object[] { v[0], v[1], v[2], v[3], v[4], v[5], v[6], summary.last, entry.getKey() });
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(target.set, updates);
+        }
+        return new long[] { rows.size(), activities[0], updates.size() };
+    }
+
+    /**
+     * Adds count activities of the type, and their call seconds, to a summary.
+     */
+    private static void add(long[] summary, String type, long count, long durationSeconds) {
+        summary[TOTAL] += count;
+        if ("CALL".equals(type)) {
+            summary[1] += count;
+            summary[DURATION] += Math.max(0, durationSeconds);
+        } else if ("EMAIL".equals(type)) {
+            summary[2] += count;
+        } else if ("MEETING".equals(type)) {
+            summary[3] += count;
+        } else if ("NOTE".equals(type)) {
+            summary[4] += count;
+        } else if ("TASK".equals(type)) {
+            summary[5] += count;
+        }
+    }
+
+    private static final class Summary {
+        final long[] values = new long[SLOTS];
+        Timestamp last;
+        boolean known = true;
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Summary)) {
+                return false;
+            }
+            Summary summary = (Summary) other;
+            return known && summary.known && Arrays.equals(values, summary.values)
+                    && Objects.equals(last, summary.last);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * The SQL for one table with a summary: customers or leads.
+     */
+    private static final class Target {
+        final String add;
+        final String remove;
+        final String bound;
+        final String lock;
+        final String aggregate;
+        final String set;
+
+        Target(String table, String column) {
+            add = "UPDATE " + table + " SET " + COUNTS + ", last_activity_at = "
+                    + "GREATEST(COALESCE(last_activity_at, ?), ?) WHERE id = ? AND company_id = ?";
+            // Runs after the activity is deleted, so the subquery no longer sees it
+            remove = "UPDATE " + table + " SET " + COUNTS + ", last_activity_at = CASE WHEN last_activity_at <= ? "
+                    + "THEN (SELECT MAX(created_at) FROM activities WHERE " + column + " = ? AND is_deleted = false) "
+                    + "ELSE last_activity_at END WHERE id = ? AND company_id = ?";
+            bound = "SELECT id FROM " + table + " WHERE company_id = ? AND id > ? ORDER BY id LIMIT 1 OFFSET ?";
+            lock = "SELECT id, activity_count, call_count, email_count, meeting_count, note_count, task_count, "
+                    + "total_call_duration, last_activity_at FROM " + table
+                    + " WHERE company_id = ? AND id > ? AND id <= ? FOR UPDATE";
+            aggregate = "SELECT " + column + " AS owner_id, type, COUNT(*) AS activities, "
+                    + "COALESCE(SUM(duration), 0) AS duration, MAX(created_at) AS last_at FROM activities "
+                    + "WHERE company_id = ? AND " + column + " > ? AND " + column + " <= ? AND is_deleted = false "
+                    + "GROUP BY " + column + ", type";
+            set = "UPDATE " + table + " SET activity_count = ?, call_count = ?, email_count = ?, meeting_count = ?, "
+                    + "note_count = ?, task_count = ?, total_call_duration = ?, last_activity_at = ? WHERE id = ?";
+        }
+    }
+}
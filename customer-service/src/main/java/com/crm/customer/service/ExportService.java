@@ -0,0 +1,207 @@
+package com.crm.customer.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.entity.Activity;
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.ActivityRepository;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.LeadRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+/**
+ * Streams a tenant's customers, leads or activities as CSV or NDJSON.
+ *
+ * Rows come from a forward-only MySQL cursor (fetch size Integer.MIN_VALUE)
+ * inside a read-only transaction and are written through a fixed-size buffer
+ * as they arrive; each entity is detached once written, so memory stays flat
+ * however many rows the tenant has. Columns and values are the same as the
+ * JSON the list endpoints return.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    public static final String CUSTOMERS = "customers";
+    public static final String LEADS = "leads";
+    public static final String ACTIVITIES = "activities";
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    @Value("${app.export.buffer-bytes:65536}")
+    private int bufferBytes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private TransactionTemplate readOnly;
+
+    @PostConstruct
+    void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    /**
+     * The format parameter as CSV or NDJSON (CSV when absent).
+     */
+    public String format(String format) {
+        String value = format == null ? CSV : format.toLowerCase(Locale.ROOT);
+        if (!CSV.equals(value) && !NDJSON.equals(value)) {
+            throw new RuntimeException("Unknown export format: " + format + ", use csv or ndjson");
+        }
+        return value;
+    }
+
+    public String contentType(String format) {
+        return CSV.equals(format) ? "text/csv; charset=UTF-8" : "application/x-ndjson; charset=UTF-8";
+    }
+
+    /**
+     * Writes every row of the given type for the company to out.
+     */
+    public void export(String type, String companyId, String format, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), bufferBytes);
+        Long rows;
+        try {
+            rows = readOnly.execute(status -> {
+                try {
+                    if (CUSTOMERS.equals(type)) {
+                        return write(customerRepository.streamByCompanyId(companyId), Customer.class, format, writer);
+                    } else if (LEADS.equals(type)) {
+                        return write(leadRepository.streamByCompanyId(companyId), Lead.class, format, writer);
+                    }
+                    return write(activityRepository.streamByCompanyId(companyId), Activity.class, format, writer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download
+            logger.warn("Export of {} for company {} aborted: {}", type, companyId, e.getCause().getMessage());
+            throw e.getCause();
+        }
+        writer.flush();
+        logger.info("Exported {} {} for company {} as {} in {} ms", rows, type, companyId, format,
+                System.currentTimeMillis() - started);
+    }
+
+    private <T> long write(Stream<T> rows, Class<T> type, String format, Writer writer) throws IOException {
+        long count = 0;
+        try (Stream<T> stream = rows) {
+            Iterator<T> iterator = stream.iterator();
+            if (NDJSON.equals(format)) {
+                try (SequenceWriter sequence = objectMapper.writer()
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        .withRootValueSeparator("\n").writeValues(writer)) {
+                    while (iterator.hasNext()) {
+                        T row = iterator.next();
+                        sequence.write(row);
+                        entityManager.detach(row);
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    writer.write('\n');
+                }
+            } else {
+                List<String> columns = columns(type);
+                writeCsvLine(writer, columns);
+                List<String> values = new ArrayList<>(columns.size());
+                while (iterator.hasNext()) {
+                    T row = iterator.next();
+                    JsonNode node = objectMapper.valueToTree(row);
+                    entityManager.detach(row);
+                    values.clear();
+                    for (String column : columns) {
+                        JsonNode value = node.get(column);
+                        values.add(value == null || value.isNull() ? null : value.asText());
+                    }
+                    writeCsvLine(writer, values);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<String> columns(Class<?> type) {
+        List<String> columns = new ArrayList<>();
+        for (BeanPropertyDefinition property : objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(type)).findProperties()) {
+            if (property.couldSerialize()) {
+                columns.add(property.getName());
+            }
+        }
+        return columns;
+    }
+
+    private static void writeCsvLine(Writer writer, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
+    }
+}
@@ -0,0 +1,240 @@
+package com.crm.customer.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads an import file one row at a time. CSV takes its column names from the
+ * first record and follows RFC 4180 quoting (quoted fields may contain commas,
+ * doubled quotes and line breaks); NDJSON is one JSON object per line; JSON
+ * is one array of objects, read element by element. A row
+ * that cannot be parsed comes back with {@link Row#error} set and the reader
+ * carries on with the next one.
+ */
+abstract class ImportRowReader implements Closeable {
+
+    static final String CSV = "CSV";
+    static final String NDJSON = "NDJSON";
+    static final String JSON = "JSON";
+
+    private static final int MAX_RAW = 500;
+
+    protected final BufferedReader in;
+    protected long rowNumber;
+
+    ImportRowReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    static ImportRowReader open(String format, BufferedReader in, ObjectMapper objectMapper) throws IOException {
+        if (JSON.equals(format)) {
+            return new JsonArray(in, objectMapper);
+        }
+        return CSV.equals(format) ? new Csv(in) : new NdJson(in, objectMapper);
+    }
+
+    /**
+     * The next row, or null at the end of the file.
+     */
+    abstract Row next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static final class Row {
+        final long number;
+        final Map<String, Object> values;
+        final String raw;
+        final String error;
+
+        Row(long number, Map<String, Object> values, String raw, String error) {
+            this.number = number;
+            this.values = values;
+            this.raw = raw;
+            this.error = error;
+        }
+    }
+
+    static String truncate(String value) {
+        return value != null && value.length() > MAX_RAW ? value.substring(0, MAX_RAW) : value;
+    }
+
+    // ========== NDJSON ==========
+
+    private static final class NdJson extends ImportRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        NdJson(BufferedReader in, ObjectMapper objectMapper) {
+            super(in);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Row next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+            rowNumber++;
+            try {
+                Object value = objectMapper.readValue(line, Object.class);
+                if (!(value instanceof Map)) {
+                    return new Row(rowNumber, null, truncate(line), "Line is not a JSON object");
+                }
+                return new Row(rowNumber, (Map<String, Object>) value, truncate(line), null);
+            } catch (JsonProcessingException e) {
+                return new Row(rowNumber, null, truncate(line), "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    // ========== JSON array ==========
+
+    private static final class JsonArray extends ImportRowReader {
+
+        private final ObjectMapper objectMapper;
+        private final JsonParser parser;
+
+        JsonArray(BufferedReader in, ObjectMapper objectMapper) throws IOException {
+            super(in);
+            this.objectMapper = objectMapper;
+            parser = objectMapper.getFactory().createParser(in);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Body is not a JSON array");
+            }
+        }
+
+        /**
+         * Malformed JSON cannot be skipped inside an array, so it ends the read with an IOException.
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        Row next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            rowNumber++;
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return new Row(rowNumber, null, null, "Element is not a JSON object");
+            }
+            Map<String, Object> values = objectMapper.readValue(parser, Map.class);
+            return new Row(rowNumber, values, truncate(values.toString()), null);
+        }
+    }
+
+    // ========== CSV ==========
+
+    private static final class Csv extends ImportRowReader {
+
+        private final StringBuilder raw = new StringBuilder();
+        private final List<String> header;
+
+        Csv(BufferedReader in) throws IOException {
+            super(in);
+            header = record();
+            if (header == null) {
+                throw new RuntimeException("CSV file is empty");
+            }
+            if (!header.isEmpty() && header.get(0) != null && header.get(0).startsWith("\uFEFF")) {
+                header.set(0, header.get(0).substring(1));
+            }
+        }
+
+        @Override
+        Row next() throws IOException {
+            List<String> fields;
+            do {
+                fields = record();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0) == null);
+            rowNumber++;
+            String line = raw.toString().trim();
+            if (fields.size() > header.size()) {
+                return new Row(rowNumber, null, line,
+                        "Expected " + header.size() + " columns but found " + fields.size());
+            }
+            Map<String, Object> values = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                values.put(header.get(i), fields.get(i));
+            }
+            return new Row(rowNumber, values, line, null);
+        }
+
+        /**
+         * One record as its fields (empty ones as null), or null at the end of the file.
+         */
+        private List<String> record() throws IOException {
+            raw.setLength(0);
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c >= 0) {
+                if (raw.length() < MAX_RAW) {
+                    raw.append((char) c);
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int next = in.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(value(field));
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') {
+                        in.reset();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+            fields.add(value(field));
+            return fields;
+        }
+
+        private static String value(StringBuilder field) {
+            String value = field.toString().trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,679 @@
+package com.crm.customer.service;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.client.AnalyticsCounterClient;
+import com.crm.customer.dto.CustomerDTO;
+import com.crm.customer.dto.LeadDTO;
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.ImportJob;
+import com.crm.customer.entity.ImportJobError;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.ImportJobErrorRepository;
+import com.crm.customer.repository.ImportJobRepository;
+import com.crm.customer.repository.LeadRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bulk import of leads and customers from CSV or NDJSON uploads.
+ *
+ * The upload is spooled to a temp file and the request returns a QUEUED job
+ * right away. A worker from the import pool then reads the file row by row,
+ * validates each row like POST /api/leads and /api/customers do, drops emails
+ * already seen in the file or already in the tenant, and writes the rest in
+ * batches of app.import.batch-size: one JDBC batch for the entities (their
+ * pooled table ids let Hibernate batch) and one for the lead CREATED history.
+ * Assignees get one digest notification per job instead of one per row.
+ */
+@Service
+public class ImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportService.class);
+
+    public static final String LEADS = "LEADS";
+    public static final String CUSTOMERS = "CUSTOMERS";
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final String INVALID = "INVALID";
+    private static final String DUPLICATE = "DUPLICATE";
+
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+    // Normalized column name -> DTO property, e.g. "firstname" and "first_name" -> firstName
+    private static final Map<String, String> LEAD_COLUMNS = columns(LeadDTO.class);
+    private static final Map<String, String> CUSTOMER_COLUMNS = columns(CustomerDTO.class);
+
+    @Value("${app.import.dir:${java.io.tmpdir}/crm-imports}")
+    private String dir;
+
+    @Value("${app.import.max-bytes:536870912}")
+    private long maxBytes;
+
+    @Value("${app.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Autowired
+    private ImportJobRepository jobRepository;
+
+    @Autowired
+    private ImportJobErrorRepository errorRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LeadService leadService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private DedupeService dedupeService;
+
+    @Autowired
+    private PhoneIndexService phoneIndexService;
+
+    @Autowired
+    private CustomerEventPublisher customerEventPublisher;
+
+    @Autowired
+    private LeadScoringService leadScoringService;
+
+    @Autowired
+    private LeadAssignmentService leadAssignmentService;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private AnalyticsCounterClient analyticsCounterClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("importExecutor")
+    private ExecutorService importExecutor;
+
+    /**
+     * Stores the upload and queues its import. The returned job is QUEUED, or
+     * FAILED when the import queue is full. The format (CSV or NDJSON) falls
+     * back to the content type when not given.
+     */
+    public ImportJob submit(String type, String companyId, String format, String contentType, Long createdBy,
+            InputStream body) {
+        if (companyId == null || companyId.trim().isEmpty()) {
+            throw new RuntimeException("companyId is required");
+        }
+        String resolvedFormat = format(format, contentType);
+        Path file = spool(body);
+
+        ImportJob job = new ImportJob();
+        job.setCompanyId(companyId);
+        job.setType(type);
+        job.setFormat(resolvedFormat);
+        job.setStatus(QUEUED);
+        job.setCreatedBy(createdBy);
+        try {
+            job.setTotalBytes(Files.size(file));
+        } catch (IOException e) {
+            delete(file);
+            throw new RuntimeException("Could not store upload: " + e.getMessage());
+        }
+        ImportJob saved = jobRepository.save(job);
+        try {
+            importExecutor.execute(() -> run(saved.getId(), file));
+        } catch (RejectedExecutionException e) {
+            delete(file);
+            saved.setStatus(FAILED);
+            saved.setError("Import queue is full, try again later");
+            return jobRepository.save(saved);
+        }
+        return saved;
+    }
+
+    public ImportJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Import job not found with id: " + id));
+    }
+
+    public List<ImportJob> getJobs(String companyId) {
+        return jobRepository.findTop50ByCompanyIdOrderByCreatedAtDesc(companyId);
+    }
+
+    /**
+     * Stored row errors of a job in row order, starting after the given row.
+     */
+    public List<ImportJobError> getErrors(Long id, long afterRow, int size) {
+        getJob(id);
+        int limit = size < 1 ? 1 : Math.min(size, 1000);
+        return errorRepository.findByJobIdAndRowNumberGreaterThanOrderByRowNumberAsc(id, afterRow,
+                PageRequest.of(0, limit));
+    }
+
+    // ========== Execution ==========
+
+    private void run(Long jobId, Path file) {
+        ImportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            delete(file);
+            return;
+        }
+        job.setStatus(RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        long started = System.currentTimeMillis();
+
+        Run run = new Run(job);
+        try (CountingInputStream counting = new CountingInputStream(Files.newInputStream(file));
+                ImportRowReader reader = ImportRowReader.open(job.getFormat(),
+                        new BufferedReader(new InputStreamReader(counting, StandardCharsets.UTF_8), 1 << 16),
+                        objectMapper)) {
+            ImportRowReader.Row row;
+            while ((row = reader.next()) != null) {
+                run.accept(row);
+                if (run.pending.size() >= batchSize) {
+                    run.flush(counting.count);
+                }
+            }
+            run.flush(counting.count);
+            run.job.setStatus(COMPLETED);
+        } catch (Exception e) {
+            logger.error("Import job {} failed", jobId, e);
+            run.job.setStatus(FAILED);
+            run.job.setError(ImportRowReader.truncate(String.valueOf(e.getMessage())));
+        } finally {
+            delete(file);
+        }
+        run.job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(run.job);
+        logger.info("Import job {} {}: {} rows read, {} imported, {} duplicate, {} failed in {} ms", jobId,
+                run.job.getStatus(), run.job.getRowsRead(), run.job.getRowsImported(), run.job.getRowsDuplicate(),
+                run.job.getRowsFailed(), System.currentTimeMillis() - started);
+
+        if (run.job.getRowsImported() > 0) {
+            sendDigests(run);
+            rebuildAnalytics(run.job.getCompanyId());
+        }
+    }
+
+    /**
+     * State of one running import.
+     */
+    private final class Run {
+
+        private ImportJob job;
+        private final Map<String, String> columns;
+        private final Class<?> dtoType;
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<Pending> pending = new ArrayList<>();
+        private final List<ImportJobError> errors = new ArrayList<>();
+        private final Map<Long, Integer> assigned = new HashMap<>();
+        private long storedErrors;
+
+        Run(ImportJob job) {
+            this.job = job;
+            boolean leads = LEADS.equals(job.getType());
+            this.columns = leads ? LEAD_COLUMNS : CUSTOMER_COLUMNS;
+            this.dtoType = leads ? LeadDTO.class : CustomerDTO.class;
+        }
+
+        void accept(ImportRowReader.Row row) {
+            job.setRowsRead(job.getRowsRead() + 1);
+            if (row.error != null) {
+                reject(row.number, INVALID, row.error, row.raw);
+                return;
+            }
+            Object dto;
+            try {
+                dto = toDto(row.values);
+            } catch (IllegalArgumentException e) {
+                reject(row.number, INVALID, "Invalid value: " + NestedExceptionUtils.getMostSpecificCause(e)
+                        .getMessage(), row.raw);
+                return;
+            }
+            Set<ConstraintViolation<Object>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                List<String> messages = new ArrayList<>();
+                for (ConstraintViolation<Object> violation : violations) {
+                    messages.add(violation.getMessage());
+                }
+                reject(row.number, INVALID, String.join("; ", messages), row.raw);
+                return;
+            }
+            String email = email(dto);
+            String key = null;
+            if (email != null) {
+                if (!EMAIL.matcher(email).matches()) {
+                    reject(row.number, INVALID, "Invalid email: " + email, row.raw);
+                    return;
+                }
+                key = email.toLowerCase(Locale.ROOT);
+                if (!seenEmails.add(key)) {
+                    reject(row.number, DUPLICATE, "Email appears earlier in the file: " + email, row.raw);
+                    return;
+                }
+            }
+            pending.add(new Pending(row.number, row.raw, dto, key));
+        }
+
+        /**
+         * Writes the pending rows and records progress.
+         */
+        void flush(long bytesRead) {
+            if (!pending.isEmpty()) {
+                dropExisting();
+                List<Pending> rows = new ArrayList<>(pending);
+                pending.clear();
+                // Only the write is retried; once rows are committed, follow-up failures are logged by saved()
+                List<Object> written = new ArrayList<>(rows.size());
+                try {
+                    written.addAll(write(rows));
+                } catch (RuntimeException e) {
+                    // Isolate the rows the database refused, e.g. a value too long for its column
+                    logger.warn("Import job {}: batch of {} rows failed, retrying row by row: {}", job.getId(),
+                            rows.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                    for (Pending row : rows) {
+                        try {
+                            written.addAll(write(Collections.singletonList(row)));
+                        } catch (RuntimeException rowFailure) {
+                            reject(row.number, INVALID, "Could not be saved: "
+                                    + NestedExceptionUtils.getMostSpecificCause(rowFailure).getMessage(), row.raw);
+                        }
+                    }
+                }
+                saved(written);
+            }
+            if (!errors.isEmpty()) {
+                errorRepository.saveAll(errors);
+                errors.clear();
+            }
+            job.setBytesRead(bytesRead);
+            job = jobRepository.save(job);
+        }
+
+        private void dropExisting() {
+            List<String> emails = new ArrayList<>();
+            for (Pending row : pending) {
+                if (row.emailKey != null) {
+                    emails.add(row.emailKey);
+                }
+            }
+            if (emails.isEmpty()) {
+                return;
+            }
+            List<String> found = LEADS.equals(job.getType())
+                    ? leadRepository.findExistingEmails(job.getCompanyId(), emails)
+                    : customerRepository.findExistingEmails(job.getCompanyId(), emails);
+            if (found.isEmpty()) {
+                return;
+            }
+            Set<String> existing = new HashSet<>();
+            for (String email : found) {
+                existing.add(email.toLowerCase(Locale.ROOT));
+            }
+            pending.removeIf(row -> {
+                if (row.emailKey != null && existing.contains(row.emailKey)) {
+                    reject(row.number, DUPLICATE, "Email already exists: " + row.emailKey, row.raw);
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        private List<?> write(List<Pending> rows) {
+            return LEADS.equals(job.getType()) ? writeLeads(rows) : writeCustomers(rows);
+        }
+
+        private List<Lead> writeLeads(List<Pending> rows) {
+            List<Lead> leads = new ArrayList<>(rows.size());
+            List<Long> claimed = new ArrayList<>();
+            for (Pending row : rows) {
+                Lead lead = new Lead();
+                leadService.mapDtoToEntity((LeadDTO) row.dto, lead);
+                lead.setCompanyId(job.getCompanyId());
+                lead.setCreatedBy(job.getCreatedBy());
+                leadScoringService.score(lead);
+                if (lead.getAssignedTo() == null && LeadAssignmentService.OPEN.contains(lead.getStatus())) {
+                    lead.setAssignedTo(leadAssignmentService.assign(job.getCompanyId()));
+                    claimed.add(lead.getAssignedTo());
+                } else {
+                    claimed.add(null);
+                }
+                leads.add(lead);
+            }
+            List<Lead> saved;
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    List<Lead> written = leadRepository.saveAll(leads);
+                    leadRepository.flush();
+                    insertHistory(written);
+                    return written;
+                });
+            } catch (RuntimeException e) {
+                for (Long userId : claimed) {
+                    leadAssignmentService.release(job.getCompanyId(), userId);
+                }
+                throw e;
+            }
+            // Committed: a counter failure from here on must not send these rows back for a retry
+            for (int i = 0; i < leads.size(); i++) {
+                if (claimed.get(i) == null) {
+                    Lead lead = leads.get(i);
+                    try {
+                        leadAssignmentService.changed(lead.getCompanyId(), null, null, lead.getAssignedTo(),
+                                lead.getStatus());
+                    } catch (RuntimeException e) {
+                        logger.warn("Import job {}: could not count lead {} for its assignee: {}", job.getId(),
+                                lead.getId(), e.getMessage());
+                    }
+                }
+            }
+            return saved;
+        }
+
+        private List<Customer> writeCustomers(List<Pending> rows) {
+            List<Customer> customers = new ArrayList<>(rows.size());
+            for (Pending row : rows) {
+                Customer customer = new Customer();
+                customerService.mapDtoToEntity((CustomerDTO) row.dto, customer);
+                customer.setCompanyId(job.getCompanyId());
+                customer.setCreatedBy(job.getCreatedBy());
+                customers.add(customer);
+            }
+            return transactionTemplate.execute(status -> customerRepository.saveAll(customers));
+        }
+
+        private void insertHistory(List<Lead> leads) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> args = new ArrayList<>(leads.size());
+            for (Lead lead : leads) {
+                args.add(new Object[] { lead.getId(), "CREATED", null,
+                        "Lead Created with Status: " + lead.getStatus(), job.getCreatedBy(), lead.getCompanyId(),
+                        now });
+            }
+            jdbcTemplate.batchUpdate(LeadHistoryRecorder.INSERT_HISTORY, args);
+        }
+
+        private void saved(List<?> rows) {
+            job.setRowsImported(job.getRowsImported() + rows.size());
+            for (Object row : rows) {
+                Long assignee;
+                if (row instanceof Lead) {
+                    Lead lead = (Lead) row;
+                    assignee = lead.getAssignedTo();
+                    try {
+                        searchIndexService.indexLead(lead);
+                        dedupeService.indexLead(lead);
+                        phoneIndexService.indexLead(lead);
+                    } catch (RuntimeException e) {
+                        logger.warn("Import job {}: lead {} saved but not indexed: {}", job.getId(), lead.getId(),
+                                e.getMessage());
+                    }
+                } else {
+                    Customer customer = (Customer) row;
+                    assignee = customer.getAssignedTo();
+                    try {
+                        searchIndexService.indexCustomer(customer);
+                        dedupeService.indexCustomer(customer);
+                        phoneIndexService.indexCustomer(customer);
+                        customerEventPublisher.created(customer);
+                    } catch (RuntimeException e) {
+                        logger.warn("Import job {}: customer {} saved but not indexed: {}", job.getId(),
+                                customer.getId(), e.getMessage());
+                    }
+                }
+                if (assignee != null) {
+                    assigned.merge(assignee, 1, Integer::sum);
+                }
+            }
+        }
+
+        private void reject(long rowNumber, String reason, String message, String raw) {
+            if (DUPLICATE.equals(reason)) {
+                job.setRowsDuplicate(job.getRowsDuplicate() + 1);
+            } else {
+                job.setRowsFailed(job.getRowsFailed() + 1);
+            }
+            if (storedErrors < maxErrors) {
+                storedErrors++;
+                errors.add(new ImportJobError(null, job.getId(), rowNumber, reason,
+                        ImportRowReader.truncate(message), ImportRowReader.truncate(raw)));
+            }
+        }
+
+        private Object toDto(Map<String, Object> values) {
+            Map<String, Object> properties = new HashMap<>();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                String property = entry.getKey() != null ? columns.get(normalize(entry.getKey())) : null;
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    value = ((String) value).trim();
+                    if (((String) value).isEmpty()) {
+                        value = null;
+                    }
+                }
+                if (property != null && value != null) {
+                    properties.put(property, value);
+                }
+            }
+            return objectMapper.convertValue(properties, dtoType);
+        }
+
+        private String email(Object dto) {
+            String email = dto instanceof LeadDTO ? ((LeadDTO) dto).getEmail() : ((CustomerDTO) dto).getEmail();
+            return email != null ? email.trim() : null;
+        }
+    }
+
+    private static final class Pending {
+        private final long number;
+        private final String raw;
+        private final Object dto;
+        private final String emailKey;
+
+        Pending(long number, String raw, Object dto, String emailKey) {
+            this.number = number;
+            this.raw = raw;
+            this.dto = dto;
+            this.emailKey = emailKey;
+        }
+    }
+
+    // ========== Side effects ==========
+
+    private void sendDigests(Run run) {
+        String noun = LEADS.equals(run.job.getType()) ? "Lead" : "Customer";
+        for (Map.Entry<Long, Integer> entry : run.assigned.entrySet()) {
+            int count = entry.getValue();
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("recipientUserId", entry.getKey());
+            notification.put("type", "IN_APP");
+            notification.put("title", count == 1 ? "New " + noun + " Assigned"
+                    : count + " New " + noun + "s Assigned");
+            notification.put("message", "You have been assigned " + count + " new " + noun.toLowerCase()
+                    + (count == 1 ? "" : "s") + " from a bulk import");
+            notification.put("source", "CUSTOMER_SERVICE");
+            notification.put("referenceType", "IMPORT");
+            notification.put("referenceId", run.job.getId());
+            notification.put("status", "PENDING");
+            notificationDispatcher.enqueue(notification);
+        }
+    }
+
+    /**
+     * One counter rebuild instead of an analytics event per imported row.
+     */
+    private void rebuildAnalytics(String companyId) {
+        try {
+            analyticsCounterClient.rebuildCounters(companyId);
+        } catch (Exception e) {
+            logger.warn("Failed to rebuild analytics counters after import for company {}: {}", companyId,
+                    e.getMessage());
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private static String format(String format, String contentType) {
+        String value = format != null ? format : contentType;
+        if (value != null) {
+            value = value.toUpperCase(Locale.ROOT);
+            if (value.contains("NDJSON") || value.contains("JSON")) {
+                return ImportRowReader.NDJSON;
+            }
+            if (value.contains("CSV")) {
+                return ImportRowReader.CSV;
+            }
+        }
+        throw new RuntimeException("Unknown import format, pass format=csv or format=ndjson");
+    }
+
+    private Path spool(InputStream body) {
+        Path file = null;
+        try {
+            Path directory = Paths.get(dir);
+            Files.createDirectories(directory);
+            file = Files.createTempFile(directory, "import-", ".tmp");
+            long total = 0;
+            byte[] buffer = new byte[1 << 16];
+            try (InputStream in = body; OutputStream out = Files.newOutputStream(file)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new RuntimeException("Upload exceeds the import limit of " + maxBytes + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            return file;
+        } catch (IOException e) {
+            delete(file);
+            throw new RuntimeException("Could not store upload: " + e.getMessage());
+        } catch (RuntimeException e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete import file {}: {}", file, e.getMessage());
+        }
+    }
+
+    static String normalize(String column) {
+        StringBuilder normalized = new StringBuilder(column.length());
+        for (int i = 0; i < column.length(); i++) {
+            char c = column.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    private static Map<String, String> columns(Class<?> dtoType) {
+        Map<String, String> columns = new HashMap<>();
+        for (PropertyDescriptor property : BeanUtils.getPropertyDescriptors(dtoType)) {
+            String name = property.getName();
+            if (property.getWriteMethod() != null && !"id".equals(name) && !"companyId".equals(name)) {
+                columns.put(normalize(name), name);
+            }
+        }
+        return columns;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.crm.customer.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.crm.customer.dto.CursorPage;
+
+/**
+ * Keyset pagination over (createdAt, id), newest first.
+ *
+ * The cursor is an opaque token holding the last row's createdAt and id; the
+ * next page starts strictly after it, so a page costs one index range read on
+ * (companyId, createdAt, id) however deep the client has paged.
+ */
+@Component
+public class KeysetPager {
+
+    @Value("${app.paging.default-size:50}")
+    private int defaultSize;
+
+    @Value("${app.paging.max-size:200}")
+    private int maxSize;
+
+    /**
+     * Loads one page. firstPage and afterCursor must order by createdAt DESC, id DESC.
+     */
+    public <T> CursorPage<T> page(String cursor, Integer size, Function<Pageable, List<T>> firstPage,
+            AfterCursor<T> afterCursor, Function<T, LocalDateTime> createdAt, Function<T, Long> id) {
+        int requested = size != null ? size : defaultSize;
+        int limit = requested < 1 ? 1 : Math.min(requested, maxSize);
+        // One extra row tells whether another page exists
+        Pageable pageable = PageRequest.of(0, limit + 1);
+        List<T> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = firstPage.apply(pageable);
+        } else {
+            String[] key = decode(cursor);
+            rows = afterCursor.find(LocalDateTime.parse(key[0]), Long.parseLong(key[1]), pageable);
+        }
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        T last = items.get(limit - 1);
+        return new CursorPage<>(items, encode(createdAt.apply(last), id.apply(last)));
+    }
+
+    static String encode(LocalDateTime createdAt, Long id) {
+        String key = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String[] decode(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (key.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            LocalDateTime.parse(key[0]);
+            Long.parseLong(key[1]);
+            return key;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    @FunctionalInterface
+    public interface AfterCursor<T> {
+        List<T> find(LocalDateTime createdAt, Long id, Pageable pageable);
+    }
+}
@@ -0,0 +1,338 @@
+package com.crm.customer.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.dto.AssignmentRuleDTO;
+import com.crm.customer.entity.AssignmentMember;
+import com.crm.customer.entity.AssignmentRule;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.AssignmentMemberRepository;
+import com.crm.customer.repository.AssignmentRuleRepository;
+import com.crm.customer.repository.LeadRepository;
+
+/**
+ * Picks an assignee for new leads that arrive without one.
+ *
+ * Each tenant has a rule (ROUND_ROBIN, LEAST_OPEN or WEIGHTED_CAPACITY) over
+ * its active members. Open leads (NEW, CONTACTED, QUALIFIED) per user are
+ * kept in atomic counters, seeded with one GROUP BY the first time a tenant
+ * is seen and adjusted by every lead write, so choosing an assignee never
+ * counts rows. A pick claims its slot with a compare-and-set on the chosen
+ * user's counter and retries when another request got there first, so
+ * concurrent assignments see each other. Counters are recounted and the rule
+ * reloaded from the database every app.assignment.resync-ms to absorb writes
+ * made by other instances; a rule changed on another instance is also picked
+ * up within app.assignment.rule-refresh-ms by comparing its updatedAt.
+ */
+@Service
+public class LeadAssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadAssignmentService.class);
+
+    public static final String ROUND_ROBIN = "ROUND_ROBIN";
+    public static final String LEAST_OPEN = "LEAST_OPEN";
+    public static final String WEIGHTED_CAPACITY = "WEIGHTED_CAPACITY";
+
+    private static final Set<String> STRATEGIES = new HashSet<>(
+            Arrays.asList(ROUND_ROBIN, LEAST_OPEN, WEIGHTED_CAPACITY));
+
+    static final Set<Lead.LeadStatus> OPEN = Collections.unmodifiableSet(
+            EnumSet.of(Lead.LeadStatus.NEW, Lead.LeadStatus.CONTACTED, Lead.LeadStatus.QUALIFIED));
+
+    private static final int MAX_CLAIM_ATTEMPTS = 64;
+
+    @Autowired
+    private AssignmentRuleRepository ruleRepository;
+
+    @Autowired
+    private AssignmentMemberRepository memberRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    // ========== Assignment ==========
+
+    /**
+     * Claims an assignee for a new open lead of the company, or null when the
+     * company has no enabled rule with active members. The claim already
+     * counts the lead; call {@link #release} if it is not saved after all.
+     */
+    public Long assign(String companyId) {
+        if (companyId == null) {
+            return null;
+        }
+        Tenant tenant = tenant(companyId);
+        Member[] members = tenant.members;
+        if (!tenant.enabled || members.length == 0) {
+            return null;
+        }
+        if (ROUND_ROBIN.equals(tenant.strategy)) {
+            Member member = members[(int) Math.floorMod(tenant.cursor.getAndIncrement(), (long) members.length)];
+            tenant.counter(member.userId).incrementAndGet();
+            return member.userId;
+        }
+
+        boolean weighted = WEIGHTED_CAPACITY.equals(tenant.strategy);
+        AtomicInteger counter = null;
+        Member best = null;
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            // Rotating start so ties spread instead of always going to the first member
+            int start = (int) Math.floorMod(tenant.cursor.getAndIncrement(), (long) members.length);
+            best = null;
+            int bestCount = 0;
+            double bestLoad = 0;
+            for (int i = 0; i < members.length; i++) {
+                Member member = members[(start + i) % members.length];
+                int count = tenant.counter(member.userId).get();
+                double load = weighted ? (double) count / member.capacity : count;
+                if (best == null || load < bestLoad) {
+                    best = member;
+                    bestCount = count;
+                    bestLoad = load;
+                }
+            }
+            counter = tenant.counter(best.userId);
+            if (counter.compareAndSet(bestCount, bestCount + 1)) {
+                return best.userId;
+            }
+        }
+        // Heavy contention: settle for the last choice rather than spin
+        counter.incrementAndGet();
+        return best.userId;
+    }
+
+    /**
+     * Gives back a claim from {@link #assign} whose lead was not saved.
+     */
+    public void release(String companyId, Long userId) {
+        if (companyId != null && userId != null) {
+            tenant(companyId).counter(userId).decrementAndGet();
+        }
+    }
+
+    /**
+     * Adjusts the counters after a lead write that did not go through
+     * {@link #assign}; pass nulls for the side that does not exist (before a
+     * create, after a delete).
+     */
+    public void changed(String companyId, Long oldAssignee, Lead.LeadStatus oldStatus, Long newAssignee,
+            Lead.LeadStatus newStatus) {
+        if (companyId == null) {
+            return;
+        }
+        boolean wasOpen = oldAssignee != null && OPEN.contains(oldStatus);
+        boolean isOpen = newAssignee != null && OPEN.contains(newStatus);
+        if (wasOpen && isOpen && oldAssignee.equals(newAssignee)) {
+            return;
+        }
+        if (!wasOpen && !isOpen) {
+            return;
+        }
+        Tenant tenant = tenant(companyId);
+        if (wasOpen) {
+            tenant.counter(oldAssignee).decrementAndGet();
+        }
+        if (isOpen) {
+            tenant.counter(newAssignee).incrementAndGet();
+        }
+    }
+
+    // ========== Rules ==========
+
+    /**
+     * The company's rule, members and their current open-lead counts.
+     */
+    public Map<String, Object> getRule(String companyId) {
+        Tenant tenant = tenant(companyId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("companyId", companyId);
+        result.put("strategy", tenant.strategy);
+        result.put("enabled", tenant.enabled);
+        List<Map<String, Object>> members = new ArrayList<>();
+        for (AssignmentMember member : memberRepository.findByCompanyIdOrderByUserIdAsc(companyId)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("userId", member.getUserId());
+            entry.put("capacity", member.getCapacity());
+            entry.put("active", member.isActive());
+            entry.put("openLeads", tenant.counter(member.getUserId()).get());
+            members.add(entry);
+        }
+        result.put("members", members);
+        return result;
+    }
+
+    /**
+     * Replaces the company's rule and member list.
+     */
+    public Map<String, Object> updateRule(String companyId, AssignmentRuleDTO dto) {
+        String strategy = dto.getStrategy() == null ? ROUND_ROBIN : dto.getStrategy().toUpperCase();
+        if (!STRATEGIES.contains(strategy)) {
+            throw new RuntimeException("Unknown assignment strategy: " + dto.getStrategy()
+                    + ", use ROUND_ROBIN, LEAST_OPEN or WEIGHTED_CAPACITY");
+        }
+        transactionTemplate.execute(status -> {
+            AssignmentRule rule = ruleRepository.findByCompanyId(companyId).orElseGet(AssignmentRule::new);
+            rule.setCompanyId(companyId);
+            rule.setStrategy(strategy);
+            rule.setEnabled(dto.getEnabled() == null || dto.getEnabled());
+            // Bumped even when only the members change, so other instances reload them
+            rule.setUpdatedAt(LocalDateTime.now());
+            ruleRepository.save(rule);
+
+            memberRepository.deleteByCompanyId(companyId);
+            Map<Long, AssignmentMember> members = new LinkedHashMap<>();
+            if (dto.getMembers() != null) {
+                for (AssignmentRuleDTO.Member member : dto.getMembers()) {
+                    if (member.getUserId() == null) {
+                        throw new RuntimeException("Every assignment member needs a userId");
+                    }
+                    int capacity = member.getCapacity() == null ? 1 : member.getCapacity();
+                    if (capacity < 1) {
+                        throw new RuntimeException("Capacity must be at least 1 for user " + member.getUserId());
+                    }
+                    members.put(member.getUserId(), new AssignmentMember(null, companyId, member.getUserId(),
+                            capacity, member.getActive() == null || member.getActive()));
+                }
+            }
+            memberRepository.saveAll(members.values());
+            return null;
+        });
+
+        Tenant tenant = tenants.get(companyId);
+        if (tenant != null) {
+            loadRule(companyId, tenant);
+        }
+        return getRule(companyId);
+    }
+
+    /**
+     * Recounts the company's open leads per user from the database.
+     */
+    public Map<String, Object> recount(String companyId) {
+        Tenant tenant = tenant(companyId);
+        seed(companyId, tenant);
+        return getRule(companyId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.assignment.resync-ms:600000}",
+            initialDelayString = "${app.assignment.resync-ms:600000}")
+    public void resync() {
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            try {
+                loadRule(entry.getKey(), entry.getValue());
+                seed(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                logger.warn("Assignment counter resync failed for company {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reloads the rules that were changed since this instance loaded them.
+     */
+    @Scheduled(fixedDelayString = "${app.assignment.rule-refresh-ms:30000}",
+            initialDelayString = "${app.assignment.rule-refresh-ms:30000}")
+    public void refreshRules() {
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            try {
+                Tenant tenant = entry.getValue();
+                if (!Objects.equals(ruleRepository.findUpdatedAtByCompanyId(entry.getKey()), tenant.ruleUpdatedAt)) {
+                    loadRule(entry.getKey(), tenant);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Assignment rule refresh failed for company {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    // ========== Tenants ==========
+
+    private Tenant tenant(String companyId) {
+        Tenant tenant = tenants.get(companyId);
+        if (tenant != null) {
+            return tenant;
+        }
+        // Loaded outside the map so the queries do not run under its bin lock; a racing load is discarded
+        Tenant fresh = new Tenant();
+        loadRule(companyId, fresh);
+        seed(companyId, fresh);
+        Tenant existing = tenants.putIfAbsent(companyId, fresh);
+        return existing != null ? existing : fresh;
+    }
+
+    private void loadRule(String companyId, Tenant tenant) {
+        AssignmentRule rule = ruleRepository.findByCompanyId(companyId).orElse(null);
+        List<Member> members = new ArrayList<>();
+        for (AssignmentMember member : memberRepository.findByCompanyIdOrderByUserIdAsc(companyId)) {
+            if (member.isActive()) {
+                members.add(new Member(member.getUserId(), Math.max(1, member.getCapacity())));
+            }
+        }
+        tenant.strategy = rule != null ? rule.getStrategy() : ROUND_ROBIN;
+        tenant.enabled = rule != null && rule.isEnabled();
+        tenant.members = members.toArray(new Member[0]);
+        tenant.ruleUpdatedAt = rule != null ? rule.getUpdatedAt() : null;
+    }
+
+    private void seed(String companyId, Tenant tenant) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object[] row : leadRepository.countOpenByAssignee(companyId, OPEN)) {
+            counts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        for (Map.Entry<Long, AtomicInteger> entry : tenant.open.entrySet()) {
+            entry.getValue().set(counts.getOrDefault(entry.getKey(), 0));
+        }
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            tenant.counter(entry.getKey()).set(entry.getValue());
+        }
+    }
+
+    private static final class Tenant {
+        final Map<Long, AtomicInteger> open = new ConcurrentHashMap<>();
+        final AtomicLong cursor = new AtomicLong();
+        volatile String strategy = ROUND_ROBIN;
+        volatile boolean enabled;
+        volatile Member[] members = new Member[0];
+        volatile LocalDateTime ruleUpdatedAt;
+
+        AtomicInteger counter(Long userId) {
+            return open.computeIfAbsent(userId, id -> new AtomicInteger());
+        }
+    }
+
+    private static final class Member {
+        final long userId;
+        final int capacity;
+
+        Member(long userId, int capacity) {
+            this.userId = userId;
+            this.capacity = capacity;
+        }
+    }
+}
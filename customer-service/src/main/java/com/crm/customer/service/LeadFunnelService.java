@@ -0,0 +1,486 @@
+package com.crm.customer.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.entity.FunnelAggregate;
+import com.crm.customer.entity.FunnelWatermark;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.entity.LeadFunnelState;
+import com.crm.customer.entity.LeadHistory;
+import com.crm.customer.repository.FunnelAggregateRepository;
+import com.crm.customer.repository.FunnelWatermarkRepository;
+import com.crm.customer.repository.LeadFunnelStateRepository;
+import com.crm.customer.repository.LeadHistoryRepository;
+
+/**
+ * Lead funnel computed incrementally from lead_history.
+ *
+ * A scheduled job reads history rows past a watermark in primary key order,
+ * keeps one small state row per lead (current status, when it entered it,
+ * statuses ever reached) and folds each status change into per-company
+ * monthly aggregates. Every batch commits the aggregates, lead states and the
+ * new watermark together, so history is never counted twice.
+ *
+ * Ids are handed out when a row is inserted, not when it commits, so a row
+ * can become visible after one with a higher id (an import chunk still
+ * committing, the write-behind recorder of another instance). The watermark
+ * therefore stops at the first row younger than app.funnel.commit-lag-ms,
+ * which has to exceed the longest transaction that writes history plus the
+ * recorder's queueing delay. Funnel reads only touch the aggregate rows of
+ * the requested months.
+ */
+@Service
+public class LeadFunnelService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadFunnelService.class);
+
+    private static final String WATERMARK = "lead-funnel";
+    private static final String FIRST_REACH = "*";
+    private static final String CREATED_PREFIX = "Lead Created with Status: ";
+    private static final List<String> FIELDS = Arrays.asList("STATUS", "CREATED");
+    private static final int HISTOGRAM_BUCKETS = 20; // log2 minutes, the last one open-ended (~1 year+)
+    private static final int MAX_MONTHS = 120;
+
+    /** Stages of the main funnel, in order; UNQUALIFIED is reported as a drop-off. */
+    private static final Lead.LeadStatus[] STAGES = { Lead.LeadStatus.NEW, Lead.LeadStatus.CONTACTED,
+            Lead.LeadStatus.QUALIFIED, Lead.LeadStatus.CONVERTED };
+
+    @Value("${app.funnel.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.funnel.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.funnel.max-batches-per-run:100}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.funnel.commit-lag-ms:300000}")
+    private long commitLagMs;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private LeadHistoryRepository leadHistoryRepository;
+
+    @Autowired
+    private LeadFunnelStateRepository stateRepository;
+
+    @Autowired
+    private FunnelAggregateRepository aggregateRepository;
+
+    @Autowired
+    private FunnelWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${app.funnel.interval-ms:60000}",
+            initialDelayString = "${app.funnel.initial-delay-ms:30000}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            process();
+        } catch (Exception e) {
+            logger.warn("Lead funnel update failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Processes pending history in batches and returns the number of rows consumed.
+     */
+    public long process() {
+        long processed = 0;
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            Integer rows = transactionTemplate.execute(status -> processBatch());
+            processed += rows != null ? rows : 0;
+            if (rows == null || rows < batchSize) {
+                break;
+            }
+        }
+        if (processed > 0) {
+            logger.info("Lead funnel processed {} history rows", processed);
+        }
+        return processed;
+    }
+
+    /**
+     * Recomputes one company's funnel from its lead_history up to the
+     * watermark; later rows are left to the scheduled run. Runs in one
+     * transaction holding the watermark lock, so the scheduled run waits
+     * rather than folding rows into a half-replayed state.
+     */
+    public long rebuild(String companyId) {
+        Long replayed = transactionTemplate.execute(status -> {
+            long through = lockWatermark().getLastHistoryId();
+            aggregateRepository.deleteByCompanyId(companyId);
+            stateRepository.deleteByCompanyId(companyId);
+            long after = 0;
+            long rows = 0;
+            List<LeadHistory> batch;
+            do {
+                batch = leadHistoryRepository.findByCompanyIdAndIdGreaterThanAndIdLessThanEqualOrderByIdAsc(
+                        companyId, after, through, PageRequest.of(0, batchSize));
+                if (!batch.isEmpty()) {
+                    fold(batch);
+                    after = batch.get(batch.size() - 1).getId();
+                    rows += batch.size();
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            } while (batch.size() == batchSize);
+            return rows;
+        });
+        long rows = replayed != null ? replayed : 0;
+        logger.info("Lead funnel for company {} rebuilt from {} history rows", companyId, rows);
+        return rows;
+    }
+
+    /**
+     * Funnel for the months from..to (yyyy-MM, inclusive; default the trailing
+     * twelve months). Stage counts are leads that first reached the stage in
+     * the range; transition times are in hours.
+     */
+    public Map<String, Object> getFunnel(String companyId, String from, String to) {
+        YearMonth end = to != null ? parseMonth(to) : YearMonth.now();
+        YearMonth start = from != null ? parseMonth(from) : end.minusMonths(11);
+        if (end.isBefore(start)) {
+            throw new RuntimeException("'to' must not be before 'from'");
+        }
+        if (start.plusMonths(MAX_MONTHS).isBefore(end.plusMonths(1))) {
+            throw new RuntimeException("Range too large, max " + MAX_MONTHS + " months");
+        }
+
+        Map<String, Long> reached = new HashMap<>();
+        Map<String, Transition> transitions = new LinkedHashMap<>();
+        for (FunnelAggregate row : aggregateRepository.findByCompanyIdAndPeriodBetween(companyId, start.toString(),
+                end.toString())) {
+            if (FIRST_REACH.equals(row.getFromStatus())) {
+                reached.merge(row.getToStatus(), row.getTransitions(), Long::sum);
+            } else {
+                transitions.computeIfAbsent(row.getFromStatus() + "|" + row.getToStatus(),
+                        key -> new Transition(row.getFromStatus(), row.getToStatus())).merge(row);
+            }
+        }
+
+        List<Map<String, Object>> stages = new ArrayList<>();
+        long first = reached.getOrDefault(STAGES[0].name(), 0L);
+        long previous = first;
+        for (int i = 0; i < STAGES.length; i++) {
+            long count = reached.getOrDefault(STAGES[i].name(), 0L);
+            Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("status", STAGES[i].name());
+            stage.put("reached", count);
+            stage.put("conversionFromPrevious", i == 0 ? null : rate(count, previous));
+            stage.put("conversionFromFirst", rate(count, first));
+            stages.add(stage);
+            previous = count;
+        }
+
+        List<Map<String, Object>> transitionList = new ArrayList<>();
+        for (Transition transition : transitions.values()) {
+            transitionList.add(transition.toMap());
+        }
+
+        Map<String, Object> funnel = new HashMap<>();
+        funnel.put("companyId", companyId);
+        funnel.put("from", start.toString());
+        funnel.put("to", end.toString());
+        funnel.put("stages", stages);
+        funnel.put("unqualified", reached.getOrDefault(Lead.LeadStatus.UNQUALIFIED.name(), 0L));
+        funnel.put("transitions", transitionList);
+        funnel.put("processedThrough",
+                watermarkRepository.findById(WATERMARK).map(FunnelWatermark::getLastHistoryId).orElse(0L));
+        return funnel;
+    }
+
+    // ========== Batch processing ==========
+
+    private int processBatch() {
+        FunnelWatermark watermark = lockWatermark();
+        List<LeadHistory> read = leadHistoryRepository.findByIdGreaterThanOrderByIdAsc(watermark.getLastHistoryId(),
+                PageRequest.of(0, batchSize));
+        // Rows younger than the lag may still have uncommitted rows with lower ids before them
+        LocalDateTime horizon = LocalDateTime.now().minusNanos(commitLagMs * 1_000_000L);
+        int safe = 0;
+        while (safe < read.size() && (read.get(safe).getChangedAt() == null
+                || read.get(safe).getChangedAt().isBefore(horizon))) {
+            safe++;
+        }
+        if (safe == 0) {
+            return 0;
+        }
+        List<LeadHistory> rows = read.subList(0, safe);
+        fold(rows);
+        watermark.setLastHistoryId(rows.get(rows.size() - 1).getId());
+        watermarkRepository.save(watermark);
+        return safe;
+    }
+
+    /**
+     * Folds history rows, in id order, into the lead states and aggregates.
+     */
+    private void fold(List<LeadHistory> history) {
+        List<LeadHistory> rows = new ArrayList<>(history.size());
+        for (LeadHistory row : history) {
+            if (FIELDS.contains(row.getFieldChanged())) {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        Set<Long> leadIds = new HashSet<>();
+        for (LeadHistory row : rows) {
+            leadIds.add(row.getLeadId());
+        }
+        Map<Long, LeadFunnelState> states = new HashMap<>();
+        for (LeadFunnelState state : stateRepository.findAllById(leadIds)) {
+            states.put(state.getLeadId(), state);
+        }
+
+        Map<String, FunnelAggregate> deltas = new LinkedHashMap<>();
+        for (LeadHistory row : rows) {
+            apply(row, states, deltas);
+        }
+
+        for (FunnelAggregate delta : deltas.values()) {
+            FunnelAggregate stored = aggregateRepository
+                    .findByCompanyIdAndPeriodAndFromStatusAndToStatus(delta.getCompanyId(), delta.getPeriod(),
+                            delta.getFromStatus(), delta.getToStatus())
+                    .orElse(null);
+            if (stored == null) {
+                aggregateRepository.save(delta);
+            } else {
+                stored.setTransitions(stored.getTransitions() + delta.getTransitions());
+                stored.setTimedTransitions(stored.getTimedTransitions() + delta.getTimedTransitions());
+                stored.setTotalMinutes(stored.getTotalMinutes() + delta.getTotalMinutes());
+                stored.setHistogram(formatHistogram(
+                        addHistograms(parseHistogram(stored.getHistogram()), parseHistogram(delta.getHistogram()))));
+            }
+        }
+        stateRepository.saveAll(states.values());
+    }
+
+    private void apply(LeadHistory row, Map<Long, LeadFunnelState> states, Map<String, FunnelAggregate> deltas) {
+        boolean created = "CREATED".equals(row.getFieldChanged());
+        Lead.LeadStatus to = parseStatus(created ? createdStatus(row.getNewValue()) : row.getNewValue());
+        if (to == null || row.getCompanyId() == null) {
+            return;
+        }
+        LocalDateTime at = row.getChangedAt() != null ? row.getChangedAt() : LocalDateTime.now();
+        String period = YearMonth.from(at).toString();
+
+        LeadFunnelState state = states.computeIfAbsent(row.getLeadId(), id -> {
+            LeadFunnelState fresh = new LeadFunnelState();
+            fresh.setLeadId(id);
+            return fresh;
+        });
+        state.setCompanyId(row.getCompanyId());
+
+        if (!created) {
+            Lead.LeadStatus from = parseStatus(state.getStatus() != null ? state.getStatus() : row.getOldValue());
+            if (from == to) {
+                return;
+            }
+            if (from != null) {
+                // Leads whose creation predates the history table still count as having been in their old status
+                reach(state, from, row.getCompanyId(), period, deltas);
+                FunnelAggregate delta = delta(deltas, row.getCompanyId(), period, from.name(), to.name());
+                delta.setTransitions(delta.getTransitions() + 1);
+                if (state.getEnteredAt() != null && from.name().equals(state.getStatus())) {
+                    long minutes = Math.max(0, Duration.between(state.getEnteredAt(), at).toMinutes());
+                    long[] histogram = parseHistogram(delta.getHistogram());
+                    histogram[bucketOf(minutes)]++;
+                    delta.setHistogram(formatHistogram(histogram));
+                    delta.setTimedTransitions(delta.getTimedTransitions() + 1);
+                    delta.setTotalMinutes(delta.getTotalMinutes() + minutes);
+                }
+            }
+        }
+        reach(state, to, row.getCompanyId(), period, deltas);
+        state.setStatus(to.name());
+        state.setEnteredAt(at);
+    }
+
+    private void reach(LeadFunnelState state, Lead.LeadStatus status, String companyId, String period,
+            Map<String, FunnelAggregate> deltas) {
+        int bit = 1 << status.ordinal();
+        if ((state.getReachedMask() & bit) == 0) {
+            state.setReachedMask(state.getReachedMask() | bit);
+            FunnelAggregate delta = delta(deltas, companyId, period, FIRST_REACH, status.name());
+            delta.setTransitions(delta.getTransitions() + 1);
+        }
+    }
+
+    private FunnelAggregate delta(Map<String, FunnelAggregate> deltas, String companyId, String period,
+            String from, String to) {
+        return deltas.computeIfAbsent(companyId + "|" + period + "|" + from + "|" + to, key -> {
+            FunnelAggregate aggregate = new FunnelAggregate();
+            aggregate.setCompanyId(companyId);
+            aggregate.setPeriod(period);
+            aggregate.setFromStatus(from);
+            aggregate.setToStatus(to);
+            return aggregate;
+        });
+    }
+
+    private FunnelWatermark lockWatermark() {
+        return watermarkRepository.findForUpdate(WATERMARK).orElseGet(() -> {
+            watermarkRepository.saveAndFlush(new FunnelWatermark(WATERMARK, 0, null));
+            return watermarkRepository.findForUpdate(WATERMARK)
+                    .orElseThrow(() -> new RuntimeException("Funnel watermark missing"));
+        });
+    }
+
+    // ========== Helpers ==========
+
+    private static String createdStatus(String value) {
+        return value != null && value.startsWith(CREATED_PREFIX) ? value.substring(CREATED_PREFIX.length()) : null;
+    }
+
+    private static Lead.LeadStatus parseStatus(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Lead.LeadStatus.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static YearMonth parseMonth(String value) {
+        try {
+            return value.length() == 7 ? YearMonth.parse(value) : YearMonth.from(LocalDate.parse(value));
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid month: " + value);
+        }
+    }
+
+    private static Double rate(long count, long base) {
+        return base > 0 ? Math.round(count * 10000.0 / base) / 100.0 : null;
+    }
+
+    /** Bucket 0 holds durations under 2 minutes, bucket i those of [2^i, 2^(i+1)) minutes. */
+    static int bucketOf(long minutes) {
+        int bucket = minutes < 2 ? 0 : 63 - Long.numberOfLeadingZeros(minutes);
+        return Math.min(bucket, HISTOGRAM_BUCKETS - 1);
+    }
+
+    static long[] parseHistogram(String value) {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        if (value == null || value.isEmpty()) {
+            return histogram;
+        }
+        String[] parts = value.split(",");
+        for (int i = 0; i < parts.length && i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = Long.parseLong(parts[i]);
+        }
+        return histogram;
+    }
+
+    static String formatHistogram(long[] histogram) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(histogram[i]);
+        }
+        return text.toString();
+    }
+
+    private static long[] addHistograms(long[] into, long[] add) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += add[i];
+        }
+        return into;
+    }
+
+    /**
+     * Median in minutes, interpolated linearly inside the bucket that holds it.
+     */
+    static Double median(long[] histogram) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return null;
+        }
+        double rank = total / 2.0;
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] > 0 && seen + histogram[i] >= rank) {
+                double lower = i == 0 ? 0 : Math.pow(2, i);
+                double upper = Math.pow(2, i + 1);
+                return lower + (upper - lower) * (rank - seen) / histogram[i];
+            }
+            seen += histogram[i];
+        }
+        return Math.pow(2, histogram.length);
+    }
+
+    private static Double hours(Double minutes) {
+        return minutes != null ? Math.round(minutes / 60.0 * 100) / 100.0 : null;
+    }
+
+    private static final class Transition {
+        private final String from;
+        private final String to;
+        private final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        private long count;
+        private long timed;
+        private long totalMinutes;
+
+        private Transition(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void merge(FunnelAggregate row) {
+            count += row.getTransitions();
+            timed += row.getTimedTransitions();
+            totalMinutes += row.getTotalMinutes();
+            addHistograms(histogram, parseHistogram(row.getHistogram()));
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("from", from);
+            item.put("to", to);
+            item.put("count", count);
+            item.put("avgHours", timed > 0 ? hours((double) totalMinutes / timed) : null);
+            item.put("medianHours", hours(median(histogram)));
+            return item;
+        }
+    }
+}
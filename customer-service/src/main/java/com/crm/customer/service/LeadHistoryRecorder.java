@@ -0,0 +1,215 @@
+package com.crm.customer.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Write-behind recorder for lead_history.
+ *
+ * Inside a transaction, changes are collected and handed over only when it
+ * commits (and dropped when it rolls back); outside one they are handed over
+ * at once. A single writer thread groups whatever has been handed over
+ * within max-delay-ms, across requests, into one multi-row INSERT of up to
+ * batch-size rows, in the order they were recorded. Ids do not follow commit
+ * order across writers (imports insert their CREATED rows directly, and
+ * every instance has its own writer), so {@link LeadFunnelService} keeps its
+ * watermark behind a commit lag instead of relying on them. A full queue
+ * blocks the caller rather than losing history.
+ */
+@Service
+public class LeadHistoryRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadHistoryRecorder.class);
+
+    static final String INSERT_HISTORY = "INSERT INTO lead_history "
+            + "(lead_id, field_changed, old_value, new_value, changed_by, company_id, changed_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Value("${app.history.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.history.max-delay-ms:50}")
+    private long maxDelayMs;
+
+    @Value("${app.history.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${app.history.max-retries:5}")
+    private int maxRetries;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private BlockingQueue<Object[]> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    private final Object handOverLock = new Object();
+
+    // Rows handed over and rows written (or given up on); guarded by this
+    private long handedOver;
+    private long written;
+
+    @PostConstruct
+    void start() {
+        queue = new LinkedBlockingQueue<>(capacity);
+        running = true;
+        writer = new Thread(this::run, "lead-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Records one change of a lead.
+     */
+    public void record(Long leadId, String field, String oldValue, String newValue, Long changedBy,
+            String companyId) {
+        Object[] row = { leadId, field, ImportRowReader.truncate(oldValue), ImportRowReader.truncate(newValue),
+                changedBy, companyId, Timestamp.valueOf(LocalDateTime.now()) };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            handOver(Collections.singletonList(row));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Object[]> rows = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LeadHistoryRecorder.this);
+                    if (status == STATUS_COMMITTED) {
+                        handOver(rows);
+                    }
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+    }
+
+    /**
+     * Waits until everything recorded before this call is in the table, so a
+     * read of the history sees it; gives up after timeoutMs.
+     */
+    public synchronized void awaitWritten(long timeoutMs) {
+        long target = handedOver;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            while (written < target) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+                wait(wait);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOver(List<Object[]> rows) {
+        // Serialised so the handed-over count matches queue order for awaitWritten
+        synchronized (handOverLock) {
+            try {
+                for (Object[] row : rows) {
+                    queue.put(row);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while queueing lead history; {} rows may be lost", rows.size());
+            }
+            synchronized (this) {
+                handedOver += rows.size();
+            }
+        }
+    }
+
+    private void run() {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Object[] first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Object[] next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                if (running) {
+                    logger.warn("Lead history writer interrupted, still running");
+                }
+            }
+        }
+
+        // Shutting down: write whatever is still queued
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            write(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+        }
+    }
+
+    private void write(List<Object[]> batch) {
+        for (int attempt = 0;; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_HISTORY, batch);
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !running) {
+                    logger.error("Dropping {} lead history rows after {} attempts: {}", batch.size(), attempt + 1,
+                            e.getMessage());
+                    break;
+                }
+                try {
+                    Thread.sleep(100L << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        synchronized (this) {
+            written += batch.size();
+            notifyAll();
+        }
+    }
+}
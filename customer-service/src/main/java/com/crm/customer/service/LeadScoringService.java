@@ -0,0 +1,472 @@
+package com.crm.customer.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.crm.customer.entity.Activity;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.entity.LeadScoringWeights;
+import com.crm.customer.entity.ScoringJob;
+import com.crm.customer.repository.LeadScoringWeightsRepository;
+import com.crm.customer.repository.ScoringJobRepository;
+
+/**
+ * Keeps {@link Lead#getScore()} up to date from the tenant's weights.
+ *
+ * A score is fit points (from the lead's own fields) plus engagement points
+ * (the sum over its calls, meetings and emails), clamped to 0-100; both parts
+ * are stored on the lead. A new activity adds its points in one atomic UPDATE
+ * inside the transaction that inserts it, and a field change recomputes only
+ * the fit part, so neither reads the lead's activities. Changing the weights
+ * queues a full recompute that rescores the tenant in id-range chunks on
+ * several threads. Weights are cached per instance for weights-ttl-ms, so a
+ * change made on another instance is picked up within that time.
+ */
+@Service
+public class LeadScoringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeadScoringService.class);
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final Set<String> ANSWERED = new HashSet<>(Arrays.asList("answered", "connected", "completed"));
+    private static final Set<String> MISSED = new HashSet<>(
+            Arrays.asList("missed", "no answer", "no_answer", "voicemail", "busy", "failed"));
+
+    // score is assigned first: MySQL evaluates SET left to right against already-updated columns
+    private static final String ADD_ENGAGEMENT = "UPDATE leads SET "
+            + "score = LEAST(100, GREATEST(0, COALESCE(fit_points, 0) + COALESCE(engagement_points, 0) + ?)), "
+            + "engagement_points = COALESCE(engagement_points, 0) + ? WHERE id = ? AND company_id = ?";
+
+    private static final String SET_FIT = "UPDATE leads SET "
+            + "score = LEAST(100, GREATEST(0, ? + COALESCE(engagement_points, 0))), fit_points = ? WHERE id = ?";
+
+    private static final String LOCK_CHUNK = "SELECT id, email, phone, title, company, rating, status, "
+            + "fit_points, engagement_points, score FROM leads "
+            + "WHERE company_id = ? AND id > ? AND id <= ? FOR UPDATE";
+
+    private static final String CHUNK_ACTIVITIES = "SELECT lead_id, type, duration, outcome FROM activities "
+            + "WHERE company_id = ? AND lead_id > ? AND lead_id <= ? AND is_deleted = false";
+
+    private static final String SET_SCORE = "UPDATE leads SET fit_points = ?, engagement_points = ?, score = ? "
+            + "WHERE id = ?";
+
+    @Value("${app.scoring.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.scoring.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.scoring.weights-ttl-ms:30000}")
+    private long weightsTtlMs;
+
+    @Autowired
+    private LeadScoringWeightsRepository weightsRepository;
+
+    @Autowired
+    private ScoringJobRepository jobRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("scoringExecutor")
+    private ExecutorService scoringExecutor;
+
+    @Autowired
+    @Qualifier("scoringChunkExecutor")
+    private ExecutorService chunkExecutor;
+
+    private final Map<String, CachedWeights> weights = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ========== Weights ==========
+
+    /**
+     * The tenant's weights, or the defaults when it has never set any.
+     */
+    public LeadScoringWeights getWeights(String companyId) {
+        CachedWeights cached = weights.get(companyId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < weightsTtlMs) {
+            return cached.weights;
+        }
+        return loadWeights(companyId);
+    }
+
+    private LeadScoringWeights loadWeights(String companyId) {
+        LeadScoringWeights loaded = weightsRepository.findByCompanyId(companyId).orElseGet(() -> {
+            LeadScoringWeights defaults = new LeadScoringWeights();
+            defaults.setCompanyId(companyId);
+            return defaults;
+        });
+        weights.put(companyId, new CachedWeights(loaded));
+        return loaded;
+    }
+
+    /**
+     * Saves the tenant's weights and queues a full recompute under them.
+     */
+    public Map<String, Object> updateWeights(String companyId, LeadScoringWeights update) {
+        LeadScoringWeights existing = weightsRepository.findByCompanyId(companyId).orElseGet(() -> {
+            LeadScoringWeights created = new LeadScoringWeights();
+            created.setCompanyId(companyId);
+            return created;
+        });
+        BeanUtils.copyProperties(update, existing, "id", "companyId", "updatedAt");
+        LeadScoringWeights saved = weightsRepository.save(existing);
+        weights.put(companyId, new CachedWeights(saved));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("weights", saved);
+        result.put("job", submit(companyId));
+        return result;
+    }
+
+    // ========== Online ==========
+
+    /**
+     * Scores a lead that is about to be inserted.
+     */
+    public void score(Lead lead) {
+        if (!enabled || lead.getCompanyId() == null) {
+            return;
+        }
+        int fit = fitPoints(getWeights(lead.getCompanyId()), lead.getEmail(), lead.getPhone(), lead.getTitle(),
+                lead.getCompany(), name(lead.getRating()), name(lead.getStatus()));
+        int engagement = lead.getEngagementPoints() == null ? 0 : lead.getEngagementPoints();
+        lead.setFitPoints(fit);
+        lead.setEngagementPoints(engagement);
+        lead.setScore(clamp(fit + engagement));
+    }
+
+    /**
+     * Recomputes the fit part of a saved lead after its fields changed and
+     * reloads its score.
+     */
+    public void rescore(Lead lead) {
+        if (!enabled || lead.getId() == null || lead.getCompanyId() == null) {
+            return;
+        }
+        int fit = fitPoints(getWeights(lead.getCompanyId()), lead.getEmail(), lead.getPhone(), lead.getTitle(),
+                lead.getCompany(), name(lead.getRating()), name(lead.getStatus()));
+        jdbcTemplate.update(SET_FIT, fit, fit, lead.getId());
+        lead.setFitPoints(fit);
+        lead.setScore(jdbcTemplate.queryForObject("SELECT score FROM leads WHERE id = ?", Integer.class,
+                lead.getId()));
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) an activity's points on its lead.
+     * Call inside the transaction that inserts or deletes the activity, before
+     * touching the activity row, so a running recompute chunk and this update
+     * serialise on the lead's row lock.
+     */
+    public void applyActivity(Activity activity, int sign) {
+        if (!enabled || activity.getLeadId() == null || activity.getCompanyId() == null) {
+            return;
+        }
+        int points = sign * activityPoints(getWeights(activity.getCompanyId()), name(activity.getType()),
+                activity.getDuration(), activity.getOutcome());
+        if (points != 0) {
+            jdbcTemplate.update(ADD_ENGAGEMENT, points, points, activity.getLeadId(), activity.getCompanyId());
+        }
+    }
+
+    /**
+     * Adds the points of new activities to their leads with one batched
+     * UPDATE per lead, in lead id order so concurrent batches lock leads in
+     * the same order. Like {@link #applyActivity}, call before inserting them.
+     */
+    public void applyActivities(List<Activity> activities) {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, int[]> points = new TreeMap<>();
+        Map<Long, String> companies = new HashMap<>();
+        for (Activity activity : activities) {
+            if (activity.getLeadId() == null || activity.getCompanyId() == null) {
+                continue;
+            }
+            points.computeIfAbsent(activity.getLeadId(), id -> new int[1])[0] += activityPoints(
+                    getWeights(activity.getCompanyId()), name(activity.getType()), activity.getDuration(),
+                    activity.getOutcome());
+            companies.put(activity.getLeadId(), activity.getCompanyId());
+        }
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : points.entrySet()) {
+            int value = entry.getValue()[0];
+            if (value != 0) {
+                updates.add(new Object[] { value, value, entry.getKey(), companies.get(entry.getKey()) });
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_ENGAGEMENT, updates);
+        }
+    }
+
+    // ========== Full recompute ==========
+
+    /**
+     * Queues a recompute of every lead of the tenant. The returned job is
+     * QUEUED, or FAILED when the job queue is full.
+     */
+    public ScoringJob submit(String companyId) {
+        ScoringJob job = new ScoringJob();
+        job.setCompanyId(companyId);
+        job.setStatus(QUEUED);
+        ScoringJob saved = jobRepository.save(job);
+        try {
+            scoringExecutor.execute(() -> run(saved.getId()));
+        } catch (RejectedExecutionException e) {
+            saved.setStatus(FAILED);
+            saved.setError("Scoring queue is full, try again later");
+            return jobRepository.save(saved);
+        }
+        return saved;
+    }
+
+    public ScoringJob getJob(Long id) {
+        return jobRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Scoring job not found with id: " + id));
+    }
+
+    public List<ScoringJob> getJobs(String companyId) {
+        return jobRepository.findTop20ByCompanyIdOrderByCreatedAtDesc(companyId);
+    }
+
+    /**
+     * Queues a recompute for every tenant with leads that predate the engine
+     * (fit_points still NULL), so their scores join the computed ones.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (String companyId : jdbcTemplate.queryForList(
+                    "SELECT DISTINCT company_id FROM leads WHERE fit_points IS NULL AND company_id IS NOT NULL",
+                    String.class)) {
+                logger.info("Queueing lead score backfill for company {}", companyId);
+                submit(companyId);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Lead score backfill skipped: {}", e.getMessage());
+        }
+    }
+
+    private void run(Long jobId) {
+        ScoringJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        job.setStatus(RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        long started = System.currentTimeMillis();
+        String companyId = job.getCompanyId();
+        LeadScoringWeights current = loadWeights(companyId);
+        try {
+            // Cut the tenant into id ranges of chunkSize leads, each rescored in its own transaction
+            List<Future<long[]>> chunks = new ArrayList<>();
+            long from = 0;
+            while (true) {
+                List<Long> bound = jdbcTemplate.queryForList(
+                        "SELECT id FROM leads WHERE company_id = ? AND id > ? ORDER BY id LIMIT 1 OFFSET ?",
+                        Long.class, companyId, from, chunkSize - 1);
+                long to = bound.isEmpty() ? Long.MAX_VALUE : bound.get(0);
+                long lower = from;
+                chunks.add(chunkExecutor.submit(() -> transactionTemplate
+                        .execute(status -> recompute(companyId, lower, to, current))));
+                if (bound.isEmpty()) {
+                    break;
+                }
+                from = to;
+            }
+            long[] totals = new long[3];
+            for (Future<long[]> chunk : chunks) {
+                long[] counts = chunk.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                }
+            }
+            job.setLeads(totals[0]);
+            job.setActivities(totals[1]);
+            job.setChanged(totals[2]);
+            job.setChunks(chunks.size());
+            job.setStatus(COMPLETED);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.setStatus(FAILED);
+            job.setError("Interrupted");
+        } catch (ExecutionException | RuntimeException e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            logger.error("Scoring job {} failed", jobId, cause);
+            job.setStatus(FAILED);
+            job.setError(ImportRowReader.truncate(String.valueOf(cause.getMessage())));
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        jobRepository.save(job);
+        logger.info("Scoring job {} {} for company {}: {} leads, {} activities, {} changed, {} chunks in {} ms",
+                jobId, job.getStatus(), companyId, job.getLeads(), job.getActivities(), job.getChanged(),
+                job.getChunks(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Rescores the leads with ids in (from, to] and returns [leads, activities, changed].
+     * The leads are locked first so activities arriving meanwhile wait and
+     * then add their points on top.
+     */
+    private long[] recompute(String companyId, long from, long to, LeadScoringWeights w) {
+        Map<Long, int[]> leads = new HashMap<>();
+        jdbcTemplate.query(LOCK_CHUNK, rs -> {
+            int fit = fitPoints(w, rs.getString("email"), rs.getString("phone"), rs.getString("title"),
+                    rs.getString("company"), rs.getString("rating"), rs.getString("status"));
+            // new fit, new engagement, old fit, old engagement, old score (MIN_VALUE when NULL)
+            leads.put(rs.getLong("id"), new int[] { fit, 0, nullable(rs.getObject("fit_points")),
+                    nullable(rs.getObject("engagement_points")), nullable(rs.getObject("score")) });
+        }, companyId, from, to);
+        if (leads.isEmpty()) {
+            return new long[3];
+        }
+
+        long[] activities = new long[1];
+        jdbcTemplate.query(CHUNK_ACTIVITIES, rs -> {
+            int[] lead = leads.get(rs.getLong("lead_id"));
+            if (lead != null) {
+                lead[1] += activityPoints(w, rs.getString("type"), (Integer) rs.getObject("duration"),
+                        rs.getString("outcome"));
+                activities[0]++;
+            }
+        }, companyId, from, to);
+
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : leads.entrySet()) {
+            int[] lead = entry.getValue();
+            int score = clamp(lead[0] + lead[1]);
+            if (lead[0] != lead[2] || lead[1] != lead[3] || score != lead[4]) {
+                updates.add(new Object[] { lead[0], lead[1], score, entry.getKey() });
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_SCORE, updates);
+        }
+        return new long[] { leads.size(), activities[0], updates.size() };
+    }
+
+    // ========== Points ==========
+
+    static int fitPoints(LeadScoringWeights w, String email, String phone, String title, String company,
+            String rating, String status) {
+        int points = 0;
+        if (present(email)) {
+            points += w.getEmailFitPoints();
+        }
+        if (present(phone)) {
+            points += w.getPhoneFitPoints();
+        }
+        if (present(title)) {
+            points += w.getTitleFitPoints();
+        }
+        if (present(company)) {
+            points += w.getCompanyFitPoints();
+        }
+        if ("HOT".equals(rating)) {
+            points += w.getHotRatingPoints();
+        } else if ("WARM".equals(rating)) {
+            points += w.getWarmRatingPoints();
+        }
+        if ("CONTACTED".equals(status)) {
+            points += w.getContactedPoints();
+        } else if ("QUALIFIED".equals(status)) {
+            points += w.getQualifiedPoints();
+        } else if ("UNQUALIFIED".equals(status)) {
+            points += w.getUnqualifiedPoints();
+        }
+        return points;
+    }
+
+    static int activityPoints(LeadScoringWeights w, String type, Integer durationSeconds, String outcome) {
+        if ("MEETING".equals(type)) {
+            return w.getMeetingPoints();
+        }
+        if ("EMAIL".equals(type)) {
+            return w.getEmailPoints();
+        }
+        if (!"CALL".equals(type)) {
+            return 0;
+        }
+        int points = w.getCallPoints();
+        if (durationSeconds != null && durationSeconds > 0) {
+            points += Math.min(durationSeconds / 60, w.getMaxCallMinutes()) * w.getCallMinutePoints();
+        }
+        if (outcome != null) {
+            String normalized = outcome.trim().toLowerCase(Locale.ROOT);
+            if (ANSWERED.contains(normalized)) {
+                points += w.getAnsweredCallPoints();
+            } else if (MISSED.contains(normalized)) {
+                points += w.getMissedCallPoints();
+            }
+        }
+        return points;
+    }
+
+    private static int clamp(int points) {
+        return Math.max(0, Math.min(100, points));
+    }
+
+    private static boolean present(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private static String name(Enum<?> value) {
+        return value == null ? null : value.name();
+    }
+
+    private static int nullable(Object value) {
+        return value == null ? Integer.MIN_VALUE : ((Number) value).intValue();
+    }
+
+    private static final class CachedWeights {
+        final LeadScoringWeights weights;
+        final long loadedAt = System.currentTimeMillis();
+
+        CachedWeights(LeadScoringWeights weights) {
+            this.weights = weights;
+        }
+    }
+}
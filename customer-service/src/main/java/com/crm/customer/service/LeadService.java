@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.crm.customer.dto.CursorPage;
 import com.crm.customer.dto.LeadDTO;
 import com.crm.customer.entity.Lead;
 import com.crm.customer.entity.LeadHistory;
@@ -14,6 +15,8 @@ import com.crm.customer.repository.LeadRepository;
 @Service
 public class LeadService {
 
+    private static final long HISTORY_WAIT_MS = 2000;
+
     @Autowired
     private LeadRepository leadRepository;
 
@@ -21,15 +24,66 @@ public class LeadService {
     private LeadHistoryRepository leadHistoryRepository;
 
     @Autowired
-    private com.crm.customer.client.NotificationClient notificationClient;
+    private LeadHistoryRecorder leadHistoryRecorder;
+
+    @Autowired
+    private NotificationDispatcher notificationDispatcher;
+
+    @Autowired
+    private AnalyticsEventPublisher analyticsEventPublisher;
+
+    @Autowired
+    private KeysetPager keysetPager;
+
+    @Autowired
+    private SearchIndexService searchIndexService;
+
+    @Autowired
+    private DedupeService dedupeService;
+
+    @Autowired
+    private PhoneIndexService phoneIndexService;
+
+    @Autowired
+    private LeadScoringService leadScoringService;
+
+    @Autowired
+    private LeadAssignmentService leadAssignmentService;
 
     // ========== CREATE ==========
 
-    public Lead createLead(LeadDTO dto) {
+    /**
+     * Creates a lead; unless force is set, fails when it almost certainly duplicates an existing one.
+     */
+    public Lead createLead(LeadDTO dto, boolean force) {
+        if (!force) {
+            dedupeService.checkLead(dto);
+        }
         Lead lead = new Lead();
         mapDtoToEntity(dto, lead);
         lead.setCompanyId(dto.getCompanyId());
-        Lead savedLead = leadRepository.save(lead);
+        leadScoringService.score(lead);
+
+        // Leads that arrive without an assignee go to the tenant's assignment rule
+        Long claimed = null;
+        if (lead.getAssignedTo() == null && LeadAssignmentService.OPEN.contains(lead.getStatus())) {
+            claimed = leadAssignmentService.assign(lead.getCompanyId());
+            lead.setAssignedTo(claimed);
+        }
+        Lead savedLead;
+        try {
+            savedLead = leadRepository.save(lead);
+        } catch (RuntimeException e) {
+            leadAssignmentService.release(lead.getCompanyId(), claimed);
+            throw e;
+        }
+        if (claimed == null) {
+            leadAssignmentService.changed(savedLead.getCompanyId(), null, null, savedLead.getAssignedTo(),
+                    savedLead.getStatus());
+        }
+        searchIndexService.indexLead(savedLead);
+        dedupeService.indexLead(savedLead);
+        phoneIndexService.indexLead(savedLead);
         saveHistory(savedLead.getId(), "CREATED", null, "Lead Created with Status: " + savedLead.getStatus(),
                 dto.getCompanyId());
 
@@ -40,6 +94,8 @@ public class LeadService {
                     dto.getCompanyId());
         }
 
+        analyticsEventPublisher.created("LEAD", savedLead.getId(), savedLead.getCompanyId(),
+                savedLead.getStatus().name(), savedLead.getCreatedAt());
         return savedLead;
     }
 
@@ -49,6 +105,16 @@ public class LeadService {
         return leadRepository.findByCompanyId(companyId);
     }
 
+    /**
+     * One page of the company's leads, newest first; see {@link KeysetPager}.
+     */
+    public CursorPage<Lead> getLeadsPage(String companyId, String cursor, Integer size) {
+        return keysetPager.page(cursor, size, pageable -> leadRepository.findPageByCompanyId(companyId, pageable),
+                (createdAt, id, pageable) -> leadRepository.findPageByCompanyIdAfter(companyId, createdAt, id,
+                        pageable),
+                Lead::getCreatedAt, Lead::getId);
+    }
+
     public Lead getLeadById(Long id) {
         return leadRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Lead not found with id: " + id));
@@ -62,6 +128,16 @@ public class LeadService {
         return leadRepository.findByCompanyIdAndAssignedTo(companyId, userId);
     }
 
+    /**
+     * Ranked matches from the full-text index; falls back to the LIKE query while the index is disabled or loading.
+     */
+    public List<Lead> searchLeads(String companyId, String keyword, int limit) {
+        if (searchIndexService.isReady(SearchIndexService.LEADS, companyId)) {
+            return searchIndexService.searchLeads(companyId, keyword, limit);
+        }
+        return searchLeads(companyId, keyword);
+    }
+
     public List<Lead> searchLeads(String companyId, String keyword) {
         return leadRepository
                 .findByCompanyIdAndFirstNameContainingOrCompanyIdAndLastNameContainingOrCompanyIdAndEmailContainingOrCompanyIdAndCompanyContaining(
@@ -69,10 +145,12 @@ public class LeadService {
     }
 
     public List<Lead> getHighScoreLeads(String companyId, Integer minScore) {
-        return leadRepository.findByCompanyIdAndScoreGreaterThanEqual(companyId, minScore);
+        return leadRepository.findByCompanyIdAndScoreGreaterThanEqualOrderByScoreDescIdDesc(companyId, minScore);
     }
 
     public List<LeadHistory> getLeadHistory(Long leadId) {
+        // Changes recorded just before may still be on their way to the table
+        leadHistoryRecorder.awaitWritten(HISTORY_WAIT_MS);
         return leadHistoryRepository.findByLeadIdOrderByChangedAtDesc(leadId);
     }
 
@@ -81,16 +159,15 @@ public class LeadService {
     public Lead updateLead(Long id, LeadDTO dto) {
         Lead lead = getLeadById(id);
         Long oldAssignee = lead.getAssignedTo();
+        Lead.LeadStatus oldStatusValue = lead.getStatus();
+        String oldStatus = oldStatusValue.name();
+        Integer oldScore = lead.getScore();
 
         // Track changes
         if (dto.getStatus() != null && !dto.getStatus().equalsIgnoreCase(lead.getStatus().name())) {
             saveHistory(lead.getId(), "STATUS", lead.getStatus().name(), dto.getStatus().toUpperCase(),
                     lead.getCompanyId());
         }
-        if (dto.getScore() != null && !dto.getScore().equals(lead.getScore())) {
-            saveHistory(lead.getId(), "SCORE", String.valueOf(lead.getScore()), String.valueOf(dto.getScore()),
-                    lead.getCompanyId());
-        }
         if (dto.getNotes() != null && !dto.getNotes().equals(lead.getNotes())) {
             // Only save if meaningful change (not just whitespace if already empty)
             saveHistory(lead.getId(), "NOTE", lead.getNotes(), dto.getNotes(), lead.getCompanyId());
@@ -98,6 +175,17 @@ public class LeadService {
 
         mapDtoToEntity(dto, lead);
         Lead savedLead = leadRepository.save(lead);
+        leadAssignmentService.changed(savedLead.getCompanyId(), oldAssignee, oldStatusValue,
+                savedLead.getAssignedTo(), savedLead.getStatus());
+        // With scoring enabled the engine's score replaces any score sent in the DTO
+        leadScoringService.rescore(savedLead);
+        if (!java.util.Objects.equals(oldScore, savedLead.getScore())) {
+            saveHistory(savedLead.getId(), "SCORE", String.valueOf(oldScore), String.valueOf(savedLead.getScore()),
+                    savedLead.getCompanyId());
+        }
+        searchIndexService.indexLead(savedLead);
+        dedupeService.indexLead(savedLead);
+        phoneIndexService.indexLead(savedLead);
 
         // Notify if assignment changed
         if (dto.getAssignedTo() != null && !dto.getAssignedTo().equals(oldAssignee)) {
@@ -110,6 +198,11 @@ public class LeadService {
             System.out.println("No notification triggered. New: " + dto.getAssignedTo() + ", Old: " + oldAssignee);
         }
 
+        if (!oldStatus.equals(savedLead.getStatus().name())) {
+            analyticsEventPublisher.updated("LEAD", savedLead.getId(), savedLead.getCompanyId(), oldStatus,
+                    savedLead.getStatus().name(), savedLead.getCreatedAt());
+        }
+
         return savedLead;
     }
 
@@ -120,8 +213,15 @@ public class LeadService {
 
         if (!oldStatus.equals(newStatus)) {
             saveHistory(lead.getId(), "STATUS", oldStatus, newStatus, lead.getCompanyId());
+            Lead.LeadStatus oldStatusValue = lead.getStatus();
             lead.setStatus(Lead.LeadStatus.valueOf(newStatus));
-            return leadRepository.save(lead);
+            Lead savedLead = leadRepository.save(lead);
+            leadAssignmentService.changed(savedLead.getCompanyId(), savedLead.getAssignedTo(), oldStatusValue,
+                    savedLead.getAssignedTo(), savedLead.getStatus());
+            leadScoringService.rescore(savedLead);
+            analyticsEventPublisher.updated("LEAD", savedLead.getId(), savedLead.getCompanyId(), oldStatus, newStatus,
+                    savedLead.getCreatedAt());
+            return savedLead;
         }
         return lead;
     }
@@ -131,11 +231,17 @@ public class LeadService {
     public void deleteLead(Long id) {
         Lead lead = getLeadById(id);
         leadRepository.delete(lead);
+        leadAssignmentService.changed(lead.getCompanyId(), lead.getAssignedTo(), lead.getStatus(), null, null);
+        searchIndexService.removeLead(lead);
+        phoneIndexService.removeLead(lead);
+        dedupeService.removeLead(lead);
+        analyticsEventPublisher.deleted("LEAD", lead.getId(), lead.getCompanyId(), lead.getStatus().name(),
+                lead.getCreatedAt());
     }
 
     // ========== Helper ==========
 
-    private void mapDtoToEntity(LeadDTO dto, Lead lead) {
+    void mapDtoToEntity(LeadDTO dto, Lead lead) {
         lead.setFirstName(dto.getFirstName());
         lead.setLastName(dto.getLastName());
         lead.setTitle(dto.getTitle());
@@ -179,33 +285,13 @@ public class LeadService {
     }
 
     private void saveHistory(Long leadId, String field, String oldValue, String newValue, String companyId) {
-        LeadHistory history = new LeadHistory();
-        history.setLeadId(leadId);
-        history.setFieldChanged(field);
-        history.setOldValue(oldValue);
-        history.setNewValue(newValue);
-        history.setCompanyId(companyId);
-        // history.setChangedBy(userId); // TODO: Add user context
-        leadHistoryRepository.save(history);
+        // TODO: Add user context as changedBy
+        leadHistoryRecorder.record(leadId, field, oldValue, newValue, null, companyId);
     }
 
     private void sendAssignmentNotification(Long recipientId, String type, Long referenceId, String name,
             String companyId) {
-        try {
-            java.util.Map<String, Object> notification = new java.util.HashMap<>();
-            notification.put("recipientUserId", recipientId);
-            notification.put("type", "IN_APP");
-            notification.put("title", "New " + type + " Assigned");
-            notification.put("message", "You have been assigned a new " + type + ": " + name);
-            notification.put("source", "CUSTOMER_SERVICE");
-            notification.put("referenceType", type.toUpperCase()); // LEAD or CUSTOMER
-            notification.put("referenceId", referenceId);
-            notification.put("status", "PENDING");
-
-            notificationClient.sendNotification(notification);
-        } catch (Exception e) {
-            System.err.println("Failed to send notification: " + e.getMessage());
-            // Don't fail the transaction just because notification failed
-        }
+        // Queued for the background sender; never blocks the write on notification-service
+        notificationDispatcher.assigned(recipientId, type, referenceId, name);
     }
 }
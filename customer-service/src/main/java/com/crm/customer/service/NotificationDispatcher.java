@@ -0,0 +1,199 @@
+package com.crm.customer.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.client.NotificationClient;
+
+/**
+ * Delivers notifications to notification-service off the request thread.
+ *
+ * Writers put notifications on a bounded queue; one sender thread drains it
+ * into batches of up to batch-size (waiting at most linger-ms for a batch to
+ * fill) and posts each batch to /api/notifications/send-batch, retrying with
+ * backoff. When the queue is full a writer waits at most offer-timeout-ms and
+ * then the notification is dropped and counted, so a slow or unavailable
+ * notification-service never holds up a write for longer than that.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    @Value("${app.notifications.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${app.notifications.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.notifications.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${app.notifications.offer-timeout-ms:50}")
+    private long offerTimeoutMs;
+
+    @Value("${app.notifications.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${app.notifications.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Autowired
+    private NotificationClient notificationClient;
+
+    private BlockingQueue<Map<String, Object>> queue;
+    private Thread sender;
+    private volatile boolean running;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        sender = new Thread(this::run, "notification-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Queues a notification; false when it was dropped because the queue stayed full.
+     */
+    public boolean enqueue(Map<String, Object> notification) {
+        try {
+            if (queue.offer(notification, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueued.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long drops = dropped.incrementAndGet();
+        if (drops == 1 || drops % 1000 == 0) {
+            logger.warn("Notification queue full ({} queued), {} notifications dropped so far", queue.size(),
+                    drops);
+        }
+        return false;
+    }
+
+    /**
+     * An in-app assignment notification for a lead or customer.
+     */
+    public boolean assigned(Long recipientId, String type, Long referenceId, String name) {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("recipientUserId", recipientId);
+        notification.put("type", "IN_APP");
+        notification.put("title", "New " + type + " Assigned");
+        notification.put("message", "You have been assigned a new " + type + ": " + name);
+        notification.put("source", "CUSTOMER_SERVICE");
+        notification.put("referenceType", type.toUpperCase()); // LEAD or CUSTOMER
+        notification.put("referenceId", referenceId);
+        notification.put("status", "PENDING");
+        return enqueue(notification);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", capacity);
+        stats.put("enqueued", enqueued.get());
+        stats.put("sent", sent.get());
+        stats.put("batches", batches.get());
+        stats.put("retries", retries.get());
+        stats.put("dropped", dropped.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private void run() {
+        List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Map<String, Object> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long wait = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || wait <= 0) {
+                        break;
+                    }
+                    Map<String, Object> next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                deliver(batch, maxRetries);
+                batch.clear();
+            } catch (InterruptedException e) {
+                if (running) {
+                    logger.warn("Notification sender interrupted, still running");
+                    continue;
+                }
+            }
+        }
+
+        // Shutting down: one attempt each for whatever is still queued
+        queue.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            deliver(batch.subList(from, Math.min(batch.size(), from + batchSize)), 0);
+        }
+    }
+
+    private void deliver(List<Map<String, Object>> batch, int attempts) {
+        for (int attempt = 0;; attempt++) {
+            try {
+                notificationClient.sendBatch(batch);
+                sent.addAndGet(batch.size());
+                batches.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= attempts || !running) {
+                    failed.addAndGet(batch.size());
+                    logger.warn("Dropping batch of {} notifications after {} attempts: {}", batch.size(),
+                            attempt + 1, e.getMessage());
+                    return;
+                }
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(retryBackoffMs << attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    failed.addAndGet(batch.size());
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.crm.customer.service;
+
+/**
+ * Normalized phone number to id for one tenant's leads or customers.
+ *
+ * A number is keyed by its last ten digits (see {@link DedupeIndex#phone})
+ * packed into a long, in an open-addressing table of primitive longs kept at
+ * most half full, so an entry costs about 32 bytes and a lookup is a hash and
+ * a short probe. Ids are positive, so 0 marks an empty slot.
+ */
+final class PhoneIndex {
+
+    private long[] keys = new long[16];
+    private long[] ids = new long[16];
+    private int size;
+
+    /**
+     * The key of a phone number, or -1 when it has too few digits to be one.
+     */
+    static long key(String phone) {
+        String digits = DedupeIndex.phone(phone);
+        return digits.isEmpty() ? -1 : Long.parseLong(digits);
+    }
+
+    /**
+     * The id the number belongs to, or 0 when it is unknown.
+     */
+    synchronized long get(long key) {
+        if (key < 0) {
+            return 0;
+        }
+        int mask = keys.length - 1;
+        for (int i = slot(key, mask); ids[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return ids[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Points the number at the id, replacing whichever id it had.
+     */
+    synchronized void put(long key, long id) {
+        if (key < 0 || id <= 0) {
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (ids[i] != 0) {
+            if (keys[i] == key) {
+                ids[i] = id;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        ids[i] = id;
+        size++;
+    }
+
+    /**
+     * Forgets the number if it still points at the id.
+     */
+    synchronized void remove(long key, long id) {
+        if (key < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int gap = slot(key, mask);
+        while (ids[gap] != 0 && keys[gap] != key) {
+            gap = (gap + 1) & mask;
+        }
+        if (ids[gap] != id) {
+            return;
+        }
+        ids[gap] = 0;
+        size--;
+        // Shift later entries of the probe run back so lookups still reach them
+        for (int i = (gap + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                ids[gap] = ids[i];
+                ids[i] = 0;
+                gap = i;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldIds = ids;
+        keys = new long[oldKeys.length * 2];
+        ids = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldIds[j] != 0) {
+                int i = slot(oldKeys[j], mask);
+                while (ids[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                ids[i] = oldIds[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
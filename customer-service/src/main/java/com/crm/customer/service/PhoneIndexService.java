@@ -0,0 +1,192 @@
+package com.crm.customer.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.Lead;
+
+/**
+ * Finds the lead and customer a phone number belongs to without a query,
+ * for call ingestion.
+ *
+ * A tenant's numbers are loaded into {@link PhoneIndex}es the first time it
+ * is looked up and kept current by the lead and customer writes of this
+ * service; where several share a number the newest wins. A changed number
+ * keeps resolving to its old owner until the tenant is reloaded, which
+ * happens every app.telephony.index-rebuild-ms; writes during a reload go
+ * to both the old and the new index so none are lost.
+ */
+@Service
+public class PhoneIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhoneIndexService.class);
+
+    private static final int LOAD_BATCH = 10000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * The id of the lead with this number, or null.
+     */
+    public Long findLead(String companyId, String phone) {
+        long id = indexes(companyId).leads.get(PhoneIndex.key(phone));
+        return id == 0 ? null : id;
+    }
+
+    /**
+     * The id of the customer with this number, or null.
+     */
+    public Long findCustomer(String companyId, String phone) {
+        long id = indexes(companyId).customers.get(PhoneIndex.key(phone));
+        return id == 0 ? null : id;
+    }
+
+    public void indexLead(Lead lead) {
+        if (lead.getId() == null || lead.getPhone() == null) {
+            return;
+        }
+        long key = PhoneIndex.key(lead.getPhone());
+        for (Indexes indexes : loaded(lead.getCompanyId())) {
+            indexes.leads.put(key, lead.getId());
+        }
+    }
+
+    public void removeLead(Lead lead) {
+        if (lead.getId() == null) {
+            return;
+        }
+        long key = PhoneIndex.key(lead.getPhone());
+        for (Indexes indexes : loaded(lead.getCompanyId())) {
+            indexes.leads.remove(key, lead.getId());
+        }
+    }
+
+    public void indexCustomer(Customer customer) {
+        if (customer.getId() == null || customer.getPhone() == null) {
+            return;
+        }
+        long key = PhoneIndex.key(customer.getPhone());
+        for (Indexes indexes : loaded(customer.getCompanyId())) {
+            indexes.customers.put(key, customer.getId());
+        }
+    }
+
+    public void removeCustomer(Customer customer) {
+        if (customer.getId() == null) {
+            return;
+        }
+        long key = PhoneIndex.key(customer.getPhone());
+        for (Indexes indexes : loaded(customer.getCompanyId())) {
+            indexes.customers.remove(key, customer.getId());
+        }
+    }
+
+    /**
+     * Reloads the tenant's numbers from the database.
+     */
+    public Map<String, Object> rebuild(String companyId) {
+        long started = System.currentTimeMillis();
+        Indexes indexes = load(companyId, tenants.computeIfAbsent(companyId, id -> new Tenant()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("companyId", companyId);
+        result.put("leadPhones", indexes.leads.size());
+        result.put("customerPhones", indexes.customers.size());
+        result.put("tookMs", System.currentTimeMillis() - started);
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${app.telephony.index-rebuild-ms:3600000}",
+            initialDelayString = "${app.telephony.index-rebuild-ms:3600000}")
+    public void reload() {
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            try {
+                load(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                logger.warn("Phone index reload failed for company {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    // ========== Tenants ==========
+
+    private Indexes indexes(String companyId) {
+        Tenant tenant = tenants.computeIfAbsent(companyId, id -> new Tenant());
+        Indexes current = tenant.current;
+        if (current != null) {
+            return current;
+        }
+        synchronized (tenant) {
+            return tenant.current != null ? tenant.current : load(companyId, tenant);
+        }
+    }
+
+    /**
+     * The indexes a write has to reach: the current one and any being loaded.
+     */
+    private Indexes[] loaded(String companyId) {
+        Tenant tenant = companyId == null ? null : tenants.get(companyId);
+        if (tenant == null) {
+            return new Indexes[0];
+        }
+        Indexes current = tenant.current;
+        Indexes next = tenant.next;
+        if (current == null) {
+            return next == null ? new Indexes[0] : new Indexes[] { next };
+        }
+        return next == null ? new Indexes[] { current } : new Indexes[] { current, next };
+    }
+
+    private Indexes load(String companyId, Tenant tenant) {
+        synchronized (tenant) {
+            long started = System.currentTimeMillis();
+            Indexes fresh = new Indexes();
+            tenant.next = fresh;
+            try {
+                fill(fresh.leads, "leads", companyId);
+                fill(fresh.customers, "customers", companyId);
+                tenant.current = fresh;
+            } finally {
+                tenant.next = null;
+            }
+            logger.info("Loaded phone index for company {}: {} lead and {} customer numbers in {} ms", companyId,
+                    fresh.leads.size(), fresh.customers.size(), System.currentTimeMillis() - started);
+            return fresh;
+        }
+    }
+
+    private void fill(PhoneIndex index, String table, String companyId) {
+        long[] after = { 0 };
+        int[] read = new int[1];
+        do {
+            read[0] = 0;
+            jdbcTemplate.query("SELECT id, phone FROM " + table + " WHERE company_id = ? AND id > ? "
+                    + "AND phone IS NOT NULL AND is_deleted = false ORDER BY id LIMIT ?", rs -> {
+                        after[0] = rs.getLong("id");
+                        index.put(PhoneIndex.key(rs.getString("phone")), after[0]);
+                        read[0]++;
+                    }, companyId, after[0], LOAD_BATCH);
+        } while (read[0] == LOAD_BATCH);
+    }
+
+    private static final class Tenant {
+        volatile Indexes current;
+        volatile Indexes next; // being loaded
+    }
+
+    private static final class Indexes {
+        final PhoneIndex leads = new PhoneIndex();
+        final PhoneIndex customers = new PhoneIndex();
+    }
+}
@@ -0,0 +1,624 @@
+package com.crm.customer.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over one tenant's leads or customers.
+ *
+ * Each document has five fields (name, email, company, phone, text) with a
+ * sorted term dictionary per field, so prefix lookups are range reads and
+ * fuzzy lookups only walk terms sharing the first two letters. Postings are
+ * sorted int arrays of document ordinals; a query starts from its most
+ * selective term and only keeps the candidates the other terms also match,
+ * so cost follows the smallest posting list rather than tenant size.
+ *
+ * A segment file holds the documents' field values; it is memory-mapped and
+ * re-tokenized on load, and rewritten whole by {@link #writeTo(Path)}.
+ */
+final class SearchIndex {
+
+    static final int NAME = 0;
+    static final int EMAIL = 1;
+    static final int COMPANY = 2;
+    static final int PHONE = 3;
+    static final int TEXT = 4;
+    static final int FIELDS = 5;
+
+    private static final float[] BOOSTS = { 3f, 2f, 2f, 2f, 1f };
+    private static final float EXACT = 3f;
+    private static final float PREFIX = 2f;
+    private static final float FUZZY = 1f;
+
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int MAX_FUZZY_SCAN = 50000;
+    private static final int MAX_TERM_LENGTH = 40;
+    private static final int MAX_TEXT_LENGTH = 2000;
+
+    private static final char SEPARATOR = '\u001f';
+    private static final String SEPARATOR_PATTERN = String.valueOf(SEPARATOR);
+
+    private static final int MAGIC = 0x43524D53; // "CRMS"
+    private static final int VERSION = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<TreeMap<String, Postings>> terms = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private long[] ids = new long[64];
+    private String[] docs = new String[64]; // field values joined by SEPARATOR, null once removed
+    private int nextOrdinal;
+    private LocalDateTime lastUpdatedAt;
+    private volatile boolean dirty;
+
+    SearchIndex() {
+        for (int f = 0; f < FIELDS; f++) {
+            terms.add(new TreeMap<>());
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Newest updatedAt of any document put since the index was built. */
+    LocalDateTime getLastUpdatedAt() {
+        lock.readLock().lock();
+        try {
+            return lastUpdatedAt;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Adds or replaces a document. fields holds name, email, company, phone and text, any of them null.
+     */
+    void put(long id, String[] fields, LocalDateTime updatedAt) {
+        String[] values = Arrays.copyOf(fields, FIELDS);
+        if (values[TEXT] != null && values[TEXT].length() > MAX_TEXT_LENGTH) {
+            values[TEXT] = values[TEXT].substring(0, MAX_TEXT_LENGTH);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                unindex(ordinal);
+            } else {
+                ordinal = nextOrdinal++;
+                if (ordinal == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                    docs = Arrays.copyOf(docs, docs.length * 2);
+                }
+                ids[ordinal] = id;
+                ordinals.put(id, ordinal);
+            }
+            docs[ordinal] = join(values);
+            for (int f = 0; f < FIELDS; f++) {
+                for (String term : tokens(f, values[f])) {
+                    terms.get(f).computeIfAbsent(term, t -> new Postings()).add(ordinal);
+                }
+            }
+            if (updatedAt != null && (lastUpdatedAt == null || updatedAt.isAfter(lastUpdatedAt))) {
+                lastUpdatedAt = updatedAt;
+            }
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                unindex(ordinal);
+                docs[ordinal] = null;
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void unindex(int ordinal) {
+        String[] values = values(docs[ordinal]);
+        for (int f = 0; f < FIELDS; f++) {
+            for (String term : tokens(f, values[f])) {
+                Postings postings = terms.get(f).get(term);
+                if (postings != null && postings.remove(ordinal) && postings.size == 0) {
+                    terms.get(f).remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids of the best matching documents, best first. Every query term must
+     * match some field exactly, as a prefix or, failing enough of those, within
+     * one or two edits; field boosts and match kind decide the ranking, newer
+     * documents win ties.
+     */
+    List<Long> search(String query, int limit) {
+        List<String> queryTerms = queryTerms(query);
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            List<List<Match>> perTerm = new ArrayList<>();
+            for (String term : queryTerms) {
+                List<Match> matches = matches(term, limit);
+                if (matches.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                perTerm.add(matches);
+            }
+            perTerm.sort(Comparator.comparingLong(SearchIndex::postingCount));
+
+            // Scores of the ordinals still matching every term so far, sized to the smallest posting list
+            Scores scores = new Scores(postingCount(perTerm.get(0)));
+            for (Match match : perTerm.get(0)) {
+                for (int i = 0; i < match.postings.size; i++) {
+                    int doc = match.postings.docs[i];
+                    if (match.weight > scores.get(doc)) {
+                        scores.put(doc, match.weight);
+                    }
+                }
+            }
+            int[] candidates = scores.keys();
+            int count = candidates.length;
+            for (List<Match> matches : perTerm.subList(1, perTerm.size())) {
+                // Walk this term's postings, or probe them per candidate when that is cheaper
+                boolean probe = (long) count * matches.size() * 20 < postingCount(matches);
+                Scores best = null;
+                if (!probe) {
+                    best = new Scores(count);
+                    for (int i = 0; i < count; i++) {
+                        best.put(candidates[i], 0f);
+                    }
+                    for (Match match : matches) {
+                        for (int i = 0; i < match.postings.size; i++) {
+                            best.raise(match.postings.docs[i], match.weight);
+                        }
+                    }
+                }
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int doc = candidates[i];
+                    float termScore = 0;
+                    if (best == null) {
+                        for (Match match : matches) {
+                            if (match.weight > termScore && match.postings.contains(doc)) {
+                                termScore = match.weight;
+                            }
+                        }
+                    } else {
+                        termScore = best.get(doc);
+                    }
+                    if (termScore > 0) {
+                        scores.put(doc, scores.get(doc) + termScore);
+                        candidates[kept++] = doc;
+                    }
+                }
+                count = kept;
+            }
+
+            // Min-heap of the best limit ordinals; higher ordinals (newer documents) win ties
+            PriorityQueue<Integer> top = new PriorityQueue<>((x, y) -> scores.get(x) != scores.get(y)
+                    ? Float.compare(scores.get(x), scores.get(y)) : Integer.compare(x, y));
+            for (int i = 0; i < count; i++) {
+                int doc = candidates[i];
+                if (top.size() < limit) {
+                    top.add(doc);
+                } else {
+                    int worst = top.peek();
+                    float score = scores.get(doc);
+                    if (score > scores.get(worst) || score == scores.get(worst) && doc > worst) {
+                        top.poll();
+                        top.add(doc);
+                    }
+                }
+            }
+            Long[] result = new Long[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = ids[top.poll()];
+            }
+            return new ArrayList<>(Arrays.asList(result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Match> matches(String term, int limit) {
+        List<Match> matches = new ArrayList<>();
+        long found = 0;
+        boolean digits = isDigits(term);
+        for (int f = 0; f < FIELDS; f++) {
+            if (f == PHONE && (!digits || term.length() < 4)) {
+                continue;
+            }
+            TreeMap<String, Postings> dictionary = terms.get(f);
+            // Phone numbers are indexed reversed, so a prefix lookup matches their trailing digits
+            String key = f == PHONE ? new StringBuilder(term).reverse().toString() : term;
+            Postings exact = dictionary.get(key);
+            if (exact != null) {
+                matches.add(new Match(exact, BOOSTS[f] * EXACT));
+                found += exact.size;
+            }
+            if (term.length() < 2) {
+                continue;
+            }
+            int expansions = 0;
+            for (Map.Entry<String, Postings> entry : dictionary
+                    .subMap(key, false, key + Character.MAX_VALUE, false).entrySet()) {
+                if (++expansions > MAX_EXPANSIONS) {
+                    break;
+                }
+                // Closer prefixes rank higher: "jo" matches "john" better than "johnathan"
+                float closeness = (float) key.length() / entry.getKey().length();
+                matches.add(new Match(entry.getValue(), BOOSTS[f] * PREFIX * closeness));
+                found += entry.getValue().size;
+            }
+        }
+        if (found < limit && term.length() >= 4 && !digits) {
+            int maxEdits = term.length() >= 8 ? 2 : 1;
+            // Typos in the first two letters are rare; requiring them keeps the scan small
+            String initial = term.substring(0, 2);
+            for (int f = 0; f < FIELDS; f++) {
+                NavigableMap<String, Postings> sameInitial = terms.get(f).subMap(initial, true,
+                        initial + Character.MAX_VALUE, false);
+                int scanned = 0;
+                int expansions = 0;
+                for (Map.Entry<String, Postings> entry : sameInitial.entrySet()) {
+                    if (++scanned > MAX_FUZZY_SCAN || expansions >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                    String candidate = entry.getKey();
+                    if (Math.abs(candidate.length() - term.length()) <= maxEdits && !candidate.startsWith(term)
+                            && !candidate.equals(term) && withinEdits(term, candidate, maxEdits)) {
+                        matches.add(new Match(entry.getValue(), BOOSTS[f] * FUZZY));
+                        expansions++;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Ordinal to score in an open-addressing table sized for the keys it will
+     * hold, so scoring a query costs its candidates rather than the ordinal range.
+     */
+    private static final class Scores {
+        private final int[] keys;
+        private final float[] values;
+        private final int mask;
+        private int size;
+
+        Scores(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.min(1 << 29, Math.max(8, expected * 2)) - 1) << 1;
+            keys = new int[capacity];
+            values = new float[capacity];
+            mask = capacity - 1;
+            Arrays.fill(keys, -1);
+        }
+
+        float get(int key) {
+            int i = slot(key);
+            return keys[i] == key ? values[i] : 0;
+        }
+
+        void put(int key, float value) {
+            int i = slot(key);
+            if (keys[i] != key) {
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        /** Raises the score of a key already present; others are ignored. */
+        void raise(int key, float value) {
+            int i = slot(key);
+            if (keys[i] == key && value > values[i]) {
+                values[i] = value;
+            }
+        }
+
+        int[] keys() {
+            int[] present = new int[size];
+            int n = 0;
+            for (int key : keys) {
+                if (key >= 0) {
+                    present[n++] = key;
+                }
+            }
+            return present;
+        }
+
+        private int slot(int key) {
+            int i = (key * 0x9E3779B9) >>> 1 & mask;
+            while (keys[i] != -1 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+    }
+
+    private static long postingCount(List<Match> matches) {
+        long count = 0;
+        for (Match match : matches) {
+            count += match.postings.size;
+        }
+        return count;
+    }
+
+    // ========== Segment files ==========
+
+    /**
+     * Writes all documents to the segment file, replacing it atomically.
+     */
+    void writeTo(Path file) throws IOException {
+        Path target = file.toAbsolutePath();
+        Path parent = target.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (OutputStream stream = Files.newOutputStream(tmp);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, lastUpdatedAt != null ? lastUpdatedAt.toString() : null);
+            out.writeInt(ordinals.size());
+            for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+                if (docs[ordinal] == null) {
+                    continue;
+                }
+                out.writeLong(ids[ordinal]);
+                for (String value : values(docs[ordinal])) {
+                    writeString(out, value);
+                }
+            }
+            dirty = false;
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a segment written by {@link #writeTo(Path)}.
+     */
+    static SearchIndex readFrom(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a search segment: " + file);
+            }
+            SearchIndex index = new SearchIndex();
+            String lastUpdated = readString(buffer);
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                long id = buffer.getLong();
+                String[] fields = new String[FIELDS];
+                for (int f = 0; f < FIELDS; f++) {
+                    fields[f] = readString(buffer);
+                }
+                index.put(id, fields, null);
+            }
+            index.lastUpdatedAt = lastUpdated != null ? LocalDateTime.parse(lastUpdated) : null;
+            index.dirty = false;
+            return index;
+        }
+    }
+
+    private static String join(String[] values) {
+        StringBuilder joined = new StringBuilder();
+        for (int f = 0; f < FIELDS; f++) {
+            if (f > 0) {
+                joined.append(SEPARATOR);
+            }
+            if (values[f] != null) {
+                joined.append(values[f].replace(SEPARATOR, ' '));
+            }
+        }
+        return joined.toString();
+    }
+
+    private static String[] values(String joined) {
+        String[] parts = joined.split(SEPARATOR_PATTERN, -1);
+        String[] values = new String[FIELDS];
+        for (int f = 0; f < FIELDS && f < parts.length; f++) {
+            values[f] = parts[f].isEmpty() ? null : parts[f];
+        }
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ========== Text analysis ==========
+
+    /**
+     * Index terms of one field value: lower-cased letter/digit runs, phones as
+     * their digits in reverse order (see {@link #matches(String, int)}).
+     */
+    static Set<String> tokens(int field, String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (value == null || value.isEmpty()) {
+            return tokens;
+        }
+        if (field == PHONE) {
+            String digits = value.replaceAll("[^0-9]", "");
+            if (!digits.isEmpty()) {
+                tokens.add(new StringBuilder(digits).reverse().toString());
+            }
+            return tokens;
+        }
+        split(value.toLowerCase(), tokens);
+        return tokens;
+    }
+
+    /**
+     * Query terms: the same letter/digit runs, or the bare digits when the
+     * query looks like a phone number.
+     */
+    static List<String> queryTerms(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        String trimmed = query.trim();
+        if (trimmed.matches("[+()\\-.\\s0-9]{4,}") && trimmed.replaceAll("[^0-9]", "").length() >= 4) {
+            tokens.add(trimmed.replaceAll("[^0-9]", ""));
+        } else {
+            split(trimmed.toLowerCase(), tokens);
+        }
+        List<String> terms = new ArrayList<>(tokens);
+        return terms.size() > MAX_QUERY_TERMS ? new ArrayList<>(terms.subList(0, MAX_QUERY_TERMS)) : terms;
+    }
+
+    private static void split(String lower, Set<String> tokens) {
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(lower.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isDigits(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Levenshtein distance of a and b is at most maxEdits, giving up early once every path exceeds it. */
+    static boolean withinEdits(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    private static final class Match {
+        private final Postings postings;
+        private final float weight;
+
+        private Match(Postings postings, float weight) {
+            this.postings = postings;
+            this.weight = weight;
+        }
+    }
+
+    /** Sorted document ordinals of one term. New documents get the highest ordinal, so adds are mostly appends. */
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        private void add(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                return;
+            }
+            int insert = -at - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, docs.length * 2);
+            }
+            System.arraycopy(docs, insert, docs, insert + 1, size - insert);
+            docs[insert] = doc;
+            size++;
+        }
+
+        private boolean remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        private boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+    }
+}
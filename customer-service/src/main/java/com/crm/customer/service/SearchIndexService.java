@@ -0,0 +1,472 @@
+package com.crm.customer.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.entity.Customer;
+import com.crm.customer.entity.Lead;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.LeadRepository;
+
+/**
+ * Full-text search over leads and customers, one {@link SearchIndex} per
+ * tenant and entity type.
+ *
+ * A tenant's first search starts loading its index in the background and is
+ * answered by the plain database search until the index is ready. The load
+ * reads the segment file when it still matches MySQL (same row count, no newer
+ * updatedAt), otherwise it rebuilds by paging through the tenant's rows.
+ * Creates, updates and deletes through LeadService and CustomerService are
+ * applied to the loaded index and to one being built, and a load finishes by
+ * re-reading rows updated since it started, so no write made meanwhile is
+ * lost. Every refresh-ms the loaded indexes pick up rows other instances
+ * changed, by updatedAt; an index holding more documents than the table has
+ * rows (a delete elsewhere) is rebuilt. Dirty indexes are written back to disk
+ * every flush-ms and on shutdown.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexService.class);
+
+    public static final String LEADS = "leads";
+    public static final String CUSTOMERS = "customers";
+
+    private static final int REBUILD_BATCH = 1000;
+    private static final int MAX_RESULTS = 100;
+
+    @Value("${app.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.dir:./data/search-index}")
+    private String dir;
+
+    @Value("${app.search.refresh-overlap-ms:60000}")
+    private long refreshOverlapMs;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    @Qualifier("searchExecutor")
+    private ExecutorService searchExecutor;
+
+    private final Map<String, Holder> indexes = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether the tenant's index is loaded; starts loading it in the background if not.
+     */
+    public boolean isReady(String type, String companyId) {
+        return enabled && companyId != null && index(type, companyId) != null;
+    }
+
+    /**
+     * Ranked leads matching the query, best first.
+     */
+    public List<Lead> searchLeads(String companyId, String query, int limit) {
+        List<Long> ids = loaded(LEADS, companyId).search(query, clamp(limit));
+        return inRankOrder(ids, leadRepository.findAllById(ids), Lead::getId, Lead::getCompanyId, companyId);
+    }
+
+    /**
+     * Ranked customers matching the query, best first.
+     */
+    public List<Customer> searchCustomers(String companyId, String query, int limit) {
+        List<Long> ids = loaded(CUSTOMERS, companyId).search(query, clamp(limit));
+        return inRankOrder(ids, customerRepository.findAllById(ids), Customer::getId, Customer::getCompanyId,
+                companyId);
+    }
+
+    public void indexLead(Lead lead) {
+        for (SearchIndex index : writable(LEADS, lead.getCompanyId())) {
+            index.put(lead.getId(), fields(lead), lead.getUpdatedAt());
+        }
+    }
+
+    public void removeLead(Lead lead) {
+        for (SearchIndex index : writable(LEADS, lead.getCompanyId())) {
+            index.remove(lead.getId());
+        }
+    }
+
+    public void indexCustomer(Customer customer) {
+        for (SearchIndex index : writable(CUSTOMERS, customer.getCompanyId())) {
+            index.put(customer.getId(), fields(customer), customer.getUpdatedAt());
+        }
+    }
+
+    public void removeCustomer(Customer customer) {
+        for (SearchIndex index : writable(CUSTOMERS, customer.getCompanyId())) {
+            index.remove(customer.getId());
+        }
+    }
+
+    /**
+     * Rebuilds the tenant's index from MySQL and writes its segment. The old
+     * index keeps answering searches until the new one is swapped in.
+     */
+    public Map<String, Object> rebuild(String type, String companyId) {
+        Holder holder = indexes.computeIfAbsent(key(type, companyId), k -> new Holder());
+        long started = System.currentTimeMillis();
+        SearchIndex index = load(type, companyId, holder, false);
+        Map<String, Object> result = new HashMap<>();
+        result.put("companyId", companyId);
+        result.put("type", type);
+        result.put("documents", index.size());
+        result.put("tookMs", System.currentTimeMillis() - started);
+        return result;
+    }
+
+    /**
+     * Picks up rows changed by other instances since the last refresh, and
+     * schedules a rebuild for indexes that hold rows deleted elsewhere.
+     */
+    @Scheduled(fixedDelayString = "${app.search.refresh-ms:30000}",
+            initialDelayString = "${app.search.refresh-ms:30000}")
+    public void refresh() {
+        for (Map.Entry<String, Holder> entry : indexes.entrySet()) {
+            Holder holder = entry.getValue();
+            SearchIndex index = holder.current;
+            if (index == null || holder.loading) {
+                continue;
+            }
+            String[] key = entry.getKey().split("/", 2);
+            try {
+                LocalDateTime started = LocalDateTime.now();
+                int changed = catchUp(key[0], key[1], index, holder.since);
+                holder.since = started.minusNanos(refreshOverlapMs * 1_000_000);
+                long rows = LEADS.equals(key[0]) ? leadRepository.countByCompanyId(key[1])
+                        : customerRepository.countByCompanyId(key[1]);
+                if (index.size() > rows) {
+                    logger.info("{} search index for company {} has {} documents for {} rows, rebuilding", key[0],
+                            key[1], index.size(), rows);
+                    loadInBackground(key[0], key[1], holder, false);
+                } else if (changed > 0) {
+                    logger.debug("Refreshed {} changed {} in search index for company {}", changed, key[0], key[1]);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Refreshing {} search index for company {} failed: {}", key[0], key[1], e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.flush-ms:60000}")
+    public void flush() {
+        for (Map.Entry<String, Holder> entry : indexes.entrySet()) {
+            SearchIndex index = entry.getValue().current;
+            if (index != null && index.isDirty()) {
+                String[] key = entry.getKey().split("/", 2);
+                write(key[0], key[1], index);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    // ========== Opening and building ==========
+
+    /**
+     * The tenant's index once loaded, otherwise null after starting a background load.
+     */
+    private SearchIndex index(String type, String companyId) {
+        Holder holder = indexes.computeIfAbsent(key(type, companyId), k -> new Holder());
+        SearchIndex current = holder.current;
+        if (current == null) {
+            loadInBackground(type, companyId, holder, true);
+        }
+        return current;
+    }
+
+    private SearchIndex loaded(String type, String companyId) {
+        if (!enabled) {
+            throw new RuntimeException("Search index is disabled");
+        }
+        SearchIndex index = index(type, companyId);
+        if (index == null) {
+            throw new RuntimeException("Search index for company " + companyId + " is still loading");
+        }
+        return index;
+    }
+
+    /**
+     * The indexes a write has to reach: the loaded one and any being built.
+     * Writes to tenants nobody searched yet are picked up when they load.
+     */
+    private SearchIndex[] writable(String type, String companyId) {
+        Holder holder = enabled && companyId != null ? indexes.get(key(type, companyId)) : null;
+        if (holder == null) {
+            return new SearchIndex[0];
+        }
+        // next before current: a load sets current before clearing next, so neither write is missed
+        SearchIndex next = holder.next;
+        SearchIndex current = holder.current;
+        if (next == null || next == current) {
+            return current == null ? new SearchIndex[0] : new SearchIndex[] { current };
+        }
+        return current == null ? new SearchIndex[] { next } : new SearchIndex[] { current, next };
+    }
+
+    private void loadInBackground(String type, String companyId, Holder holder, boolean useSegment) {
+        if (holder.loading) {
+            return;
+        }
+        synchronized (holder) {
+            if (holder.loading) {
+                return;
+            }
+            holder.loading = true;
+            try {
+                searchExecutor.execute(() -> {
+                    try {
+                        load(type, companyId, holder, useSegment);
+                    } catch (RuntimeException e) {
+                        logger.warn("Loading {} search index for company {} failed: {}", type, companyId,
+                                e.getMessage());
+                    } finally {
+                        holder.loading = false;
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                holder.loading = false;
+            }
+        }
+    }
+
+    /**
+     * Opens or builds the tenant's index, catches it up with the rows changed
+     * while that ran, and swaps it in. Loads of one tenant run one at a time.
+     */
+    private SearchIndex load(String type, String companyId, Holder holder, boolean useSegment) {
+        synchronized (holder.loadLock) {
+            LocalDateTime started = LocalDateTime.now();
+            LocalDateTime since = started.minusNanos(refreshOverlapMs * 1_000_000);
+            SearchIndex index = useSegment ? openSegment(type, companyId) : null;
+            boolean fromSegment = index != null;
+            if (index == null) {
+                index = new SearchIndex();
+            }
+            holder.next = index;
+            try {
+                if (!fromSegment) {
+                    build(type, companyId, index);
+                }
+                // Pages read early may predate writes made during the load; read those rows again
+                catchUp(type, companyId, index, since);
+                holder.since = since;
+                holder.current = index;
+            } finally {
+                holder.next = null;
+            }
+            if (!fromSegment) {
+                write(type, companyId, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Re-indexes the tenant's rows updated at or after since; returns how many.
+     */
+    private int catchUp(String type, String companyId, SearchIndex index, LocalDateTime since) {
+        int changed = 0;
+        Pageable batch = PageRequest.of(0, REBUILD_BATCH);
+        if (LEADS.equals(type)) {
+            List<Lead> page = leadRepository.findPageUpdatedAfter(companyId, since, 0L, batch);
+            while (!page.isEmpty()) {
+                for (Lead lead : page) {
+                    index.put(lead.getId(), fields(lead), lead.getUpdatedAt());
+                }
+                changed += page.size();
+                Lead last = page.get(page.size() - 1);
+                page = page.size() < REBUILD_BATCH ? new ArrayList<>()
+                        : leadRepository.findPageUpdatedAfter(companyId, last.getUpdatedAt(), last.getId(), batch);
+            }
+        } else {
+            List<Customer> page = customerRepository.findPageUpdatedAfter(companyId, since, 0L, batch);
+            while (!page.isEmpty()) {
+                for (Customer customer : page) {
+                    index.put(customer.getId(), fields(customer), customer.getUpdatedAt());
+                }
+                changed += page.size();
+                Customer last = page.get(page.size() - 1);
+                page = page.size() < REBUILD_BATCH ? new ArrayList<>()
+                        : customerRepository.findPageUpdatedAfter(companyId, last.getUpdatedAt(), last.getId(),
+                                batch);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * The tenant's segment when it still matches MySQL, otherwise null.
+     */
+    private SearchIndex openSegment(String type, String companyId) {
+        Path file = segment(type, companyId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            SearchIndex index = SearchIndex.readFrom(file);
+            long rows = LEADS.equals(type) ? leadRepository.countByCompanyId(companyId)
+                    : customerRepository.countByCompanyId(companyId);
+            LocalDateTime lastUpdated = LEADS.equals(type) ? leadRepository.findLastUpdatedAt(companyId)
+                    : customerRepository.findLastUpdatedAt(companyId);
+            if (index.size() == rows && Objects.equals(millis(index.getLastUpdatedAt()), millis(lastUpdated))) {
+                logger.info("Opened {} search segment for company {} ({} documents)", type, companyId, rows);
+                return index;
+            }
+            logger.info("Search segment {} is stale, rebuilding", file);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unreadable search segment {}, rebuilding: {}", file, e.getMessage());
+        }
+        return null;
+    }
+
+    private void build(String type, String companyId, SearchIndex index) {
+        long started = System.currentTimeMillis();
+        Pageable batch = PageRequest.of(0, REBUILD_BATCH);
+        if (LEADS.equals(type)) {
+            List<Lead> page = leadRepository.findPageByCompanyId(companyId, batch);
+            while (!page.isEmpty()) {
+                for (Lead lead : page) {
+                    index.put(lead.getId(), fields(lead), lead.getUpdatedAt());
+                }
+                Lead last = page.get(page.size() - 1);
+                page = page.size() < REBUILD_BATCH ? new ArrayList<>()
+                        : leadRepository.findPageByCompanyIdAfter(companyId, last.getCreatedAt(), last.getId(), batch);
+            }
+        } else {
+            List<Customer> page = customerRepository.findPageByCompanyId(companyId, batch);
+            while (!page.isEmpty()) {
+                for (Customer customer : page) {
+                    index.put(customer.getId(), fields(customer), customer.getUpdatedAt());
+                }
+                Customer last = page.get(page.size() - 1);
+                page = page.size() < REBUILD_BATCH ? new ArrayList<>()
+                        : customerRepository.findPageByCompanyIdAfter(companyId, last.getCreatedAt(), last.getId(),
+                                batch);
+            }
+        }
+        logger.info("Built {} search index for company {}: {} documents in {} ms", type, companyId, index.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    private void write(String type, String companyId, SearchIndex index) {
+        try {
+            index.writeTo(segment(type, companyId));
+        } catch (IOException e) {
+            logger.warn("Writing {} search segment for company {} failed: {}", type, companyId, e.getMessage());
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private static String[] fields(Lead lead) {
+        String[] fields = new String[SearchIndex.FIELDS];
+        fields[SearchIndex.NAME] = join(lead.getFirstName(), lead.getLastName());
+        fields[SearchIndex.EMAIL] = lead.getEmail();
+        fields[SearchIndex.COMPANY] = lead.getCompany();
+        fields[SearchIndex.PHONE] = lead.getPhone();
+        fields[SearchIndex.TEXT] = join(lead.getTitle(), lead.getNotes());
+        return fields;
+    }
+
+    private static String[] fields(Customer customer) {
+        String[] fields = new String[SearchIndex.FIELDS];
+        fields[SearchIndex.NAME] = join(customer.getFirstName(), customer.getLastName());
+        fields[SearchIndex.EMAIL] = customer.getEmail();
+        fields[SearchIndex.COMPANY] = customer.getCompany();
+        fields[SearchIndex.PHONE] = customer.getPhone();
+        fields[SearchIndex.TEXT] = join(customer.getJobTitle(), customer.getCity());
+        return fields;
+    }
+
+    private static String join(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + " " + second;
+    }
+
+    private static <T> List<T> inRankOrder(List<Long> ids, List<T> rows, Function<T, Long> id,
+            Function<T, String> companyOf, String companyId) {
+        Map<Long, T> byId = new HashMap<>();
+        for (T row : rows) {
+            if (companyId.equals(companyOf.apply(row))) {
+                byId.put(id.apply(row), row);
+            }
+        }
+        List<T> ranked = new ArrayList<>();
+        for (Long rowId : ids) {
+            T row = byId.get(rowId);
+            if (row != null) {
+                ranked.add(row);
+            }
+        }
+        return ranked;
+    }
+
+    /** MySQL keeps microseconds while the JVM clock may carry nanoseconds. */
+    private static LocalDateTime millis(LocalDateTime value) {
+        return value != null ? value.truncatedTo(ChronoUnit.MILLIS) : null;
+    }
+
+    private static int clamp(int limit) {
+        return limit < 1 ? 1 : Math.min(limit, MAX_RESULTS);
+    }
+
+    private Path segment(String type, String companyId) {
+        String name = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(companyId.getBytes(StandardCharsets.UTF_8));
+        return Paths.get(dir, type, name + ".seg");
+    }
+
+    private static String key(String type, String companyId) {
+        return type + "/" + companyId;
+    }
+
+    private static final class Holder {
+        private final Object loadLock = new Object();
+        private volatile SearchIndex current;
+        private volatile SearchIndex next; // being built
+        private volatile boolean loading;
+        private volatile LocalDateTime since; // rows updated from here on are re-read by the next refresh
+    }
+}
@@ -0,0 +1,77 @@
+package com.crm.customer.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.crm.customer.repository.ActivityRepository;
+import com.crm.customer.repository.CustomerRepository;
+import com.crm.customer.repository.LeadRepository;
+
+/**
+ * Computes tenant-level counts in the database so callers such as
+ * analytics-service do not have to download every row to count it.
+ */
+@Service
+public class StatsService {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private LeadRepository leadRepository;
+
+    @Autowired
+    private ActivityRepository activityRepository;
+
+    public Map<String, Object> getStats(String companyId) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalCustomers", customerRepository.countByCompanyId(companyId));
+        stats.put("totalLeads", leadRepository.countByCompanyId(companyId));
+        stats.put("totalActivities", activityRepository.countByCompanyId(companyId));
+        stats.put("recentActivities", activityRepository.findTop5ByCompanyIdOrderByCreatedAtDesc(companyId));
+
+        List<Map<String, Object>> leadsByMonth = new ArrayList<>();
+        for (Object[] row : leadRepository.countByMonth(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("year", row[0]);
+            bucket.put("month", row[1]);
+            bucket.put("count", row[2]);
+            leadsByMonth.add(bucket);
+        }
+        stats.put("leadsByMonth", leadsByMonth);
+
+        List<Map<String, Object>> leadsByStatus = new ArrayList<>();
+        for (Object[] row : leadRepository.countByStatus(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("status", row[0] != null ? row[0].toString() : "UNKNOWN");
+            bucket.put("count", row[1]);
+            leadsByStatus.add(bucket);
+        }
+        stats.put("leadsByStatus", leadsByStatus);
+        return stats;
+    }
+
+    /**
+     * Leads created per day, for analytics' trend rollups.
+     */
+    public Map<String, Object> getDailyLeadStats(String companyId) {
+        List<Map<String, Object>> leadsByDay = new ArrayList<>();
+        for (Object[] row : leadRepository.countByDay(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("year", row[0]);
+            bucket.put("month", row[1]);
+            bucket.put("day", row[2]);
+            bucket.put("count", row[3]);
+            leadsByDay.add(bucket);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("leadsByDay", leadsByDay);
+        return stats;
+    }
+}
@@ -28,6 +28,15 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.sendFromWorkflow(payload));
     }
 
+    /**
+     * POST /api/notifications/send-batch
+     * Many notifications in one call; used by the background senders of other services.
+     */
+    @PostMapping("/send-batch")
+    public ResponseEntity<Map<String, Object>> sendBatch(@RequestBody List<Map<String, Object>> payloads) {
+        return ResponseEntity.ok(notificationService.sendBatch(payloads));
+    }
+
     /**
      * POST /api/notifications
      * Create and send a notification with full details.
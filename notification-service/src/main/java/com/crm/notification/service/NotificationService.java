@@ -3,9 +3,14 @@ package com.crm.notification.service;
 import com.crm.notification.entity.Notification;
 import com.crm.notification.repository.NotificationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,9 +18,19 @@ import java.util.Map;
 @Service
 public class NotificationService {
 
+    private static final String INSERT_NOTIFICATION = "INSERT INTO notifications (type, title, message, "
+            + "recipient_user_id, status, source, reference_type, reference_id, sent_at, retry_count, is_deleted, "
+            + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, false, ?)";
+
+    @Value("${app.notifications.max-batch-size:1000}")
+    private int maxBatchSize;
+
     @Autowired
     private NotificationRepository notificationRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     public Map<String, Object> sendFromWorkflow(Map<String, Object> payload) {
         Notification notification = new Notification();
         notification.setTitle((String) payload.getOrDefault("title", "Notification"));
@@ -36,6 +51,53 @@ public class NotificationService {
         return response;
     }
 
+    /**
+     * Stores a batch of notifications from another service with one batched
+     * insert. Each payload takes the fields of /send plus type, source,
+     * referenceType and referenceId.
+     */
+    @Transactional
+    public Map<String, Object> sendBatch(List<Map<String, Object>> payloads) {
+        if (payloads.size() > maxBatchSize) {
+            throw new RuntimeException("At most " + maxBatchSize + " notifications per batch");
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(payloads.size());
+        for (Map<String, Object> payload : payloads) {
+            String title = String.valueOf(payload.getOrDefault("title", "Notification"));
+            rows.add(new Object[] {
+                    type(payload.get("type")).name(),
+                    title.length() > 200 ? title.substring(0, 200) : title,
+                    payload.getOrDefault("message", ""),
+                    payload.get("recipientUserId") != null ? Long.valueOf(payload.get("recipientUserId").toString())
+                            : null,
+                    Notification.NotificationStatus.SENT.name(),
+                    payload.getOrDefault("source", "workflow-service"),
+                    payload.get("referenceType"),
+                    payload.get("referenceId") != null ? Long.valueOf(payload.get("referenceId").toString()) : null,
+                    now, now });
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NOTIFICATION, rows);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "SENT");
+        response.put("count", rows.size());
+        return response;
+    }
+
+    private static Notification.NotificationType type(Object value) {
+        if (value != null) {
+            try {
+                return Notification.NotificationType.valueOf(value.toString().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Unknown types are delivered in-app
+            }
+        }
+        return Notification.NotificationType.IN_APP;
+    }
+
     public Notification sendNotification(Notification notification) {
         notification.setSentAt(LocalDateTime.now());
         notification.setStatus(Notification.NotificationStatus.SENT);
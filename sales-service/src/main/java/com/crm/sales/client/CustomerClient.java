@@ -4,6 +4,11 @@ import com.crm.sales.dto.CustomerDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
 
 /**
  * Feign Client to communicate with Customer Service.
@@ -14,4 +19,18 @@ public interface CustomerClient {
 
     @GetMapping("/api/customers/{id}")
     CustomerDTO getCustomerById(@PathVariable("id") Long id);
+
+    /**
+     * Summaries of the customers with these ids; unknown ids are left out.
+     * Go through {@link CustomerLoader} to batch lookups within a request.
+     */
+    @PostMapping("/api/customers/batch")
+    List<CustomerDTO> getCustomersByIds(@RequestBody List<Long> ids);
+
+    /**
+     * Up to limit of the company's customer ids above after, in id order; see CustomerCacheService.
+     */
+    @GetMapping("/api/customers/ids")
+    List<Long> getCustomerIds(@RequestParam("companyId") String companyId, @RequestParam("after") long after,
+            @RequestParam("limit") int limit);
 }
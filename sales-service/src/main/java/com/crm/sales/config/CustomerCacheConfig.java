@@ -0,0 +1,29 @@
+package com.crm.sales.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * One background worker that loads tenants' customer ids into the
+ * customer-existence cache. A full queue rejects the load; the tenant is
+ * queued again on its next cache miss.
+ */
+@Configuration
+public class CustomerCacheConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService customerCacheExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "customer-cache-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,8 +1,11 @@
 package com.crm.sales.controller;
 
+import com.crm.sales.dto.CursorPage;
 import com.crm.sales.dto.DealDTO;
 import com.crm.sales.entity.Deal;
+import com.crm.sales.service.CustomerCacheService;
 import com.crm.sales.service.DealService;
+import com.crm.sales.service.PipelineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/deals")
@@ -19,14 +23,78 @@ public class DealController {
     @Autowired
     private DealService dealService;
 
+    @Autowired
+    private CustomerCacheService customerCacheService;
+
+    @Autowired
+    private PipelineService pipelineService;
+
     @PostMapping
     public ResponseEntity<Deal> createDeal(@Valid @RequestBody DealDTO dto) {
         return ResponseEntity.status(HttpStatus.CREATED).body(dealService.createDeal(dto));
     }
 
     @GetMapping
-    public ResponseEntity<List<Deal>> getAllDeals(@RequestParam String companyId) {
-        return ResponseEntity.ok(dealService.getAllDeals(companyId));
+    public ResponseEntity<List<Deal>> getAllDeals(@RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(dealService.getAllDeals(companyId), expand));
+    }
+
+    /**
+     * GET /api/deals/stats
+     * Deal count and value per stage and month, computed in the database.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getDealStats(@RequestParam String companyId) {
+        return ResponseEntity.ok(dealService.getDealStats(companyId));
+    }
+
+    /**
+     * GET /api/deals/stats/daily
+     * Closed-won deals per day, used by analytics-service to backfill its trend rollups.
+     */
+    @GetMapping("/stats/daily")
+    public ResponseEntity<Map<String, Object>> getDailyDealStats(@RequestParam String companyId) {
+        return ResponseEntity.ok(dealService.getDailyDealStats(companyId));
+    }
+
+    /**
+     * GET /api/deals/pipeline
+     * The sales board: per stage, its deal count and value and the first size
+     * deals; fetch more of a column from /pipeline/{stage} with its nextCursor.
+     */
+    @GetMapping("/pipeline")
+    public ResponseEntity<Map<String, Object>> getPipeline(@RequestParam String companyId,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(pipelineService.getBoard(companyId, size, "customer".equals(expand)));
+    }
+
+    @GetMapping("/pipeline/{stage}")
+    public ResponseEntity<CursorPage<Deal>> getPipelineColumn(@PathVariable String stage,
+            @RequestParam String companyId, @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size, @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(pipelineService.getColumn(companyId, stage, cursor, size, "customer".equals(expand)));
+    }
+
+    /**
+     * POST /api/deals/customer-events
+     * Customer CREATED / DELETED events pushed by customer-service to keep the
+     * customer-existence cache current.
+     */
+    @PostMapping("/customer-events")
+    public ResponseEntity<Void> customerEvents(@RequestBody List<Map<String, Object>> events) {
+        customerCacheService.apply(events);
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/customer-cache")
+    public ResponseEntity<Map<String, Object>> getCustomerCacheStats() {
+        return ResponseEntity.ok(customerCacheService.getStats());
+    }
+
+    @PostMapping("/customer-cache/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildCustomerCache(@RequestParam String companyId) {
+        return ResponseEntity.ok(customerCacheService.rebuild(companyId));
     }
 
     @GetMapping("/{id}")
@@ -35,8 +103,9 @@ public class DealController {
     }
 
     @GetMapping("/stage/{stage}")
-    public ResponseEntity<List<Deal>> getDealsByStage(@PathVariable String stage, @RequestParam String companyId) {
-        return ResponseEntity.ok(dealService.getDealsByStage(companyId, stage));
+    public ResponseEntity<List<Deal>> getDealsByStage(@PathVariable String stage, @RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(dealService.getDealsByStage(companyId, stage), expand));
     }
 
     @GetMapping("/customer/{customerId}")
@@ -45,14 +114,26 @@ public class DealController {
         return ResponseEntity.ok(dealService.getDealsByCustomer(companyId, customerId));
     }
 
+    /**
+     * GET /api/deals/customer/{customerId}/summary
+     * The customer's newest deals, at most limit, with counts and values over all of them.
+     */
+    @GetMapping("/customer/{customerId}/summary")
+    public ResponseEntity<Map<String, Object>> getCustomerDealSummary(@PathVariable Long customerId,
+            @RequestParam String companyId, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(dealService.getCustomerDealSummary(companyId, customerId, limit));
+    }
+
     @GetMapping("/assigned/{userId}")
-    public ResponseEntity<List<Deal>> getDealsByAssignee(@PathVariable Long userId, @RequestParam String companyId) {
-        return ResponseEntity.ok(dealService.getDealsByAssignee(companyId, userId));
+    public ResponseEntity<List<Deal>> getDealsByAssignee(@PathVariable Long userId, @RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(dealService.getDealsByAssignee(companyId, userId), expand));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<Deal>> searchDeals(@RequestParam String keyword, @RequestParam String companyId) {
-        return ResponseEntity.ok(dealService.searchDeals(companyId, keyword));
+    public ResponseEntity<List<Deal>> searchDeals(@RequestParam String keyword, @RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(dealService.searchDeals(companyId, keyword), expand));
     }
 
     @PutMapping("/{id}")
@@ -70,4 +151,11 @@ public class DealController {
         dealService.deleteDeal(id);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * expand=customer adds customerName to every deal, looked up in one batch.
+     */
+    private List<Deal> expand(List<Deal> deals, String expand) {
+        return "customer".equals(expand) ? dealService.withCustomerNames(deals) : deals;
+    }
 }
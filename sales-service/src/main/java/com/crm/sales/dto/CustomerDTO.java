@@ -15,4 +15,10 @@ public class CustomerDTO {
     private String phone;
     private String company;
     private String status;
+    private String companyId;
+
+    public String getFullName() {
+        String name = (firstName == null ? "" : firstName) + " " + (lastName == null ? "" : lastName);
+        return name.trim();
+    }
 }
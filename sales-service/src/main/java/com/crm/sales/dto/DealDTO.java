@@ -28,4 +28,5 @@ public class DealDTO {
     private String nextStep;
     private Integer probability;
     private String campaignSource;
+    private Integer pipelineOrder;
 }
@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 @Table(name = "deals", indexes = {
         @Index(name = "idx_deal_company_id", columnList = "companyId"),
         @Index(name = "idx_deal_stage", columnList = "stage"),
-        @Index(name = "idx_deal_assigned_to", columnList = "assignedTo")
+        @Index(name = "idx_deal_assigned_to", columnList = "assignedTo"),
+        @Index(name = "idx_deal_company_stage_order", columnList = "companyId, stage, pipelineOrder"),
+        @Index(name = "idx_deal_company_stage_value", columnList = "companyId, stage, value"),
+        @Index(name = "idx_deal_company_customer", columnList = "companyId, customerId, createdAt")
 })
 @Data
 @NoArgsConstructor
@@ -66,7 +69,10 @@ public class Deal {
     @Column(length = 100)
     private String pipelineName;
 
-    private Integer pipelineOrder;
+    private Integer pipelineOrder = 0; // position within the stage column, lowest first
+
+    @Transient
+    private String customerName; // filled by DealService#withCustomerNames, not stored
 
     private boolean isDeleted = false;
     private LocalDateTime deletedAt;
@@ -1,8 +1,13 @@
 package com.crm.sales.repository;
 
 import com.crm.sales.entity.Deal;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,13 +16,72 @@ public interface DealRepository extends JpaRepository<Deal, Long> {
 
     List<Deal> findByCompanyId(String companyId);
 
+    @Query("SELECT DISTINCT d.companyId FROM Deal d WHERE d.companyId IS NOT NULL")
+    List<String> findDistinctCompanyIds();
+
     List<Deal> findByCompanyIdAndStage(String companyId, Deal.DealStage stage);
 
+    /**
+     * The first deals of a pipeline column; see PipelineService.
+     */
+    @Query("SELECT d FROM Deal d WHERE d.companyId = :companyId AND d.stage = :stage "
+            + "ORDER BY d.pipelineOrder, d.id")
+    List<Deal> findPipelinePage(@Param("companyId") String companyId, @Param("stage") Deal.DealStage stage,
+            Pageable pageable);
+
+    /**
+     * The deals of a pipeline column after (pipelineOrder, id).
+     */
+    @Query("SELECT d FROM Deal d WHERE d.companyId = :companyId AND d.stage = :stage "
+            + "AND (d.pipelineOrder > :pipelineOrder OR (d.pipelineOrder = :pipelineOrder AND d.id > :id)) "
+            + "ORDER BY d.pipelineOrder, d.id")
+    List<Deal> findPipelinePageAfter(@Param("companyId") String companyId, @Param("stage") Deal.DealStage stage,
+            @Param("pipelineOrder") Integer pipelineOrder, @Param("id") Long id, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Deal d SET d.pipelineOrder = 0 WHERE d.pipelineOrder IS NULL")
+    int backfillPipelineOrder();
+
     List<Deal> findByCompanyIdAndCustomerId(String companyId, Long customerId);
 
+    List<Deal> findByCompanyIdAndCustomerIdOrderByCreatedAtDesc(String companyId, Long customerId,
+            Pageable pageable);
+
+    /**
+     * A customer's deal count and value per stage as rows of [stage, count, sum(value)].
+     */
+    @Query("SELECT d.stage, COUNT(d), SUM(d.value) FROM Deal d "
+            + "WHERE d.companyId = :companyId AND d.customerId = :customerId GROUP BY d.stage")
+    List<Object[]> summarizeByCustomer(@Param("companyId") String companyId, @Param("customerId") Long customerId);
+
     List<Deal> findByCompanyIdAndAssignedTo(String companyId, Long userId);
 
     List<Deal> findByCompanyIdAndTitleContaining(String companyId, String title);
 
     List<Deal> findByCompanyIdAndPriority(String companyId, String priority);
+
+    /**
+     * Deal count and value per stage as rows of [stage, count, sum(value)].
+     */
+    @Query("SELECT d.stage, COUNT(d), SUM(d.value) FROM Deal d WHERE d.companyId = :companyId GROUP BY d.stage")
+    List<Object[]> summarizeByStage(@Param("companyId") String companyId);
+
+    /**
+     * Deal count and value per stage and creation month as rows of
+     * [stage, year, month, count, sum(value)].
+     */
+    @Query("SELECT d.stage, year(d.createdAt), month(d.createdAt), COUNT(d), SUM(d.value) FROM Deal d "
+            + "WHERE d.companyId = :companyId AND d.createdAt IS NOT NULL "
+            + "GROUP BY d.stage, year(d.createdAt), month(d.createdAt)")
+    List<Object[]> summarizeByStageAndMonth(@Param("companyId") String companyId);
+
+    /**
+     * Count and value of the deals in one stage per creation day as rows of
+     * [year, month, day, count, sum(value)].
+     */
+    @Query("SELECT year(d.createdAt), month(d.createdAt), day(d.createdAt), COUNT(d), SUM(d.value) FROM Deal d "
+            + "WHERE d.companyId = :companyId AND d.stage = :stage AND d.createdAt IS NOT NULL "
+            + "GROUP BY year(d.createdAt), month(d.createdAt), day(d.createdAt)")
+    List<Object[]> summarizeByDay(@Param("companyId") String companyId, @Param("stage") Deal.DealStage stage);
 }
@@ -0,0 +1,258 @@
+package com.crm.sales.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.crm.sales.client.CustomerClient;
+import com.crm.sales.client.CustomerLoader;
+import com.crm.sales.dto.CustomerDTO;
+import com.crm.sales.repository.DealRepository;
+
+/**
+ * Answers "does this customer exist" for deal writes from memory.
+ *
+ * Each tenant's customer ids are paged in from GET /api/customers/ids into a
+ * {@link CustomerIdSet} in the background: at startup for every tenant that
+ * has deals, otherwise on the tenant's first lookup. Customer-service pushes
+ * creates and deletes to /api/deals/customer-events to keep the sets current,
+ * and loaded tenants are reloaded every app.customer-cache.refresh-ms in case
+ * an event was lost. An id the cache does not know is looked up remotely, so
+ * a miss costs what every lookup used to; a deleted customer whose event was
+ * lost can still pass until the next reload.
+ */
+@Service
+public class CustomerCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerCacheService.class);
+
+    @Value("${app.customer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.customer-cache.page-size:10000}")
+    private int pageSize;
+
+    @Value("${app.customer-cache.max-tenants:1000}")
+    private int maxTenants;
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    @Autowired
+    private CustomerLoader customerLoader;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    @Qualifier("customerCacheExecutor")
+    private ExecutorService executor;
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Whether the customer exists; remote lookups that find it in this tenant are remembered.
+     */
+    public boolean exists(String companyId, Long customerId) {
+        Tenant tenant = enabled && companyId != null ? tenant(companyId) : null;
+        if (tenant != null) {
+            CustomerIdSet ids = tenant.current;
+            if (ids != null && ids.contains(customerId)) {
+                hits.incrementAndGet();
+                return true;
+            }
+            misses.incrementAndGet();
+            if (ids == null) {
+                schedule(companyId, tenant);
+            }
+        }
+        CustomerDTO customer = customerLoader.get(customerId);
+        if (customer == null) {
+            return false;
+        }
+        if (tenant != null && companyId.equals(customer.getCompanyId())) {
+            for (CustomerIdSet ids : loaded(tenant)) {
+                ids.add(customerId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies CREATED / DELETED customer events from customer-service.
+     */
+    public void apply(List<Map<String, Object>> events) {
+        for (Map<String, Object> event : events) {
+            Object companyId = event.get("companyId");
+            Object customerId = event.get("customerId");
+            Tenant tenant = companyId == null ? null : tenants.get(companyId.toString());
+            if (tenant == null || customerId == null) {
+                continue;
+            }
+            long id = Long.parseLong(customerId.toString());
+            boolean created = "CREATED".equals(event.get("eventType"));
+            if (!created && tenant.next != null) {
+                // A page still to come may hold the id; load removes it again after the last page
+                tenant.deletedWhileLoading.add(id);
+            }
+            for (CustomerIdSet ids : loaded(tenant)) {
+                if (created) {
+                    ids.add(id);
+                } else {
+                    ids.remove(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the tenant's customer ids now.
+     */
+    public Map<String, Object> rebuild(String companyId) {
+        long started = System.currentTimeMillis();
+        CustomerIdSet ids = load(companyId, tenants.computeIfAbsent(companyId, id -> new Tenant()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("companyId", companyId);
+        result.put("customerIds", ids.size());
+        result.put("tookMs", System.currentTimeMillis() - started);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        long ids = 0;
+        for (Tenant tenant : tenants.values()) {
+            CustomerIdSet current = tenant.current;
+            ids += current == null ? 0 : current.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("tenants", tenants.size());
+        stats.put("customerIds", ids);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!enabled) {
+            return;
+        }
+        for (String companyId : dealRepository.findDistinctCompanyIds()) {
+            Tenant tenant = tenant(companyId);
+            if (tenant == null) {
+                break;
+            }
+            schedule(companyId, tenant);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.customer-cache.refresh-ms:3600000}",
+            initialDelayString = "${app.customer-cache.refresh-ms:3600000}")
+    public void refresh() {
+        for (Map.Entry<String, Tenant> entry : tenants.entrySet()) {
+            if (entry.getValue().current != null) {
+                schedule(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // ========== Tenants ==========
+
+    /**
+     * The tenant's entry, or null when max-tenants are cached already.
+     */
+    private Tenant tenant(String companyId) {
+        Tenant tenant = tenants.get(companyId);
+        if (tenant == null && tenants.size() < maxTenants) {
+            tenant = tenants.computeIfAbsent(companyId, id -> new Tenant());
+        }
+        return tenant;
+    }
+
+    private void schedule(String companyId, Tenant tenant) {
+        if (!tenant.queued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    load(companyId, tenant);
+                } catch (RuntimeException e) {
+                    logger.warn("Customer cache load failed for company {}: {}", companyId, e.getMessage());
+                } finally {
+                    tenant.queued.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            tenant.queued.set(false);
+        }
+    }
+
+    /**
+     * The sets a change has to reach: the current one and any being loaded.
+     */
+    private static CustomerIdSet[] loaded(Tenant tenant) {
+        CustomerIdSet current = tenant.current;
+        CustomerIdSet next = tenant.next;
+        if (current == null) {
+            return next == null ? new CustomerIdSet[0] : new CustomerIdSet[] { next };
+        }
+        return next == null ? new CustomerIdSet[] { current } : new CustomerIdSet[] { current, next };
+    }
+
+    private CustomerIdSet load(String companyId, Tenant tenant) {
+        synchronized (tenant) {
+            long started = System.currentTimeMillis();
+            CustomerIdSet fresh = new CustomerIdSet();
+            tenant.deletedWhileLoading.clear();
+            tenant.next = fresh;
+            try {
+                long after = 0;
+                List<Long> page;
+                do {
+                    page = customerClient.getCustomerIds(companyId, after, pageSize);
+                    for (Long id : page) {
+                        fresh.add(id);
+                        after = Math.max(after, id);
+                    }
+                } while (page.size() >= pageSize);
+                for (Long id : tenant.deletedWhileLoading) {
+                    fresh.remove(id);
+                }
+                tenant.current = fresh;
+            } finally {
+                tenant.next = null;
+                tenant.deletedWhileLoading.clear();
+            }
+            logger.info("Loaded {} customer ids for company {} in {} ms", fresh.size(), companyId,
+                    System.currentTimeMillis() - started);
+            return fresh;
+        }
+    }
+
+    private static final class Tenant {
+        volatile CustomerIdSet current;
+        volatile CustomerIdSet next; // being loaded
+        final AtomicBoolean queued = new AtomicBoolean();
+        final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+    }
+}
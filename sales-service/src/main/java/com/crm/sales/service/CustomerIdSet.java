@@ -0,0 +1,93 @@
+package com.crm.sales.service;
+
+/**
+ * The customer ids of one tenant, in an open-addressing table of primitive
+ * longs kept at most half full, so an id costs about 16 bytes and a lookup
+ * is a hash and a short probe. Ids are positive, so 0 marks an empty slot.
+ */
+final class CustomerIdSet {
+
+    private long[] ids = new long[16];
+    private int size;
+
+    synchronized boolean contains(long id) {
+        if (id <= 0) {
+            return false;
+        }
+        int mask = ids.length - 1;
+        for (int i = slot(id, mask); ids[i] != 0; i = (i + 1) & mask) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void add(long id) {
+        if (id <= 0) {
+            return;
+        }
+        if ((size + 1) * 2 > ids.length) {
+            resize();
+        }
+        int mask = ids.length - 1;
+        int i = slot(id, mask);
+        while (ids[i] != 0) {
+            if (ids[i] == id) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = id;
+        size++;
+    }
+
+    synchronized void remove(long id) {
+        if (id <= 0) {
+            return;
+        }
+        int mask = ids.length - 1;
+        int gap = slot(id, mask);
+        while (ids[gap] != 0 && ids[gap] != id) {
+            gap = (gap + 1) & mask;
+        }
+        if (ids[gap] == 0) {
+            return;
+        }
+        ids[gap] = 0;
+        size--;
+        // Shift later entries of the probe run back so lookups still reach them
+        for (int i = (gap + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+            int home = slot(ids[i], mask);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                ids[gap] = ids[i];
+                ids[i] = 0;
+                gap = i;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] old = ids;
+        ids = new long[old.length * 2];
+        int mask = ids.length - 1;
+        for (long id : old) {
+            if (id != 0) {
+                int i = slot(id, mask);
+                while (ids[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                ids[i] = id;
+            }
+        }
+    }
+
+    private static int slot(long id, int mask) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
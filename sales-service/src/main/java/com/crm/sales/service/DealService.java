@@ -1,29 +1,45 @@
 package com.crm.sales.service;
 
-import com.crm.sales.client.CustomerClient;
+import com.crm.sales.client.CustomerLoader;
 import com.crm.sales.dto.CustomerDTO;
 import com.crm.sales.dto.DealDTO;
 import com.crm.sales.entity.Deal;
 import com.crm.sales.repository.DealRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class DealService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DealService.class);
+
     @Autowired
     private DealRepository dealRepository;
 
     @Autowired
-    private CustomerClient customerClient;
+    private CustomerLoader customerLoader;
+
+    @Autowired
+    private CustomerCacheService customerCacheService;
+
+    @Autowired
+    private AnalyticsEventPublisher analyticsEventPublisher;
 
     public Deal createDeal(DealDTO dto) {
-        // Verify customer exists via Feign Client
+        // Verify customer exists, from the local cache when it knows the id
         if (dto.getCustomerId() != null) {
-            CustomerDTO customer = customerClient.getCustomerById(dto.getCustomerId());
-            if (customer == null) {
+            if (!customerCacheService.exists(dto.getCompanyId(), dto.getCustomerId())) {
                 throw new RuntimeException("Customer not found with id: " + dto.getCustomerId());
             }
         }
@@ -33,13 +49,99 @@ public class DealService {
         if (dto.getCompanyId() != null) {
             deal.setCompanyId(dto.getCompanyId());
         }
-        return dealRepository.save(deal);
+        Deal saved = dealRepository.save(deal);
+        analyticsEventPublisher.created("DEAL", saved.getId(), saved.getCompanyId(), stageName(saved),
+                saved.getValue(), saved.getCreatedAt());
+        return saved;
     }
 
     public List<Deal> getAllDeals(String companyId) {
         return dealRepository.findByCompanyId(companyId);
     }
 
+    /**
+     * Deal count and value per stage and per stage/month, aggregated in the database.
+     */
+    public Map<String, Object> getDealStats(String companyId) {
+        long totalDeals = 0;
+        List<Map<String, Object>> byStage = new ArrayList<>();
+        for (Object[] row : dealRepository.summarizeByStage(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("stage", row[0] != null ? row[0].toString() : "UNKNOWN");
+            bucket.put("count", row[1]);
+            bucket.put("value", row[2] != null ? row[2] : BigDecimal.ZERO);
+            byStage.add(bucket);
+            totalDeals += ((Number) row[1]).longValue();
+        }
+
+        List<Map<String, Object>> byMonth = new ArrayList<>();
+        for (Object[] row : dealRepository.summarizeByStageAndMonth(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("stage", row[0] != null ? row[0].toString() : "UNKNOWN");
+            bucket.put("year", row[1]);
+            bucket.put("month", row[2]);
+            bucket.put("count", row[3]);
+            bucket.put("value", row[4] != null ? row[4] : BigDecimal.ZERO);
+            byMonth.add(bucket);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalDeals", totalDeals);
+        stats.put("byStage", byStage);
+        stats.put("byMonth", byMonth);
+        return stats;
+    }
+
+    /**
+     * Closed-won deal count and value per creation day, for analytics' trend rollups.
+     */
+    public Map<String, Object> getDailyDealStats(String companyId) {
+        List<Map<String, Object>> closedWon = new ArrayList<>();
+        for (Object[] row : dealRepository.summarizeByDay(companyId, Deal.DealStage.CLOSED_WON)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("year", row[0]);
+            bucket.put("month", row[1]);
+            bucket.put("day", row[2]);
+            bucket.put("count", row[3]);
+            bucket.put("value", row[4] != null ? row[4] : BigDecimal.ZERO);
+            closedWon.add(bucket);
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("closedWonByDay", closedWon);
+        return stats;
+    }
+
+    /**
+     * Fills in the customer name of each deal with one batched lookup for all
+     * of them; names stay null if customer-service cannot be reached.
+     */
+    public List<Deal> withCustomerNames(List<Deal> deals) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Deal deal : deals) {
+            if (deal.getCustomerId() != null) {
+                ids.add(deal.getCustomerId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return deals;
+        }
+        Map<Long, CustomerDTO> customers;
+        try {
+            customers = customerLoader.loadAll(ids);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load customer names for {} deals: {}", deals.size(), e.getMessage());
+            return deals;
+        }
+        for (Deal deal : deals) {
+            CustomerDTO customer = deal.getCustomerId() == null ? null : customers.get(deal.getCustomerId());
+            if (customer != null) {
+                deal.setCustomerName(customer.getFullName());
+            }
+        }
+        return deals;
+    }
+
     public Deal getDealById(Long id) {
         return dealRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Deal not found with id: " + id));
@@ -53,6 +155,37 @@ public class DealService {
         return dealRepository.findByCompanyIdAndCustomerId(companyId, customerId);
     }
 
+    /**
+     * A customer's newest limit deals with total, open count, open value and
+     * won value over all of them, for the customer 360 view.
+     */
+    public Map<String, Object> getCustomerDealSummary(String companyId, Long customerId, int limit) {
+        long total = 0;
+        long open = 0;
+        BigDecimal openValue = BigDecimal.ZERO;
+        BigDecimal wonValue = BigDecimal.ZERO;
+        for (Object[] row : dealRepository.summarizeByCustomer(companyId, customerId)) {
+            Deal.DealStage stage = (Deal.DealStage) row[0];
+            long count = ((Number) row[1]).longValue();
+            BigDecimal value = row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO;
+            total += count;
+            if (stage == Deal.DealStage.CLOSED_WON) {
+                wonValue = wonValue.add(value);
+            } else if (stage != Deal.DealStage.CLOSED_LOST) {
+                open += count;
+                openValue = openValue.add(value);
+            }
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("items", dealRepository.findByCompanyIdAndCustomerIdOrderByCreatedAtDesc(companyId, customerId,
+                PageRequest.of(0, Math.max(1, limit))));
+        summary.put("total", total);
+        summary.put("open", open);
+        summary.put("openValue", openValue);
+        summary.put("wonValue", wonValue);
+        return summary;
+    }
+
     public List<Deal> getDealsByAssignee(String companyId, Long userId) {
         return dealRepository.findByCompanyIdAndAssignedTo(companyId, userId);
     }
@@ -63,19 +196,43 @@ public class DealService {
 
     public Deal updateDeal(Long id, DealDTO dto) {
         Deal deal = getDealById(id);
+        String oldStage = stageName(deal);
+        BigDecimal oldValue = deal.getValue();
         mapDtoToEntity(dto, deal);
-        return dealRepository.save(deal);
+        Deal saved = dealRepository.save(deal);
+        publishUpdate(saved, oldStage, oldValue);
+        return saved;
     }
 
     public Deal updateDealStage(Long id, String stage) {
         Deal deal = getDealById(id);
+        String oldStage = stageName(deal);
         deal.setStage(Deal.DealStage.valueOf(stage.toUpperCase()));
-        return dealRepository.save(deal);
+        Deal saved = dealRepository.save(deal);
+        publishUpdate(saved, oldStage, saved.getValue());
+        return saved;
     }
 
     public void deleteDeal(Long id) {
         Deal deal = getDealById(id);
         dealRepository.delete(deal);
+        analyticsEventPublisher.deleted("DEAL", deal.getId(), deal.getCompanyId(), stageName(deal), deal.getValue(),
+                deal.getCreatedAt());
+    }
+
+    private void publishUpdate(Deal deal, String oldStage, BigDecimal oldValue) {
+        String newStage = stageName(deal);
+        boolean stageChanged = oldStage == null ? newStage != null : !oldStage.equals(newStage);
+        boolean valueChanged = oldValue == null ? deal.getValue() != null
+                : deal.getValue() == null || oldValue.compareTo(deal.getValue()) != 0;
+        if (stageChanged || valueChanged) {
+            analyticsEventPublisher.updated("DEAL", deal.getId(), deal.getCompanyId(), oldStage, newStage, oldValue,
+                    deal.getValue(), deal.getCreatedAt());
+        }
+    }
+
+    private String stageName(Deal deal) {
+        return deal.getStage() != null ? deal.getStage().name() : null;
     }
 
     private void mapDtoToEntity(DealDTO dto, Deal deal) {
@@ -102,5 +259,8 @@ public class DealService {
         deal.setNextStep(dto.getNextStep());
         deal.setProbability(dto.getProbability());
         deal.setCampaignSource(dto.getCampaignSource());
+        if (dto.getPipelineOrder() != null) {
+            deal.setPipelineOrder(dto.getPipelineOrder());
+        }
     }
 }
@@ -0,0 +1,156 @@
+package com.crm.sales.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.crm.sales.dto.CursorPage;
+import com.crm.sales.entity.Deal;
+import com.crm.sales.repository.DealRepository;
+
+/**
+ * The sales board: deals in one column per stage, ordered by pipelineOrder
+ * then id.
+ *
+ * The board is one GROUP BY for every column's count and value plus one
+ * index range read per column for its first page; further pages of a column
+ * are keyset pages on (pipelineOrder, id) over the (companyId, stage,
+ * pipelineOrder) index, so no call reads more rows than it returns however
+ * many deals a column holds.
+ */
+@Service
+public class PipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineService.class);
+
+    @Value("${app.pipeline.page-size:20}")
+    private int defaultSize;
+
+    @Value("${app.pipeline.max-page-size:100}")
+    private int maxSize;
+
+    @Autowired
+    private DealRepository dealRepository;
+
+    @Autowired
+    private DealService dealService;
+
+    /**
+     * Every stage in board order with its count, value and first page of up to size deals.
+     */
+    public Map<String, Object> getBoard(String companyId, Integer size, boolean withCustomers) {
+        Map<Deal.DealStage, Object[]> totals = new EnumMap<>(Deal.DealStage.class);
+        for (Object[] row : dealRepository.summarizeByStage(companyId)) {
+            if (row[0] != null) {
+                totals.put((Deal.DealStage) row[0], row);
+            }
+        }
+
+        long totalCount = 0;
+        BigDecimal totalValue = BigDecimal.ZERO;
+        List<Map<String, Object>> columns = new ArrayList<>();
+        List<Deal> shown = new ArrayList<>();
+        for (Deal.DealStage stage : Deal.DealStage.values()) {
+            Object[] row = totals.get(stage);
+            long count = row == null ? 0 : ((Number) row[1]).longValue();
+            BigDecimal value = row == null || row[2] == null ? BigDecimal.ZERO : (BigDecimal) row[2];
+            CursorPage<Deal> page = count == 0 ? new CursorPage<>(new ArrayList<>(), null)
+                    : page(companyId, stage, null, size);
+            shown.addAll(page.getItems());
+
+            Map<String, Object> column = new LinkedHashMap<>();
+            column.put("stage", stage.name());
+            column.put("count", count);
+            column.put("value", value);
+            column.put("deals", page);
+            columns.add(column);
+            totalCount += count;
+            totalValue = totalValue.add(value);
+        }
+        if (withCustomers) {
+            dealService.withCustomerNames(shown);
+        }
+
+        Map<String, Object> board = new LinkedHashMap<>();
+        board.put("companyId", companyId);
+        board.put("totalCount", totalCount);
+        board.put("totalValue", totalValue);
+        board.put("columns", columns);
+        return board;
+    }
+
+    /**
+     * The deals of one column after the cursor (from the start without one).
+     */
+    public CursorPage<Deal> getColumn(String companyId, String stage, String cursor, Integer size,
+            boolean withCustomers) {
+        CursorPage<Deal> page = page(companyId, Deal.DealStage.valueOf(stage.toUpperCase()), cursor, size);
+        if (withCustomers) {
+            dealService.withCustomerNames(page.getItems());
+        }
+        return page;
+    }
+
+    /**
+     * Gives deals written before pipelineOrder had a default the default, so
+     * every deal is on the board and keyset cursors never meet a null.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPipelineOrder() {
+        int updated = dealRepository.backfillPipelineOrder();
+        if (updated > 0) {
+            logger.info("Set pipelineOrder on {} deals", updated);
+        }
+    }
+
+    private CursorPage<Deal> page(String companyId, Deal.DealStage stage, String cursor, Integer size) {
+        int requested = size != null ? size : defaultSize;
+        int limit = requested < 1 ? 1 : Math.min(requested, maxSize);
+        // One extra row tells whether another page exists
+        PageRequest pageable = PageRequest.of(0, limit + 1);
+        List<Deal> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = dealRepository.findPipelinePage(companyId, stage, pageable);
+        } else {
+            long[] key = decode(cursor);
+            rows = dealRepository.findPipelinePageAfter(companyId, stage, (int) key[0], key[1], pageable);
+        }
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<Deal> items = rows.subList(0, limit);
+        Deal last = items.get(limit - 1);
+        return new CursorPage<>(items, encode(last.getPipelineOrder(), last.getId()));
+    }
+
+    static String encode(Integer pipelineOrder, Long id) {
+        String key = pipelineOrder + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long[] decode(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (key.length != 2) {
+                throw new IllegalArgumentException();
+            }
+            return new long[] { Integer.parseInt(key[0]), Long.parseLong(key[1]) };
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
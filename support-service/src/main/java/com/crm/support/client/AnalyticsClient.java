@@ -0,0 +1,21 @@
+package com.crm.support.client;
+
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Feign Client to push change events to Analytics Service.
+ */
+@FeignClient(name = "analytics-service")
+public interface AnalyticsClient {
+
+    @PostMapping("/api/analytics/events")
+    void publishEvent(@RequestBody Map<String, Object> event);
+
+    @PostMapping("/api/analytics/events/batch")
+    void publishEvents(@RequestBody List<Map<String, Object>> events);
+}
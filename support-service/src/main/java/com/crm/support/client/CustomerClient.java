@@ -0,0 +1,22 @@
+package com.crm.support.client;
+
+import com.crm.support.dto.CustomerDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+
+/**
+ * Feign Client to look up customers in Customer Service.
+ */
+@FeignClient(name = "customer-service")
+public interface CustomerClient {
+
+    /**
+     * Summaries of the customers with these ids; unknown ids are left out.
+     * Go through {@link CustomerLoader} to batch lookups within a request.
+     */
+    @PostMapping("/api/customers/batch")
+    List<CustomerDTO> getCustomersByIds(@RequestBody List<Long> ids);
+}
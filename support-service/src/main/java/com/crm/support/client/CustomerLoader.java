@@ -0,0 +1,119 @@
+package com.crm.support.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import com.crm.support.dto.CustomerDTO;
+
+/**
+ * Request-scoped batching front for {@link CustomerClient}, DataLoader style:
+ * {@link #load} only notes the id and returns a future, and {@link #dispatch}
+ * sends every id noted since in one POST /api/customers/batch per batch-size
+ * ids and completes the futures (with null for customers that do not exist).
+ * Results are kept for the rest of the request, so asking for a customer
+ * again costs no call. A failed call completes its futures exceptionally.
+ *
+ * Nothing dispatches on its own: only ids queued with {@link #load} before a
+ * dispatch, or passed together to {@link #loadAll}, share a call. {@link #get}
+ * dispatches at once, so calling it per item in a loop is still one call per
+ * id; collect the ids and use {@link #loadAll} instead.
+ */
+@Component
+@RequestScope
+public class CustomerLoader {
+
+    @Value("${app.customers.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private CustomerClient customerClient;
+
+    private final Map<Long, CompletableFuture<CustomerDTO>> loaded = new HashMap<>();
+    private final List<Long> pending = new ArrayList<>();
+
+    /**
+     * The customer with this id, once {@link #dispatch} has run.
+     */
+    public synchronized CompletableFuture<CustomerDTO> load(Long id) {
+        CompletableFuture<CustomerDTO> future = loaded.get(id);
+        if (future == null) {
+            future = new CompletableFuture<>();
+            loaded.put(id, future);
+            pending.add(id);
+        }
+        return future;
+    }
+
+    /**
+     * Fetches every id passed to {@link #load} that has not been fetched yet.
+     */
+    public synchronized void dispatch() {
+        while (!pending.isEmpty()) {
+            List<Long> batch = new ArrayList<>(pending.subList(0, Math.min(batchSize, pending.size())));
+            pending.subList(0, batch.size()).clear();
+            try {
+                Map<Long, CustomerDTO> found = new HashMap<>();
+                for (CustomerDTO customer : customerClient.getCustomersByIds(batch)) {
+                    found.put(customer.getId(), customer);
+                }
+                for (Long id : batch) {
+                    loaded.get(id).complete(found.get(id));
+                }
+            } catch (RuntimeException e) {
+                for (Long id : batch) {
+                    loaded.get(id).completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The customers with these ids that exist, by id, fetched in as few calls as possible.
+     */
+    public Map<Long, CustomerDTO> loadAll(Collection<Long> ids) {
+        Map<Long, CompletableFuture<CustomerDTO>> futures = new LinkedHashMap<>();
+        for (Long id : ids) {
+            if (id != null) {
+                futures.put(id, load(id));
+            }
+        }
+        dispatch();
+        Map<Long, CustomerDTO> customers = new LinkedHashMap<>();
+        for (Map.Entry<Long, CompletableFuture<CustomerDTO>> entry : futures.entrySet()) {
+            CustomerDTO customer = join(entry.getValue());
+            if (customer != null) {
+                customers.put(entry.getKey(), customer);
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * The customer with this id, or null when it does not exist. Dispatches
+     * right away, together with whatever {@link #load} has queued.
+     */
+    public CustomerDTO get(Long id) {
+        CompletableFuture<CustomerDTO> future = load(id);
+        dispatch();
+        return join(future);
+    }
+
+    private static CustomerDTO join(CompletableFuture<CustomerDTO> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
@@ -38,8 +38,18 @@ public class TicketController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Ticket>> getAllTickets(@RequestParam String companyId) {
-        return ResponseEntity.ok(ticketService.getAllTickets(companyId));
+    public ResponseEntity<List<Ticket>> getAllTickets(@RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(ticketService.getAllTickets(companyId), expand));
+    }
+
+    /**
+     * GET /api/tickets/stats
+     * Ticket count per status, computed in the database.
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getTicketStats(@RequestParam String companyId) {
+        return ResponseEntity.ok(ticketService.getTicketStats(companyId));
     }
 
     @GetMapping("/{id}")
@@ -49,8 +59,8 @@ public class TicketController {
 
     @GetMapping("/status/{status}")
     public ResponseEntity<List<Ticket>> getTicketsByStatus(@PathVariable String status,
-            @RequestParam String companyId) {
-        return ResponseEntity.ok(ticketService.getTicketsByStatus(companyId, status));
+            @RequestParam String companyId, @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(ticketService.getTicketsByStatus(companyId, status), expand));
     }
 
     @GetMapping("/customer/{customerId}")
@@ -59,9 +69,20 @@ public class TicketController {
         return ResponseEntity.ok(ticketService.getTicketsByCustomer(companyId, customerId));
     }
 
+    /**
+     * GET /api/tickets/customer/{customerId}/summary
+     * The customer's newest tickets, at most limit, with counts over all of them.
+     */
+    @GetMapping("/customer/{customerId}/summary")
+    public ResponseEntity<Map<String, Object>> getCustomerTicketSummary(@PathVariable Long customerId,
+            @RequestParam String companyId, @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ticketService.getCustomerTicketSummary(companyId, customerId, limit));
+    }
+
     @GetMapping("/search")
-    public ResponseEntity<List<Ticket>> searchTickets(@RequestParam String keyword, @RequestParam String companyId) {
-        return ResponseEntity.ok(ticketService.searchTickets(companyId, keyword));
+    public ResponseEntity<List<Ticket>> searchTickets(@RequestParam String keyword, @RequestParam String companyId,
+            @RequestParam(required = false) String expand) {
+        return ResponseEntity.ok(expand(ticketService.searchTickets(companyId, keyword), expand));
     }
 
     @PutMapping("/{id}")
@@ -95,4 +116,11 @@ public class TicketController {
     public ResponseEntity<List<TicketResponse>> getResponses(@PathVariable Long id) {
         return ResponseEntity.ok(ticketService.getResponses(id));
     }
+
+    /**
+     * expand=customer adds customerName to every ticket, looked up in one batch.
+     */
+    private List<Ticket> expand(List<Ticket> tickets, String expand) {
+        return "customer".equals(expand) ? ticketService.withCustomerNames(tickets) : tickets;
+    }
 }
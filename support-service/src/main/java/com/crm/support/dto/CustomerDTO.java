@@ -0,0 +1,23 @@
+package com.crm.support.dto;
+
+import lombok.Data;
+
+/**
+ * DTO to receive Customer data from customer-service via Feign.
+ */
+@Data
+public class CustomerDTO {
+
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String company;
+    private String status;
+
+    public String getFullName() {
+        String name = (firstName == null ? "" : firstName) + " " + (lastName == null ? "" : lastName);
+        return name.trim();
+    }
+}
@@ -18,6 +18,7 @@ import javax.persistence.PrePersist;
 import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Index;
+import javax.persistence.Transient;
 
 import lombok.NoArgsConstructor;
 
@@ -26,7 +27,8 @@ import lombok.NoArgsConstructor;
         @Index(name = "idx_ticket_company_id", columnList = "companyId"),
         @Index(name = "idx_ticket_status", columnList = "status"),
         @Index(name = "idx_ticket_assigned_to", columnList = "assignedTo"),
-        @Index(name = "idx_ticket_customer_id", columnList = "customerId")
+        @Index(name = "idx_ticket_customer_id", columnList = "customerId"),
+        @Index(name = "idx_ticket_company_customer", columnList = "companyId, customerId, createdAt")
 })
 @lombok.Getter
 @lombok.Setter
@@ -60,6 +62,9 @@ public class Ticket {
     private Long assignedTo; // from auth-service
     private Long createdBy;
 
+    @Transient
+    private String customerName; // filled by TicketService#withCustomerNames, not stored
+
     @Column(length = 36)
     private String companyId;
 
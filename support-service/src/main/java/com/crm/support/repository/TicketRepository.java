@@ -2,7 +2,10 @@ package com.crm.support.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.crm.support.entity.Ticket;
@@ -16,9 +19,26 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
 
     List<Ticket> findByCompanyIdAndCustomerId(String companyId, Long customerId);
 
+    List<Ticket> findByCompanyIdAndCustomerIdOrderByCreatedAtDesc(String companyId, Long customerId,
+            Pageable pageable);
+
+    /**
+     * A customer's ticket count per status as rows of [status, count].
+     */
+    @Query("SELECT t.status, COUNT(t) FROM Ticket t "
+            + "WHERE t.companyId = :companyId AND t.customerId = :customerId GROUP BY t.status")
+    List<Object[]> countByStatusForCustomer(@Param("companyId") String companyId,
+            @Param("customerId") Long customerId);
+
     List<Ticket> findByCompanyIdAndAssignedTo(String companyId, Long assignedTo);
 
     List<Ticket> findByCompanyIdAndSubjectContaining(String companyId, String subject);
 
     long countByStatus(Ticket.TicketStatus status);
+
+    /**
+     * Ticket count per status as rows of [status, count].
+     */
+    @Query("SELECT t.status, COUNT(t) FROM Ticket t WHERE t.companyId = :companyId GROUP BY t.status")
+    List<Object[]> countByStatus(@Param("companyId") String companyId);
 }
@@ -1,11 +1,21 @@
 package com.crm.support.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.crm.support.client.CustomerLoader;
+import com.crm.support.dto.CustomerDTO;
 import com.crm.support.dto.TicketDTO;
 import com.crm.support.entity.Ticket;
 import com.crm.support.entity.TicketResponse;
@@ -15,25 +25,86 @@ import com.crm.support.repository.TicketResponseRepository;
 @Service
 public class TicketService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TicketService.class);
+
     @Autowired
     private TicketRepository ticketRepository;
 
     @Autowired
     private TicketResponseRepository responseRepository;
 
+    @Autowired
+    private AnalyticsEventPublisher analyticsEventPublisher;
+
+    @Autowired
+    private CustomerLoader customerLoader;
+
     public Ticket createTicket(TicketDTO dto) {
         Ticket ticket = new Ticket();
         mapDtoToEntity(dto, ticket);
         if (dto.getCompanyId() != null) {
             ticket.setCompanyId(dto.getCompanyId());
         }
-        return ticketRepository.save(ticket);
+        Ticket saved = ticketRepository.save(ticket);
+        analyticsEventPublisher.created("TICKET", saved.getId(), saved.getCompanyId(), statusName(saved),
+                saved.getCreatedAt());
+        return saved;
     }
 
     public List<Ticket> getAllTickets(String companyId) {
         return ticketRepository.findByCompanyId(companyId);
     }
 
+    /**
+     * Ticket count per status, aggregated in the database.
+     */
+    public Map<String, Object> getTicketStats(String companyId) {
+        long totalTickets = 0;
+        List<Map<String, Object>> byStatus = new ArrayList<>();
+        for (Object[] row : ticketRepository.countByStatus(companyId)) {
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("status", row[0] != null ? row[0].toString() : "UNKNOWN");
+            bucket.put("count", row[1]);
+            byStatus.add(bucket);
+            totalTickets += ((Number) row[1]).longValue();
+        }
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalTickets", totalTickets);
+        stats.put("byStatus", byStatus);
+        return stats;
+    }
+
+    /**
+     * Fills in the customer name of each ticket with one batched lookup for
+     * all of them; names stay null if customer-service cannot be reached.
+     */
+    public List<Ticket> withCustomerNames(List<Ticket> tickets) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Ticket ticket : tickets) {
+            if (ticket.getCustomerId() != null) {
+                ids.add(ticket.getCustomerId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return tickets;
+        }
+        Map<Long, CustomerDTO> customers;
+        try {
+            customers = customerLoader.loadAll(ids);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load customer names for {} tickets: {}", tickets.size(), e.getMessage());
+            return tickets;
+        }
+        for (Ticket ticket : tickets) {
+            CustomerDTO customer = ticket.getCustomerId() == null ? null : customers.get(ticket.getCustomerId());
+            if (customer != null) {
+                ticket.setCustomerName(customer.getFullName());
+            }
+        }
+        return tickets;
+    }
+
     public Ticket getTicketById(Long id) {
         return ticketRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Ticket not found with id: " + id));
@@ -47,6 +118,29 @@ public class TicketService {
         return ticketRepository.findByCompanyIdAndCustomerId(companyId, customerId);
     }
 
+    /**
+     * A customer's newest limit tickets with total and open counts over all
+     * of them, for the customer 360 view.
+     */
+    public Map<String, Object> getCustomerTicketSummary(String companyId, Long customerId, int limit) {
+        long total = 0;
+        long open = 0;
+        for (Object[] row : ticketRepository.countByStatusForCustomer(companyId, customerId)) {
+            Ticket.TicketStatus status = (Ticket.TicketStatus) row[0];
+            long count = ((Number) row[1]).longValue();
+            total += count;
+            if (status != Ticket.TicketStatus.RESOLVED && status != Ticket.TicketStatus.CLOSED) {
+                open += count;
+            }
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("items", ticketRepository.findByCompanyIdAndCustomerIdOrderByCreatedAtDesc(companyId,
+                customerId, PageRequest.of(0, Math.max(1, limit))));
+        summary.put("total", total);
+        summary.put("open", open);
+        return summary;
+    }
+
     public List<Ticket> getTicketsByAssignee(String companyId, Long userId) {
         return ticketRepository.findByCompanyIdAndAssignedTo(companyId, userId);
     }
@@ -57,22 +151,35 @@ public class TicketService {
 
     public Ticket updateTicket(Long id, TicketDTO dto) {
         Ticket ticket = getTicketById(id);
+        String oldCompanyId = ticket.getCompanyId();
+        String oldStatus = statusName(ticket);
         mapDtoToEntity(dto, ticket);
         if (dto.getCompanyId() != null) {
             ticket.setCompanyId(dto.getCompanyId());
         }
-        return ticketRepository.save(ticket);
+        Ticket saved = ticketRepository.save(ticket);
+        if (oldCompanyId != null && !oldCompanyId.equals(saved.getCompanyId())) {
+            analyticsEventPublisher.deleted("TICKET", saved.getId(), oldCompanyId, oldStatus, saved.getCreatedAt());
+            analyticsEventPublisher.created("TICKET", saved.getId(), saved.getCompanyId(), statusName(saved),
+                    saved.getCreatedAt());
+        } else {
+            publishStatusChange(saved, oldStatus);
+        }
+        return saved;
     }
 
     public Ticket updateTicketStatus(Long id, String status) {
         Ticket ticket = getTicketById(id);
+        String oldStatus = statusName(ticket);
         Ticket.TicketStatus newStatus = Ticket.TicketStatus.valueOf(status.toUpperCase());
         ticket.setStatus(newStatus);
 
         if (newStatus == Ticket.TicketStatus.RESOLVED || newStatus == Ticket.TicketStatus.CLOSED) {
             ticket.setResolvedAt(LocalDateTime.now());
         }
-        return ticketRepository.save(ticket);
+        Ticket saved = ticketRepository.save(ticket);
+        publishStatusChange(saved, oldStatus);
+        return saved;
     }
 
     // ============ Responses ============
@@ -95,6 +202,20 @@ public class TicketService {
     public void deleteTicket(Long id) {
         Ticket ticket = getTicketById(id);
         ticketRepository.delete(ticket);
+        analyticsEventPublisher.deleted("TICKET", ticket.getId(), ticket.getCompanyId(), statusName(ticket),
+                ticket.getCreatedAt());
+    }
+
+    private void publishStatusChange(Ticket ticket, String oldStatus) {
+        String newStatus = statusName(ticket);
+        if (oldStatus == null ? newStatus != null : !oldStatus.equals(newStatus)) {
+            analyticsEventPublisher.updated("TICKET", ticket.getId(), ticket.getCompanyId(), oldStatus, newStatus,
+                    ticket.getCreatedAt());
+        }
+    }
+
+    private String statusName(Ticket ticket) {
+        return ticket.getStatus() != null ? ticket.getStatus().name() : null;
     }
 
     private void mapDtoToEntity(TicketDTO dto, Ticket ticket) {